@@ -17,6 +17,10 @@ public class BotspaceAccount {
     private String abandonedCartTemplateId;
     private String postDeliveredFollowUpTemplateId;
 
+    // Send rate for this account (token bucket); null = botspace.dispatch.default-*
+    private Double messagesPerSecond;
+    private Integer burst;
+
     public BotspaceAccount() {
     }
 
@@ -100,6 +104,22 @@ public class BotspaceAccount {
         this.postDeliveredFollowUpTemplateId = postDeliveredFollowUpTemplateId;
     }
 
+    public Double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public void setMessagesPerSecond(Double messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    public Integer getBurst() {
+        return burst;
+    }
+
+    public void setBurst(Integer burst) {
+        this.burst = burst;
+    }
+
     /**
      * Build the full API URL
      */
@@ -3,29 +3,15 @@ package com.shipway.ordertracking.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.web.client.RestTemplate;
 
+/**
+ * Shared beans. The outbound RestTemplates (Shopify, Botspace) are in {@link HttpClientConfig}.
+ */
 @Configuration
 public class BotspaceConfig {
 
-    @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
-        restTemplate.setRequestFactory(clientHttpRequestFactory());
-        return restTemplate;
-    }
-
     @Bean
     public ObjectMapper objectMapper() {
         return new ObjectMapper();
     }
-
-    private ClientHttpRequestFactory clientHttpRequestFactory() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(5000); // 5 seconds
-        factory.setReadTimeout(10000); // 10 seconds
-        return factory;
-    }
 }
@@ -0,0 +1,130 @@
+package com.shipway.ordertracking.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Outbound HTTP: one pooled Apache HttpClient for Shopify (a route per shop) and one for Botspace, so connections
+ * (and TLS sessions) are kept alive and reused instead of set up per call, and a burst against one upstream cannot
+ * take the other's connections ({@code http.client.shopify.*} / {@code http.client.botspace.*}).
+ * <p>
+ * Idle connections are evicted after {@code idle-evict-seconds}; every connection is retired after
+ * {@code ttl-seconds}. Pool metrics: {@code httpcomponents.httpclient.pool.*} tagged {@code httpclient=shopify|botspace}.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    /** Pool sizing and timeouts for one upstream. */
+    public record PoolSettings(int maxTotal, int maxPerRoute, int connectTimeoutMs, int readTimeoutMs,
+            long ttlSeconds) {
+    }
+
+    @Bean
+    public PoolingHttpClientConnectionManager shopifyConnectionManager(
+            @Value("${http.client.shopify.max-total:50}") int maxTotal,
+            @Value("${http.client.shopify.max-per-route:10}") int maxPerRoute,
+            @Value("${http.client.connect-timeout-ms:5000}") int connectTimeoutMs,
+            @Value("${http.client.read-timeout-ms:10000}") int readTimeoutMs,
+            @Value("${http.client.ttl-seconds:300}") long ttlSeconds,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return boundConnectionManager("shopify", new PoolSettings(maxTotal, maxPerRoute, connectTimeoutMs,
+                readTimeoutMs, ttlSeconds), meterRegistry);
+    }
+
+    @Bean
+    public PoolingHttpClientConnectionManager botspaceConnectionManager(
+            @Value("${http.client.botspace.max-total:20}") int maxTotal,
+            @Value("${http.client.botspace.max-per-route:20}") int maxPerRoute,
+            @Value("${http.client.connect-timeout-ms:5000}") int connectTimeoutMs,
+            @Value("${http.client.read-timeout-ms:10000}") int readTimeoutMs,
+            @Value("${http.client.ttl-seconds:300}") long ttlSeconds,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return boundConnectionManager("botspace", new PoolSettings(maxTotal, maxPerRoute, connectTimeoutMs,
+                readTimeoutMs, ttlSeconds), meterRegistry);
+    }
+
+    @Bean
+    public CloseableHttpClient shopifyHttpClient(
+            @Qualifier("shopifyConnectionManager") PoolingHttpClientConnectionManager connectionManager,
+            @Value("${http.client.connection-request-timeout-ms:5000}") int connectionRequestTimeoutMs,
+            @Value("${http.client.idle-evict-seconds:30}") long idleEvictSeconds) {
+        return httpClient(connectionManager, connectionRequestTimeoutMs, idleEvictSeconds);
+    }
+
+    @Bean
+    public CloseableHttpClient botspaceHttpClient(
+            @Qualifier("botspaceConnectionManager") PoolingHttpClientConnectionManager connectionManager,
+            @Value("${http.client.connection-request-timeout-ms:5000}") int connectionRequestTimeoutMs,
+            @Value("${http.client.idle-evict-seconds:30}") long idleEvictSeconds) {
+        return httpClient(connectionManager, connectionRequestTimeoutMs, idleEvictSeconds);
+    }
+
+    @Bean
+    public RestTemplate shopifyRestTemplate(@Qualifier("shopifyHttpClient") CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    @Bean
+    public RestTemplate botspaceRestTemplate(@Qualifier("botspaceHttpClient") CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    private static PoolingHttpClientConnectionManager boundConnectionManager(String name, PoolSettings settings,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = connectionManager(settings, null);
+        meterRegistry.ifAvailable(registry ->
+                new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name).bindTo(registry));
+        return connectionManager;
+    }
+
+    /**
+     * Pool with {@code settings}; {@code sslSocketFactory} overrides the default TLS setup (tests and benchmarks
+     * against a self-signed stub), {@code null} keeps the JVM trust store.
+     */
+    @SuppressWarnings("deprecation")
+    public static PoolingHttpClientConnectionManager connectionManager(PoolSettings settings,
+            SSLConnectionSocketFactory sslSocketFactory) {
+        PoolingHttpClientConnectionManagerBuilder builder = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxTotal())
+                .setMaxConnPerRoute(settings.maxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(settings.connectTimeoutMs()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(settings.readTimeoutMs()))
+                        .setTimeToLive(TimeValue.ofSeconds(settings.ttlSeconds()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build());
+        if (sslSocketFactory != null) {
+            builder.setSSLSocketFactory(sslSocketFactory);
+        }
+        return builder.build();
+    }
+
+    /** Client on {@code connectionManager} that waits at most {@code connectionRequestTimeoutMs} for a lease. */
+    public static CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager,
+            int connectionRequestTimeoutMs, long idleEvictSeconds) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMs))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictSeconds))
+                .evictExpiredConnections()
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.shipway.ordertracking.config;
+
+import com.shipway.ordertracking.service.UpstreamResilience;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/upstreams}: circuit breaker state per shop / Botspace account and retry counts, see
+ * {@link UpstreamResilience}.
+ */
+@Component
+@Endpoint(id = "upstreams")
+public class UpstreamResilienceEndpoint {
+
+    @Autowired
+    private UpstreamResilience upstreamResilience;
+
+    @ReadOperation
+    public Map<String, Object> upstreams() {
+        return upstreamResilience.getStats();
+    }
+}
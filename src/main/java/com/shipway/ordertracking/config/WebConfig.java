@@ -1,12 +1,19 @@
 package com.shipway.ordertracking.config;
 
+import com.shipway.ordertracking.service.WebhookAdmissionControl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    /** Absent in web slice tests that do not import it. */
+    @Autowired(required = false)
+    private WebhookAdmissionControl webhookAdmissionControl;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -15,4 +22,17 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .maxAge(3600);
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (webhookAdmissionControl == null) {
+            return;
+        }
+        registry.addInterceptor(new WebhookAdmissionInterceptor(webhookAdmissionControl,
+                WebhookAdmissionControl.STATUS)).addPathPatterns("/webhook");
+        registry.addInterceptor(new WebhookAdmissionInterceptor(webhookAdmissionControl,
+                WebhookAdmissionControl.ORDER_CREATED)).addPathPatterns("/webhook/shopify/order-created");
+        registry.addInterceptor(new WebhookAdmissionInterceptor(webhookAdmissionControl,
+                WebhookAdmissionControl.CART_ABANDONED)).addPathPatterns("/webhook/cart-abandoned");
+    }
 }
@@ -0,0 +1,63 @@
+package com.shipway.ordertracking.config;
+
+import com.shipway.ordertracking.service.WebhookAdmissionControl;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Takes the per-endpoint {@link WebhookAdmissionControl} slot before a webhook body is read; answers 429 with
+ * {@code Retry-After} when the endpoint is saturated. Registered per path in {@link WebConfig}.
+ */
+public class WebhookAdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = WebhookAdmissionInterceptor.class.getName() + ".permit";
+
+    private final WebhookAdmissionControl admissionControl;
+    private final String endpoint;
+
+    public WebhookAdmissionInterceptor(WebhookAdmissionControl admissionControl, String endpoint) {
+        this.admissionControl = admissionControl;
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (!"POST".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        WebhookAdmissionControl.Permit permit = admissionControl.tryAcquireEndpoint(endpoint);
+        if (permit == null) {
+            writeTooManyRequests(response, admissionControl.getRetryAfterSeconds(), "endpoint " + endpoint);
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object permit = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit instanceof WebhookAdmissionControl.Permit p) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            p.close();
+        }
+    }
+
+    private static void writeTooManyRequests(HttpServletResponse response, int retryAfterSeconds, String what)
+            throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(("{\"success\":false,\"error\":\"Too many concurrent webhooks for "
+                + what + ", retry later\"}").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,10 +1,11 @@
 package com.shipway.ordertracking.controller;
 
-import com.shipway.ordertracking.dto.BulkFulfillFromTrackingResponse;
+import com.shipway.ordertracking.dto.BulkFulfillmentJobStatus;
 import com.shipway.ordertracking.dto.FulfillAttemptResult;
 import com.shipway.ordertracking.dto.UnfulfilledShopifyOrderItem;
 import com.shipway.ordertracking.dto.UnfulfilledShopifyPreviewResponse;
 import com.shipway.ordertracking.repository.LabelAwbRepository;
+import com.shipway.ordertracking.service.BulkFulfillmentJobService;
 import com.shipway.ordertracking.service.OrderTrackingBulkFulfillmentService;
 import com.shipway.ordertracking.service.ShopifyService;
 import com.shipway.ordertracking.service.UnfulfilledShopifyPreviewService;
@@ -53,6 +54,9 @@ public class FulfillmentUiController {
     @Autowired
     private OrderTrackingBulkFulfillmentService orderTrackingBulkFulfillmentService;
 
+    @Autowired
+    private BulkFulfillmentJobService bulkFulfillmentJobService;
+
     @Autowired
     private LabelAwbRepository labelAwbRepository;
 
@@ -143,21 +147,21 @@ public class FulfillmentUiController {
         attachAwbsFromLabelTable(sorted);
 
         log.info("UI Apply all to Shopify: visibleRows={} accountFilter={} limit={}", sorted.size(), acct, capped);
-        BulkFulfillFromTrackingResponse bulk = orderTrackingBulkFulfillmentService.fulfillPreviewItems(sorted);
-
-        Map<String, Integer> sum = bulk.getSummary();
-        String flash = String.format(Locale.ENGLISH,
-                "Apply all finished: attempted=%d, succeeded=%d, failed=%d, skipped (tracking status not eligible)=%d — %d row(s) in table.",
-                sum.getOrDefault("attempted", 0),
-                sum.getOrDefault("succeeded", 0),
-                sum.getOrDefault("failed", 0),
-                sum.getOrDefault("skippedNotDeliveredInTransitOrOfd", 0),
-                sum.getOrDefault("previewItemsTotal", 0));
-        boolean flashSuccess = sum.getOrDefault("failed", 0) == 0;
-        model.addAttribute("flashMessage", flash);
-        model.addAttribute("flashSuccess", flashSuccess);
+        BulkFulfillmentJobStatus job = bulkFulfillmentJobService.submitItems(sorted, acct, capped);
 
-        refreshFulfillmentTableModel(model, acct, capped, lastAccountCode);
+        model.addAttribute("bulkJobId", job.getJobId());
+        model.addAttribute("flashMessage", String.format(Locale.ENGLISH,
+                "Apply all started in the background for %d row(s) — job %s. Progress is shown below.",
+                sorted.size(), job.getJobId()));
+        model.addAttribute("flashSuccess", true);
+
+        // Table as submitted; reload after the job finishes to see Shopify's new state
+        model.addAttribute("items", sorted);
+        model.addAttribute("counts", preview.getCounts());
+        model.addAttribute("orderIds", sorted.stream().map(UnfulfilledShopifyOrderItem::getOrderId).filter(Objects::nonNull)
+                .toList());
+        model.addAttribute("lastAccountCode", lastAccountCode != null ? lastAccountCode.trim() : "");
+        model.addAttribute("lastLimit", capped);
         addShopifyCreatedCutoffToModel(model);
         return "fulfillment-dashboard";
     }
@@ -1,18 +1,34 @@
 package com.shipway.ordertracking.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shipway.ordertracking.dto.BulkFulfillFromTrackingRequest;
 import com.shipway.ordertracking.dto.BulkFulfillFromTrackingResponse;
+import com.shipway.ordertracking.dto.BulkFulfillmentJobStatus;
+import com.shipway.ordertracking.dto.JsonRecordStreamWriter;
 import com.shipway.ordertracking.dto.UnfulfilledShopifyPreviewResponse;
+import com.shipway.ordertracking.service.BulkFulfillmentJobService;
 import com.shipway.ordertracking.service.OrderTrackingBulkFulfillmentService;
 import com.shipway.ordertracking.service.UnfulfilledShopifyPreviewService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Preview GET plus POST to fulfill in Shopify when tracking is delivered / in transit / out for delivery only.
@@ -21,14 +37,22 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/orders")
 public class OrderFulfillmentPreviewController {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderFulfillmentPreviewController.class);
+
     private static final int MAX_FETCH_LIMIT = 2000;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private UnfulfilledShopifyPreviewService unfulfilledShopifyPreviewService;
 
     @Autowired
     private OrderTrackingBulkFulfillmentService orderTrackingBulkFulfillmentService;
 
+    @Autowired
+    private BulkFulfillmentJobService bulkFulfillmentJobService;
+
     /**
      * Loads unfulfilled orders from Shopify (bulk GraphQL), then for each order loads the latest
      * {@code order_tracking} row and returns those whose {@code shipment_status} is in transit,
@@ -63,4 +87,113 @@ public class OrderFulfillmentPreviewController {
         }
         return ResponseEntity.ok(orderTrackingBulkFulfillmentService.execute(body));
     }
+
+    /**
+     * Streaming {@link #listUnfulfilledWithTrackingStatus}: an {@code item} record per matching order as each Shopify
+     * page is matched, then a {@code summary} record with the counts. NDJSON by default, SSE with
+     * {@code Accept: text/event-stream}.
+     */
+    @GetMapping("/unfulfilled-with-tracking-status/stream")
+    public ResponseEntity<StreamingResponseBody> streamUnfulfilledWithTrackingStatus(
+            @RequestParam(required = false) String accountCode,
+            @RequestParam(required = false, defaultValue = "200") int limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        int fetchLimit = Math.min(Math.max(limit, 1), MAX_FETCH_LIMIT);
+        boolean sse = JsonRecordStreamWriter.wantsSse(accept);
+        StreamingResponseBody body = out -> {
+            JsonRecordStreamWriter writer = new JsonRecordStreamWriter(objectMapper, out, sse);
+            stream(writer, () -> {
+                Map<String, Integer> counts = unfulfilledShopifyPreviewService.streamPreview(accountCode, fetchLimit,
+                        item -> write(writer, "item", item));
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("counts", counts);
+                writer.write("summary", summary);
+            });
+        };
+        return ResponseEntity.ok().contentType(JsonRecordStreamWriter.contentType(sse)).body(body);
+    }
+
+    /**
+     * Streaming {@link #fulfillFromTracking}: a {@code result} record per order as its chunk finishes, then a
+     * {@code summary} record ({@code dryRun}, {@code summary}). NDJSON by default, SSE with
+     * {@code Accept: text/event-stream}. Closing the connection stops the run after the chunk in progress.
+     */
+    @PostMapping("/fulfill-from-tracking/stream")
+    public ResponseEntity<StreamingResponseBody> streamFulfillFromTracking(
+            @RequestBody(required = false) BulkFulfillFromTrackingRequest body,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        BulkFulfillFromTrackingRequest request = body != null ? body : new BulkFulfillFromTrackingRequest();
+        boolean sse = JsonRecordStreamWriter.wantsSse(accept);
+        StreamingResponseBody stream = out -> {
+            JsonRecordStreamWriter writer = new JsonRecordStreamWriter(objectMapper, out, sse);
+            stream(writer, () -> {
+                Map<String, Integer> summary = orderTrackingBulkFulfillmentService.executeStreaming(request,
+                        result -> write(writer, "result", result));
+                Map<String, Object> last = new LinkedHashMap<>();
+                last.put("dryRun", request.isDryRun());
+                last.put("summary", summary);
+                writer.write("summary", last);
+            });
+        };
+        return ResponseEntity.ok().contentType(JsonRecordStreamWriter.contentType(sse)).body(stream);
+    }
+
+    private interface StreamBody {
+        void run() throws IOException;
+    }
+
+    /** Run {@code body}; a failure after the response has started is reported as a final {@code error} record. */
+    private static void stream(JsonRecordStreamWriter writer, StreamBody body) throws IOException {
+        try {
+            body.run();
+        } catch (UncheckedIOException e) {
+            log.warn("Streaming response aborted (client gone?): {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Streaming response failed: {}", e.getMessage(), e);
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("success", false);
+            error.put("error", "Internal server error: " + e.getMessage());
+            writer.write("error", error);
+        }
+    }
+
+    private static void write(JsonRecordStreamWriter writer, String type, Object data) {
+        try {
+            writer.write(type, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Same as {@link #fulfillFromTracking} as a background job: returns 202 with the {@code jobId} right away; poll
+     * {@code GET /api/orders/fulfill-from-tracking/jobs/{jobId}} for progress.
+     */
+    @PostMapping("/fulfill-from-tracking/jobs")
+    public ResponseEntity<BulkFulfillmentJobStatus> submitFulfillFromTrackingJob(
+            @RequestBody(required = false) BulkFulfillFromTrackingRequest body) {
+        if (body == null) {
+            body = new BulkFulfillFromTrackingRequest();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(bulkFulfillmentJobService.submit(body));
+    }
+
+    /**
+     * Progress of a bulk fulfillment job; {@code results=true} adds the per-row results processed so far.
+     */
+    @GetMapping("/fulfill-from-tracking/jobs/{jobId}")
+    public ResponseEntity<BulkFulfillmentJobStatus> getFulfillFromTrackingJob(@PathVariable String jobId,
+            @RequestParam(required = false, defaultValue = "false") boolean results) {
+        BulkFulfillmentJobStatus status = bulkFulfillmentJobService.getStatus(jobId, results);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Cancel a bulk fulfillment job; it stops after the chunk in progress.
+     */
+    @PostMapping("/fulfill-from-tracking/jobs/{jobId}/cancel")
+    public ResponseEntity<BulkFulfillmentJobStatus> cancelFulfillFromTrackingJob(@PathVariable String jobId) {
+        BulkFulfillmentJobStatus status = bulkFulfillmentJobService.cancel(jobId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
 }
@@ -0,0 +1,85 @@
+package com.shipway.ordertracking.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.service.PayloadCaptureService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin view of sampled payload captures (webhook / Shopify / Botspace), see {@link PayloadCaptureService}.
+ */
+@RestController
+@RequestMapping("/api/captures")
+public class PayloadCaptureController {
+
+    @Autowired
+    private PayloadCaptureService payloadCaptureService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Captures for one order, newest first.
+     * Example: GET /api/captures?orderId=254120&channel=shopify&limit=20
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> findByOrderId(
+            @RequestParam String orderId,
+            @RequestParam(required = false) String channel,
+            @RequestParam(defaultValue = "50") int limit) {
+        PayloadCaptureService.Channel channelFilter = null;
+        if (channel != null && !channel.isBlank()) {
+            try {
+                channelFilter = PayloadCaptureService.Channel.valueOf(channel.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("success", false);
+                error.put("error", "Unknown channel: " + channel + " (use webhook, shopify or botspace)");
+                return ResponseEntity.badRequest().body(error);
+            }
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (PayloadCaptureService.Capture c : payloadCaptureService.findByOrderId(orderId, channelFilter, limit)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("seq", c.seq());
+            row.put("capturedAt", c.capturedAt().toString());
+            row.put("channel", c.channel().name().toLowerCase());
+            row.put("label", c.label());
+            row.put("orderId", c.orderId());
+            row.put("error", c.error());
+            row.put("payload", renderPayload(c.payload()));
+            rows.add(row);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("orderId", orderId);
+        response.put("count", rows.size());
+        response.put("captures", rows);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Buffer fill and sample rate per channel.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(payloadCaptureService.getStats());
+    }
+
+    private Object renderPayload(byte[] payload) {
+        try {
+            return objectMapper.readTree(payload);
+        } catch (Exception e) {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,22 +1,32 @@
 package com.shipway.ordertracking.controller;
 
 import com.shipway.ordertracking.dto.FasterrAbandonedCartWebhook;
+import com.shipway.ordertracking.dto.OrderStatusStreamReader;
 import com.shipway.ordertracking.dto.ShopifyOrderCreatedWebhook;
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
-import com.shipway.ordertracking.dto.WebhookWrapper;
 
 import com.shipway.ordertracking.service.OrderCreatedFlowService;
+import com.shipway.ordertracking.service.PayloadCaptureService;
 import com.shipway.ordertracking.service.WebhookProcessingService;
 import com.shipway.ordertracking.service.AbandonedCartFlowService;
+import com.shipway.ordertracking.service.ClaimioStatusWebhookAdapter;
+import com.shipway.ordertracking.service.FasterrCartWebhookAdapter;
+import com.shipway.ordertracking.service.WebhookSourceAdapter;
+import com.shipway.ordertracking.service.WebhookSourceAdapterRegistry;
+import com.shipway.ordertracking.service.StatusWebhookFanOutService;
+import com.shipway.ordertracking.service.WebhookIngestionService;
+import com.shipway.ordertracking.service.WebhookAdmissionControl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/webhook")
@@ -34,64 +44,194 @@ public class WebhookController {
     private AbandonedCartFlowService abandonedCartFlowService;
 
     @Autowired
-    private com.fasterxml.jackson.databind.ObjectMapper objectMapper;
+    private StatusWebhookFanOutService statusWebhookFanOutService;
+
+    @Autowired
+    private WebhookIngestionService webhookIngestionService;
+
+    @Autowired
+    private PayloadCaptureService payloadCaptureService;
+
+    @Autowired
+    private WebhookSourceAdapterRegistry webhookSourceAdapterRegistry;
+
+    @Autowired
+    private ClaimioStatusWebhookAdapter claimioStatusWebhookAdapter;
+
+    /** Per-endpoint slots are taken by {@code WebhookAdmissionInterceptor}; per-brand slots here, once parsed. */
+    @Autowired
+    private WebhookAdmissionControl webhookAdmissionControl;
 
     /**
      * Main webhook endpoint that receives status updates
      * Matches the webhook URL pattern: /webhook/claimio_status_hook
+     * <p>
+     * Orders are handed to the fan-out pool (or the journal, in async mode) as each one is parsed, so work starts
+     * while the rest of a large batch is still being read; see {@link StatusOrderSink}. A body that turns out to be
+     * malformed after some orders were handed on gets 202 with the {@code accepted} / {@code skipped} counts; 400
+     * only when no order was taken.
      */
     @PostMapping(""
             + ""
             + ""
             + "")
-    public ResponseEntity<Map<String, Object>> handleStatusUpdate(@RequestBody WebhookWrapper wrapper) {
-        log.info("Received status update webhook");
-
+    public ResponseEntity<Map<String, Object>> handleStatusUpdate(@RequestBody byte[] rawBody) {
+        StatusOrderSink sink = new StatusOrderSink();
+        OrderStatusStreamReader.Header header;
         try {
-            // DEBUG: Print the full request payload
-            String jsonRequest = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(wrapper);
-            log.info("🔍 Processed Webhook Payload:\n{}", jsonRequest);
+            header = claimioStatusWebhookAdapter.stream(rawBody, sink);
         } catch (Exception e) {
-            log.error("Failed to serialize webhook wrapper for logging", e);
+            StatusWebhookFanOutService.BatchResult partial = sink.finish();
+            log.warn("Status update webhook parse failed after {} order(s): {}", sink.count(), e.getMessage());
+            if (sink.count() == 0) {
+                return createErrorResponse("Invalid webhook JSON: " + e.getMessage());
+            }
+            // Earlier orders are already on their way: report them instead of inviting a retry of the whole body
+            Map<String, Object> response = new java.util.HashMap<>();
+            response.put("success", true);
+            response.put("accepted", sink.count());
+            response.put("skipped", sink.skipped);
+            response.put("error", "Invalid webhook JSON after " + sink.count() + " order(s): " + e.getMessage());
+            if (partial != null) {
+                response.put("successCount", partial.successCount());
+                response.put("failCount", partial.failCount());
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
         }
+        StatusWebhookFanOutService.BatchResult batch = sink.finish();
 
-        if (wrapper == null || wrapper.getOrders() == null || wrapper.getOrders().isEmpty()) {
+        if (sink.brandRejected) {
+            return createTooManyRequestsResponse("brand " + sink.brand);
+        }
+        if (sink.journalError != null) {
+            log.error("❌ Failed to journal webhook orders ({} accepted before): {}", sink.count(),
+                    sink.journalError.getMessage(), sink.journalError);
+            Map<String, Object> error = new java.util.HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to queue webhook: " + sink.journalError.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        }
+        if (sink.count() == 0) {
             log.warn("Received empty webhook orders");
             return createErrorResponse("Empty webhook payload");
         }
+        log.info("Received status update webhook: {} order(s), event: {}", sink.count(), header.event());
 
-        List<StatusUpdateWebhook.OrderStatus> webhooks = wrapper.getOrders();
-        log.info("Processing {} webhook(s)", webhooks.size());
-
-        int successCount = 0;
-        int failCount = 0;
-        Map<String, Object> lastResult = null;
-
-        for (StatusUpdateWebhook.OrderStatus webhook : webhooks) {
-            try {
-                
-                lastResult = webhookProcessingService.processStatusUpdate(webhook);
-                successCount++;
-            } catch (Exception e) {
-                log.error("Error processing webhook for order {}: {}", webhook.getOrderId(), e.getMessage(), e);
-                failCount++;
-            }
+        if (batch == null) {
+            // Async ingestion mode: every order is journaled, reply 202 without waiting for Shopify/Botspace
+            log.info("📥 Accepted {} webhook(s) for async processing", sink.count());
+            Map<String, Object> response = new java.util.HashMap<>();
+            response.put("success", true);
+            response.put("accepted", sink.count());
+            response.put("queueDepth", webhookIngestionService.getStats().get("queueDepth"));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
         }
 
         Map<String, Object> response = new java.util.HashMap<>();
         response.put("success", true);
-        response.put("processed", webhooks.size());
-        response.put("successCount", successCount);
-        response.put("failCount", failCount);
+        response.put("processed", sink.count());
+        response.put("successCount", batch.successCount());
+        response.put("failCount", batch.failCount());
+        if (batch.coalescedCount() > 0) {
+            response.put("coalescedCount", batch.coalescedCount());
+        }
 
-        if (lastResult != null && webhooks.size() == 1) {
+        if (batch.lastResult() != null && sink.count() == 1) {
             // For single webhook, return details of that execution as before
-            return ResponseEntity.ok(lastResult);
+            return ResponseEntity.ok(batch.lastResult());
         }
 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Receives status orders straight from the parser. The first order's brand takes the per-brand admission slot
+     * (Claimio batches are per account); if it is refused, the rest of the batch is ignored. Each admitted order is
+     * captured and then journaled (async mode) or submitted to the fan-out pool (orders of the same order id keep
+     * arrival order).
+     */
+    private final class StatusOrderSink implements Consumer<StatusUpdateWebhook.OrderStatus> {
+
+        private final boolean async = webhookIngestionService.isAsyncEnabled();
+        private final StatusWebhookFanOutService.Batch batch = async ? null : statusWebhookFanOutService.newBatch();
+        private WebhookAdmissionControl.Permit brandPermit;
+        private boolean brandRejected;
+        private String brand;
+        private IOException journalError;
+        private int journaled;
+        /** Parsed orders not handed on (brand refused or journal failed). */
+        private int skipped;
+
+        @Override
+        public void accept(StatusUpdateWebhook.OrderStatus order) {
+            if (brandRejected || journalError != null) {
+                skipped++;
+                return;
+            }
+            if (brandPermit == null) {
+                brand = order.resolveBrandName();
+                brandPermit = webhookAdmissionControl.tryAcquireBrand(brand);
+                if (brandPermit == null) {
+                    brandRejected = true;
+                    skipped++;
+                    return;
+                }
+            }
+
+            // Raw payloads go to the capture buffer (GET /api/captures?orderId=...), not the log
+            payloadCaptureService.capture(PayloadCaptureService.Channel.WEBHOOK, "status-update",
+                    order.getOrderId(), order, false);
+            if (!async) {
+                batch.accept(order);
+                return;
+            }
+            try {
+                webhookIngestionService.enqueue(order);
+                journaled++;
+            } catch (IOException e) {
+                journalError = e;
+                skipped++;
+            }
+        }
+
+        /** Orders handed on so far. */
+        int count() {
+            return async ? journaled : batch.size();
+        }
+
+        /**
+         * Wait for the submitted orders (inline mode) and release the brand slot.
+         *
+         * @return batch outcome, or {@code null} in async mode
+         */
+        StatusWebhookFanOutService.BatchResult finish() {
+            try {
+                return async ? null : batch.await();
+            } finally {
+                if (brandPermit != null) {
+                    brandPermit.close();
+                    brandPermit = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Async ingestion queue depth, lag (age of the oldest unprocessed order) and worker counters.
+     */
+    @GetMapping("/ingestion/stats")
+    public ResponseEntity<Map<String, Object>> ingestionStats() {
+        return ResponseEntity.ok(webhookIngestionService.getStats());
+    }
+
+    /**
+     * Admission control: current adaptive limit, in-flight, admitted and shed counts per endpoint and brand.
+     */
+    @GetMapping("/admission/stats")
+    public ResponseEntity<Map<String, Object>> admissionStats() {
+        return ResponseEntity.ok(webhookAdmissionControl.getStats());
+    }
+
     /**
      * Shopify order created webhook endpoint
      * Configure this URL in Shopify webhook settings:
@@ -100,8 +240,29 @@ public class WebhookController {
      */
     @PostMapping("/shopify/order-created")
     public ResponseEntity<Map<String, Object>> handleShopifyOrderCreated(
-            @RequestBody ShopifyOrderCreatedWebhook webhook,
+            @RequestBody byte[] rawBody,
             @RequestHeader(value = "X-Shopify-Shop-Domain", required = false) String shopDomain) {
+        // The shop domain identifies the brand before the body is parsed
+        WebhookAdmissionControl.Permit brandPermit = webhookAdmissionControl.tryAcquireBrand(shopDomain);
+        if (brandPermit == null) {
+            return createTooManyRequestsResponse("shop " + shopDomain);
+        }
+        try {
+            return processShopifyOrderCreated(rawBody, shopDomain);
+        } finally {
+            brandPermit.close();
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> processShopifyOrderCreated(byte[] rawBody, String shopDomain) {
+        ShopifyOrderCreatedWebhook webhook;
+        try {
+            webhook = webhookSourceAdapterRegistry.parse(WebhookSourceAdapter.SHOPIFY_ORDER_CREATED,
+                    ShopifyOrderCreatedWebhook.class, rawBody);
+        } catch (Exception e) {
+            log.warn("Shopify order created webhook parse failed: {}", e.getMessage());
+            return createErrorResponse("Invalid webhook JSON: " + e.getMessage());
+        }
         log.info("Received Shopify order created webhook for order: {}", webhook != null ? webhook.getName() : null);
         if (shopDomain != null && !shopDomain.isEmpty()) {
             log.info("X-Shopify-Shop-Domain header present: {}", shopDomain);
@@ -131,38 +292,30 @@ public class WebhookController {
     /**
      * Fasterr abandoned cart webhook endpoint
      * Configure this URL in Fasterr webhook settings: /webhook/cart-abandoned
-     * Payload is a single object with message, severity, attributes (cart data), tags, timestamp.
+     * Payload is a single object with message, severity, attributes (cart data), tags, timestamp,
+     * or the cart at root; the shape is detected in one pass by {@link FasterrCartWebhookAdapter}.
      */
     @PostMapping("/cart-abandoned")
     public ResponseEntity<Map<String, Object>> handleFasterrAbandonedCart(
-            @RequestBody String rawBody) {
+            @RequestBody(required = false) byte[] rawBody) {
         log.info("Received Fasterr abandoned cart webhook");
 
-        if (rawBody == null || rawBody.isBlank()) {
+        if (isBlank(rawBody)) {
             log.warn("Abandoned cart webhook body is empty");
             return createErrorResponse("Empty webhook payload");
         }
 
         FasterrAbandonedCartWebhook webhook;
         try {
-            webhook = objectMapper.readValue(rawBody, FasterrAbandonedCartWebhook.class);
+            webhook = webhookSourceAdapterRegistry.parse(WebhookSourceAdapter.FASTERR_CART,
+                    FasterrAbandonedCartWebhook.class, rawBody);
         } catch (Exception e) {
-            log.warn("Abandoned cart webhook parse failed, raw body (first 500 chars): {}", rawBody.length() > 500 ? rawBody.substring(0, 500) + "..." : rawBody, e);
+            log.warn("Abandoned cart webhook parse failed, raw body (first 500 bytes): {}", preview(rawBody), e);
+            payloadCaptureService.capture(PayloadCaptureService.Channel.WEBHOOK, "cart-abandoned", null,
+                    new String(rawBody, java.nio.charset.StandardCharsets.UTF_8), true);
             return createErrorResponse("Invalid webhook JSON: " + e.getMessage());
         }
 
-        if (webhook.getAttributes() == null) {
-            // Try cart-at-root format: { "cart_id", "phone_number", "items", ... }
-            try {
-                FasterrAbandonedCartWebhook.Attributes rootAsAttributes = objectMapper.readValue(rawBody, FasterrAbandonedCartWebhook.Attributes.class);
-                webhook = new FasterrAbandonedCartWebhook();
-                webhook.setAttributes(rootAsAttributes);
-            } catch (Exception e) {
-                log.warn("Abandoned cart webhook has no attributes/body and root is not valid Attributes; raw body (first 500 chars): {}", rawBody.length() > 500 ? rawBody.substring(0, 500) + "..." : rawBody);
-                return createErrorResponse("Empty or invalid webhook payload (missing attributes/body)");
-            }
-        }
-
         try {
             boolean scheduled = abandonedCartFlowService.processAbandonedCart(webhook);
             Map<String, Object> response = Map.of(
@@ -185,10 +338,37 @@ public class WebhookController {
         return ResponseEntity.ok(response);
     }
 
+    private static boolean isBlank(byte[] body) {
+        if (body == null) {
+            return true;
+        }
+        for (byte b : body) {
+            if (!Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String preview(byte[] body) {
+        int len = Math.min(body.length, 500);
+        String head = new String(body, 0, len, java.nio.charset.StandardCharsets.UTF_8);
+        return body.length > 500 ? head + "..." : head;
+    }
+
     private ResponseEntity<Map<String, Object>> createErrorResponse(String errorMessage) {
         Map<String, Object> response = Map.of(
                 "success", false,
                 "error", errorMessage);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
+
+    private ResponseEntity<Map<String, Object>> createTooManyRequestsResponse(String what) {
+        Map<String, Object> response = Map.of(
+                "success", false,
+                "error", "Too many concurrent webhooks for " + what + ", retry later");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(webhookAdmissionControl.getRetryAfterSeconds()))
+                .body(response);
+    }
 }
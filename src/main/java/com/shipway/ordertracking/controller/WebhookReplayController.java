@@ -0,0 +1,68 @@
+package com.shipway.ordertracking.controller;
+
+import com.shipway.ordertracking.dto.WebhookReplayRequest;
+import com.shipway.ordertracking.service.WebhookReplayService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays NDJSON webhook payloads from {@code webhook.replay.dir}, see {@link WebhookReplayService}.
+ */
+@RestController
+@RequestMapping("/api/replay")
+public class WebhookReplayController {
+
+    @Autowired
+    private WebhookReplayService webhookReplayService;
+
+    /**
+     * Start a replay job.
+     * Example: POST /api/replay {"file":"failed-2026-10-15.ndjson","ratePerSecond":20,"parallelism":4,"dryRun":true}
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> start(@RequestBody WebhookReplayRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(webhookReplayService.start(request));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> list() {
+        return ResponseEntity.ok(webhookReplayService.listJobs());
+    }
+
+    /**
+     * Progress: lines read / total, events succeeded / failed, events per second, ETA.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> progress(@PathVariable String id) {
+        Map<String, Object> progress = webhookReplayService.getProgress(id);
+        return progress != null ? ResponseEntity.ok(progress) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Stop reading further lines; events already in flight finish.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> cancel(@PathVariable String id) {
+        boolean cancelled = webhookReplayService.cancel(id);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", cancelled);
+        response.put("id", id);
+        if (!cancelled) {
+            response.put("error", "No running replay with id " + id);
+        }
+        return ResponseEntity.status(cancelled ? HttpStatus.OK : HttpStatus.NOT_FOUND).body(response);
+    }
+}
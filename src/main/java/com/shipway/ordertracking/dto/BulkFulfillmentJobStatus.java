@@ -0,0 +1,135 @@
+package com.shipway.ordertracking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of a background bulk fulfillment job. {@code summary} has the same keys as
+ * {@link BulkFulfillFromTrackingResponse#getSummary()} (counts so far); {@code results} only when asked for.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkFulfillmentJobStatus {
+
+    private String jobId;
+    /** {@code queued}, {@code running}, {@code completed}, {@code cancelled} or {@code failed}. */
+    private String status;
+    private boolean dryRun;
+    private String accountCode;
+    /** Rows in the job; {@code null} while the preview is still being built. */
+    private Integer total;
+    private int processed;
+    private boolean cancelRequested;
+    private Map<String, Integer> summary;
+    private String lastError;
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+    private List<FulfillAttemptResult> results;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public String getAccountCode() {
+        return accountCode;
+    }
+
+    public void setAccountCode(String accountCode) {
+        this.accountCode = accountCode;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(int processed) {
+        this.processed = processed;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public void setCancelRequested(boolean cancelRequested) {
+        this.cancelRequested = cancelRequested;
+    }
+
+    public Map<String, Integer> getSummary() {
+        return summary;
+    }
+
+    public void setSummary(Map<String, Integer> summary) {
+        this.summary = summary;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public List<FulfillAttemptResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<FulfillAttemptResult> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,55 @@
+package com.shipway.ordertracking.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes typed records to a streaming response, each flushed as soon as it is written.
+ * <p>
+ * NDJSON ({@code application/x-ndjson}): one {@code {"type": ..., "data": {...}}} object per line.
+ * SSE ({@code text/event-stream}): one {@code event: <type>} / {@code data: {...}} event per record.
+ */
+public final class JsonRecordStreamWriter {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final OutputStream out;
+    private final boolean sse;
+
+    public JsonRecordStreamWriter(ObjectMapper objectMapper, OutputStream out, boolean sse) {
+        this.objectMapper = objectMapper;
+        this.out = out;
+        this.sse = sse;
+    }
+
+    /** SSE when {@code accept} asks for {@code text/event-stream}, else NDJSON. */
+    public static boolean wantsSse(String accept) {
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    public static MediaType contentType(boolean sse) {
+        return sse ? MediaType.TEXT_EVENT_STREAM : NDJSON;
+    }
+
+    public synchronized void write(String type, Object data) throws IOException {
+        if (sse) {
+            out.write(("event: " + type + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+            out.write(objectMapper.writeValueAsBytes(data));
+            out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        } else {
+            out.write(("{\"type\":" + objectMapper.writeValueAsString(type) + ",\"data\":")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.write(objectMapper.writeValueAsBytes(data));
+            out.write('}');
+            out.write(NEWLINE);
+        }
+        out.flush();
+    }
+}
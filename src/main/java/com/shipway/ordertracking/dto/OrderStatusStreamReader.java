@@ -0,0 +1,131 @@
+package com.shipway.ordertracking.dto;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass reader for status webhook bodies ({@code {"timestamp", "event", "orders": [...]}}).
+ * <p>
+ * Walks the token stream and binds each {@code orders[]} element straight to {@link StatusUpdateWebhook.OrderStatus},
+ * handing it to {@code sink} as soon as it is parsed (no intermediate JsonNode tree for the whole batch).
+ * Entries that fail to bind are logged and skipped; malformed JSON still fails the whole body.
+ */
+public final class OrderStatusStreamReader {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusStreamReader.class);
+
+    private OrderStatusStreamReader() {
+    }
+
+    /** Top-level body fields; {@code ordersPresent} is true when the body had an {@code orders} array. */
+    public record Header(String timestamp, String event, boolean ordersPresent) {
+    }
+
+    /**
+     * Read one body object from {@code p} (positioned at START_OBJECT or the first field name).
+     *
+     * @param ctxt deserialization context when called from a deserializer; {@code null} to bind via the parser codec
+     * @param sink receives every successfully bound order, in document order
+     * @return {@code timestamp} / {@code event} and whether an {@code orders} array was present
+     */
+    public static Header read(JsonParser p, DeserializationContext ctxt,
+            Consumer<StatusUpdateWebhook.OrderStatus> sink) throws IOException {
+        Header empty = new Header(null, null, false);
+
+        JsonToken token = p.currentToken();
+        if (token == null) {
+            token = p.nextToken();
+        }
+        if (token == null || token == JsonToken.VALUE_NULL) {
+            log.warn("WebhookBody node is null, creating empty body");
+            return empty;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            log.warn("WebhookBody is a string value '{}' instead of an object. This might indicate a JSON structure mismatch.",
+                    p.getText());
+            return empty;
+        }
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            log.warn("WebhookBody is not an object (token: {}), creating empty body", token);
+            p.skipChildren();
+            return empty;
+        }
+
+        String timestamp = null;
+        String event = null;
+        boolean ordersPresent = false;
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "timestamp" -> timestamp = scalarText(p, value);
+                case "event" -> event = scalarText(p, value);
+                case "orders" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        ordersPresent = true;
+                        readOrders(p, ctxt, sink);
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return new Header(timestamp, event, ordersPresent);
+    }
+
+    /**
+     * Bind each array element; on a binding error skip the rest of that element and continue.
+     */
+    private static void readOrders(JsonParser p, DeserializationContext ctxt,
+            Consumer<StatusUpdateWebhook.OrderStatus> sink) throws IOException {
+        JsonStreamContext arrayContext = p.getParsingContext();
+        JsonToken token;
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                return;
+            }
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            StatusUpdateWebhook.OrderStatus order;
+            try {
+                order = ctxt != null
+                        ? ctxt.readValue(p, StatusUpdateWebhook.OrderStatus.class)
+                        : p.readValueAs(StatusUpdateWebhook.OrderStatus.class);
+            } catch (JsonParseException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("Failed to deserialize order entry: {}", e.getMessage());
+                // Skip invalid order entries: advance until we are back at the orders array level
+                while (p.getParsingContext() != arrayContext) {
+                    if (p.nextToken() == null) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            if (order != null) {
+                sink.accept(order);
+            }
+        }
+    }
+
+    private static String scalarText(JsonParser p, JsonToken value) throws IOException {
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return "";
+        }
+        return value == JsonToken.VALUE_NULL ? "null" : p.getText();
+    }
+}
@@ -0,0 +1,209 @@
+package com.shipway.ordertracking.dto;
+
+import com.shipway.ordertracking.service.ShopifyService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a status flow needs about one Shopify order, from a single GraphQL {@code orders(first: 1)} query
+ * ({@link ShopifyService#getOrderContext}): display fulfillment status, fulfillments with tracking numbers,
+ * fulfillment orders and line-item products (handle, featured image).
+ */
+public class ShopifyOrderContext {
+
+    private static final String ORDER_GID_PREFIX = "gid://shopify/Order/";
+    private static final String FULFILLMENT_GID_PREFIX = "gid://shopify/Fulfillment/";
+
+    /** One fulfillment; {@code id} is the numeric id (suffix of {@code gid://shopify/Fulfillment/...}). */
+    public record Fulfillment(Long id, String status, List<String> trackingNumbers) {
+    }
+
+    /** One fulfillment order ({@code id} is the full GID, as {@code fulfillmentCreate} expects). */
+    public record FulfillmentOrder(String id, String status) {
+    }
+
+    public record Product(String handle, String imageUrl) {
+    }
+
+    private final String orderGid;
+    private final String name;
+    private final String displayFulfillmentStatus;
+    private final List<String> tags;
+    private final List<Fulfillment> fulfillments;
+    private final List<FulfillmentOrder> fulfillmentOrders;
+    private final List<Product> products;
+
+    public ShopifyOrderContext(String orderGid, String name, String displayFulfillmentStatus, List<String> tags,
+            List<Fulfillment> fulfillments, List<FulfillmentOrder> fulfillmentOrders, List<Product> products) {
+        this.orderGid = orderGid;
+        this.name = name;
+        this.displayFulfillmentStatus = displayFulfillmentStatus;
+        this.tags = tags != null ? List.copyOf(tags) : List.of();
+        this.fulfillments = fulfillments != null ? List.copyOf(fulfillments) : List.of();
+        this.fulfillmentOrders = fulfillmentOrders != null ? List.copyOf(fulfillmentOrders) : List.of();
+        this.products = products != null ? List.copyOf(products) : List.of();
+    }
+
+    /**
+     * Build from a GraphQL order node (Jackson maps / lists). Missing or malformed parts become empty lists.
+     */
+    public static ShopifyOrderContext fromOrderNode(Map<String, Object> node) {
+        if (node == null) {
+            return null;
+        }
+        List<String> tags = new ArrayList<>();
+        if (node.get("tags") instanceof List<?> tagList) {
+            for (Object t : tagList) {
+                if (t != null) {
+                    tags.add(t.toString());
+                }
+            }
+        }
+
+        List<Fulfillment> fulfillments = new ArrayList<>();
+        if (node.get("fulfillments") instanceof List<?> fulList) {
+            for (Object f : fulList) {
+                if (f instanceof Map<?, ?> fm) {
+                    fulfillments.add(new Fulfillment(
+                            ShopifyService.parseNumericIdFromGid(str(fm.get("id")), FULFILLMENT_GID_PREFIX),
+                            str(fm.get("status")), trackingNumbers(fm.get("trackingInfo"))));
+                }
+            }
+        }
+
+        List<FulfillmentOrder> fulfillmentOrders = new ArrayList<>();
+        for (Map<?, ?> fo : connectionNodes(node.get("fulfillmentOrders"))) {
+            fulfillmentOrders.add(new FulfillmentOrder(str(fo.get("id")), str(fo.get("status"))));
+        }
+
+        List<Product> products = new ArrayList<>();
+        for (Map<?, ?> lineItem : connectionNodes(node.get("lineItems"))) {
+            if (lineItem.get("product") instanceof Map<?, ?> product) {
+                String imageUrl = product.get("featuredImage") instanceof Map<?, ?> image ? str(image.get("url")) : null;
+                products.add(new Product(str(product.get("handle")), imageUrl));
+            }
+        }
+
+        return new ShopifyOrderContext(str(node.get("id")), str(node.get("name")),
+                str(node.get("displayFulfillmentStatus")), tags, fulfillments, fulfillmentOrders, products);
+    }
+
+    public String getOrderGid() {
+        return orderGid;
+    }
+
+    public Long getNumericOrderId() {
+        return ShopifyService.parseNumericIdFromGid(orderGid, ORDER_GID_PREFIX);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDisplayFulfillmentStatus() {
+        return displayFulfillmentStatus;
+    }
+
+    public boolean isFulfilled() {
+        return "FULFILLED".equalsIgnoreCase(displayFulfillmentStatus);
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public List<Fulfillment> getFulfillments() {
+        return fulfillments;
+    }
+
+    public List<FulfillmentOrder> getFulfillmentOrders() {
+        return fulfillmentOrders;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /** Numeric id of the first fulfillment (what the FULFILLED paths update), or {@code null}. */
+    public Long getFirstFulfillmentId() {
+        return fulfillments.isEmpty() ? null : fulfillments.get(0).id();
+    }
+
+    /** First tracking number on fulfillment {@code fulfillmentId}, or {@code null}. */
+    public String getTrackingNumber(Long fulfillmentId) {
+        for (Fulfillment f : fulfillments) {
+            if (f.id() != null && f.id().equals(fulfillmentId)) {
+                return f.trackingNumbers().isEmpty() ? null : f.trackingNumbers().get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * GID of the last OPEN fulfillment order (same choice as
+     * {@link ShopifyService#getOpenFulfillmentOrderIdFromEdges}), or {@code null}.
+     */
+    public String getOpenFulfillmentOrderId() {
+        for (int i = fulfillmentOrders.size() - 1; i >= 0; i--) {
+            FulfillmentOrder fo = fulfillmentOrders.get(i);
+            if ("OPEN".equalsIgnoreCase(fo.status()) && fo.id() != null) {
+                return fo.id();
+            }
+        }
+        return null;
+    }
+
+    /** Product handles in line-item order (blank handles skipped). */
+    public List<String> getProductHandles() {
+        List<String> handles = new ArrayList<>();
+        for (Product p : products) {
+            if (p.handle() != null && !p.handle().isBlank()) {
+                handles.add(p.handle());
+            }
+        }
+        return handles;
+    }
+
+    /** Nodes of a connection, whether selected as {@code nodes { ... }} or {@code edges { node { ... } }}. */
+    private static List<Map<?, ?>> connectionNodes(Object connection) {
+        if (!(connection instanceof Map<?, ?> conn)) {
+            return Collections.emptyList();
+        }
+        List<Map<?, ?>> out = new ArrayList<>();
+        if (conn.get("nodes") instanceof List<?> nodes) {
+            for (Object n : nodes) {
+                if (n instanceof Map<?, ?> m) {
+                    out.add(m);
+                }
+            }
+        } else if (conn.get("edges") instanceof List<?> edges) {
+            for (Object e : edges) {
+                if (e instanceof Map<?, ?> edge && edge.get("node") instanceof Map<?, ?> m) {
+                    out.add(m);
+                }
+            }
+        }
+        return out;
+    }
+
+    private static List<String> trackingNumbers(Object trackingInfo) {
+        List<String> numbers = new ArrayList<>();
+        if (trackingInfo instanceof List<?> list) {
+            for (Object t : list) {
+                if (t instanceof Map<?, ?> m && m.get("number") != null) {
+                    numbers.add(m.get("number").toString());
+                }
+            }
+        } else if (trackingInfo instanceof Map<?, ?> m && m.get("number") != null) {
+            numbers.add(m.get("number").toString());
+        }
+        return numbers;
+    }
+
+    private static String str(Object o) {
+        return o != null ? o.toString() : null;
+    }
+}
@@ -198,6 +198,10 @@ public class StatusUpdateWebhook {
         @JsonProperty("latest_message_status")
         private String latestMessageStatus;
 
+        /** Per-order event time, when Claimio sends one (the batch {@code timestamp} is not copied here). */
+        @JsonProperty("timestamp")
+        private String timestamp;
+
         public String getOrderId() {
             return orderId;
         }
@@ -327,6 +331,14 @@ public class StatusUpdateWebhook {
             this.numberOfProduct = numberOfProduct;
         }
 
+        public String getTimestamp() {
+            return timestamp;
+        }
+
+        public void setTimestamp(String timestamp) {
+            this.timestamp = timestamp;
+        }
+
         public String getNumberOfQuantity() {
             return numberOfQuantity;
         }
@@ -0,0 +1,68 @@
+package com.shipway.ordertracking.dto;
+
+/**
+ * Body for POST /api/replay (NDJSON webhook replay). Only {@code file} is required.
+ */
+public class WebhookReplayRequest {
+
+    /** NDJSON file name, relative to {@code webhook.replay.dir}. */
+    private String file;
+    /** {@code auto} (default), {@code status}, {@code status-order}, {@code order-created} or {@code cart-abandoned}. */
+    private String type = "auto";
+    /** Max events per second; 0 or null = as fast as parallelism allows. */
+    private Double ratePerSecond;
+    /** Max events in flight (default {@code webhook.replay.default-parallelism}). */
+    private Integer parallelism;
+    /** Parse and count only; nothing reaches Shopify / Botspace. */
+    private boolean dryRun;
+    /** X-Shopify-Shop-Domain for order-created lines that do not carry one. */
+    private String shopDomain;
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(Double ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public String getShopDomain() {
+        return shopDomain;
+    }
+
+    public void setShopDomain(String shopDomain) {
+        this.shopDomain = shopDomain;
+    }
+}
@@ -2,7 +2,9 @@ package com.shipway.ordertracking.dto;
 
 import java.util.List;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
+@JsonDeserialize(using = WebhookWrapperDeserializer.class)
 public class WebhookWrapper {
 
     private String timestamp;
@@ -0,0 +1,32 @@
+package com.shipway.ordertracking.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming deserializer for a whole status batch (replay files, {@code WebhookSourceAdapterRegistry}): same
+ * single-pass binding and bad-entry skipping as {@link WebhookBodyDeserializer}, so one malformed order no longer
+ * rejects the whole batch. POST /webhook does not collect the batch first: it hands each order on as it is parsed
+ * ({@code ClaimioStatusWebhookAdapter#stream}).
+ */
+public class WebhookWrapperDeserializer extends JsonDeserializer<WebhookWrapper> {
+
+    @Override
+    public WebhookWrapper deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        List<StatusUpdateWebhook.OrderStatus> orders = new ArrayList<>();
+        OrderStatusStreamReader.Header header = OrderStatusStreamReader.read(p, ctxt, orders::add);
+
+        WebhookWrapper wrapper = new WebhookWrapper();
+        wrapper.setTimestamp(header.timestamp());
+        wrapper.setEvent(header.event());
+        if (header.ordersPresent()) {
+            wrapper.setOrders(orders);
+        }
+        return wrapper;
+    }
+}
@@ -0,0 +1,210 @@
+package com.shipway.ordertracking.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Maps to {@code botspace_outbox}: a Botspace template message queued by a flow (request JSON plus the
+ * {@code customer_message_tracking} statuses to write once it is sent) until the outbox dispatcher sends it.
+ * The unique key on {@code order_id} + {@code brand_key} + {@code success_status} is the dedup row: queueing the
+ * same notification again is a no-op, unless the row ended {@code failed} (it is then reset to {@code pending}).
+ * <p>
+ * Status: {@code pending} → {@code sending} (claimed by a dispatcher, {@code claim_token}) → {@code sent} /
+ * {@code failed}. A {@code sending} row whose claim is older than the lease is claimed again.
+ * <p>
+ * Create table when using validate mode, for example:
+ * {@code CREATE TABLE botspace_outbox (id BIGINT AUTO_INCREMENT PRIMARY KEY, account_code VARCHAR(100) NOT NULL, order_id VARCHAR(100) NOT NULL, brand_key VARCHAR(255) NOT NULL, tracking_account_code VARCHAR(100) NULL, tracking_brand_name VARCHAR(255) NULL, success_status VARCHAR(50) NOT NULL, failure_status VARCHAR(50) NOT NULL, payload TEXT NOT NULL, status VARCHAR(20) NOT NULL, attempts INT NOT NULL DEFAULT 0, last_error VARCHAR(500) NULL, claim_token VARCHAR(36) NULL, claimed_at DATETIME(6) NULL, created_at DATETIME(6) NOT NULL, updated_at DATETIME(6) NOT NULL, UNIQUE KEY uk_botspace_outbox (order_id, brand_key, success_status), KEY idx_botspace_outbox_status (status, id), KEY idx_botspace_outbox_claim (claim_token));}
+ */
+@Entity
+@Table(name = "botspace_outbox")
+public class BotspaceOutboxMessage {
+
+    public static final String PENDING = "pending";
+    public static final String SENDING = "sending";
+    public static final String SENT = "sent";
+    public static final String FAILED = "failed";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Botspace account key the message is sent with. */
+    @Column(name = "account_code", nullable = false, length = 100)
+    private String accountCode;
+
+    @Column(name = "order_id", nullable = false, length = 100)
+    private String orderId;
+
+    /** Dedup brand, as {@code customer_message_tracking} compares it ({@code ""} when none). */
+    @Column(name = "brand_key", nullable = false, length = 255)
+    private String brandKey;
+
+    @Column(name = "tracking_account_code", length = 100)
+    private String trackingAccountCode;
+
+    @Column(name = "tracking_brand_name", length = 255)
+    private String trackingBrandName;
+
+    @Column(name = "success_status", nullable = false, length = 50)
+    private String successStatus;
+
+    @Column(name = "failure_status", nullable = false, length = 50)
+    private String failureStatus;
+
+    /** {@link com.shipway.ordertracking.dto.BotspaceMessageRequest} as JSON. */
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "claimed_at")
+    private Instant claimedAt;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public BotspaceOutboxMessage() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getAccountCode() {
+        return accountCode;
+    }
+
+    public void setAccountCode(String accountCode) {
+        this.accountCode = accountCode;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getBrandKey() {
+        return brandKey;
+    }
+
+    public void setBrandKey(String brandKey) {
+        this.brandKey = brandKey;
+    }
+
+    public String getTrackingAccountCode() {
+        return trackingAccountCode;
+    }
+
+    public void setTrackingAccountCode(String trackingAccountCode) {
+        this.trackingAccountCode = trackingAccountCode;
+    }
+
+    public String getTrackingBrandName() {
+        return trackingBrandName;
+    }
+
+    public void setTrackingBrandName(String trackingBrandName) {
+        this.trackingBrandName = trackingBrandName;
+    }
+
+    public String getSuccessStatus() {
+        return successStatus;
+    }
+
+    public void setSuccessStatus(String successStatus) {
+        this.successStatus = successStatus;
+    }
+
+    public String getFailureStatus() {
+        return failureStatus;
+    }
+
+    public void setFailureStatus(String failureStatus) {
+        this.failureStatus = failureStatus;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+
+    public Instant getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(Instant claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,247 @@
+package com.shipway.ordertracking.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Maps to {@code bulk_fulfillment_job}: one background bulk fulfillment run (preview + Shopify updates), with its
+ * rows in {@code bulk_fulfillment_job_item}. The counters are the run's summary so far and advance once per
+ * processed chunk (the checkpoint).
+ * <p>
+ * Status: {@code queued} → {@code running} (claimed by a worker, {@code claim_token}, {@code heartbeat_at} renewed
+ * every chunk) → {@code completed} / {@code cancelled} / {@code failed}. A running job whose heartbeat is older than
+ * the lease (worker gone, e.g. restart) is claimed again and continues with the rows not done yet.
+ * <p>
+ * Create table when using validate mode, for example:
+ * {@code CREATE TABLE bulk_fulfillment_job (id VARCHAR(36) PRIMARY KEY, source VARCHAR(20) NOT NULL, account_code VARCHAR(100) NULL, row_limit INT NOT NULL, dry_run BIT NOT NULL, status VARCHAR(20) NOT NULL, total INT NULL, processed INT NOT NULL DEFAULT 0, attempted INT NOT NULL DEFAULT 0, succeeded INT NOT NULL DEFAULT 0, failed INT NOT NULL DEFAULT 0, skipped INT NOT NULL DEFAULT 0, cancel_requested BIT NOT NULL DEFAULT 0, claim_token VARCHAR(36) NULL, heartbeat_at DATETIME(6) NULL, last_error VARCHAR(500) NULL, created_at DATETIME(6) NOT NULL, updated_at DATETIME(6) NOT NULL, finished_at DATETIME(6) NULL, KEY idx_bulk_fulfillment_job_status (status, heartbeat_at));}
+ */
+@Entity
+@Table(name = "bulk_fulfillment_job")
+public class BulkFulfillmentJob {
+
+    public static final String QUEUED = "queued";
+    public static final String RUNNING = "running";
+    public static final String COMPLETED = "completed";
+    public static final String CANCELLED = "cancelled";
+    public static final String FAILED = "failed";
+
+    public static final String SOURCE_API = "api";
+    public static final String SOURCE_UI = "ui";
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    /** {@code api} (preview built by the job) or {@code ui} (rows stored at submit). */
+    @Column(name = "source", nullable = false, length = 20)
+    private String source;
+
+    @Column(name = "account_code", length = 100)
+    private String accountCode;
+
+    @Column(name = "row_limit", nullable = false)
+    private int rowLimit;
+
+    @Column(name = "dry_run", nullable = false)
+    private boolean dryRun;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    /** Rows in the job; {@code null} until the preview has been stored. */
+    @Column(name = "total")
+    private Integer total;
+
+    @Column(name = "processed", nullable = false)
+    private int processed;
+
+    @Column(name = "attempted", nullable = false)
+    private int attempted;
+
+    @Column(name = "succeeded", nullable = false)
+    private int succeeded;
+
+    @Column(name = "failed", nullable = false)
+    private int failed;
+
+    /** Rows whose tracking status is not delivered / in transit / out for delivery. */
+    @Column(name = "skipped", nullable = false)
+    private int skipped;
+
+    @Column(name = "cancel_requested", nullable = false)
+    private boolean cancelRequested;
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    public BulkFulfillmentJob() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getAccountCode() {
+        return accountCode;
+    }
+
+    public void setAccountCode(String accountCode) {
+        this.accountCode = accountCode;
+    }
+
+    public int getRowLimit() {
+        return rowLimit;
+    }
+
+    public void setRowLimit(int rowLimit) {
+        this.rowLimit = rowLimit;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(int processed) {
+        this.processed = processed;
+    }
+
+    public int getAttempted() {
+        return attempted;
+    }
+
+    public void setAttempted(int attempted) {
+        this.attempted = attempted;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(int skipped) {
+        this.skipped = skipped;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public void setCancelRequested(boolean cancelRequested) {
+        this.cancelRequested = cancelRequested;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+
+    public Instant getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(Instant heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
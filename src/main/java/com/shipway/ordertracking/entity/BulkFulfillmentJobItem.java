@@ -0,0 +1,140 @@
+package com.shipway.ordertracking.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Maps to {@code bulk_fulfillment_job_item}: one preview row of a {@link BulkFulfillmentJob} ({@code seq} keeps the
+ * preview order) and, once {@code done}, its result as returned by the synchronous bulk fulfill.
+ * <p>
+ * Create table when using validate mode, for example:
+ * {@code CREATE TABLE bulk_fulfillment_job_item (id BIGINT AUTO_INCREMENT PRIMARY KEY, job_id VARCHAR(36) NOT NULL, seq INT NOT NULL, account_code VARCHAR(100) NULL, shopify_brand_name VARCHAR(255) NULL, order_id VARCHAR(100) NULL, order_tracking_status VARCHAR(100) NULL, done BIT NOT NULL DEFAULT 0, success BIT NULL, shopify_shipment_status VARCHAR(30) NULL, message VARCHAR(500) NULL, UNIQUE KEY uk_bulk_fulfillment_job_item (job_id, seq), KEY idx_bulk_fulfillment_job_item_done (job_id, done, seq));}
+ */
+@Entity
+@Table(name = "bulk_fulfillment_job_item")
+public class BulkFulfillmentJobItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false, length = 36)
+    private String jobId;
+
+    @Column(name = "seq", nullable = false)
+    private int seq;
+
+    @Column(name = "account_code", length = 100)
+    private String accountCode;
+
+    @Column(name = "shopify_brand_name", length = 255)
+    private String shopifyBrandName;
+
+    @Column(name = "order_id", length = 100)
+    private String orderId;
+
+    @Column(name = "order_tracking_status", length = 100)
+    private String orderTrackingStatus;
+
+    @Column(name = "done", nullable = false)
+    private boolean done;
+
+    @Column(name = "success")
+    private Boolean success;
+
+    @Column(name = "shopify_shipment_status", length = 30)
+    private String shopifyShipmentStatus;
+
+    @Column(name = "message", length = 500)
+    private String message;
+
+    public BulkFulfillmentJobItem() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public int getSeq() {
+        return seq;
+    }
+
+    public void setSeq(int seq) {
+        this.seq = seq;
+    }
+
+    public String getAccountCode() {
+        return accountCode;
+    }
+
+    public void setAccountCode(String accountCode) {
+        this.accountCode = accountCode;
+    }
+
+    public String getShopifyBrandName() {
+        return shopifyBrandName;
+    }
+
+    public void setShopifyBrandName(String shopifyBrandName) {
+        this.shopifyBrandName = shopifyBrandName;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getOrderTrackingStatus() {
+        return orderTrackingStatus;
+    }
+
+    public void setOrderTrackingStatus(String orderTrackingStatus) {
+        this.orderTrackingStatus = orderTrackingStatus;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public void setDone(boolean done) {
+        this.done = done;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public void setSuccess(Boolean success) {
+        this.success = success;
+    }
+
+    public String getShopifyShipmentStatus() {
+        return shopifyShipmentStatus;
+    }
+
+    public void setShopifyShipmentStatus(String shopifyShipmentStatus) {
+        this.shopifyShipmentStatus = shopifyShipmentStatus;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
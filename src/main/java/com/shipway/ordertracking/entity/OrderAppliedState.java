@@ -0,0 +1,110 @@
+package com.shipway.ordertracking.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Maps to {@code order_applied_state}: what this service last pushed to Shopify for an order (order GID,
+ * fulfillment id, AWB, shipment status), so status flows can skip re-reading the order. Keyed by normalized brand
+ * + {@code order_id}; rows are removed by the cancel-fulfillment webhook.
+ * <p>
+ * Create table when using validate mode, for example:
+ * {@code CREATE TABLE order_applied_state (id INT AUTO_INCREMENT PRIMARY KEY, brand_key VARCHAR(100) NOT NULL, order_id VARCHAR(100) NOT NULL, shopify_order_gid VARCHAR(100) NOT NULL, fulfillment_id BIGINT NOT NULL, awb VARCHAR(100) NULL, last_shipment_status VARCHAR(50) NULL, updated_at DATETIME(6) NULL, UNIQUE KEY uk_order_applied_state (brand_key, order_id));}
+ */
+@Entity
+@Table(name = "order_applied_state")
+public class OrderAppliedState {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "brand_key", nullable = false, length = 100)
+    private String brandKey;
+
+    @Column(name = "order_id", nullable = false, length = 100)
+    private String orderId;
+
+    @Column(name = "shopify_order_gid", nullable = false, length = 100)
+    private String shopifyOrderGid;
+
+    @Column(name = "fulfillment_id", nullable = false)
+    private Long fulfillmentId;
+
+    @Column(name = "awb", length = 100)
+    private String awb;
+
+    @Column(name = "last_shipment_status", length = 50)
+    private String lastShipmentStatus;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    public OrderAppliedState() {
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getBrandKey() {
+        return brandKey;
+    }
+
+    public void setBrandKey(String brandKey) {
+        this.brandKey = brandKey;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getShopifyOrderGid() {
+        return shopifyOrderGid;
+    }
+
+    public void setShopifyOrderGid(String shopifyOrderGid) {
+        this.shopifyOrderGid = shopifyOrderGid;
+    }
+
+    public Long getFulfillmentId() {
+        return fulfillmentId;
+    }
+
+    public void setFulfillmentId(Long fulfillmentId) {
+        this.fulfillmentId = fulfillmentId;
+    }
+
+    public String getAwb() {
+        return awb;
+    }
+
+    public void setAwb(String awb) {
+        this.awb = awb;
+    }
+
+    public String getLastShipmentStatus() {
+        return lastShipmentStatus;
+    }
+
+    public void setLastShipmentStatus(String lastShipmentStatus) {
+        this.lastShipmentStatus = lastShipmentStatus;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
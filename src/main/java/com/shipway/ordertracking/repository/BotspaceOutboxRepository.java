@@ -0,0 +1,99 @@
+package com.shipway.ordertracking.repository;
+
+import com.shipway.ordertracking.entity.BotspaceOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface BotspaceOutboxRepository extends JpaRepository<BotspaceOutboxMessage, Long> {
+
+    /**
+     * Queue a message unless one already exists for {@code order_id} + {@code brand_key} + {@code success_status}
+     * (unique key). {@code INSERT IGNORE} reports 0 rows for the duplicate whatever the driver's found-rows
+     * setting, where {@code ON DUPLICATE KEY UPDATE} counts the untouched row as 1 under Connector/J defaults.
+     *
+     * @return 1 when inserted, 0 when it was already queued or sent (see {@link #requeueFailed} for failed rows)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT IGNORE INTO botspace_outbox
+                (account_code, order_id, brand_key, tracking_account_code, tracking_brand_name, success_status,
+                 failure_status, payload, status, attempts, created_at, updated_at)
+            VALUES (:accountCode, :orderId, :brandKey, :trackingAccountCode, :trackingBrandName, :successStatus,
+                 :failureStatus, :payload, 'pending', 0, CURRENT_TIMESTAMP(6), CURRENT_TIMESTAMP(6))
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("accountCode") String accountCode, @Param("orderId") String orderId,
+            @Param("brandKey") String brandKey, @Param("trackingAccountCode") String trackingAccountCode,
+            @Param("trackingBrandName") String trackingBrandName, @Param("successStatus") String successStatus,
+            @Param("failureStatus") String failureStatus, @Param("payload") String payload);
+
+    /**
+     * Put a {@code failed} row for the same key back to {@code pending} with the new request, so a later attempt
+     * (or a replay) is sent instead of being taken for a duplicate.
+     *
+     * @return 1 when a failed row was requeued, 0 when there is none
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE botspace_outbox
+            SET account_code = :accountCode, tracking_account_code = :trackingAccountCode,
+                tracking_brand_name = :trackingBrandName, failure_status = :failureStatus, payload = :payload,
+                status = 'pending', claim_token = NULL, claimed_at = NULL, last_error = NULL,
+                updated_at = CURRENT_TIMESTAMP(6)
+            WHERE order_id = :orderId AND brand_key = :brandKey AND success_status = :successStatus
+              AND status = 'failed'
+            """, nativeQuery = true)
+    int requeueFailed(@Param("accountCode") String accountCode, @Param("orderId") String orderId,
+            @Param("brandKey") String brandKey, @Param("trackingAccountCode") String trackingAccountCode,
+            @Param("trackingBrandName") String trackingBrandName, @Param("successStatus") String successStatus,
+            @Param("failureStatus") String failureStatus, @Param("payload") String payload);
+
+    /**
+     * Claim up to {@code limit} of the oldest pending rows (and {@code sending} rows claimed more than
+     * {@code leaseMs} ago) for {@code claimToken} in one statement, so concurrent dispatchers never share a row.
+     * The lease is measured on the database clock, the same one that stamps {@code claimed_at}.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE botspace_outbox
+            SET status = 'sending', claim_token = :claimToken, claimed_at = CURRENT_TIMESTAMP(6),
+                updated_at = CURRENT_TIMESTAMP(6)
+            WHERE status = 'pending'
+               OR (status = 'sending' AND claimed_at < CURRENT_TIMESTAMP(6) - INTERVAL :leaseMs * 1000 MICROSECOND)
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    int claim(@Param("claimToken") String claimToken, @Param("leaseMs") long leaseMs, @Param("limit") int limit);
+
+    List<BotspaceOutboxMessage> findByClaimTokenOrderByIdAsc(String claimToken);
+
+    /**
+     * Final status for a claimed row; 0 when the claim has since been taken over (lease expired).
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE botspace_outbox
+            SET status = :status, attempts = attempts + 1, last_error = :lastError, claim_token = NULL,
+                updated_at = CURRENT_TIMESTAMP(6)
+            WHERE id = :id AND claim_token = :claimToken
+            """, nativeQuery = true)
+    int complete(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("status") String status,
+            @Param("lastError") String lastError);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM botspace_outbox WHERE status IN ('sent', 'failed') AND updated_at < :before",
+            nativeQuery = true)
+    int deleteCompletedBefore(@Param("before") Instant before);
+
+    long countByStatus(String status);
+}
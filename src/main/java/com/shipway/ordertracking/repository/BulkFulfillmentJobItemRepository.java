@@ -0,0 +1,28 @@
+package com.shipway.ordertracking.repository;
+
+import com.shipway.ordertracking.entity.BulkFulfillmentJobItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface BulkFulfillmentJobItemRepository extends JpaRepository<BulkFulfillmentJobItem, Long> {
+
+    /** Next rows to process, in preview order. */
+    List<BulkFulfillmentJobItem> findByJobIdAndDoneFalseOrderBySeqAsc(String jobId, Pageable pageable);
+
+    List<BulkFulfillmentJobItem> findByJobIdOrderBySeqAsc(String jobId);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            DELETE i FROM bulk_fulfillment_job_item i
+            LEFT JOIN bulk_fulfillment_job j ON j.id = i.job_id
+            WHERE j.id IS NULL
+            """, nativeQuery = true)
+    int deleteOrphaned();
+}
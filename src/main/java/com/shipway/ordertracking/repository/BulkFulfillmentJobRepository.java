@@ -0,0 +1,100 @@
+package com.shipway.ordertracking.repository;
+
+import com.shipway.ordertracking.entity.BulkFulfillmentJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface BulkFulfillmentJobRepository extends JpaRepository<BulkFulfillmentJob, String> {
+
+    /**
+     * Take a queued job, or a running one whose heartbeat is more than {@code leaseMs} old, for
+     * {@code claimToken}. The lease is measured on the database clock, the same one that stamps
+     * {@code heartbeat_at}.
+     *
+     * @return 1 when claimed, 0 when another worker holds it or it has finished
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE bulk_fulfillment_job
+            SET status = 'running', claim_token = :claimToken, heartbeat_at = CURRENT_TIMESTAMP(6),
+                updated_at = CURRENT_TIMESTAMP(6)
+            WHERE id = :id AND status IN ('queued', 'running')
+            AND (claim_token IS NULL OR heartbeat_at < CURRENT_TIMESTAMP(6) - INTERVAL :leaseMs * 1000 MICROSECOND)
+            """, nativeQuery = true)
+    int claim(@Param("id") String id, @Param("claimToken") String claimToken, @Param("leaseMs") long leaseMs);
+
+    /**
+     * Jobs no worker is on: running with a heartbeat more than {@code leaseMs} old, or queued for longer than that
+     * (database clock, as in {@link #claim}).
+     */
+    @Query(value = """
+            SELECT id FROM bulk_fulfillment_job
+            WHERE status IN ('queued', 'running')
+            AND COALESCE(heartbeat_at, created_at) < CURRENT_TIMESTAMP(6) - INTERVAL :leaseMs * 1000 MICROSECOND
+            ORDER BY created_at
+            """, nativeQuery = true)
+    List<String> findResumableIds(@Param("leaseMs") long leaseMs);
+
+    /**
+     * Set the row count once the preview is stored; 0 when the claim was lost or it was already set.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE bulk_fulfillment_job
+            SET total = :total, heartbeat_at = CURRENT_TIMESTAMP(6), updated_at = CURRENT_TIMESTAMP(6)
+            WHERE id = :id AND claim_token = :claimToken AND total IS NULL
+            """, nativeQuery = true)
+    int setTotal(@Param("id") String id, @Param("claimToken") String claimToken, @Param("total") int total);
+
+    /**
+     * Add one chunk's counts and renew the heartbeat; 0 when the claim was lost.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE bulk_fulfillment_job
+            SET processed = processed + :processed, attempted = attempted + :attempted,
+                succeeded = succeeded + :succeeded, failed = failed + :failed, skipped = skipped + :skipped,
+                heartbeat_at = CURRENT_TIMESTAMP(6), updated_at = CURRENT_TIMESTAMP(6)
+            WHERE id = :id AND claim_token = :claimToken
+            """, nativeQuery = true)
+    int addProgress(@Param("id") String id, @Param("claimToken") String claimToken,
+            @Param("processed") int processed, @Param("attempted") int attempted,
+            @Param("succeeded") int succeeded, @Param("failed") int failed, @Param("skipped") int skipped);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE bulk_fulfillment_job
+            SET status = :status, last_error = :lastError, claim_token = NULL,
+                finished_at = CURRENT_TIMESTAMP(6), updated_at = CURRENT_TIMESTAMP(6)
+            WHERE id = :id AND claim_token = :claimToken
+            """, nativeQuery = true)
+    int finish(@Param("id") String id, @Param("claimToken") String claimToken, @Param("status") String status,
+            @Param("lastError") String lastError);
+
+    /**
+     * Ask the worker to stop after its current chunk; 0 when the job has already finished (or does not exist).
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE bulk_fulfillment_job SET cancel_requested = 1, updated_at = CURRENT_TIMESTAMP(6)
+            WHERE id = :id AND status IN ('queued', 'running')
+            """, nativeQuery = true)
+    int requestCancel(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            DELETE FROM bulk_fulfillment_job
+            WHERE status IN ('completed', 'cancelled', 'failed') AND finished_at < :before
+            """, nativeQuery = true)
+    int deleteFinishedBefore(@Param("before") Instant before);
+}
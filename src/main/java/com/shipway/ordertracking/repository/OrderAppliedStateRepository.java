@@ -0,0 +1,38 @@
+package com.shipway.ordertracking.repository;
+
+import com.shipway.ordertracking.entity.OrderAppliedState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface OrderAppliedStateRepository extends JpaRepository<OrderAppliedState, Integer> {
+
+    Optional<OrderAppliedState> findByBrandKeyAndOrderId(String brandKey, String orderId);
+
+    /**
+     * Insert or replace the row for {@code brand_key} + {@code order_id} (unique key) in one statement.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO order_applied_state
+                (brand_key, order_id, shopify_order_gid, fulfillment_id, awb, last_shipment_status, updated_at)
+            VALUES (:brandKey, :orderId, :orderGid, :fulfillmentId, :awb, :status, CURRENT_TIMESTAMP(6))
+            ON DUPLICATE KEY UPDATE shopify_order_gid = VALUES(shopify_order_gid),
+                fulfillment_id = VALUES(fulfillment_id), awb = VALUES(awb),
+                last_shipment_status = VALUES(last_shipment_status), updated_at = VALUES(updated_at)
+            """, nativeQuery = true)
+    int upsert(@Param("brandKey") String brandKey, @Param("orderId") String orderId,
+            @Param("orderGid") String orderGid, @Param("fulfillmentId") Long fulfillmentId,
+            @Param("awb") String awb, @Param("status") String status);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM order_applied_state WHERE brand_key = :brandKey AND order_id = :orderId",
+            nativeQuery = true)
+    int deleteByBrandKeyAndOrderId(@Param("brandKey") String brandKey, @Param("orderId") String orderId);
+}
@@ -5,14 +5,15 @@ import com.shipway.ordertracking.dto.FasterrAbandonedCartWebhook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import com.shipway.ordertracking.config.BotspaceAccount;
@@ -24,9 +25,11 @@ public class AbandonedCartFlowService {
 
     private static final Logger log = LoggerFactory.getLogger(AbandonedCartFlowService.class);
 
-    /** Skip a second Botspace send the same calendar day (DB {@code CURDATE()}) for this phone + brand. */
-    private static final List<String> ABANDONED_CART_DEDUP_STATUSES = Arrays.asList("sent_abandonedCart",
-            "failed_abandonedCart");
+    /**
+     * Skip a second Botspace send the same calendar day (DB {@code CURDATE()}) for this phone + brand. A failed send
+     * does not count, so a later webhook or replay can still deliver it.
+     */
+    private static final List<String> ABANDONED_CART_DEDUP_STATUSES = List.of("sent_abandonedCart");
 
     @Autowired
     private BotspaceService botspaceService;
@@ -43,6 +46,14 @@ public class AbandonedCartFlowService {
     @Autowired
     private StoreShopifyBrandAccountService storeShopifyBrandAccountService;
 
+    /**
+     * Spring Boot's task executor (virtual threads when {@code spring.threads.virtual.enabled=true} on JDK 21+);
+     * the common pool when absent.
+     */
+    @Autowired(required = false)
+    @Qualifier("applicationTaskExecutor")
+    private Executor taskExecutor;
+
     /** When set (e.g. for local testing), abandoned cart notifications go to this number instead of the customer. */
     @Value("${abandoned.cart.test.phone:}")
     private String abandonedCartTestPhone;
@@ -89,7 +100,9 @@ public class AbandonedCartFlowService {
             } catch (Exception e) {
                 log.error("Error in abandoned cart notification task for phone: {}", customerPhone, e);
             }
-        }, CompletableFuture.delayedExecutor(1, TimeUnit.MINUTES));
+        }, taskExecutor != null
+                ? CompletableFuture.delayedExecutor(1, TimeUnit.MINUTES, taskExecutor)
+                : CompletableFuture.delayedExecutor(1, TimeUnit.MINUTES));
 
         log.info("Abandoned cart notification scheduled for phone: {} (brand: {}), will send in 1 minute",
                 customerPhone, brandName);
@@ -142,7 +155,7 @@ public class AbandonedCartFlowService {
             String brandForDedup = brandName != null ? brandName.trim() : "";
             if (customerMessageTrackingService.hasAnyStatusToday(orderIdForTracking, brandForDedup,
                     ABANDONED_CART_DEDUP_STATUSES)) {
-                log.info("Abandoned cart: already sent or failed today for order_id={} brand={}, skipping Botspace",
+                log.info("Abandoned cart: already sent today for order_id={} brand={}, skipping Botspace",
                         orderIdForTracking, brandForDedup);
                 return;
             }
@@ -161,7 +174,8 @@ public class AbandonedCartFlowService {
             boolean sent = botspaceService.sendTemplateMessage(brandName, request, orderIdForTracking,
                     "sent_abandonedCart", "failed_abandonedCart",
                     trackingAccountCode,
-                    brandName);
+                    brandName,
+                    BotspaceLaneDispatcher.Lane.MARKETING);
 
             if (sent) {
                 log.info("✅ Abandoned cart notification sent successfully for phone: {} (brand: {}, tracking order_id: {})",
@@ -0,0 +1,68 @@
+package com.shipway.ordertracking.service;
+
+/**
+ * Concurrency limit that adapts to observed latency (AIMD): while requests finish within
+ * {@code latencyTolerance} × the best recent latency and the limit is in use, it grows by about one per
+ * {@code limit} requests; a slower request shrinks it by 10%. The best latency is re-learned every
+ * {@value #RTT_WINDOW} samples so a permanently slower upstream does not pin the limit at the minimum.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    static final int RTT_WINDOW = 500;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+
+    /** Guarded by {@code this}. */
+    private double limit;
+    private int inFlight;
+    private long minRttNanos = Long.MAX_VALUE;
+    private int samplesInWindow;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyTolerance = Math.max(1.0, latencyTolerance);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /** Take a slot, or {@code false} when {@link #getLimit()} requests are already in flight. */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /** Give a slot back and feed its latency into the limit. */
+    public synchronized void release(long latencyNanos) {
+        int inFlightBefore = inFlight;
+        inFlight = Math.max(0, inFlight - 1);
+        if (latencyNanos <= 0) {
+            return;
+        }
+        if (++samplesInWindow >= RTT_WINDOW) {
+            samplesInWindow = 0;
+            minRttNanos = latencyNanos;
+        } else {
+            minRttNanos = Math.min(minRttNanos, latencyNanos);
+        }
+
+        if (latencyNanos > minRttNanos * latencyTolerance) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        } else if (inFlightBefore * 2 >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
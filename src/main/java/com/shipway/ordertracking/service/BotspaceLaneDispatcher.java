@@ -0,0 +1,298 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.config.BotspaceAccount;
+import com.shipway.ordertracking.config.BotspaceProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Paces Botspace sends per {@code botspace.accounts} entry ({@code botspace.dispatch.*}).
+ * <p>
+ * Each account has a token bucket ({@code messagesPerSecond} / {@code burst} on the account, else the
+ * {@code default-*} values) and one queue ordered by {@link Lane}, then arrival: when a token frees up the most
+ * urgent waiting message takes it, so order and shipment notifications are not stuck behind the daily follow-up
+ * batch. Sends run on {@code send-threads} shared threads.
+ * <p>
+ * Metrics: {@code botspace.dispatch.queue.wait} (timer, tags {@code account}, {@code lane}),
+ * {@code botspace.dispatch.queued} per account.
+ */
+@Component
+public class BotspaceLaneDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(BotspaceLaneDispatcher.class);
+
+    /** Priority lanes, most urgent first. */
+    public enum Lane {
+        /** Order created, shipment status notifications. */
+        TRANSACTIONAL,
+        /** Abandoned cart. */
+        MARKETING,
+        /** Post-delivered follow-up batch. */
+        FOLLOW_UP;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    @Autowired
+    private BotspaceProperties botspaceProperties;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${botspace.dispatch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${botspace.dispatch.default-per-second:5}")
+    private double defaultPerSecond;
+
+    @Value("${botspace.dispatch.default-burst:5}")
+    private int defaultBurst;
+
+    @Value("${botspace.dispatch.send-threads:8}")
+    private int sendThreads;
+
+    private final Map<BotspaceAccount, AccountQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private ExecutorService sendExecutor;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        sendExecutor = Executors.newFixedThreadPool(Math.max(1, sendThreads), r -> {
+            Thread t = new Thread(r, "botspace-send-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Run {@code send} for {@code accountCode} once the account has a token and no more urgent message is waiting.
+     * Unknown accounts (and {@code enabled=false}) skip the queue.
+     */
+    public CompletableFuture<Boolean> submit(String accountCode, Lane lane, Supplier<Boolean> send) {
+        if (!running) {
+            return CompletableFuture.supplyAsync(send, Runnable::run);
+        }
+        BotspaceAccount account = enabled ? botspaceProperties.getAccountByCode(accountCode) : null;
+        if (account == null) {
+            return CompletableFuture.supplyAsync(send, sendExecutor);
+        }
+        AccountQueue queue = queues.computeIfAbsent(account, a -> startQueue(accountCode, a));
+        Task task = new Task(lane, sequence.incrementAndGet(), System.nanoTime(), send);
+        queue.tasks.add(task);
+        return task.future;
+    }
+
+    private AccountQueue startQueue(String accountCode, BotspaceAccount account) {
+        double perSecond = account.getMessagesPerSecond() != null && account.getMessagesPerSecond() > 0
+                ? account.getMessagesPerSecond() : defaultPerSecond;
+        int burst = account.getBurst() != null && account.getBurst() > 0 ? account.getBurst() : defaultBurst;
+        String name = accountCode.trim().toLowerCase(Locale.ROOT).replace(" ", "");
+        AccountQueue queue = new AccountQueue(name, new TokenBucket(Math.max(0.01, perSecond), Math.max(1, burst)));
+        if (meterRegistry != null) {
+            for (Lane lane : Lane.values()) {
+                queue.waitTimers.put(lane, Timer.builder("botspace.dispatch.queue.wait")
+                        .description("Time a Botspace message waited for its account's rate limit")
+                        .tag("account", name)
+                        .tag("lane", lane.tag())
+                        .register(meterRegistry));
+            }
+            Gauge.builder("botspace.dispatch.queued", queue.tasks, PriorityBlockingQueue::size)
+                    .tag("account", name)
+                    .register(meterRegistry);
+        }
+        Thread pump = new Thread(() -> pump(queue), "botspace-dispatch-" + name);
+        pump.setDaemon(true);
+        queue.pump = pump;
+        pump.start();
+        log.info("Botspace dispatch for {}: {} msg/s, burst {}", name, perSecond, burst);
+        return queue;
+    }
+
+    /** Take a token, then the most urgent waiting task; re-checked after every wait so a new urgent task jumps in. */
+    private void pump(AccountQueue queue) {
+        while (running) {
+            Task task;
+            try {
+                task = queue.tasks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long waitNanos = queue.bucket.tryAcquire(System.nanoTime());
+            if (waitNanos > 0) {
+                queue.tasks.add(task);
+                LockSupport.parkNanos(waitNanos);
+                continue;
+            }
+            long waited = System.nanoTime() - task.enqueuedNanos;
+            queue.record(task.lane, waited);
+            try {
+                sendExecutor.execute(task::run);
+            } catch (RuntimeException e) {
+                task.future.completeExceptionally(e);
+            }
+        }
+        Task left;
+        while ((left = queue.tasks.poll()) != null) {
+            left.future.completeExceptionally(new IllegalStateException("Botspace dispatcher stopped"));
+        }
+    }
+
+    /** Per-account queue depth and wait per lane (count, avg / max ms). */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        Map<String, Object> accounts = new TreeMap<>();
+        for (AccountQueue queue : queues.values()) {
+            accounts.put(queue.name, queue.snapshot());
+        }
+        stats.put("accounts", accounts);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        for (AccountQueue queue : queues.values()) {
+            if (queue.pump != null) {
+                queue.pump.interrupt();
+            }
+        }
+        sendExecutor.shutdown();
+        try {
+            if (!sendExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                sendExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            sendExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Task {
+
+        static final Comparator<Task> ORDER = Comparator.<Task>comparingInt(t -> t.lane.ordinal())
+                .thenComparingLong(t -> t.sequence);
+
+        final Lane lane;
+        final long sequence;
+        final long enqueuedNanos;
+        final Supplier<Boolean> send;
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        Task(Lane lane, long sequence, long enqueuedNanos, Supplier<Boolean> send) {
+            this.lane = lane;
+            this.sequence = sequence;
+            this.enqueuedNanos = enqueuedNanos;
+            this.send = send;
+        }
+
+        void run() {
+            try {
+                future.complete(send.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    private static final class AccountQueue {
+
+        final String name;
+        final TokenBucket bucket;
+        final PriorityBlockingQueue<Task> tasks = new PriorityBlockingQueue<>(64, Task.ORDER);
+        final Map<Lane, Timer> waitTimers = new EnumMap<>(Lane.class);
+        final Map<Lane, long[]> waits = new EnumMap<>(Lane.class);
+        volatile Thread pump;
+
+        AccountQueue(String name, TokenBucket bucket) {
+            this.name = name;
+            this.bucket = bucket;
+        }
+
+        /** {count, total nanos, max nanos} per lane. */
+        synchronized void record(Lane lane, long waitedNanos) {
+            long[] w = waits.computeIfAbsent(lane, l -> new long[3]);
+            w[0]++;
+            w[1] += waitedNanos;
+            w[2] = Math.max(w[2], waitedNanos);
+            Timer timer = waitTimers.get(lane);
+            if (timer != null) {
+                timer.record(waitedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("queued", tasks.size());
+            s.put("perSecond", bucket.perSecond);
+            s.put("burst", bucket.capacity);
+            Map<String, Object> lanes = new LinkedHashMap<>();
+            waits.forEach((lane, w) -> {
+                Map<String, Object> l = new LinkedHashMap<>();
+                l.put("dispatched", w[0]);
+                l.put("avgWaitMs", w[0] > 0 ? w[1] / w[0] / 1_000_000 : 0);
+                l.put("maxWaitMs", w[2] / 1_000_000);
+                lanes.put(lane.tag(), l);
+            });
+            s.put("lanes", lanes);
+            return s;
+        }
+    }
+
+    /** Refills {@code perSecond} tokens a second up to {@code capacity}. */
+    static final class TokenBucket {
+
+        final double perSecond;
+        final double capacity;
+        private double tokens;
+        private long lastNanos;
+
+        TokenBucket(double perSecond, double capacity) {
+            this.perSecond = perSecond;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastNanos = System.nanoTime();
+        }
+
+        /** @return 0 when a token was taken, else nanos until the next one */
+        synchronized long tryAcquire(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastNanos) / 1e9 * perSecond);
+            lastNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) ((1 - tokens) / perSecond * 1e9));
+        }
+    }
+}
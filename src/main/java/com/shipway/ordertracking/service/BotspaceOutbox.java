@@ -0,0 +1,228 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.BotspaceMessageRequest;
+import com.shipway.ordertracking.entity.BotspaceOutboxMessage;
+import com.shipway.ordertracking.repository.BotspaceOutboxRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Transactional outbox for Botspace notifications ({@code botspace.outbox.*}, table {@code botspace_outbox}).
+ * <p>
+ * Flows queue the fully built request; the row's unique key (order + brand + success status) is the dedup record, so
+ * a repeated webhook cannot queue the message twice, while a {@code failed} row is queued again.
+ * {@link BotspaceOutboxDispatcher} claims rows in batches, sends them and {@link #complete}s each one: the outbox
+ * status and the {@code customer_message_tracking} row are written in one transaction. A crash before that leaves the
+ * row claimed; it is sent again once the lease expires (at-least-once). Completed rows are purged after
+ * {@code retention-days}.
+ * <p>
+ * Metrics: {@code botspace.outbox.queued}, {@code botspace.outbox.duplicates}, {@code botspace.outbox.sent},
+ * {@code botspace.outbox.failed}.
+ */
+@Service
+public class BotspaceOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(BotspaceOutbox.class);
+
+    /** Outcome of {@link #enqueue}. */
+    public enum EnqueueResult {
+        QUEUED, DUPLICATE, FAILED
+    }
+
+    @Autowired
+    private BotspaceOutboxRepository repository;
+
+    @Autowired
+    private CustomerMessageTrackingService customerMessageTrackingService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${botspace.outbox.enabled:true}")
+    private boolean enabled;
+
+    /** A claimed row not completed within this is claimed again. */
+    @Value("${botspace.outbox.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${botspace.outbox.retention-days:30}")
+    private int retentionDays;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder("botspace.outbox.queued", queued, AtomicLong::get)
+                .description("Botspace messages queued in the outbox")
+                .register(meterRegistry);
+        FunctionCounter.builder("botspace.outbox.duplicates", duplicates, AtomicLong::get)
+                .description("Botspace messages not queued because the same notification already was")
+                .register(meterRegistry);
+        FunctionCounter.builder("botspace.outbox.sent", sent, AtomicLong::get)
+                .description("Outbox messages accepted by Botspace")
+                .register(meterRegistry);
+        FunctionCounter.builder("botspace.outbox.failed", failed, AtomicLong::get)
+                .description("Outbox messages Botspace did not accept")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue {@code request} for {@code orderId}; {@code successStatus} / {@code failureStatus} and the tracking
+     * account / brand are what {@link BotspaceService#sendTemplateMessage} would have written. A row that ended
+     * {@code failed} is queued again rather than counted as a duplicate.
+     * <p>
+     * The requeue and the insert commit together in their own transaction, started and rolled back inside this
+     * method, so a database error comes back as {@link EnqueueResult#FAILED} (and the caller sends directly) instead
+     * of a rollback-only caller transaction. The row's unique key is the dedup marker from here until dispatch;
+     * {@link #complete} writes the {@code customer_message_tracking} row with the final outbox status.
+     */
+    public EnqueueResult enqueue(String accountCode, BotspaceMessageRequest request, String orderId,
+            String successStatus, String failureStatus, String trackingAccountCode, String trackingBrandName) {
+        try {
+            String payload = objectMapper.writeValueAsString(request);
+            String brandKey = CustomerMessageTrackingService.messageBrandKey(trackingBrandName);
+            int inserted = inTransaction(() -> {
+                int requeued = repository.requeueFailed(accountCode, orderId, brandKey, trackingAccountCode,
+                        trackingBrandName, successStatus, failureStatus, payload);
+                return requeued > 0 ? requeued
+                        : repository.insertIfAbsent(accountCode, orderId, brandKey, trackingAccountCode,
+                                trackingBrandName, successStatus, failureStatus, payload);
+            });
+            if (inserted == 0) {
+                duplicates.incrementAndGet();
+                log.info("Botspace message {} for order {} already queued, skipping", successStatus, orderId);
+                return EnqueueResult.DUPLICATE;
+            }
+            queued.incrementAndGet();
+            log.info("📥 Queued Botspace message {} for order {} (account: {})", successStatus, orderId,
+                    accountCode);
+            return EnqueueResult.QUEUED;
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize Botspace request for order {}: {}", orderId, e.getMessage());
+            return EnqueueResult.FAILED;
+        } catch (Exception e) {
+            log.error("Failed to queue Botspace message {} for order {}: {}", successStatus, orderId,
+                    e.getMessage(), e);
+            return EnqueueResult.FAILED;
+        }
+    }
+
+    /** {@code work} in a new transaction, or as-is when there is no transaction manager (e.g. in tests). */
+    private int inTransaction(IntSupplier work) {
+        if (transactionManager == null) {
+            return work.getAsInt();
+        }
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Integer result = template.execute(status -> work.getAsInt());
+        return result != null ? result : 0;
+    }
+
+    /**
+     * Claim up to {@code batchSize} pending (or lease-expired) rows for this dispatcher.
+     */
+    public List<BotspaceOutboxMessage> claim(int batchSize) {
+        String token = UUID.randomUUID().toString();
+        if (repository.claim(token, leaseMs, batchSize) == 0) {
+            return Collections.emptyList();
+        }
+        return repository.findByClaimTokenOrderByIdAsc(token);
+    }
+
+    /**
+     * The queued request, or {@code null} when the payload cannot be read (the row is then failed).
+     */
+    public BotspaceMessageRequest readRequest(BotspaceOutboxMessage message) {
+        try {
+            return objectMapper.readValue(message.getPayload(), BotspaceMessageRequest.class);
+        } catch (JsonProcessingException e) {
+            log.error("Unreadable outbox payload (id {}, order {}): {}", message.getId(), message.getOrderId(),
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Mark a claimed row {@code sent} / {@code failed} and write its {@code customer_message_tracking} row, in one
+     * transaction. Nothing is written when the claim was taken over in the meantime.
+     */
+    @Transactional
+    public void complete(BotspaceOutboxMessage message, boolean accepted, String error) {
+        int updated = repository.complete(message.getId(), message.getClaimToken(),
+                accepted ? BotspaceOutboxMessage.SENT : BotspaceOutboxMessage.FAILED,
+                error != null && error.length() > 500 ? error.substring(0, 500) : error);
+        if (updated == 0) {
+            log.warn("Outbox message {} (order {}) was claimed again before completing, leaving it",
+                    message.getId(), message.getOrderId());
+            return;
+        }
+        (accepted ? sent : failed).incrementAndGet();
+        customerMessageTrackingService.addMessageStatus(message.getOrderId(), message.getAccountCode(),
+                accepted ? message.getSuccessStatus() : message.getFailureStatus(),
+                message.getTrackingAccountCode(), message.getTrackingBrandName());
+    }
+
+    @Scheduled(cron = "${botspace.outbox.purge-cron:0 30 3 * * *}")
+    public void purgeCompleted() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int deleted = repository.deleteCompletedBefore(Instant.now().minus(Duration.ofDays(retentionDays)));
+            if (deleted > 0) {
+                log.info("🧹 Purged {} completed Botspace outbox rows older than {} days", deleted, retentionDays);
+            }
+        } catch (Exception e) {
+            log.error("Failed to purge Botspace outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", queued.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("sent", sent.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+}
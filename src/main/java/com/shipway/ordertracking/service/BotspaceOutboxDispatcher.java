@@ -0,0 +1,120 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.BotspaceMessageRequest;
+import com.shipway.ordertracking.entity.BotspaceOutboxMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends queued {@link BotspaceOutbox} messages: every {@code botspace.outbox.poll-ms} it claims up to
+ * {@code batch-size} rows and sends them on {@code concurrency} threads, repeating while batches come back full.
+ */
+@Component
+public class BotspaceOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(BotspaceOutboxDispatcher.class);
+
+    @Autowired
+    private BotspaceOutbox botspaceOutbox;
+
+    @Autowired
+    private BotspaceService botspaceService;
+
+    @Value("${botspace.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${botspace.outbox.concurrency:4}")
+    private int concurrency;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread t = new Thread(r, "botspace-outbox-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${botspace.outbox.poll-ms:500}")
+    public void dispatch() {
+        if (!botspaceOutbox.isEnabled()) {
+            return;
+        }
+        try {
+            while (dispatchBatch() >= Math.max(1, batchSize)) {
+                // full batch: more may be waiting
+            }
+        } catch (Exception e) {
+            log.error("Botspace outbox dispatch failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Claim one batch and send it, at most {@code concurrency} at a time.
+     *
+     * @return rows claimed
+     */
+    int dispatchBatch() {
+        List<BotspaceOutboxMessage> batch = botspaceOutbox.claim(Math.max(1, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<Void>> sends = new ArrayList<>(batch.size());
+        for (BotspaceOutboxMessage message : batch) {
+            sends.add(CompletableFuture.runAsync(() -> send(message), executor));
+        }
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).join();
+        log.info("📤 Dispatched {} Botspace outbox message(s)", batch.size());
+        return batch.size();
+    }
+
+    private void send(BotspaceOutboxMessage message) {
+        try {
+            BotspaceMessageRequest request = botspaceOutbox.readRequest(message);
+            if (request == null) {
+                botspaceOutbox.complete(message, false, "unreadable payload");
+                return;
+            }
+            boolean accepted = botspaceService.deliver(message.getAccountCode(), request, message.getOrderId());
+            botspaceOutbox.complete(message, accepted, accepted ? null : "not accepted by Botspace");
+        } catch (UpstreamResilience.CircuitOpenException e) {
+            // Not attempted: not marked failed, sent once the lease runs out and the breaker lets calls through
+            log.warn("Outbox message {} (order {}) waits for the Botspace circuit: {}", message.getId(),
+                    message.getOrderId(), e.getMessage());
+        } catch (Exception e) {
+            // Row stays claimed and is picked up again after the lease
+            log.error("Failed to complete outbox message {} (order {}): {}", message.getId(),
+                    message.getOrderId(), e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.shipway.ordertracking.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shipway.ordertracking.config.BotspaceAccount;
 import com.shipway.ordertracking.config.BotspaceProperties;
 import com.shipway.ordertracking.dto.BotspaceMessageRequest;
@@ -8,32 +7,51 @@ import com.shipway.ordertracking.dto.BotspaceMessageResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @Service
 public class BotspaceService {
 
     private static final Logger log = LoggerFactory.getLogger(BotspaceService.class);
 
     @Autowired
+    @Qualifier("botspaceRestTemplate")
     private RestTemplate restTemplate;
 
     @Autowired
     private BotspaceProperties botspaceProperties;
 
-    @Autowired
-    private ObjectMapper objectMapper;
-
     @org.springframework.beans.factory.annotation.Value("${botspace.test.phone:}")
     private String testPhoneNumber;
 
     @Autowired
     private CustomerMessageTrackingService customerMessageTrackingService;
 
+    @Autowired
+    private PayloadCaptureService payloadCaptureService;
+
+    @Autowired(required = false)
+    private UpstreamAsyncExecutor upstreamAsyncExecutor;
+
+    @Autowired(required = false)
+    private BotspaceOutbox botspaceOutbox;
+
+    @Autowired(required = false)
+    private BotspaceLaneDispatcher botspaceLaneDispatcher;
+
+    @Autowired(required = false)
+    private UpstreamResilience upstreamResilience;
+
     /**
      * Send template message to customer via Botspace and track status in database
      * backend using default status "sent"/"failed"
@@ -71,25 +89,122 @@ public class BotspaceService {
     public boolean sendTemplateMessage(String accountCode, BotspaceMessageRequest request, String orderId,
             String successStatus, String failureStatus, String messageTrackingAccountCode,
             String messageTrackingBrandName) {
-        boolean sent = sendTemplateMessage(accountCode, request);
-
-        if (orderId != null && !orderId.isEmpty() && accountCode != null && !accountCode.isEmpty()) {
-            String status = sent ? successStatus : failureStatus;
-            try {
-                String tact = messageTrackingAccountCode != null ? messageTrackingAccountCode.trim() : "";
-                String tbrand = messageTrackingBrandName != null ? messageTrackingBrandName.trim() : "";
-                if (!tact.isEmpty() || !tbrand.isEmpty()) {
-                    customerMessageTrackingService.addStatus(orderId, tact, status,
-                            tbrand.isEmpty() ? null : tbrand);
-                } else {
-                    customerMessageTrackingService.addStatus(orderId, accountCode, status);
-                }
-            } catch (Exception e) {
-                log.error("Failed to add message status for order {}: {}", orderId, e.getMessage());
+        return sendTemplateMessage(accountCode, request, orderId, successStatus, failureStatus,
+                messageTrackingAccountCode, messageTrackingBrandName, BotspaceLaneDispatcher.Lane.TRANSACTIONAL);
+    }
+
+    /**
+     * Same as {@link #sendTemplateMessage(String, BotspaceMessageRequest, String, String, String, String, String)},
+     * queued in {@code lane} behind the account's rate limit ({@link BotspaceLaneDispatcher}).
+     */
+    public boolean sendTemplateMessage(String accountCode, BotspaceMessageRequest request, String orderId,
+            String successStatus, String failureStatus, String messageTrackingAccountCode,
+            String messageTrackingBrandName, BotspaceLaneDispatcher.Lane lane) {
+        boolean sent;
+        try {
+            sent = UpstreamAsyncExecutor.join(sendInLane(accountCode, request, orderId, lane));
+        } catch (UpstreamResilience.CircuitOpenException e) {
+            // Never reached Botspace: no failed_* row, the next event or replay sends it
+            return false;
+        } catch (RuntimeException e) {
+            log.error("❌ Botspace send not dispatched (account: {}, order: {}): {}", accountCode, orderId,
+                    e.getMessage());
+            sent = false;
+        }
+        recordStatus(accountCode, orderId, sent ? successStatus : failureStatus, messageTrackingAccountCode,
+                messageTrackingBrandName);
+        return sent;
+    }
+
+    /**
+     * {@link #sendTemplateMessage(String, BotspaceMessageRequest, String, String, String, String, String)} without
+     * blocking the caller (tracking row included).
+     */
+    public CompletableFuture<Boolean> sendTemplateMessageAsync(String accountCode, BotspaceMessageRequest request,
+            String orderId, String successStatus, String failureStatus, String messageTrackingAccountCode,
+            String messageTrackingBrandName) {
+        return sendTemplateMessageAsync(accountCode, request, orderId, successStatus, failureStatus,
+                messageTrackingAccountCode, messageTrackingBrandName, BotspaceLaneDispatcher.Lane.TRANSACTIONAL);
+    }
+
+    /**
+     * Async {@link #sendTemplateMessage(String, BotspaceMessageRequest, String, String, String, String, String,
+     * BotspaceLaneDispatcher.Lane)}; the tracking row is written once the send has run.
+     */
+    public CompletableFuture<Boolean> sendTemplateMessageAsync(String accountCode, BotspaceMessageRequest request,
+            String orderId, String successStatus, String failureStatus, String messageTrackingAccountCode,
+            String messageTrackingBrandName, BotspaceLaneDispatcher.Lane lane) {
+        return sendInLane(accountCode, request, orderId, lane).handle((sent, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof UpstreamResilience.CircuitOpenException) {
+                // Never reached Botspace: no failed_* row, the next event or replay sends it
+                return false;
+            }
+            if (e != null) {
+                log.error("❌ Botspace send not dispatched (account: {}, order: {}): {}", accountCode, orderId,
+                        e.getMessage());
             }
+            boolean ok = e == null && Boolean.TRUE.equals(sent);
+            recordStatus(accountCode, orderId, ok ? successStatus : failureStatus, messageTrackingAccountCode,
+                    messageTrackingBrandName);
+            return ok;
+        });
+    }
+
+    private void recordStatus(String accountCode, String orderId, String status, String messageTrackingAccountCode,
+            String messageTrackingBrandName) {
+        if (orderId == null || orderId.isEmpty() || accountCode == null || accountCode.isEmpty()) {
+            return;
+        }
+        try {
+            customerMessageTrackingService.addMessageStatus(orderId, accountCode, status,
+                    messageTrackingAccountCode, messageTrackingBrandName);
+        } catch (Exception e) {
+            log.error("Failed to add message status for order {}: {}", orderId, e.getMessage());
         }
+    }
 
-        return sent;
+    /**
+     * The raw send through the account's {@link BotspaceLaneDispatcher} queue; without one, on the
+     * {@link UpstreamAsyncExecutor} (or inline in unit tests).
+     */
+    private CompletableFuture<Boolean> sendInLane(String accountCode, BotspaceMessageRequest request, String orderId,
+            BotspaceLaneDispatcher.Lane lane) {
+        if (botspaceLaneDispatcher == null) {
+            return UpstreamAsyncExecutor.supplyOn(upstreamAsyncExecutor, () -> send(accountCode, request, orderId));
+        }
+        return botspaceLaneDispatcher.submit(accountCode, lane, () -> send(accountCode, request, orderId));
+    }
+
+    /**
+     * Hand a flow's notification off without waiting for Botspace: with the outbox enabled the fully built request
+     * is queued in {@code botspace_outbox} (one row per order + brand + {@code successStatus}, so a repeat is a
+     * no-op) and {@link BotspaceOutboxDispatcher} sends it and writes the tracking row. Otherwise, or when the
+     * outbox insert fails, this is {@link #sendTemplateMessageAsync}.
+     *
+     * @return completes with true once queued (or already queued / sent), else with the direct send's result
+     */
+    public CompletableFuture<Boolean> submitTemplateMessage(String accountCode, BotspaceMessageRequest request,
+            String orderId, String successStatus, String failureStatus, String messageTrackingAccountCode,
+            String messageTrackingBrandName) {
+        if (botspaceOutbox != null && botspaceOutbox.isEnabled() && orderId != null && !orderId.isEmpty()) {
+            BotspaceOutbox.EnqueueResult result = botspaceOutbox.enqueue(accountCode, request, orderId,
+                    successStatus, failureStatus, messageTrackingAccountCode, messageTrackingBrandName);
+            if (result != BotspaceOutbox.EnqueueResult.FAILED) {
+                return CompletableFuture.completedFuture(true);
+            }
+            log.warn("⚠️ Botspace outbox unavailable for order {}, sending directly", orderId);
+        }
+        return sendTemplateMessageAsync(accountCode, request, orderId, successStatus, failureStatus,
+                messageTrackingAccountCode, messageTrackingBrandName);
+    }
+
+    /**
+     * Send without writing a tracking row; the outbox dispatcher records the status itself.
+     */
+    boolean deliver(String accountCode, BotspaceMessageRequest request, String orderId) {
+        return UpstreamAsyncExecutor.join(sendInLane(accountCode, request, orderId,
+                BotspaceLaneDispatcher.Lane.TRANSACTIONAL));
     }
 
     /**
@@ -100,6 +215,18 @@ public class BotspaceService {
      * @return true if message sent successfully, false otherwise
      */
     public boolean sendTemplateMessage(String accountCode, BotspaceMessageRequest request) {
+        try {
+            return UpstreamAsyncExecutor.join(sendInLane(accountCode, request, null,
+                    BotspaceLaneDispatcher.Lane.TRANSACTIONAL));
+        } catch (UpstreamResilience.CircuitOpenException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Core send; {@code orderId} (optional) only tags the payload capture.
+     */
+    private boolean send(String accountCode, BotspaceMessageRequest request, String orderId) {
         if (request == null) {
             log.warn("Cannot send message: request is null");
             return false;
@@ -184,33 +311,16 @@ public class BotspaceService {
             HttpHeaders headers = createHeaders(apiKey);
             HttpEntity<BotspaceMessageRequest> entity = new HttpEntity<>(request, headers);
 
-            // Log JSON request body
-            try {
-                String jsonRequest = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(request);
-                log.info("📤 Botspace API Request JSON (Account: {}):\n{}", accountCode, jsonRequest);
-            } catch (Exception e) {
-                log.warn("Failed to serialize Botspace request to JSON: {}", e.getMessage());
-            }
-
-            log.info("Sending template message to Botspace API: {} (account: {})", finalApiUrl, accountCode);
+            log.info("📤 Sending template {} to Botspace (account: {}, order: {})", templateId, accountCode, orderId);
             log.debug("Template details - Phone: {}, TemplateId: {}, Variables: {}",
                     phone, templateId, request.getVariables());
 
-            ResponseEntity<BotspaceMessageResponse> response = restTemplate.exchange(
-                    finalApiUrl,
-                    HttpMethod.POST,
-                    entity,
-                    BotspaceMessageResponse.class);
+            ResponseEntity<BotspaceMessageResponse> response = exchange(accountCode, finalApiUrl, entity);
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 BotspaceMessageResponse responseBody = response.getBody();
-                try {
-                    String jsonResponse = objectMapper.writerWithDefaultPrettyPrinter()
-                            .writeValueAsString(responseBody);
-                    log.info("📥 Botspace API Response JSON (Account: {}):\n{}", accountCode, jsonResponse);
-                } catch (Exception e) {
-                    log.warn("Failed to serialize Botspace response to JSON: {}", e.getMessage());
-                }
+                capture(accountCode, orderId, request, response.getStatusCode().value(), responseBody, null,
+                        !responseBody.isAccepted());
                 if (responseBody.isAccepted()) {
                     String msgId = responseBody.getData() != null ? responseBody.getData().getId() : "unknown";
                     log.info(
@@ -224,20 +334,64 @@ public class BotspaceService {
                 }
             } else {
                 log.error("❌ Botspace API returned non-2xx status: {}", response.getStatusCode());
+                capture(accountCode, orderId, request, response.getStatusCode().value(), response.getBody(), null,
+                        true);
                 return false;
             }
 
+        } catch (UpstreamResilience.CircuitOpenException e) {
+            // Not attempted: rethrown so tracked sends leave no failed_* row and outbox rows stay queued
+            log.warn("⛔ Botspace send for order {} not attempted (account: {}): {}", orderId, accountCode,
+                    e.getMessage());
+            throw e;
         } catch (RestClientException e) {
             log.error("❌ Error calling Botspace API for phone {} (account: {}): {}", phone, accountCode, e.getMessage(),
                     e);
+            capture(accountCode, orderId, request, null, null, e.getMessage(), true);
             return false;
         } catch (Exception e) {
             log.error("❌ Unexpected error sending template message to Botspace (account: {}): {}", accountCode,
                     e.getMessage(), e);
+            capture(accountCode, orderId, request, null, null, e.getMessage(), true);
             return false;
         }
     }
 
+    /**
+     * POST through {@link UpstreamResilience}: the account's circuit breaker, and a retry only when Botspace cannot
+     * have taken the message (429, connection refused) so a customer never gets it twice. While the breaker is open
+     * this throws {@link UpstreamResilience.CircuitOpenException}, which {@link #send} passes on instead of reporting
+     * a failed send.
+     */
+    private ResponseEntity<BotspaceMessageResponse> exchange(String accountCode, String url,
+            HttpEntity<BotspaceMessageRequest> entity) {
+        if (upstreamResilience == null) {
+            return restTemplate.exchange(url, HttpMethod.POST, entity, BotspaceMessageResponse.class);
+        }
+        return upstreamResilience.call(UpstreamResilience.Upstream.BOTSPACE, accountCode,
+                UpstreamResilience.CallType.MUTATION,
+                () -> restTemplate.exchange(url, HttpMethod.POST, entity, BotspaceMessageResponse.class));
+    }
+
+    /**
+     * Request/response pair to the payload capture buffer (sampled; failures always kept).
+     */
+    private void capture(String accountCode, String orderId, BotspaceMessageRequest request, Integer httpStatus,
+            Object response, String error, boolean failed) {
+        if (payloadCaptureService == null
+                || !payloadCaptureService.shouldCapture(PayloadCaptureService.Channel.BOTSPACE, failed)) {
+            return;
+        }
+        Map<String, Object> exchange = new LinkedHashMap<>();
+        exchange.put("accountCode", accountCode);
+        exchange.put("request", request);
+        exchange.put("httpStatus", httpStatus);
+        exchange.put("response", response);
+        exchange.put("error", error);
+        payloadCaptureService.store(PayloadCaptureService.Channel.BOTSPACE, "send-message", orderId, exchange,
+                failed);
+    }
+
     /**
      * Create HTTP headers. Botspace accepts apiKey as query param; some endpoints
      * may also require or prefer header.
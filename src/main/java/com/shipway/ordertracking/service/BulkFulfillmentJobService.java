@@ -0,0 +1,306 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.BulkFulfillFromTrackingRequest;
+import com.shipway.ordertracking.dto.BulkFulfillFromTrackingResponse;
+import com.shipway.ordertracking.dto.BulkFulfillmentJobStatus;
+import com.shipway.ordertracking.dto.FulfillAttemptResult;
+import com.shipway.ordertracking.dto.UnfulfilledShopifyOrderItem;
+import com.shipway.ordertracking.entity.BulkFulfillmentJob;
+import com.shipway.ordertracking.entity.BulkFulfillmentJobItem;
+import com.shipway.ordertracking.repository.BulkFulfillmentJobItemRepository;
+import com.shipway.ordertracking.repository.BulkFulfillmentJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk fulfillment as a background job ({@code bulk.fulfill.job.*}): submitting returns a job id at once and one
+ * of {@code workers} threads runs the job.
+ * <p>
+ * An API job first builds the preview (as {@link OrderTrackingBulkFulfillmentService#execute}) and stores its rows;
+ * a UI job is submitted with the rows the dashboard shows. Rows are then fulfilled {@code chunk-size} at a time,
+ * each chunk's results and the job's counters saved together ({@link BulkFulfillmentJobStore#checkpoint}). A cancel
+ * takes effect after the current chunk. The worker renews the job's heartbeat every chunk; a job whose heartbeat is
+ * older than {@code lease-ms} (worker stopped, e.g. restart) is picked up again by {@link #resumeStale} and continues
+ * with its remaining rows. Finished jobs are purged after {@code retention-days}.
+ */
+@Service
+public class BulkFulfillmentJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkFulfillmentJobService.class);
+
+    @Autowired
+    private BulkFulfillmentJobStore jobStore;
+
+    @Autowired
+    private BulkFulfillmentJobRepository jobRepository;
+
+    @Autowired
+    private BulkFulfillmentJobItemRepository itemRepository;
+
+    @Autowired
+    private UnfulfilledShopifyPreviewService unfulfilledShopifyPreviewService;
+
+    @Autowired
+    private OrderTrackingBulkFulfillmentService orderTrackingBulkFulfillmentService;
+
+    @Value("${bulk.fulfill.job.workers:2}")
+    private int workers;
+
+    @Value("${bulk.fulfill.job.chunk-size:100}")
+    private int chunkSize;
+
+    /** A running job without a heartbeat for this long is taken over. */
+    @Value("${bulk.fulfill.job.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${bulk.fulfill.job.retention-days:14}")
+    private int retentionDays;
+
+    private ExecutorService executor;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+            Thread t = new Thread(r, "bulk-fulfill-job-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Queue a job for the same preview + fulfill as {@code POST /api/orders/fulfill-from-tracking}.
+     */
+    public BulkFulfillmentJobStatus submit(BulkFulfillFromTrackingRequest request) {
+        String accountCode = request != null && request.getAccountCode() != null
+                && !request.getAccountCode().isBlank() ? request.getAccountCode().trim() : null;
+        BulkFulfillmentJob job = jobStore.create(BulkFulfillmentJob.SOURCE_API, accountCode,
+                OrderTrackingBulkFulfillmentService.effectiveLimit(request), request != null && request.isDryRun(),
+                null);
+        log.info("📋 Bulk fulfill job {} queued (accountCode={}, limit={}, dryRun={})", job.getId(), accountCode,
+                job.getRowLimit(), job.isDryRun());
+        start(job.getId());
+        return toStatus(job, false);
+    }
+
+    /**
+     * Queue a job for {@code items} as shown in the fulfillment UI (apply all).
+     */
+    public BulkFulfillmentJobStatus submitItems(List<UnfulfilledShopifyOrderItem> items, String accountCode,
+            int limit) {
+        List<UnfulfilledShopifyOrderItem> rows = items != null ? items : List.of();
+        BulkFulfillmentJob job = jobStore.create(BulkFulfillmentJob.SOURCE_UI, accountCode, limit, false, rows);
+        log.info("📋 Bulk fulfill job {} queued with {} UI row(s)", job.getId(), rows.size());
+        start(job.getId());
+        return toStatus(job, false);
+    }
+
+    /**
+     * @return the job's progress, or {@code null} when there is no such job
+     */
+    public BulkFulfillmentJobStatus getStatus(String jobId, boolean includeResults) {
+        return jobRepository.findById(jobId).map(job -> toStatus(job, includeResults)).orElse(null);
+    }
+
+    /**
+     * Stop the job after its current chunk.
+     *
+     * @return the job's progress, or {@code null} when there is no such job
+     */
+    public BulkFulfillmentJobStatus cancel(String jobId) {
+        if (jobRepository.requestCancel(jobId) > 0) {
+            log.info("🛑 Cancel requested for bulk fulfill job {}", jobId);
+        }
+        return getStatus(jobId, false);
+    }
+
+    /**
+     * Pick up jobs no worker is on: left over from a restart, or queued while all workers were busy elsewhere.
+     */
+    @Scheduled(fixedDelayString = "${bulk.fulfill.job.resume-poll-ms:60000}")
+    public void resumeStale() {
+        try {
+            for (String jobId : jobRepository.findResumableIds(leaseMs)) {
+                log.info("🔁 Resuming bulk fulfill job {}", jobId);
+                start(jobId);
+            }
+        } catch (Exception e) {
+            log.error("Failed to look for bulk fulfill jobs to resume: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${bulk.fulfill.job.purge-cron:0 45 3 * * *}")
+    public void purgeFinished() {
+        try {
+            int deleted = jobRepository.deleteFinishedBefore(Instant.now().minus(Duration.ofDays(retentionDays)));
+            if (deleted > 0) {
+                int rows = itemRepository.deleteOrphaned();
+                log.info("🧹 Purged {} finished bulk fulfill job(s) ({} rows) older than {} days", deleted, rows,
+                        retentionDays);
+            }
+        } catch (Exception e) {
+            log.error("Failed to purge bulk fulfill jobs: {}", e.getMessage(), e);
+        }
+    }
+
+    private void start(String jobId) {
+        try {
+            executor.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            log.warn("Bulk fulfill job {} not started (shutting down); it is resumed after the lease", jobId);
+        }
+    }
+
+    /** Claim the job and work through its rows; returns quietly when another worker has it. */
+    void run(String jobId) {
+        String token = UUID.randomUUID().toString();
+        if (jobRepository.claim(jobId, token, leaseMs) == 0) {
+            return;
+        }
+        try {
+            BulkFulfillmentJob job = jobRepository.findById(jobId).orElse(null);
+            if (job == null) {
+                return;
+            }
+            if (job.getTotal() == null && !storePreview(job, token)) {
+                return;
+            }
+            while (running) {
+                job = jobRepository.findById(jobId).orElse(null);
+                if (job == null) {
+                    return;
+                }
+                if (job.isCancelRequested()) {
+                    jobRepository.finish(jobId, token, BulkFulfillmentJob.CANCELLED, null);
+                    log.info("🛑 Bulk fulfill job {} cancelled after {}/{} row(s)", jobId, job.getProcessed(),
+                            job.getTotal());
+                    return;
+                }
+                List<BulkFulfillmentJobItem> chunk = itemRepository.findByJobIdAndDoneFalseOrderBySeqAsc(jobId,
+                        PageRequest.of(0, Math.max(1, chunkSize)));
+                if (chunk.isEmpty()) {
+                    jobRepository.finish(jobId, token, BulkFulfillmentJob.COMPLETED, null);
+                    log.info("✅ Bulk fulfill job {} completed: {} row(s), succeeded={}, failed={}, skipped={}", jobId,
+                            job.getTotal(), job.getSucceeded(), job.getFailed(), job.getSkipped());
+                    return;
+                }
+                BulkFulfillFromTrackingResponse out = orderTrackingBulkFulfillmentService
+                        .fulfillPreviewItems(toPreviewItems(chunk), job.isDryRun());
+                if (!jobStore.checkpoint(jobId, token, chunk, out.getResults())) {
+                    log.warn("Bulk fulfill job {} was taken over by another worker, stopping here", jobId);
+                    return;
+                }
+            }
+            // Shutting down: the heartbeat goes stale and the job is resumed after the lease
+        } catch (Exception e) {
+            log.error("Bulk fulfill job {} failed: {}", jobId, e.getMessage(), e);
+            String error = e.getMessage() != null && e.getMessage().length() > 500
+                    ? e.getMessage().substring(0, 500) : e.getMessage();
+            try {
+                jobRepository.finish(jobId, token, BulkFulfillmentJob.FAILED, error);
+            } catch (Exception ex) {
+                log.error("Could not mark bulk fulfill job {} failed: {}", jobId, ex.getMessage());
+            }
+        }
+    }
+
+    private boolean storePreview(BulkFulfillmentJob job, String token) {
+        List<UnfulfilledShopifyOrderItem> items = unfulfilledShopifyPreviewService
+                .buildPreview(job.getAccountCode(), job.getRowLimit()).getItems();
+        List<UnfulfilledShopifyOrderItem> rows = items != null ? items : List.of();
+        if (!jobStore.storeItems(job.getId(), token, rows)) {
+            log.warn("Bulk fulfill job {} was taken over while building its preview, stopping here", job.getId());
+            return false;
+        }
+        log.info("Bulk fulfill job {}: preview stored, {} row(s)", job.getId(), rows.size());
+        return true;
+    }
+
+    private static List<UnfulfilledShopifyOrderItem> toPreviewItems(List<BulkFulfillmentJobItem> chunk) {
+        List<UnfulfilledShopifyOrderItem> items = new ArrayList<>(chunk.size());
+        for (BulkFulfillmentJobItem row : chunk) {
+            UnfulfilledShopifyOrderItem item = new UnfulfilledShopifyOrderItem();
+            item.setAccountCode(row.getAccountCode());
+            item.setShopifyBrandName(row.getShopifyBrandName());
+            item.setOrderId(row.getOrderId());
+            item.setOrderTrackingStatus(row.getOrderTrackingStatus());
+            items.add(item);
+        }
+        return items;
+    }
+
+    private BulkFulfillmentJobStatus toStatus(BulkFulfillmentJob job, boolean includeResults) {
+        BulkFulfillmentJobStatus s = new BulkFulfillmentJobStatus();
+        s.setJobId(job.getId());
+        s.setStatus(job.getStatus());
+        s.setDryRun(job.isDryRun());
+        s.setAccountCode(job.getAccountCode());
+        s.setTotal(job.getTotal());
+        s.setProcessed(job.getProcessed());
+        s.setCancelRequested(job.isCancelRequested());
+        Map<String, Integer> summary = new HashMap<>();
+        summary.put("previewItemsTotal", job.getTotal() != null ? job.getTotal() : 0);
+        summary.put("skippedNotDeliveredInTransitOrOfd", job.getSkipped());
+        summary.put("attempted", job.getAttempted());
+        summary.put("succeeded", job.getSucceeded());
+        summary.put("failed", job.getFailed());
+        s.setSummary(summary);
+        s.setLastError(job.getLastError());
+        s.setCreatedAt(job.getCreatedAt());
+        s.setUpdatedAt(job.getUpdatedAt());
+        s.setFinishedAt(job.getFinishedAt());
+        if (includeResults) {
+            List<FulfillAttemptResult> results = new ArrayList<>();
+            for (BulkFulfillmentJobItem row : itemRepository.findByJobIdOrderBySeqAsc(job.getId())) {
+                if (!row.isDone()) {
+                    continue;
+                }
+                FulfillAttemptResult r = new FulfillAttemptResult();
+                r.setAccountCode(row.getAccountCode());
+                r.setOrderId(row.getOrderId());
+                r.setOrderTrackingStatus(row.getOrderTrackingStatus());
+                r.setShopifyShipmentStatus(row.getShopifyShipmentStatus());
+                r.setSuccess(Boolean.TRUE.equals(row.getSuccess()));
+                r.setMessage(row.getMessage());
+                results.add(r);
+            }
+            s.setResults(results);
+        }
+        return s;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
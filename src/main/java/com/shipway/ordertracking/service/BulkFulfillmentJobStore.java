@@ -0,0 +1,129 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.FulfillAttemptResult;
+import com.shipway.ordertracking.dto.UnfulfilledShopifyOrderItem;
+import com.shipway.ordertracking.entity.BulkFulfillmentJob;
+import com.shipway.ordertracking.entity.BulkFulfillmentJobItem;
+import com.shipway.ordertracking.repository.BulkFulfillmentJobItemRepository;
+import com.shipway.ordertracking.repository.BulkFulfillmentJobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes of {@code bulk_fulfillment_job} / {@code bulk_fulfillment_job_item} that must land together: the job row
+ * with its rows, and each chunk's results with the job's counters (the checkpoint a resumed job continues from).
+ * Writes by a worker are conditional on its {@code claim_token}; once another worker has taken the job over they
+ * are rolled back.
+ */
+@Service
+public class BulkFulfillmentJobStore {
+
+    private static final int MAX_MESSAGE = 500;
+
+    @Autowired
+    private BulkFulfillmentJobRepository jobRepository;
+
+    @Autowired
+    private BulkFulfillmentJobItemRepository itemRepository;
+
+    /**
+     * New {@code queued} job. {@code items} are stored with it when given (UI), else the job builds the preview.
+     */
+    @Transactional
+    public BulkFulfillmentJob create(String source, String accountCode, int rowLimit, boolean dryRun,
+            List<UnfulfilledShopifyOrderItem> items) {
+        Instant now = Instant.now();
+        BulkFulfillmentJob job = new BulkFulfillmentJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setSource(source);
+        job.setAccountCode(accountCode);
+        job.setRowLimit(rowLimit);
+        job.setDryRun(dryRun);
+        job.setStatus(BulkFulfillmentJob.QUEUED);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        if (items != null) {
+            job.setTotal(items.size());
+        }
+        jobRepository.save(job);
+        if (items != null) {
+            itemRepository.saveAll(toRows(job.getId(), items));
+        }
+        return job;
+    }
+
+    /**
+     * Store the preview rows of a claimed job.
+     *
+     * @return {@code false} when the claim was lost or the rows were already stored
+     */
+    @Transactional
+    public boolean storeItems(String jobId, String claimToken, List<UnfulfilledShopifyOrderItem> items) {
+        if (jobRepository.setTotal(jobId, claimToken, items.size()) == 0) {
+            return false;
+        }
+        itemRepository.saveAll(toRows(jobId, items));
+        return true;
+    }
+
+    /**
+     * Record one chunk: {@code results[i]} is the outcome of {@code chunk[i]}.
+     *
+     * @return {@code false} when the claim was lost (nothing written)
+     */
+    @Transactional
+    public boolean checkpoint(String jobId, String claimToken, List<BulkFulfillmentJobItem> chunk,
+            List<FulfillAttemptResult> results) {
+        int attempted = 0;
+        int succeeded = 0;
+        int skipped = 0;
+        for (FulfillAttemptResult r : results) {
+            if (r.getShopifyShipmentStatus() == null) {
+                skipped++;
+            } else {
+                attempted++;
+                if (r.isSuccess()) {
+                    succeeded++;
+                }
+            }
+        }
+        if (jobRepository.addProgress(jobId, claimToken, chunk.size(), attempted, succeeded,
+                attempted - succeeded, skipped) == 0) {
+            return false;
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            BulkFulfillmentJobItem row = chunk.get(i);
+            FulfillAttemptResult r = results.get(i);
+            row.setDone(true);
+            row.setSuccess(r.isSuccess());
+            row.setShopifyShipmentStatus(r.getShopifyShipmentStatus());
+            String message = r.getMessage();
+            row.setMessage(message != null && message.length() > MAX_MESSAGE ? message.substring(0, MAX_MESSAGE)
+                    : message);
+        }
+        itemRepository.saveAll(chunk);
+        return true;
+    }
+
+    private static List<BulkFulfillmentJobItem> toRows(String jobId, List<UnfulfilledShopifyOrderItem> items) {
+        List<BulkFulfillmentJobItem> rows = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            UnfulfilledShopifyOrderItem item = items.get(i);
+            BulkFulfillmentJobItem row = new BulkFulfillmentJobItem();
+            row.setJobId(jobId);
+            row.setSeq(i);
+            row.setAccountCode(item.getAccountCode());
+            row.setShopifyBrandName(item.getShopifyBrandName());
+            row.setOrderId(item.getOrderId());
+            row.setOrderTrackingStatus(item.getOrderTrackingStatus());
+            rows.add(row);
+        }
+        return rows;
+    }
+}
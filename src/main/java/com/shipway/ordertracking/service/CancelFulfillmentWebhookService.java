@@ -13,7 +13,8 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * Handles {@code cancel_fulfillment} webhooks: cancel Shopify fulfillment via GraphQL (no DB deletes).
+ * Handles {@code cancel_fulfillment} webhooks: cancel Shopify fulfillment via GraphQL. The only DB change is
+ * dropping the order's {@code order_applied_state} row ({@link OrderAppliedStateStore#invalidate}).
  */
 @Service
 public class CancelFulfillmentWebhookService {
@@ -26,6 +27,9 @@ public class CancelFulfillmentWebhookService {
     @Autowired
     private ShopifyProperties shopifyProperties;
 
+    @Autowired
+    private OrderAppliedStateStore orderAppliedStateStore;
+
     /**
      * Shopify store key from {@code brand_name} only ({@link StatusUpdateWebhook.OrderStatus#resolveBrandName()}).
      */
@@ -92,6 +96,9 @@ public class CancelFulfillmentWebhookService {
             return result;
         }
 
+        // Stored fulfillment id / last pushed status no longer hold, whatever the cancel outcome
+        orderAppliedStateStore.invalidate(shopifyKey, orderId);
+
         boolean cancelled = shopifyService.cancelFulfillmentForOrder(shopifyKey, orderId, order.getAwb());
         if (!cancelled) {
             result.put("success", false);
@@ -0,0 +1,61 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.shipway.ordertracking.dto.OrderStatusStreamReader;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import com.shipway.ordertracking.dto.WebhookWrapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Claimio status update batch ({@code {timestamp, event, orders[]}}), bound by the streaming
+ * {@link com.shipway.ordertracking.dto.WebhookWrapperDeserializer} (bad order entries are skipped).
+ */
+@Component
+public class ClaimioStatusWebhookAdapter implements WebhookSourceAdapter<WebhookWrapper> {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ObjectReader reader;
+
+    @PostConstruct
+    void init() {
+        reader = objectMapper.readerFor(WebhookWrapper.class);
+    }
+
+    @Override
+    public String source() {
+        return CLAIMIO_STATUS;
+    }
+
+    @Override
+    public Class<WebhookWrapper> payloadType() {
+        return WebhookWrapper.class;
+    }
+
+    @Override
+    public WebhookWrapper parse(byte[] body) throws IOException {
+        return reader.readValue(body);
+    }
+
+    /**
+     * Parse a batch and hand each order to {@code sink} as soon as it is bound, while the rest of the body is still
+     * being read (POST /webhook). Bad order entries are skipped; if the body turns out to be malformed JSON, the
+     * orders before that point have already been handed on when this throws.
+     *
+     * @return batch {@code timestamp} / {@code event} and whether an {@code orders} array was present
+     */
+    public OrderStatusStreamReader.Header stream(byte[] body, Consumer<StatusUpdateWebhook.OrderStatus> sink)
+            throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return OrderStatusStreamReader.read(parser, null, sink);
+        }
+    }
+}
@@ -115,6 +115,29 @@ public class CustomerMessageTrackingService {
         }
     }
 
+    /**
+     * Row for a Botspace send: webhook-style {@code account_code} / {@code brand_name} when either is non-blank,
+     * else the Botspace key ({@code botspaceAccountCode}) as account code only (legacy rows / order-created /
+     * follow-up).
+     */
+    @Transactional
+    public boolean addMessageStatus(String orderId, String botspaceAccountCode, String messageStatus,
+            String trackingAccountCode, String trackingBrandName) {
+        String tact = trackingAccountCode != null ? trackingAccountCode.trim() : "";
+        String tbrand = trackingBrandName != null ? trackingBrandName.trim() : "";
+        if (!tact.isEmpty() || !tbrand.isEmpty()) {
+            return addStatus(orderId, tact, messageStatus, tbrand.isEmpty() ? null : tbrand);
+        }
+        return addStatus(orderId, botspaceAccountCode, messageStatus);
+    }
+
+    /**
+     * Brand the {@link #addMessageStatus} row is deduplicated under ({@code ""} when none).
+     */
+    public static String messageBrandKey(String trackingBrandName) {
+        return normalizeBrandKey(trackingBrandName);
+    }
+
     private static final String SENT_DELIVERED = "sent_delivered";
 
     public List<CustomerMessageTracking> findSentDeliveredYesterday() {
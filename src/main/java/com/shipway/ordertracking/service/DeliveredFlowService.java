@@ -1,6 +1,7 @@
 package com.shipway.ordertracking.service;
 
 import com.shipway.ordertracking.dto.BotspaceMessageRequest;
+import com.shipway.ordertracking.dto.ShopifyOrderContext;
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,15 +9,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.shipway.ordertracking.config.BotspaceAccount;
 import com.shipway.ordertracking.config.BotspaceProperties;
 import com.shipway.ordertracking.config.ShopifyAccount;
 import com.shipway.ordertracking.config.ShopifyProperties;
 import com.shipway.ordertracking.util.PhoneNumberUtil;
+import com.shipway.ordertracking.util.ShipmentStatusClassifier;
 
 @Service
 public class DeliveredFlowService {
@@ -38,7 +39,14 @@ public class DeliveredFlowService {
     @Autowired
     private CustomerMessageTrackingService customerMessageTrackingService;
 
-    private static final List<String> DELIVERED_STATUSES = Arrays.asList("sent_delivered", "failed_delivered");
+    @Autowired
+    private OrderAppliedStateStore orderAppliedStateStore;
+
+    @Autowired(required = false)
+    private UpstreamAsyncExecutor upstreamAsyncExecutor;
+
+    /** Dedup on a sent notification only: a {@code failed_delivered} row must not block a retry or replay. */
+    private static final List<String> DELIVERED_STATUSES = List.of("sent_delivered");
 
     /**
      * Process delivered webhook
@@ -54,14 +62,10 @@ public class DeliveredFlowService {
         // CHECK 1: Status change validation - skip if status hasn't changed
         String currentStatus = order.getCurrentShipmentStatus();
         String previousStatus = order.getPreviousStatus();
-        if (currentStatus != null && previousStatus != null) {
-            String normalizedCurrent = currentStatus.trim().toUpperCase().replace("_", " ");
-            String normalizedPrevious = previousStatus.trim().toUpperCase().replace("_", " ");
-            if (normalizedCurrent.equals(normalizedPrevious)) {
-                log.info("Order {} status unchanged (current: {}, previous: {}), skipping delivered flow",
-                        order.getOrderId(), currentStatus, previousStatus);
-                return true; // Not an error, just no change
-            }
+        if (ShipmentStatusClassifier.sameStatus(currentStatus, previousStatus)) {
+            log.info("Order {} status unchanged (current: {}, previous: {}), skipping delivered flow",
+                    order.getOrderId(), currentStatus, previousStatus);
+            return true; // Not an error, just no change
         }
 
         // Validate required fields
@@ -79,7 +83,7 @@ public class DeliveredFlowService {
 
         String orderId = order.getOrderId();
 
-        // CHECK 2: Database check - skip if already processed (sent or failed)
+        // CHECK 2: Database check - skip if the notification was already sent
         if (customerMessageTrackingService.hasAnyStatus(orderId, order.getBrandName(), DELIVERED_STATUSES)) {
             log.info("Order {} already has delivered status in database, skipping delivered flow", orderId);
             return true;
@@ -90,40 +94,46 @@ public class DeliveredFlowService {
             log.info(
                     "Order {} detected as clone (contains '_'), skipping Shopify lookup and fulfillment. Sending Botspace.",
                     orderId);
-            return sendDeliveredBotspaceMessage(brandName, orderId, order);
+            return UpstreamAsyncExecutor.join(sendDeliveredBotspaceMessageAsync(brandName, orderId, order,
+                    fetchProductsAsync(brandName, orderId)));
+        }
+
+        // CHECK 4: Fulfilled earlier by this service - push the event to the stored fulfillment, no order read.
+        // Only when the stored state will be used (same AWB): the push and the products read for the message are
+        // independent, so they run side by side. If the push fails anyway, the products go to the path below.
+        OrderAppliedStateStore.AppliedState applied = orderAppliedStateStore.get(brandName, orderId);
+        CompletableFuture<List<ShopifyOrderContext.Product>> prefetchedProducts = null;
+        if (applied != null && applied.matchesAwb(order.getAwb())) {
+            prefetchedProducts = fetchProductsAsync(brandName, orderId);
+            CompletableFuture<Boolean> pushed = UpstreamAsyncExecutor.supplyOn(upstreamAsyncExecutor,
+                    () -> orderAppliedStateStore.pushStatusFromAppliedState(brandName, orderId, order.getAwb(),
+                            "delivered"));
+            if (Boolean.TRUE.equals(UpstreamAsyncExecutor.join(pushed))) {
+                return UpstreamAsyncExecutor.join(sendDeliveredBotspaceMessageAsync(brandName, orderId, order,
+                        prefetchedProducts));
+            }
         }
 
-        // 1) GraphQL: get order with displayFulfillmentStatus
-        Map<String, Object> orderNode = shopifyService.getOrderWithDisplayFulfillmentStatus(brandName, orderId);
-        if (orderNode == null) {
+        // 1) GraphQL: one order-context query (display status, fulfillments, fulfillment orders, products)
+        ShopifyOrderContext orderContext = shopifyService.getOrderContext(brandName, orderId);
+        if (orderContext == null) {
             log.warn("Order {} not found via GraphQL (brand: {})", orderId, brandName);
             return false;
         }
 
-        String displayStatus = orderNode.get("displayFulfillmentStatus") != null
-                ? orderNode.get("displayFulfillmentStatus").toString()
-                : null;
-
-        if ("FULFILLED".equalsIgnoreCase(displayStatus)) {
-            return processDeliveredWhenFulfilled(brandName, orderId, order, orderNode);
+        if (orderContext.isFulfilled()) {
+            return processDeliveredWhenFulfilled(brandName, orderId, order, orderContext, prefetchedProducts);
         }
 
-        // UNFULFILLED or null: get fulfillment orders, find OPEN, create fulfillment if
+        // UNFULFILLED or null: take the OPEN fulfillment order from the same context, create fulfillment if
         // needed, then proceed
-        String orderGid = orderNode.get("id") != null ? orderNode.get("id").toString() : null;
+        String orderGid = orderContext.getOrderGid();
         if (orderGid == null) {
             log.warn("Order {} has no id in GraphQL response", orderId);
             return false;
         }
 
-        Map<String, Object> fulfillmentOrdersData = shopifyService.getFulfillmentOrdersForOrder(brandName,
-                orderGid);
-        if (fulfillmentOrdersData == null) {
-            log.warn("Could not get fulfillment orders for order {} (brand: {})", orderId, brandName);
-            return false;
-        }
-
-        String openFulfillmentOrderId = shopifyService.getOpenFulfillmentOrderIdFromEdges(fulfillmentOrdersData);
+        String openFulfillmentOrderId = orderContext.getOpenFulfillmentOrderId();
         if (openFulfillmentOrderId == null || openFulfillmentOrderId.isEmpty()) {
             log.warn("No OPEN fulfillment order for order {} (brand: {}), skipping delivered flow", orderId,
                     brandName);
@@ -151,69 +161,30 @@ public class DeliveredFlowService {
             return false;
         }
 
-        // Optimization: For newly created fulfillment, tracking should be correct.
         // Update tracking to delivered
-        if (!shopifyService.updateFulfillmentTracking(brandName, numericOrderId, fulfillmentId, order.getAwb(),
-                "delivered")) {
-            log.error("Failed to update fulfillment tracking to delivered for order {}, stopping flow", orderId);
-            return false;
-        }
-
-        return proceedWithTagAndBotspace(brandName, orderId, numericOrderId, order, fulfillmentOrdersData);
+        return UpstreamAsyncExecutor.join(updateTrackingThenNotify(brandName, orderId, orderGid, numericOrderId,
+                fulfillmentId, order.getAwb(), order, orderContext.getProducts(), prefetchedProducts));
     }
 
     private boolean processDeliveredWhenFulfilled(String brandName, String orderId,
-            StatusUpdateWebhook.OrderStatus order, Map<String, Object> orderNode) {
+            StatusUpdateWebhook.OrderStatus order, ShopifyOrderContext orderContext,
+            CompletableFuture<List<ShopifyOrderContext.Product>> prefetchedProducts) {
         if (customerMessageTrackingService.hasAnyStatus(orderId, order.getBrandName(), DELIVERED_STATUSES)) {
             log.info("Order {} already has delivered status in database, skipping delivered flow", orderId);
             return true;
         }
 
-        Long numericOrderId = com.shipway.ordertracking.service.ShopifyService.parseNumericIdFromGid(
-                orderNode.get("id") != null ? orderNode.get("id").toString() : null, "gid://shopify/Order/");
+        Long numericOrderId = orderContext.getNumericOrderId();
         if (numericOrderId == null) {
             log.warn("Could not parse numeric order ID for order {}", orderId);
             return false;
         }
 
-        // Get fulfillment ID
-        Object fulfillmentsObj = orderNode.get("fulfillments");
-        Long fulfillmentId = null;
-        if (fulfillmentsObj instanceof List && !((List<?>) fulfillmentsObj).isEmpty()) {
-            Object first = ((List<?>) fulfillmentsObj).get(0);
-            if (first instanceof Map) {
-                Object idObj = ((Map<?, ?>) first).get("id");
-                if (idObj != null) {
-                    fulfillmentId = com.shipway.ordertracking.service.ShopifyService.parseNumericIdFromGid(
-                            idObj.toString(), "gid://shopify/Fulfillment/");
-                }
-            }
-        }
+        Long fulfillmentId = orderContext.getFirstFulfillmentId();
 
         if (fulfillmentId != null) {
             // Verify if tracking number needs update (Optimization)
-            String currentTrackingNumber = null;
-            if (fulfillmentsObj instanceof List) {
-                for (Object f : (List<?>) fulfillmentsObj) {
-                    if (f instanceof Map) {
-                        Object idObj = ((Map<?, ?>) f).get("id");
-                        if (idObj != null && String.valueOf(idObj).endsWith("/" + fulfillmentId)) {
-                            // Found the fulfillment, check tracking
-                            Object trackingInfoObj = ((Map<?, ?>) f).get("trackingInfo");
-                            if (trackingInfoObj instanceof List && !((List<?>) trackingInfoObj).isEmpty()) {
-                                Object firstTracking = ((List<?>) trackingInfoObj).get(0);
-                                if (firstTracking instanceof Map) {
-                                    Object numObj = ((Map<?, ?>) firstTracking).get("number");
-                                    if (numObj != null) {
-                                        currentTrackingNumber = numObj.toString();
-                                    }
-                                }
-                            }
-                            break;
-                        }
-                    }
-                }
-            }
+            String currentTrackingNumber = orderContext.getTrackingNumber(fulfillmentId);
 
             String trackingNumberToUpdate = order.getAwb();
             if (currentTrackingNumber != null && currentTrackingNumber.equals(order.getAwb())) {
@@ -222,37 +193,85 @@ public class DeliveredFlowService {
                 trackingNumberToUpdate = null; // Skip REST update
             }
 
-            if (!shopifyService.updateFulfillmentTracking(brandName, numericOrderId, fulfillmentId,
-                    trackingNumberToUpdate, "delivered")) {
-                log.error("Failed to update fulfillment tracking (fulfilled path) for order {}, stopping flow",
-                        orderId);
-                return false;
-            }
-        } else {
-            log.warn("Order {} is fulfilled but no fulfillment ID found, cannot update tracking", orderId);
-            return false;
+            return UpstreamAsyncExecutor.join(updateTrackingThenNotify(brandName, orderId,
+                    orderContext.getOrderGid(), numericOrderId, fulfillmentId, trackingNumberToUpdate, order,
+                    orderContext.getProducts(), prefetchedProducts));
         }
+        log.warn("Order {} is fulfilled but no fulfillment ID found, cannot update tracking", orderId);
+        return false;
+    }
 
-        return sendDeliveredBotspaceMessage(brandName, orderId, order);
+    /**
+     * Steps once the fulfillment is known, as a dependency graph:
+     * <pre>
+     * tracking update ──┬─&gt; applied-state write
+     * products read ────┴─&gt; Botspace message
+     * </pre>
+     * The products read (skipped when the order context or CHECK 4 already has them) runs alongside the tracking
+     * update; the write and the message run side by side. Nothing is sent when the tracking update fails; the
+     * message dedup is the caller's check before any Shopify call.
+     *
+     * @param trackingNumberToUpdate AWB to set, or {@code null} when the fulfillment already carries it
+     * @param prefetchedProducts     products read started in CHECK 4, or {@code null}
+     */
+    private CompletableFuture<Boolean> updateTrackingThenNotify(String brandName, String orderId, String orderGid,
+            Long numericOrderId, Long fulfillmentId, String trackingNumberToUpdate,
+            StatusUpdateWebhook.OrderStatus order, List<ShopifyOrderContext.Product> contextProducts,
+            CompletableFuture<List<ShopifyOrderContext.Product>> prefetchedProducts) {
+        CompletableFuture<List<ShopifyOrderContext.Product>> products = prefetchedProducts != null
+                ? prefetchedProducts
+                : contextProducts != null ? CompletableFuture.completedFuture(contextProducts)
+                        : fetchProductsAsync(brandName, orderId);
+        return shopifyService.updateFulfillmentTrackingAsync(brandName, numericOrderId, fulfillmentId,
+                trackingNumberToUpdate, "delivered").thenCompose(updated -> {
+                    if (!Boolean.TRUE.equals(updated)) {
+                        log.error("Failed to update fulfillment tracking to delivered for order {}, stopping flow",
+                                orderId);
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    CompletableFuture<Void> recorded = UpstreamAsyncExecutor.supplyOn(upstreamAsyncExecutor, () -> {
+                        orderAppliedStateStore.recordApplied(brandName, orderId, orderGid, fulfillmentId,
+                                order.getAwb(), "delivered");
+                        return null;
+                    });
+                    CompletableFuture<Boolean> sent = sendDeliveredBotspaceMessageAsync(brandName, orderId, order,
+                            products);
+                    return sent.thenCombine(recorded, (ok, ignored) -> ok);
+                });
     }
 
-    private boolean proceedWithTagAndBotspace(String brandName, String orderId, Long numericOrderId,
-            StatusUpdateWebhook.OrderStatus order, Map<String, Object> orderDataWithTags) {
-        if (customerMessageTrackingService.hasAnyStatus(orderId, order.getBrandName(), DELIVERED_STATUSES)) {
-            log.info("Order {} already has delivered status in database, skipping delivered notification", orderId);
-            return true;
-        }
-        return sendDeliveredBotspaceMessage(brandName, orderId, order);
+    /** Line-item products for the message when no order context was loaded for this event (one Shopify call). */
+    private CompletableFuture<List<ShopifyOrderContext.Product>> fetchProductsAsync(String brandName, String orderId) {
+        return shopifyService.getOrderProductDetailsAsync(brandName, orderId).thenApply(details -> {
+            List<ShopifyOrderContext.Product> products = new ArrayList<>();
+            if (details != null) {
+                for (ShopifyService.ProductDetails d : details) {
+                    products.add(new ShopifyOrderContext.Product(d.getHandle(), d.getImageUrl()));
+                }
+            }
+            return products;
+        });
     }
 
-    private boolean sendDeliveredBotspaceMessage(String brandName, String orderId,
-            StatusUpdateWebhook.OrderStatus order) {
+    /**
+     * @param products line-item products, from the order context already loaded for this event or
+     *                 {@link #fetchProductsAsync}
+     */
+    private CompletableFuture<Boolean> sendDeliveredBotspaceMessageAsync(String brandName, String orderId,
+            StatusUpdateWebhook.OrderStatus order, CompletableFuture<List<ShopifyOrderContext.Product>> products) {
         // Get template ID
         String templateId = getTemplateIdForBrand(brandName);
         if (templateId == null || templateId.isEmpty()) {
             log.warn("Template ID not configured for brand: {} (order: {})", brandName, order.getOrderId());
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
+        return products.thenCompose(productDetails -> sendDeliveredBotspaceMessageAsync(brandName, orderId, order,
+                templateId, productDetails));
+    }
+
+    private CompletableFuture<Boolean> sendDeliveredBotspaceMessageAsync(String brandName, String orderId,
+            StatusUpdateWebhook.OrderStatus order, String templateId,
+            List<ShopifyOrderContext.Product> productDetails) {
 
         ShopifyAccount account = shopifyProperties.getAccountByCode(brandName);
         String productUrlPrefix = account != null ? account.getProductUrl() : null;
@@ -263,9 +282,6 @@ public class DeliveredFlowService {
 
         }
 
-        // Call Shopify API to get product details (handle and image)
-        List<ShopifyService.ProductDetails> productDetails = shopifyService.getOrderProductDetails(brandName,
-                orderId);
         log.info("Retrieved {} product details for order {} (brand: {})", productDetails.size(), orderId,
                 brandName);
 
@@ -275,9 +291,9 @@ public class DeliveredFlowService {
         String productUrl = productUrlPrefix; // Fallback to just prefix if no handle
 
         if (!productDetails.isEmpty()) {
-            ShopifyService.ProductDetails firstProduct = productDetails.get(0);
-            if (firstProduct.getHandle() != null) {
-                productUrl = productUrlPrefix + firstProduct.getHandle() + "#judgeme";
+            ShopifyOrderContext.Product firstProduct = productDetails.get(0);
+            if (firstProduct.handle() != null) {
+                productUrl = productUrlPrefix + firstProduct.handle() + "#judgeme";
             }
         }
 
@@ -300,9 +316,9 @@ public class DeliveredFlowService {
 
             // Create cards for all products
             List<BotspaceMessageRequest.Card> cards = new ArrayList<>();
-            for (ShopifyService.ProductDetails details : productDetails) {
-                if (details.getHandle() != null) {
-                    String cardUrl = productUrlPrefix + details.getHandle() + "#judgeme";
+            for (ShopifyOrderContext.Product details : productDetails) {
+                if (details.handle() != null) {
+                    String cardUrl = productUrlPrefix + details.handle() + "#judgeme";
                     BotspaceMessageRequest.Card card = new BotspaceMessageRequest.Card(cardUrl);
                     cards.add(card);
                 }
@@ -312,14 +328,17 @@ public class DeliveredFlowService {
             }
         }
 
-        boolean sent = botspaceService.sendTemplateMessage(brandName, request, orderId, "sent_delivered",
-                "failed_delivered", order.trackingAccountCodeFromRequest(), order.trackingBrandNameFromRequest());
-        if (sent) {
-            log.info("✅ Delivered notification sent successfully for order: {} to phone: {}", orderId, formattedPhone);
-        } else {
-            log.error("❌ Failed to send delivered notification for order: {}", orderId);
-        }
-        return sent;
+        return botspaceService.submitTemplateMessage(brandName, request, orderId, "sent_delivered",
+                "failed_delivered", order.trackingAccountCodeFromRequest(), order.trackingBrandNameFromRequest())
+                .thenApply(sent -> {
+                    if (Boolean.TRUE.equals(sent)) {
+                        log.info("✅ Delivered notification submitted for order: {} to phone: {}", orderId,
+                                formattedPhone);
+                    } else {
+                        log.error("❌ Failed to submit delivered notification for order: {}", orderId);
+                    }
+                    return Boolean.TRUE.equals(sent);
+                });
     }
 
     private List<String> buildTemplateVariables(StatusUpdateWebhook.OrderStatus order) {
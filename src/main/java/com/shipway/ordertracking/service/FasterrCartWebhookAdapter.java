@@ -0,0 +1,73 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.shipway.ordertracking.dto.FasterrAbandonedCartWebhook;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Fasterr abandoned cart payloads come in two shapes:
+ * - wrapped: {@code { "attributes": { cart } }} or {@code { "body": { cart } }}
+ * - cart at root: {@code { "cart_id", "phone_number", "items", ... }}
+ * <p>
+ * Both are bound in one pass: the envelope reads {@code attributes} / {@code body} directly and collects any other
+ * top-level fields as the root cart, so the body is never parsed twice.
+ */
+@Component
+public class FasterrCartWebhookAdapter implements WebhookSourceAdapter<FasterrAbandonedCartWebhook> {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ObjectReader envelopeReader;
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Envelope {
+        @JsonProperty("attributes")
+        public FasterrAbandonedCartWebhook.Attributes attributes;
+
+        @JsonProperty("body")
+        public FasterrAbandonedCartWebhook.Attributes body;
+
+        @JsonUnwrapped
+        public FasterrAbandonedCartWebhook.Attributes root;
+    }
+
+    @PostConstruct
+    void init() {
+        envelopeReader = objectMapper.readerFor(Envelope.class);
+    }
+
+    @Override
+    public String source() {
+        return FASTERR_CART;
+    }
+
+    @Override
+    public Class<FasterrAbandonedCartWebhook> payloadType() {
+        return FasterrAbandonedCartWebhook.class;
+    }
+
+    @Override
+    public FasterrAbandonedCartWebhook parse(byte[] body) throws IOException {
+        Envelope envelope = envelopeReader.readValue(body);
+        if (envelope == null) {
+            throw new IOException("Empty or invalid webhook payload (missing attributes/body)");
+        }
+        FasterrAbandonedCartWebhook webhook = new FasterrAbandonedCartWebhook();
+        if (envelope.attributes != null || envelope.body != null) {
+            webhook.setAttributes(envelope.attributes);
+            webhook.setBody(envelope.body);
+        } else {
+            webhook.setAttributes(envelope.root != null ? envelope.root : new FasterrAbandonedCartWebhook.Attributes());
+        }
+        return webhook;
+    }
+}
@@ -0,0 +1,45 @@
+package com.shipway.ordertracking.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on a shared executor, in parallel across keys but strictly in submission order per key.
+ * <p>
+ * Each key keeps a tail future; a new task for that key is chained after the tail (whether it succeeded or failed),
+ * so waiting tasks do not hold a worker thread. Concurrency is bounded by the delegate executor's pool size.
+ */
+public class KeyedSerialExecutor {
+
+    private final Executor delegate;
+    private final ConcurrentHashMap<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    public KeyedSerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Schedule {@code task} after every earlier task submitted with the same key.
+     */
+    public <T> CompletableFuture<T> submit(String key, Supplier<T> task) {
+        AtomicReference<CompletableFuture<T>> created = new AtomicReference<>();
+        tails.compute(key, (k, tail) -> {
+            CompletableFuture<T> next = tail == null
+                    ? CompletableFuture.supplyAsync(task, delegate)
+                    : tail.handle((r, e) -> null).thenApplyAsync(ignored -> task.get(), delegate);
+            created.set(next);
+            return next;
+        });
+        CompletableFuture<T> future = created.get();
+        future.whenComplete((r, e) -> tails.remove(key, future));
+        return future;
+    }
+
+    /** Keys with a task queued or running. */
+    public int activeKeys() {
+        return tails.size();
+    }
+}
@@ -0,0 +1,268 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.entity.OrderAppliedState;
+import com.shipway.ordertracking.repository.OrderAppliedStateRepository;
+import com.shipway.ordertracking.util.ShipmentStatusClassifier;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What this service last applied to Shopify per brand + order: order GID, fulfillment id, AWB and the last pushed
+ * fulfillment event status ({@code webhook.applied-state.*}). The in-transit / OFD / delivered flows use it to go
+ * straight to {@code fulfillmentEventCreate}, or skip Shopify entirely, instead of re-reading the order.
+ * <p>
+ * Write-through: an in-memory LRU (TTL-bounded) in front of {@code order_applied_state}. The cancel-fulfillment
+ * webhook {@link #invalidate}s an order; a failed mutation against a stored fulfillment does the same, so the flow
+ * falls back to the normal read path. Counters: {@code webhook.applied-state.*} metrics.
+ */
+@Service
+public class OrderAppliedStateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderAppliedStateStore.class);
+
+    @Autowired
+    private OrderAppliedStateRepository repository;
+
+    @Autowired
+    private ShopifyService shopifyService;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${webhook.applied-state.enabled:true}")
+    private boolean enabled;
+
+    @Value("${webhook.applied-state.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${webhook.applied-state.ttl-seconds:21600}")
+    private long ttlSeconds;
+
+    /**
+     * Stored state for one order. {@code lastShipmentStatus} is the status last sent to
+     * {@link ShopifyService#updateFulfillmentTracking} (e.g. {@code in_transit}).
+     */
+    public record AppliedState(String shopifyOrderGid, Long fulfillmentId, String awb, String lastShipmentStatus) {
+
+        public Long numericOrderId() {
+            return ShopifyService.parseNumericIdFromGid(shopifyOrderGid, "gid://shopify/Order/");
+        }
+
+        /** Same AWB as the event (both blank counts as same). */
+        public boolean matchesAwb(String eventAwb) {
+            return Objects.equals(trimToEmpty(awb), trimToEmpty(eventAwb));
+        }
+
+        public boolean hasPushed(String status) {
+            return ShipmentStatusClassifier.sameStatus(lastShipmentStatus, status);
+        }
+    }
+
+    private record Entry(long expiresAtMillis, AppliedState state) {
+    }
+
+    /** Access-ordered, so the least recently used entry is evicted first when full. Guarded by {@code this}. */
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong readsSkipped = new AtomicLong();
+    private final AtomicLong shopifyCallsSkipped = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder("webhook.applied-state.hits", hits, AtomicLong::get)
+                .description("Applied-state lookups answered from memory or order_applied_state")
+                .register(meterRegistry);
+        FunctionCounter.builder("webhook.applied-state.misses", misses, AtomicLong::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("webhook.applied-state.reads-skipped", readsSkipped, AtomicLong::get)
+                .description("Status events that went straight to the fulfillment event mutation")
+                .register(meterRegistry);
+        FunctionCounter.builder("webhook.applied-state.shopify-skipped", shopifyCallsSkipped, AtomicLong::get)
+                .description("Status events whose status was already pushed to Shopify")
+                .register(meterRegistry);
+        FunctionCounter.builder("webhook.applied-state.invalidations", invalidations, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("webhook.applied-state.cache.size", this, OrderAppliedStateStore::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stored state for brand + order (memory first, then {@code order_applied_state}), or {@code null}.
+     */
+    public AppliedState get(String brandName, String orderId) {
+        if (!enabled || brandName == null || brandName.isBlank() || orderId == null || orderId.isBlank()) {
+            return null;
+        }
+        String brandKey = brandKey(brandName);
+        String key = cacheKey(brandKey, orderId);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = cache.get(key);
+            if (entry != null && entry.expiresAtMillis() > now) {
+                hits.incrementAndGet();
+                return entry.state();
+            }
+            if (entry != null) {
+                cache.remove(key);
+            }
+        }
+
+        OrderAppliedState row;
+        try {
+            row = repository.findByBrandKeyAndOrderId(brandKey, orderId.trim()).orElse(null);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not read applied state for order {} (brand: {}): {}", orderId, brandName,
+                    e.getMessage());
+            return null;
+        }
+        if (row == null || row.getFulfillmentId() == null || row.getShopifyOrderGid() == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        AppliedState state = new AppliedState(row.getShopifyOrderGid(), row.getFulfillmentId(), row.getAwb(),
+                row.getLastShipmentStatus());
+        put(key, state, now);
+        return state;
+    }
+
+    /**
+     * Remember that {@code status} was pushed to fulfillment {@code fulfillmentId} of {@code orderGid}.
+     */
+    public void recordApplied(String brandName, String orderId, String orderGid, Long fulfillmentId, String awb,
+            String status) {
+        if (!enabled || brandName == null || brandName.isBlank() || orderId == null || orderId.isBlank()
+                || orderGid == null || fulfillmentId == null) {
+            return;
+        }
+        String brandKey = brandKey(brandName);
+        AppliedState state = new AppliedState(orderGid, fulfillmentId, trimToNull(awb), status);
+        put(cacheKey(brandKey, orderId), state, System.currentTimeMillis());
+        try {
+            repository.upsert(brandKey, orderId.trim(), orderGid, fulfillmentId, state.awb(), status);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not store applied state for order {} (brand: {}): {}", orderId, brandName,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Push {@code status} to the stored fulfillment without reading the order first.
+     *
+     * @return {@code true} when Shopify now has {@code status} (pushed here, or already pushed earlier);
+     *         {@code false} when there is no usable stored state or the mutation failed (the state is then
+     *         dropped) — the caller should take the normal read path
+     */
+    public boolean pushStatusFromAppliedState(String brandName, String orderId, String awb, String status) {
+        AppliedState state = get(brandName, orderId);
+        if (state == null) {
+            return false;
+        }
+        if (!state.matchesAwb(awb)) {
+            log.info("Order {} AWB changed ({} -> {}), ignoring stored applied state", orderId, state.awb(), awb);
+            invalidate(brandName, orderId);
+            return false;
+        }
+        if (state.hasPushed(status)) {
+            shopifyCallsSkipped.incrementAndGet();
+            log.info("Order {} already has '{}' on fulfillment {}, skipping Shopify", orderId, status,
+                    state.fulfillmentId());
+            return true;
+        }
+        Long numericOrderId = state.numericOrderId();
+        if (numericOrderId != null && shopifyService.updateFulfillmentTracking(brandName, numericOrderId,
+                state.fulfillmentId(), awb, status)) {
+            readsSkipped.incrementAndGet();
+            log.info("✅ Order {} updated to '{}' from stored fulfillment {} (no order read)", orderId, status,
+                    state.fulfillmentId());
+            recordApplied(brandName, orderId, state.shopifyOrderGid(), state.fulfillmentId(), awb, status);
+            return true;
+        }
+        log.warn("Stored fulfillment {} for order {} could not be updated, falling back to order lookup",
+                state.fulfillmentId(), orderId);
+        invalidate(brandName, orderId);
+        return false;
+    }
+
+    /**
+     * Forget brand + order (memory and {@code order_applied_state}).
+     */
+    public void invalidate(String brandName, String orderId) {
+        if (brandName == null || brandName.isBlank() || orderId == null || orderId.isBlank()) {
+            return;
+        }
+        String brandKey = brandKey(brandName);
+        synchronized (this) {
+            cache.remove(cacheKey(brandKey, orderId));
+        }
+        invalidations.incrementAndGet();
+        try {
+            repository.deleteByBrandKeyAndOrderId(brandKey, orderId.trim());
+        } catch (Exception e) {
+            log.warn("⚠️ Could not delete applied state for order {} (brand: {}): {}", orderId, brandName,
+                    e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("readsSkipped", readsSkipped.get());
+        stats.put("shopifySkipped", shopifyCallsSkipped.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private synchronized void put(String key, AppliedState state, long now) {
+        cache.put(key, new Entry(now + ttlSeconds * 1000L, state));
+        Iterator<String> eldest = cache.keySet().iterator();
+        while (cache.size() > Math.max(1, maxEntries) && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /** Brand key as stored: trimmed, lower-case ({@code STRIKER STORE} and {@code Striker Store} are one brand). */
+    static String brandKey(String brandName) {
+        return brandName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String cacheKey(String brandKey, String orderId) {
+        return brandKey + "|" + orderId.trim();
+    }
+
+    private static String trimToEmpty(String s) {
+        return s != null ? s.trim() : "";
+    }
+
+    private static String trimToNull(String s) {
+        return s != null && !s.isBlank() ? s.trim() : null;
+    }
+}
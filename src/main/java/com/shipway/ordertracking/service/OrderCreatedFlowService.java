@@ -97,17 +97,18 @@ public class OrderCreatedFlowService {
         // customer_message_tracking: account_code from store_shopify_connections; brand_name = Shopify map key
         String trackingAccountCode = storeShopifyBrandAccountService.findTrackingAccountCode(brandName).orElse(null);
 
-        boolean sent = botspaceService.sendTemplateMessage(brandName, request, orderName,
+        boolean sent = UpstreamAsyncExecutor.join(botspaceService.submitTemplateMessage(brandName, request,
+                orderName,
                 "sent_orderCreated",
                 "failed_orderCreated",
                 trackingAccountCode,
-                brandName);
+                brandName));
 
         if (sent) {
-            log.info("✅ Order created notification sent successfully for order: {} to phone: {}",
+            log.info("✅ Order created notification submitted for order: {} to phone: {}",
                     orderName, formattedPhone);
         } else {
-            log.error("❌ Failed to send order created notification for order: {} to phone: {}",
+            log.error("❌ Failed to submit order created notification for order: {} to phone: {}",
                     orderName, formattedPhone);
         }
 
@@ -8,19 +8,41 @@ import com.shipway.ordertracking.config.ShopifyProperties;
 import com.shipway.ordertracking.dto.UnfulfilledShopifyOrderItem;
 import com.shipway.ordertracking.dto.UnfulfilledShopifyPreviewResponse;
 import com.shipway.ordertracking.repository.LabelAwbRepository;
+import com.shipway.ordertracking.util.ShipmentStatusClassifier;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Creates Shopify fulfillments (or updates tracking) for unfulfilled orders whose
  * {@code order_tracking.shipment_status} maps to <strong>delivered</strong>, <strong>in transit</strong>,
  * or <strong>out for delivery</strong> only — a subset of the preview allowlist.
+ * <p>
+ * Bulk runs ({@code bulk.fulfill.*}) load the AWBs in one query per labels account, then work each Shopify shop's
+ * rows on up to {@code shop-concurrency} threads of a shared pool of {@code threads}; results keep the input order.
  */
 @Service
 public class OrderTrackingBulkFulfillmentService {
@@ -41,13 +63,50 @@ public class OrderTrackingBulkFulfillmentService {
     @Autowired
     private ShopifyProperties shopifyProperties;
 
-    public BulkFulfillFromTrackingResponse execute(BulkFulfillFromTrackingRequest request) {
-        boolean dryRun = request != null && request.isDryRun();
+    @Autowired(required = false)
+    private UnfulfilledPreviewSnapshotCache previewSnapshotCache;
 
-        int limit = 500;
-        if (request != null && request.getLimit() != null) {
-            limit = Math.min(Math.max(request.getLimit(), 1), MAX_LIMIT);
+    @Value("${bulk.fulfill.threads:16}")
+    private int threads;
+
+    @Value("${bulk.fulfill.shop-concurrency:8}")
+    private int shopConcurrency;
+
+    /** Rows fulfilled per step of {@link #executeStreaming}. */
+    @Value("${bulk.fulfill.stream-chunk:100}")
+    private int streamChunk;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "bulk-fulfill-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor == null) {
+            return;
         }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public BulkFulfillFromTrackingResponse execute(BulkFulfillFromTrackingRequest request) {
+        boolean dryRun = request != null && request.isDryRun();
+        int limit = effectiveLimit(request);
         String accountCode = request != null ? request.getAccountCode() : null;
 
         UnfulfilledShopifyPreviewResponse preview = unfulfilledShopifyPreviewService.buildPreview(accountCode, limit);
@@ -56,12 +115,68 @@ public class OrderTrackingBulkFulfillmentService {
         return out;
     }
 
+    /**
+     * {@link #execute} for a streaming response: preview rows are fulfilled {@code bulk.fulfill.stream-chunk} at a
+     * time as the preview produces them, and each row's result goes to {@code sink} when its chunk is done, so neither
+     * the preview nor the results are held in full.
+     *
+     * @return the summary {@link #execute} would return
+     */
+    public Map<String, Integer> executeStreaming(BulkFulfillFromTrackingRequest request,
+            Consumer<FulfillAttemptResult> sink) {
+        boolean dryRun = request != null && request.isDryRun();
+        int limit = effectiveLimit(request);
+        String accountCode = request != null ? request.getAccountCode() : null;
+
+        Map<String, Integer> summary = new HashMap<>();
+        List<UnfulfilledShopifyOrderItem> chunk = new ArrayList<>();
+        int chunkSize = Math.max(1, streamChunk);
+        unfulfilledShopifyPreviewService.streamPreview(accountCode, limit, item -> {
+            chunk.add(item);
+            if (chunk.size() >= chunkSize) {
+                fulfillChunk(chunk, dryRun, summary, sink);
+            }
+        });
+        fulfillChunk(chunk, dryRun, summary, sink);
+        for (String key : List.of("previewItemsTotal", "skippedNotDeliveredInTransitOrOfd", "attempted",
+                "succeeded", "failed")) {
+            summary.putIfAbsent(key, 0);
+        }
+        log.info("Bulk fulfill from tracking (stream): dryRun={}, summary={}", dryRun, summary);
+        return summary;
+    }
+
+    private void fulfillChunk(List<UnfulfilledShopifyOrderItem> chunk, boolean dryRun, Map<String, Integer> summary,
+            Consumer<FulfillAttemptResult> sink) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BulkFulfillFromTrackingResponse out = fulfillPreviewItemsInternal(chunk, dryRun);
+        chunk.clear();
+        out.getSummary().forEach((k, v) -> summary.merge(k, v, Integer::sum));
+        out.getResults().forEach(sink);
+    }
+
+    /** Preview rows to load for {@code request}: its {@code limit} within 1–2000, default 500. */
+    static int effectiveLimit(BulkFulfillFromTrackingRequest request) {
+        if (request != null && request.getLimit() != null) {
+            return Math.min(Math.max(request.getLimit(), 1), MAX_LIMIT);
+        }
+        return 500;
+    }
+
     /**
      * Fulfill / update Shopify for each preview row (e.g. fulfillment UI “apply all”). Same rules as {@link #execute}.
      */
     public BulkFulfillFromTrackingResponse fulfillPreviewItems(List<UnfulfilledShopifyOrderItem> items) {
-        BulkFulfillFromTrackingResponse out = fulfillPreviewItemsInternal(items, false);
-        log.info("Bulk fulfill preview items: summary={}", out.getSummary());
+        return fulfillPreviewItems(items, false);
+    }
+
+    /** {@link #fulfillPreviewItems(List)}, optionally as a dry run; one result per row in input order. */
+    public BulkFulfillFromTrackingResponse fulfillPreviewItems(List<UnfulfilledShopifyOrderItem> items,
+            boolean dryRun) {
+        BulkFulfillFromTrackingResponse out = fulfillPreviewItemsInternal(items, dryRun);
+        log.info("Bulk fulfill preview items: dryRun={}, summary={}", dryRun, out.getSummary());
         return out;
     }
 
@@ -79,51 +194,153 @@ public class OrderTrackingBulkFulfillmentService {
         List<UnfulfilledShopifyOrderItem> list = items != null ? items : List.of();
         summary.put("previewItemsTotal", list.size());
 
-        for (UnfulfilledShopifyOrderItem item : list) {
+        FulfillAttemptResult[] rows = new FulfillAttemptResult[list.size()];
+        List<Integer> toFulfill = new ArrayList<>();
+        for (int i = 0; i < list.size(); i++) {
+            UnfulfilledShopifyOrderItem item = list.get(i);
             FulfillAttemptResult row = new FulfillAttemptResult();
             row.setAccountCode(item.getAccountCode());
             row.setOrderId(item.getOrderId());
             row.setOrderTrackingStatus(item.getOrderTrackingStatus());
-
-            String shopifyKey = effectiveShopifyKey(item);
-            String labelsAcct = item.getAccountCode();
+            rows[i] = row;
 
             String shopifyStatus = mapTrackingStatusToShopifyShipmentStatus(item.getOrderTrackingStatus());
             if (shopifyStatus == null) {
                 row.setSuccess(false);
                 row.setMessage("Skipped: shipment_status is not delivered, in transit, or out for delivery");
-                out.getResults().add(row);
                 summary.merge("skippedNotDeliveredInTransitOrOfd", 1, Integer::sum);
                 continue;
             }
             row.setShopifyShipmentStatus(shopifyStatus);
+            summary.merge("attempted", 1, Integer::sum);
 
             if (dryRun) {
                 row.setSuccess(true);
                 row.setMessage("dryRun: would fulfill / update tracking");
-                out.getResults().add(row);
-                summary.merge("attempted", 1, Integer::sum);
                 summary.merge("succeeded", 1, Integer::sum);
                 continue;
             }
+            toFulfill.add(i);
+        }
 
-            summary.merge("attempted", 1, Integer::sum);
+        if (!toFulfill.isEmpty()) {
+            Map<String, Map<String, String>> awbs = prefetchAwbs(list, toFulfill);
+            fulfillByShop(list, rows, toFulfill, awbs);
+            for (int i : toFulfill) {
+                summary.merge(rows[i].isSuccess() ? "succeeded" : "failed", 1, Integer::sum);
+            }
+        }
+
+        out.getResults().addAll(Arrays.asList(rows));
+        out.setSummary(summary);
+        return out;
+    }
+
+    /**
+     * Latest {@code labels} AWB for every row, one batched query per labels account instead of one per row.
+     *
+     * @return labels account (upper case) → normalized order key → AWB
+     */
+    private Map<String, Map<String, String>> prefetchAwbs(List<UnfulfilledShopifyOrderItem> list,
+            List<Integer> indexes) {
+        Map<String, String> accountCodes = new LinkedHashMap<>();
+        Map<String, Set<String>> keysByAccount = new LinkedHashMap<>();
+        for (int i : indexes) {
+            UnfulfilledShopifyOrderItem item = list.get(i);
+            String norm = ShopifyService.normalizeShopifyOrderNameKey(item.getOrderId());
+            if (item.getAccountCode() == null || item.getAccountCode().isBlank() || norm.isEmpty()) {
+                continue;
+            }
+            String acct = labelsAccountKey(item.getAccountCode());
+            accountCodes.putIfAbsent(acct, item.getAccountCode().trim());
+            keysByAccount.computeIfAbsent(acct, k -> new LinkedHashSet<>()).add(norm);
+        }
+        Map<String, Map<String, String>> awbs = new HashMap<>();
+        keysByAccount.forEach((acct, keys) -> {
+            Map<String, String> found = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            found.putAll(labelAwbRepository.findLatestAwbsForAccountAndNormalizedOrderIds(accountCodes.get(acct),
+                    new ArrayList<>(keys)));
+            awbs.put(acct, found);
+            log.info("Bulk fulfill: prefetched {} AWB(s) for {} order(s) of account {}", found.size(), keys.size(),
+                    acct);
+        });
+        return awbs;
+    }
+
+    /**
+     * Rows grouped by Shopify shop; each shop is worked by up to {@code bulk.fulfill.shop-concurrency} workers that
+     * pull its rows in turn. Every call still goes through the shop's GraphQL cost bucket
+     * ({@link ShopifyGraphQLThrottle}), so the workers wait there when the shop's budget runs low.
+     */
+    private void fulfillByShop(List<UnfulfilledShopifyOrderItem> list, FulfillAttemptResult[] rows,
+            List<Integer> indexes, Map<String, Map<String, String>> awbs) {
+        Map<String, Queue<Integer>> byShop = new LinkedHashMap<>();
+        for (int i : indexes) {
+            byShop.computeIfAbsent(shopKey(effectiveShopifyKey(list.get(i))), k -> new ConcurrentLinkedQueue<>())
+                    .add(i);
+        }
+        if (executor == null) {
+            byShop.values().forEach(queue -> drain(queue, list, rows, awbs));
+            return;
+        }
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (Queue<Integer> queue : byShop.values()) {
+            int n = Math.min(Math.max(1, shopConcurrency), queue.size());
+            for (int w = 0; w < n; w++) {
+                workers.add(CompletableFuture.runAsync(() -> drain(queue, list, rows, awbs), executor));
+            }
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private void drain(Queue<Integer> queue, List<UnfulfilledShopifyOrderItem> list, FulfillAttemptResult[] rows,
+            Map<String, Map<String, String>> awbs) {
+        Integer i;
+        while ((i = queue.poll()) != null) {
+            UnfulfilledShopifyOrderItem item = list.get(i);
+            FulfillAttemptResult row = rows[i];
+            String shopifyKey = effectiveShopifyKey(item);
+            String labelsAcct = item.getAccountCode();
             String norm = ShopifyService.normalizeShopifyOrderNameKey(item.getOrderId());
-            String awb = labelAwbRepository.findLatestAwb(labelsAcct, norm).orElse(null);
-            String trackingUrl = buildTrackingUrl(shopifyKey, awb);
-            boolean ok = fulfillOne(shopifyKey, labelsAcct, item.getOrderId(), shopifyStatus, awb, trackingUrl);
+            String awb = labelsAcct != null
+                    ? awbs.getOrDefault(labelsAccountKey(labelsAcct), Map.of()).get(norm)
+                    : null;
+            boolean ok;
+            try {
+                String trackingUrl = buildTrackingUrl(shopifyKey, awb);
+                ok = fulfillOne(shopifyKey, labelsAcct, item.getOrderId(), row.getShopifyShipmentStatus(), awb,
+                        trackingUrl);
+            } catch (RuntimeException e) {
+                log.error("Bulk fulfill failed for order {} (shopifyKey={}): {}", item.getOrderId(), shopifyKey,
+                        e.getMessage(), e);
+                ok = false;
+            }
             row.setSuccess(ok);
             row.setMessage(ok ? "OK" : "Shopify fulfillment failed — see application logs");
-            out.getResults().add(row);
             if (ok) {
-                summary.merge("succeeded", 1, Integer::sum);
-            } else {
-                summary.merge("failed", 1, Integer::sum);
+                evictFromPreviewSnapshots(shopifyKey, item.getOrderId());
             }
         }
+    }
 
-        out.setSummary(summary);
-        return out;
+    /** The order is fulfilled now: keep it out of cached preview snapshots. */
+    private void evictFromPreviewSnapshots(String shopifyKey, String orderId) {
+        if (previewSnapshotCache != null) {
+            previewSnapshotCache.evictOrder(shopifyKey, orderId);
+        }
+    }
+
+    private static String labelsAccountKey(String accountCode) {
+        return accountCode.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /** Shop domain of a {@code shopify.accounts} key (the GraphQL throttle's bucket), else the normalized key. */
+    private String shopKey(String shopifyKey) {
+        ShopifyAccount acc = shopifyProperties.getAccountByCode(shopifyKey);
+        if (acc != null && acc.getShop() != null && !acc.getShop().isBlank()) {
+            return acc.getShop().trim().toLowerCase(Locale.ROOT);
+        }
+        return shopifyKey.replace(" ", "").toLowerCase(Locale.ROOT);
     }
 
     /** Same as {@link #fulfillSingleOrder(String, String, String, String)} with no separate Shopify key (legacy). */
@@ -176,6 +393,9 @@ public class OrderTrackingBulkFulfillmentService {
                 shopifyStatus, norm, awb != null && !awb.isBlank(), trackingUrl != null && !trackingUrl.isBlank());
 
         boolean ok = fulfillOne(shopifyKey, trackingAccountCode.trim(), orderId.trim(), shopifyStatus, awb, trackingUrl);
+        if (ok) {
+            evictFromPreviewSnapshots(shopifyKey, orderId);
+        }
         r.setSuccess(ok);
         r.setMessage(ok ? "Shopify updated successfully" : "Failed — check server logs");
         log.info("fulfillSingleOrder end: trackingAccount={} orderId={} success={}", trackingAccountCode.trim(),
@@ -195,24 +415,18 @@ public class OrderTrackingBulkFulfillmentService {
      * {@code delivered}, {@code in_transit}, {@code out_for_delivery}, or {@code null} if out of scope.
      */
     static String mapTrackingStatusToShopifyShipmentStatus(String shipmentStatus) {
-        if (shipmentStatus == null || shipmentStatus.isBlank()) {
-            return null;
-        }
-        String n = UnfulfilledShopifyPreviewService.normalizeShipmentStatus(shipmentStatus);
-
-        if (n.contains("OUT FOR DELIVERY")) {
-            return "out_for_delivery";
+        switch (ShipmentStatusClassifier.classify(shipmentStatus)) {
+            case OUT_FOR_DELIVERY:
+                return "out_for_delivery";
+            case DELIVERED:
+                return "delivered";
+            case IN_TRANSIT:
+            case INT:
+            case SHIPPED:
+                return "in_transit";
+            default:
+                return null;
         }
-        if (n.contains("NOT DELIVERED") || n.contains("UNDELIVERED")) {
-            return null;
-        }
-        if (n.contains("DELIVERED")) {
-            return "delivered";
-        }
-        if (n.contains("IN TRANSIT") || n.contains("PICKED UP") || n.equals("INT") || n.equals("SHIPPED")) {
-            return "in_transit";
-        }
-        return null;
     }
 
     private String buildTrackingUrl(String accountCode, String awb) {
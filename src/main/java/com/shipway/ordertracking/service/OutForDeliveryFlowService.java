@@ -1,6 +1,7 @@
 package com.shipway.ordertracking.service;
 
 import com.shipway.ordertracking.dto.BotspaceMessageRequest;
+import com.shipway.ordertracking.dto.ShopifyOrderContext;
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,14 +9,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.shipway.ordertracking.config.BotspaceAccount;
 import com.shipway.ordertracking.config.BotspaceProperties;
 import com.shipway.ordertracking.config.ShopifyProperties;
 import com.shipway.ordertracking.util.PhoneNumberUtil;
+import com.shipway.ordertracking.util.ShipmentStatusClassifier;
 
 @Service
 public class OutForDeliveryFlowService {
@@ -37,7 +38,14 @@ public class OutForDeliveryFlowService {
     @Autowired
     private CustomerMessageTrackingService customerMessageTrackingService;
 
-    private static final List<String> OUT_FOR_DELIVERY_STATUSES = Arrays.asList("sent_outForDelivery", "failed_outForDelivery");
+    @Autowired
+    private OrderAppliedStateStore orderAppliedStateStore;
+
+    @Autowired(required = false)
+    private UpstreamAsyncExecutor upstreamAsyncExecutor;
+
+    /** Dedup on a sent notification only: a {@code failed_outForDelivery} row must not block a retry or replay. */
+    private static final List<String> OUT_FOR_DELIVERY_STATUSES = List.of("sent_outForDelivery");
 
     /**
      * Process out for delivery webhook.
@@ -53,14 +61,10 @@ public class OutForDeliveryFlowService {
         // CHECK 1: Status change validation - skip if status hasn't changed
         String currentStatus = order.getCurrentShipmentStatus();
         String previousStatus = order.getPreviousStatus();
-        if (currentStatus != null && previousStatus != null) {
-            String normalizedCurrent = currentStatus.trim().toUpperCase().replace("_", " ");
-            String normalizedPrevious = previousStatus.trim().toUpperCase().replace("_", " ");
-            if (normalizedCurrent.equals(normalizedPrevious)) {
-                log.info("Order {} status unchanged (current: {}, previous: {}), skipping out for delivery flow",
-                        order.getOrderId(), currentStatus, previousStatus);
-                return true; // Not an error, just no change
-            }
+        if (ShipmentStatusClassifier.sameStatus(currentStatus, previousStatus)) {
+            log.info("Order {} status unchanged (current: {}, previous: {}), skipping out for delivery flow",
+                    order.getOrderId(), currentStatus, previousStatus);
+            return true; // Not an error, just no change
         }
 
         String customerPhone = order.getShippingPhone();
@@ -77,7 +81,7 @@ public class OutForDeliveryFlowService {
 
         String orderId = order.getOrderId();
 
-        // CHECK 2: Database check - skip if already processed (sent or failed)
+        // CHECK 2: Database check - skip if the notification was already sent
         if (customerMessageTrackingService.hasAnyStatus(orderId, order.getBrandName(), OUT_FOR_DELIVERY_STATUSES)) {
             log.info("Order {} already has out for delivery status in database, skipping out for delivery flow", orderId);
             return true;
@@ -88,39 +92,34 @@ public class OutForDeliveryFlowService {
             log.info(
                     "Order {} detected as clone (contains '_'), skipping Shopify lookup and fulfillment. Sending Botspace.",
                     orderId);
-            return sendOutForDeliveryBotspaceMessage(brandName, order);
+            return UpstreamAsyncExecutor.join(sendOutForDeliveryBotspaceMessageAsync(brandName, order));
         }
 
-        // 1) GraphQL: get order with displayFulfillmentStatus
-        Map<String, Object> orderNode = shopifyService.getOrderWithDisplayFulfillmentStatus(brandName, orderId);
-        if (orderNode == null) {
+        // CHECK 4: Fulfilled earlier by this service - push the event to the stored fulfillment, no order read
+        if (orderAppliedStateStore.pushStatusFromAppliedState(brandName, orderId, order.getAwb(), "out_for_delivery")) {
+            return UpstreamAsyncExecutor.join(sendOutForDeliveryBotspaceMessageAsync(brandName, order));
+        }
+
+        // 1) GraphQL: one order-context query (display status, fulfillments, fulfillment orders, products)
+        ShopifyOrderContext orderContext = shopifyService.getOrderContext(brandName, orderId);
+        if (orderContext == null) {
             log.warn("Order {} not found via GraphQL (brand: {})", orderId, brandName);
             return false;
         }
 
-        String displayStatus = orderNode.get("displayFulfillmentStatus") != null
-                ? orderNode.get("displayFulfillmentStatus").toString()
-                : null;
-
-        if ("FULFILLED".equalsIgnoreCase(displayStatus)) {
-            return processOutForDeliveryWhenFulfilled(brandName, orderId, order, orderNode);
+        if (orderContext.isFulfilled()) {
+            return processOutForDeliveryWhenFulfilled(brandName, orderId, order, orderContext);
         }
 
-        // UNFULFILLED or null: get fulfillment orders, find OPEN, create fulfillment if
+        // UNFULFILLED or null: take the OPEN fulfillment order from the same context, create fulfillment if
         // needed, then proceed
-        String orderGid = orderNode.get("id") != null ? orderNode.get("id").toString() : null;
+        String orderGid = orderContext.getOrderGid();
         if (orderGid == null) {
             log.warn("Order {} has no id in GraphQL response", orderId);
             return false;
         }
 
-        Map<String, Object> fulfillmentOrdersData = shopifyService.getFulfillmentOrdersForOrder(brandName, orderGid);
-        if (fulfillmentOrdersData == null) {
-            log.warn("Could not get fulfillment orders for order {} (brand: {})", orderId, brandName);
-            return false;
-        }
-
-        String openFulfillmentOrderId = shopifyService.getOpenFulfillmentOrderIdFromEdges(fulfillmentOrdersData);
+        String openFulfillmentOrderId = orderContext.getOpenFulfillmentOrderId();
         if (openFulfillmentOrderId == null || openFulfillmentOrderId.isEmpty()) {
             log.warn("No OPEN fulfillment order for order {} (brand: {}), skipping out for delivery flow", orderId,
                     brandName);
@@ -148,68 +147,64 @@ public class OutForDeliveryFlowService {
             return false;
         }
 
-        // Use the ID directly for tracking update
-        if (!shopifyService.updateFulfillmentTracking(brandName, numericOrderId, fulfillmentId, order.getAwb(),
-                "out_for_delivery")) {
-            log.error("Failed to update fulfillment tracking for order {}, stopping flow", orderId);
-            return false;
-        }
-
-        return proceedWithTagAndBotspace(brandName, orderId, numericOrderId, order, fulfillmentOrdersData);
+        return UpstreamAsyncExecutor.join(updateTrackingThenNotify(brandName, orderId, orderGid, numericOrderId,
+                fulfillmentId, order));
     }
 
     private boolean processOutForDeliveryWhenFulfilled(String brandName, String orderId,
-            StatusUpdateWebhook.OrderStatus order, Map<String, Object> orderNode) {
+            StatusUpdateWebhook.OrderStatus order, ShopifyOrderContext orderContext) {
         if (customerMessageTrackingService.hasAnyStatus(orderId, order.getBrandName(), OUT_FOR_DELIVERY_STATUSES)) {
             log.info("Order {} already has out for delivery status in database, skipping out for delivery flow", orderId);
             return true;
         }
 
-        Long numericOrderId = com.shipway.ordertracking.service.ShopifyService.parseNumericIdFromGid(
-                orderNode.get("id") != null ? orderNode.get("id").toString() : null, "gid://shopify/Order/");
+        Long numericOrderId = orderContext.getNumericOrderId();
         if (numericOrderId == null) {
             log.warn("Could not parse numeric order ID for order {}", orderId);
             return false;
         }
 
-        Object fulfillmentsObj = orderNode.get("fulfillments");
-        Long fulfillmentId = null;
-        if (fulfillmentsObj instanceof List && !((List<?>) fulfillmentsObj).isEmpty()) {
-            Object first = ((List<?>) fulfillmentsObj).get(0);
-            if (first instanceof Map) {
-                Object idObj = ((Map<?, ?>) first).get("id");
-                if (idObj != null) {
-                    fulfillmentId = com.shipway.ordertracking.service.ShopifyService.parseNumericIdFromGid(
-                            idObj.toString(), "gid://shopify/Fulfillment/");
-                }
-            }
-        }
-        if (fulfillmentId != null) {
-            if (!shopifyService.updateFulfillmentTracking(brandName, numericOrderId, fulfillmentId, order.getAwb(),
-                    "out_for_delivery")) {
-                log.error("Failed to update fulfillment tracking (fulfilled path) for order {}, stopping flow",
-                        orderId);
-                return false;
-            }
+        Long fulfillmentId = orderContext.getFirstFulfillmentId();
+        if (fulfillmentId == null) {
+            return UpstreamAsyncExecutor.join(sendOutForDeliveryBotspaceMessageAsync(brandName, order));
         }
-
-        return sendOutForDeliveryBotspaceMessage(brandName, order);
+        return UpstreamAsyncExecutor.join(updateTrackingThenNotify(brandName, orderId, orderContext.getOrderGid(),
+                numericOrderId, fulfillmentId, order));
     }
 
-    private boolean proceedWithTagAndBotspace(String brandName, String orderId, Long numericOrderId,
-            StatusUpdateWebhook.OrderStatus order, Map<String, Object> orderDataWithTags) {
-        if (customerMessageTrackingService.hasAnyStatus(orderId, order.getBrandName(), OUT_FOR_DELIVERY_STATUSES)) {
-            log.info("Order {} already has out for delivery status in database, skipping out for delivery notification", orderId);
-            return true;
-        }
-        return sendOutForDeliveryBotspaceMessage(brandName, order);
+    /**
+     * Steps once the fulfillment is known, as a dependency graph:
+     * <pre>
+     * tracking update ──┬─&gt; applied-state write
+     *                   └─&gt; Botspace message
+     * </pre>
+     * The write and the message run side by side. Nothing is sent when the tracking update fails; the
+     * message dedup is the caller's check before any Shopify call.
+     */
+    private CompletableFuture<Boolean> updateTrackingThenNotify(String brandName, String orderId, String orderGid,
+            Long numericOrderId, Long fulfillmentId, StatusUpdateWebhook.OrderStatus order) {
+        return shopifyService.updateFulfillmentTrackingAsync(brandName, numericOrderId, fulfillmentId,
+                order.getAwb(), "out_for_delivery").thenCompose(updated -> {
+                    if (!Boolean.TRUE.equals(updated)) {
+                        log.error("Failed to update fulfillment tracking for order {}, stopping flow", orderId);
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    CompletableFuture<Void> recorded = UpstreamAsyncExecutor.supplyOn(upstreamAsyncExecutor, () -> {
+                        orderAppliedStateStore.recordApplied(brandName, orderId, orderGid, fulfillmentId,
+                                order.getAwb(), "out_for_delivery");
+                        return null;
+                    });
+                    CompletableFuture<Boolean> sent = sendOutForDeliveryBotspaceMessageAsync(brandName, order);
+                    return sent.thenCombine(recorded, (ok, ignored) -> ok);
+                });
     }
 
-    private boolean sendOutForDeliveryBotspaceMessage(String brandName, StatusUpdateWebhook.OrderStatus order) {
+    private CompletableFuture<Boolean> sendOutForDeliveryBotspaceMessageAsync(String brandName,
+            StatusUpdateWebhook.OrderStatus order) {
         String templateId = getTemplateIdForBrand(brandName);
         if (templateId == null || templateId.isEmpty()) {
             log.warn("Template ID not configured for brand: {} (order: {})", brandName, order.getOrderId());
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         String formattedPhone = PhoneNumberUtil.formatPhoneNumber(order.getShippingPhone());
@@ -227,16 +222,17 @@ public class OutForDeliveryFlowService {
             request.setCards(cards);
         }
 
-        boolean sent = botspaceService.sendTemplateMessage(brandName, request, order.getOrderId(),
+        return botspaceService.submitTemplateMessage(brandName, request, order.getOrderId(),
                 "sent_outForDelivery", "failed_outForDelivery", order.trackingAccountCodeFromRequest(),
-                order.trackingBrandNameFromRequest());
-        if (sent) {
-            log.info("✅ Out for delivery notification sent successfully for order: {} to phone: {}", order.getOrderId(),
-                    formattedPhone);
-        } else {
-            log.error("❌ Failed to send out for delivery notification for order: {}", order.getOrderId());
-        }
-        return sent;
+                order.trackingBrandNameFromRequest()).thenApply(sent -> {
+                    if (Boolean.TRUE.equals(sent)) {
+                        log.info("✅ Out for delivery notification submitted for order: {} to phone: {}",
+                                order.getOrderId(), formattedPhone);
+                    } else {
+                        log.error("❌ Failed to submit out for delivery notification for order: {}", order.getOrderId());
+                    }
+                    return Boolean.TRUE.equals(sent);
+                });
     }
 
     /**
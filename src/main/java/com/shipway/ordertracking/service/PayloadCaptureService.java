@@ -0,0 +1,218 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory capture of raw payloads (inbound webhook, Shopify GraphQL, Botspace) for debugging, replacing
+ * pretty-printed JSON in the logs.
+ * <p>
+ * Each channel keeps the last {@code capture.buffer-size} payloads as compact JSON bytes in a ring buffer.
+ * Successful exchanges are sampled ({@code capture.sample-rate.<channel>}, 0.0–1.0); errors are always captured.
+ * Query by order id: GET /api/captures?orderId=...
+ */
+@Service
+public class PayloadCaptureService {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadCaptureService.class);
+
+    public enum Channel {
+        WEBHOOK, SHOPIFY, BOTSPACE
+    }
+
+    /** One captured payload; {@code payload} is compact UTF-8 JSON. */
+    public record Capture(long seq, Instant capturedAt, Channel channel, String label, String orderId,
+            boolean error, byte[] payload) {
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${capture.buffer-size:200}")
+    private int bufferSize;
+
+    @Value("${capture.sample-rate.webhook:1.0}")
+    private double webhookSampleRate;
+
+    @Value("${capture.sample-rate.shopify:0.05}")
+    private double shopifySampleRate;
+
+    @Value("${capture.sample-rate.botspace:0.2}")
+    private double botspaceSampleRate;
+
+    private final Map<Channel, Ring> rings = new EnumMap<>(Channel.class);
+    private final AtomicLong sequence = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        for (Channel channel : Channel.values()) {
+            rings.put(channel, new Ring(Math.max(1, bufferSize)));
+        }
+    }
+
+    /**
+     * Whether the next payload on {@code channel} should be kept. Callers can check this before building a payload.
+     */
+    public boolean shouldCapture(Channel channel, boolean error) {
+        if (error) {
+            return true;
+        }
+        double rate = sampleRate(channel);
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * Sample and store {@code payload} (any Jackson-serializable value; a String is stored as-is).
+     */
+    public void capture(Channel channel, String label, String orderId, Object payload, boolean error) {
+        if (!shouldCapture(channel, error)) {
+            return;
+        }
+        store(channel, label, orderId, payload, error);
+    }
+
+    /**
+     * Store {@code payload} without sampling (caller already decided via {@link #shouldCapture}).
+     */
+    public void store(Channel channel, String label, String orderId, Object payload, boolean error) {
+        Ring ring = rings.get(channel);
+        if (ring == null) {
+            return;
+        }
+        try {
+            byte[] bytes = payload instanceof String s
+                    ? s.getBytes(StandardCharsets.UTF_8)
+                    : objectMapper.writeValueAsBytes(payload);
+            ring.add(new Capture(sequence.incrementAndGet(), Instant.now(), channel, label,
+                    normalizeOrderId(orderId), error, bytes));
+        } catch (Exception e) {
+            log.warn("Failed to capture {} payload ({}): {}", channel, label, e.getMessage());
+        }
+    }
+
+    /**
+     * Captures for an order, newest first. Matches the recorded order id, or (for calls where the id is only
+     * inside the payload, e.g. GraphQL variables) the id appearing in the payload.
+     *
+     * @param channel optional channel filter ({@code null} = all)
+     */
+    public List<Capture> findByOrderId(String orderId, Channel channel, int limit) {
+        String key = normalizeOrderId(orderId);
+        if (key == null) {
+            return List.of();
+        }
+        byte[] needle = key.getBytes(StandardCharsets.UTF_8);
+        List<Capture> matches = new ArrayList<>();
+        for (Map.Entry<Channel, Ring> e : rings.entrySet()) {
+            if (channel != null && e.getKey() != channel) {
+                continue;
+            }
+            for (Capture c : e.getValue().snapshot()) {
+                if (key.equals(c.orderId()) || (c.orderId() == null && contains(c.payload(), needle))) {
+                    matches.add(c);
+                }
+            }
+        }
+        matches.sort(Comparator.comparingLong(Capture::seq).reversed());
+        return matches.size() > limit ? matches.subList(0, Math.max(0, limit)) : matches;
+    }
+
+    /**
+     * Per-channel buffer fill and sample rates.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bufferSize", Math.max(1, bufferSize));
+        for (Channel channel : Channel.values()) {
+            Ring ring = rings.get(channel);
+            Map<String, Object> c = new LinkedHashMap<>();
+            c.put("sampleRate", sampleRate(channel));
+            c.put("buffered", ring != null ? ring.size() : 0);
+            c.put("captured", ring != null ? ring.total() : 0L);
+            stats.put(channel.name().toLowerCase(), c);
+        }
+        return stats;
+    }
+
+    private double sampleRate(Channel channel) {
+        return switch (channel) {
+            case WEBHOOK -> webhookSampleRate;
+            case SHOPIFY -> shopifySampleRate;
+            case BOTSPACE -> botspaceSampleRate;
+        };
+    }
+
+    /** Order ids are matched without a leading '#' and surrounding spaces (Shopify names vs Claimio ids). */
+    static String normalizeOrderId(String orderId) {
+        if (orderId == null) {
+            return null;
+        }
+        String t = orderId.trim();
+        if (t.startsWith("#")) {
+            t = t.substring(1).trim();
+        }
+        return t.isEmpty() ? null : t;
+    }
+
+    private static boolean contains(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /** Fixed-size ring; oldest entry is overwritten when full. */
+    private static final class Ring {
+        private final Capture[] slots;
+        private long written;
+
+        Ring(int size) {
+            this.slots = new Capture[size];
+        }
+
+        synchronized void add(Capture capture) {
+            slots[(int) (written % slots.length)] = capture;
+            written++;
+        }
+
+        synchronized List<Capture> snapshot() {
+            List<Capture> out = new ArrayList<>(slots.length);
+            for (Capture c : slots) {
+                if (c != null) {
+                    out.add(c);
+                }
+            }
+            return out;
+        }
+
+        synchronized int size() {
+            return (int) Math.min(written, slots.length);
+        }
+
+        synchronized long total() {
+            return written;
+        }
+    }
+}
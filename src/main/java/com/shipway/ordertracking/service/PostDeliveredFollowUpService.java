@@ -13,8 +13,8 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Sends a Botspace follow-up message to customers who received the "delivered" message yesterday.
@@ -25,7 +25,8 @@ public class PostDeliveredFollowUpService {
 
     private static final Logger log = LoggerFactory.getLogger(PostDeliveredFollowUpService.class);
 
-    private static final List<String> FOLLOW_UP_STATUSES = Arrays.asList("sent_postDeliveredFollowUp", "failed_postDeliveredFollowUp");
+    /** Dedup on a sent follow-up only: a failed one is tried again. */
+    private static final List<String> FOLLOW_UP_STATUSES = List.of("sent_postDeliveredFollowUp");
 
     @Autowired
     private CustomerMessageTrackingService customerMessageTrackingService;
@@ -54,9 +55,9 @@ public class PostDeliveredFollowUpService {
             return;
         }
         log.info("Post-delivered follow-up: found {} order(s) to process", rows.size());
-        int sent = 0;
         int skipped = 0;
         int failed = 0;
+        List<CompletableFuture<Boolean>> sends = new ArrayList<>();
         for (OrderPhoneProjection row : rows) {
             String orderId = row.getOrderId();
             String trackingAcct = row.getAccountCode() != null ? row.getAccountCode().trim() : "";
@@ -102,18 +103,29 @@ public class PostDeliveredFollowUpService {
             request.setVariables(variables);
             request.setMediaVariable(url);
             request.setCards(List.of(new BotspaceMessageRequest.Card(url)));
-            boolean ok = botspaceService.sendTemplateMessage(botspaceKey, request, orderId, "sent_postDeliveredFollowUp",
+            // Queued behind order / shipment notifications on the account's rate limit
+            sends.add(botspaceService.sendTemplateMessageAsync(botspaceKey, request, orderId,
+                    "sent_postDeliveredFollowUp",
                     "failed_postDeliveredFollowUp",
                     trackingAcct.isEmpty() ? null : trackingAcct,
-                    brandKey.isEmpty() ? null : brandKey);
-            if (ok) {
-                sent++;
-                log.info("Post-delivered follow-up sent for order {} (Botspace key: {})", orderId, botspaceKey);
-            } else {
-                failed++;
-            }
+                    brandKey.isEmpty() ? null : brandKey,
+                    BotspaceLaneDispatcher.Lane.FOLLOW_UP).thenApply(ok -> {
+                        if (ok) {
+                            log.info("Post-delivered follow-up sent for order {} (Botspace key: {})", orderId,
+                                    botspaceKey);
+                        }
+                        return ok;
+                    }));
         }
-        log.info("Post-delivered follow-up done: sent={}, skipped={}, failed={}", sent, skipped, failed);
+        // Summary once the queued sends finish; the scheduler thread is not held for the run
+        int skippedTotal = skipped;
+        int failedBeforeSend = failed;
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            long sent = sends.stream().filter(f -> !f.isCompletedExceptionally() && Boolean.TRUE.equals(f.join()))
+                    .count();
+            log.info("Post-delivered follow-up done: sent={}, skipped={}, failed={}", sent, skippedTotal,
+                    failedBeforeSend + (sends.size() - sent));
+        });
     }
 
     private String getTemplateIdForAccount(String botspaceAccountKey) {
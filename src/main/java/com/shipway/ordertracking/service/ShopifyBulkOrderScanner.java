@@ -0,0 +1,307 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.config.ShopifyAccount;
+import com.shipway.ordertracking.config.ShopifyProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Large {@code orders} searches through a Shopify bulk operation ({@code shopify.bulk-operations.*}): one
+ * {@code bulkOperationRunQuery}, a status poll every {@code poll-ms}, then the JSONL result file read line by line
+ * into compact order nodes ({@code id}, {@code name}, {@code createdAt}, {@code displayFulfillmentStatus}), handed on
+ * {@value #PAGE_SIZE} at a time like {@link ShopifyService#forEachOrderNodePage}.
+ * <p>
+ * Searches that {@code ordersCount} puts under {@code min-orders}, and bulk operations that cannot be started or do
+ * not complete, use {@link ShopifyService#forEachOrderNodePage} cursor paging instead.
+ */
+@Component
+public class ShopifyBulkOrderScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(ShopifyBulkOrderScanner.class);
+
+    /** Nodes per {@code pageSink} call, same as a cursor page. */
+    static final int PAGE_SIZE = 250;
+
+    private static final Set<String> ORDER_FIELDS = Set.of("id", "name", "createdAt", "displayFulfillmentStatus");
+
+    private static final String RUN_MUTATION = """
+            mutation RunOrdersBulk($query: String!) {
+              bulkOperationRunQuery(query: $query) {
+                bulkOperation { id status }
+                userErrors { field message }
+              }
+            }
+            """;
+
+    private static final String STATUS_QUERY = """
+            query BulkOperationStatus($id: ID!) {
+              node(id: $id) {
+                ... on BulkOperation { id status errorCode objectCount url }
+              }
+            }
+            """;
+
+    private static final String CANCEL_MUTATION = """
+            mutation CancelOrdersBulk($id: ID!) {
+              bulkOperationCancel(id: $id) {
+                bulkOperation { id status }
+                userErrors { field message }
+              }
+            }
+            """;
+
+    private static final String COUNT_QUERY = """
+            query OrdersCount($q: String!) {
+              ordersCount(query: $q) { count }
+            }
+            """;
+
+    @Autowired
+    private ShopifyService shopifyService;
+
+    @Autowired
+    private ShopifyProperties shopifyProperties;
+
+    @Autowired
+    @Qualifier("shopifyRestTemplate")
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${shopify.bulk-operations.enabled:true}")
+    private boolean enabled;
+
+    @Value("${shopify.bulk-operations.min-orders:1000}")
+    private int minOrders;
+
+    @Value("${shopify.bulk-operations.poll-ms:2000}")
+    private long pollMs;
+
+    @Value("${shopify.bulk-operations.timeout-ms:600000}")
+    private long timeoutMs;
+
+    /** Finished bulk operation: {@code url} is {@code null} when nothing matched. */
+    private record Completed(String id, String url, long objectCount) {
+    }
+
+    /**
+     * Same contract as {@link ShopifyService#forEachOrderNodePage}: pages of normalized order name → node, newest
+     * first, at most {@code maxTotalOrders} nodes.
+     *
+     * @return nodes loaded, or {@code -1} when reading the results failed part way
+     */
+    public int forEachOrderNodePage(String accountCode, String ordersSearchQuery, int maxTotalOrders,
+            Consumer<Map<String, Map<String, Object>>> pageSink) {
+        ShopifyAccount account = enabled && maxTotalOrders >= minOrders && ordersSearchQuery != null
+                && !ordersSearchQuery.isBlank() ? shopifyProperties.getAccountByCode(accountCode) : null;
+        if (account == null) {
+            return shopifyService.forEachOrderNodePage(accountCode, ordersSearchQuery, maxTotalOrders, pageSink);
+        }
+        int count = countOrders(account, ordersSearchQuery);
+        if (count >= 0 && Math.min(count, maxTotalOrders) < minOrders) {
+            log.debug("Orders search for {} matches {} order(s): cursor paging", accountCode, count);
+            return shopifyService.forEachOrderNodePage(accountCode, ordersSearchQuery, maxTotalOrders, pageSink);
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Completed completed = runBulkQuery(account, ordersSearchQuery);
+        if (completed == null) {
+            log.warn("⚠️ Bulk operation unavailable for {}, falling back to cursor paging", accountCode);
+            return shopifyService.forEachOrderNodePage(accountCode, ordersSearchQuery, maxTotalOrders, pageSink);
+        }
+        if (completed.url() == null) {
+            log.info("Bulk operation {} for {}: no matching orders", completed.id(), accountCode);
+            return 0;
+        }
+        int loaded = readResults(completed.url(), maxTotalOrders, pageSink);
+        log.info("📦 Bulk operation {} for {}: {} object(s), read {} order(s) in {} ms", completed.id(), accountCode,
+                completed.objectCount(), loaded, System.currentTimeMillis() - startedAt);
+        return loaded;
+    }
+
+    /** @return matching orders (Shopify caps the count at 10,000), or {@code -1} when the count failed */
+    private int countOrders(ShopifyAccount account, String ordersSearchQuery) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("q", ordersSearchQuery.trim());
+        Map<String, Object> response = shopifyService.callGraphQL(account, COUNT_QUERY, variables, "Orders count");
+        Object count = path(response, "data", "ordersCount", "count");
+        return count instanceof Number n ? n.intValue() : -1;
+    }
+
+    /**
+     * Start the bulk query and poll until it finishes.
+     *
+     * @return the completed operation, or {@code null} when it could not be started or did not complete
+     */
+    private Completed runBulkQuery(ShopifyAccount account, String ordersSearchQuery) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("query", ordersBulkQuery(ordersSearchQuery));
+        Map<String, Object> response = shopifyService.callGraphQL(account, RUN_MUTATION, variables,
+                "Bulk operation run");
+        Object userErrors = path(response, "data", "bulkOperationRunQuery", "userErrors");
+        if (userErrors instanceof List<?> errors && !errors.isEmpty()) {
+            log.warn("bulkOperationRunQuery rejected (shop {}): {}", account.getShop(), errors);
+            return null;
+        }
+        Object id = path(response, "data", "bulkOperationRunQuery", "bulkOperation", "id");
+        if (id == null) {
+            return null;
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        Map<String, Object> status = Map.of("id", id);
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(Math.max(1, pollMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel(account, id.toString());
+                return null;
+            }
+            Object node = path(shopifyService.callGraphQL(account, STATUS_QUERY, status, "Bulk operation status"),
+                    "data", "node");
+            if (!(node instanceof Map<?, ?> op)) {
+                continue;
+            }
+            String state = String.valueOf(op.get("status"));
+            switch (state) {
+                case "COMPLETED":
+                    Object url = op.get("url");
+                    Object objectCount = op.get("objectCount");
+                    return new Completed(id.toString(), url != null ? url.toString() : null,
+                            objectCount != null ? Long.parseLong(objectCount.toString()) : 0L);
+                case "FAILED":
+                case "CANCELED":
+                case "EXPIRED":
+                    log.warn("Bulk operation {} (shop {}) ended {}: {}", id, account.getShop(), state,
+                            op.get("errorCode"));
+                    return null;
+                default:
+                    log.debug("Bulk operation {} (shop {}): {}", id, account.getShop(), state);
+            }
+        }
+        log.warn("Bulk operation {} (shop {}) still running after {} ms, cancelling", id, account.getShop(),
+                timeoutMs);
+        cancel(account, id.toString());
+        return null;
+    }
+
+    private void cancel(ShopifyAccount account, String id) {
+        shopifyService.callGraphQL(account, CANCEL_MUTATION, Map.of("id", id), "Bulk operation cancel");
+    }
+
+    /** Download the JSONL file (signed URL, used as-is) and hand it on in pages. */
+    private int readResults(String url, int maxTotalOrders, Consumer<Map<String, Map<String, Object>>> pageSink) {
+        try {
+            Integer loaded = restTemplate.execute(URI.create(url), HttpMethod.GET, null,
+                    response -> readJsonl(response.getBody(), maxTotalOrders, pageSink));
+            return loaded != null ? loaded : -1;
+        } catch (RestClientException e) {
+            log.error("Failed to read bulk operation results: {}", e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * One order object per line; lines of nested connections ({@code __parentId}) are skipped. Stops after
+     * {@code maxTotalOrders} orders without reading the rest of the file.
+     */
+    int readJsonl(InputStream in, int maxTotalOrders, Consumer<Map<String, Map<String, Object>>> pageSink)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Map<String, Map<String, Object>> page = new LinkedHashMap<>();
+        int loaded = 0;
+        String line;
+        while (loaded < maxTotalOrders && (line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<String, Object> node = parseOrderLine(line);
+            if (node == null) {
+                continue;
+            }
+            loaded++;
+            String key = ShopifyService.normalizeShopifyOrderNameKey(node.get("name").toString());
+            if (!key.isEmpty()) {
+                page.put(key, node);
+            }
+            if (page.size() >= PAGE_SIZE) {
+                pageSink.accept(page);
+                page = new LinkedHashMap<>();
+            }
+        }
+        if (!page.isEmpty()) {
+            pageSink.accept(page);
+        }
+        return loaded;
+    }
+
+    /** The {@link #ORDER_FIELDS} of one order line, or {@code null} for child rows and unreadable lines. */
+    private Map<String, Object> parseOrderLine(String line) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            Map<String, Object> node = new LinkedHashMap<>(8);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("__parentId".equals(field)) {
+                    return null;
+                }
+                if (value.isScalarValue() && value != JsonToken.VALUE_NULL && ORDER_FIELDS.contains(field)) {
+                    node.put(field, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return node.containsKey("name") ? node : null;
+        } catch (JsonProcessingException e) {
+            log.debug("Skipping unreadable bulk operation line: {}", e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    /** Bulk query for {@code ordersSearchQuery}, newest first (same node fields as the cursor search). */
+    static String ordersBulkQuery(String ordersSearchQuery) {
+        String quoted = ordersSearchQuery.trim().replace("\\", "\\\\").replace("\"", "\\\"");
+        return "{ orders(query: \"" + quoted + "\", sortKey: CREATED_AT, reverse: true) "
+                + "{ edges { node { id name createdAt displayFulfillmentStatus } } } }";
+    }
+
+    private static Object path(Map<String, Object> root, String... keys) {
+        Object current = root;
+        for (String key : keys) {
+            if (!(current instanceof Map<?, ?> map)) {
+                return null;
+            }
+            current = map.get(key);
+        }
+        return current;
+    }
+}
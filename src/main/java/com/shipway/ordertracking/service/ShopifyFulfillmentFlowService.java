@@ -1,5 +1,6 @@
 package com.shipway.ordertracking.service;
 
+import com.shipway.ordertracking.dto.ShopifyOrderContext;
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
 
 import org.slf4j.Logger;
@@ -7,8 +8,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Map;
 
 import com.shipway.ordertracking.config.ShopifyAccount;
 import com.shipway.ordertracking.config.ShopifyProperties;
@@ -24,6 +23,9 @@ public class ShopifyFulfillmentFlowService {
     @Autowired
     private ShopifyProperties shopifyProperties;
 
+    @Autowired
+    private OrderAppliedStateStore orderAppliedStateStore;
+
     /**
      * Process shopify fulfillment webhook
      * Handles fulfillment creation/update and sends Botspace notification
@@ -49,36 +51,26 @@ public class ShopifyFulfillmentFlowService {
             return false;
         }
 
-        // 1) GraphQL: get order with displayFulfillmentStatus and name
-        Map<String, Object> orderNode = shopifyService.getOrderWithDisplayFulfillmentStatus(brandName, orderId);
-        if (orderNode == null) {
+        // 1) GraphQL: one order-context query (display status, fulfillments, fulfillment orders, products)
+        ShopifyOrderContext orderContext = shopifyService.getOrderContext(brandName, orderId);
+        if (orderContext == null) {
             log.warn("Order {} not found via GraphQL (brand: {})", orderId, brandName);
             return false;
         }
 
-        String displayStatus = orderNode.get("displayFulfillmentStatus") != null
-                ? orderNode.get("displayFulfillmentStatus").toString()
-                : null;
-
-        if ("FULFILLED".equalsIgnoreCase(displayStatus)) {
-            return processFulfillmentWhenFulfilled(brandName, orderId, order, orderNode);
+        if (orderContext.isFulfilled()) {
+            return processFulfillmentWhenFulfilled(brandName, orderId, order, orderContext);
         }
 
-        // UNFULFILLED or null: get fulfillment orders, find OPEN, create fulfillment if
+        // UNFULFILLED or null: take the OPEN fulfillment order from the same context, create fulfillment if
         // needed
-        String orderGid = orderNode.get("id") != null ? orderNode.get("id").toString() : null;
+        String orderGid = orderContext.getOrderGid();
         if (orderGid == null) {
             log.warn("Order {} has no id in GraphQL response", orderId);
             return false;
         }
 
-        Map<String, Object> fulfillmentOrdersData = shopifyService.getFulfillmentOrdersForOrder(brandName, orderGid);
-        if (fulfillmentOrdersData == null) {
-            log.warn("Could not get fulfillment orders for order {} (brand: {})", orderId, brandName);
-            return false;
-        }
-
-        String openFulfillmentOrderId = shopifyService.getOpenFulfillmentOrderIdFromEdges(fulfillmentOrdersData);
+        String openFulfillmentOrderId = orderContext.getOpenFulfillmentOrderId();
         if (openFulfillmentOrderId == null || openFulfillmentOrderId.isEmpty()) {
             log.warn("No OPEN fulfillment order for order {} (brand: {}), skipping fulfillment flow", orderId,
                     brandName);
@@ -112,32 +104,22 @@ public class ShopifyFulfillmentFlowService {
             log.error("Failed to update fulfillment tracking for order {}, stopping flow", orderId);
             return false;
         }
+        orderAppliedStateStore.recordApplied(brandName, orderId, orderGid, fulfillmentId, order.getAwb(),
+                "LABEL PRINTED");
 
         log.info("✅ Shopify fulfillment flow completed successfully for order: {}", orderId);
         return true;
     }
 
     private boolean processFulfillmentWhenFulfilled(String brandName, String orderId,
-            StatusUpdateWebhook.OrderStatus order, Map<String, Object> orderNode) {
-        Long numericOrderId = com.shipway.ordertracking.service.ShopifyService.parseNumericIdFromGid(
-                orderNode.get("id") != null ? orderNode.get("id").toString() : null, "gid://shopify/Order/");
+            StatusUpdateWebhook.OrderStatus order, ShopifyOrderContext orderContext) {
+        Long numericOrderId = orderContext.getNumericOrderId();
         if (numericOrderId == null) {
             log.warn("Could not parse numeric order ID for order {}", orderId);
             return false;
         }
 
-        Object fulfillmentsObj = orderNode.get("fulfillments");
-        Long fulfillmentId = null;
-        if (fulfillmentsObj instanceof List && !((List<?>) fulfillmentsObj).isEmpty()) {
-            Object first = ((List<?>) fulfillmentsObj).get(0);
-            if (first instanceof Map) {
-                Object idObj = ((Map<?, ?>) first).get("id");
-                if (idObj != null) {
-                    fulfillmentId = com.shipway.ordertracking.service.ShopifyService.parseNumericIdFromGid(
-                            idObj.toString(), "gid://shopify/Fulfillment/");
-                }
-            }
-        }
+        Long fulfillmentId = orderContext.getFirstFulfillmentId();
         if (fulfillmentId != null) {
             if (!shopifyService.updateFulfillmentTracking(brandName, numericOrderId, fulfillmentId, order.getAwb(),
                     "LABEL PRINTED")) {
@@ -145,6 +127,8 @@ public class ShopifyFulfillmentFlowService {
                         orderId);
                 return false;
             }
+            orderAppliedStateStore.recordApplied(brandName, orderId, orderContext.getOrderGid(), fulfillmentId,
+                    order.getAwb(), "LABEL PRINTED");
         }
 
         log.info("✅ Shopify fulfillment flow completed (already fulfilled) for order: {}", orderId);
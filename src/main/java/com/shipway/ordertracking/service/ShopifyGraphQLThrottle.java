@@ -0,0 +1,334 @@
+package com.shipway.ordertracking.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client-side model of Shopify's GraphQL leaky bucket, one per shop ({@code shopify.throttle.*}).
+ * <p>
+ * {@link ShopifyService#callGraphQL} {@link #acquire}s the estimated cost of the query before sending it and waits
+ * when the shop's bucket would go below zero, so bursts (bulk fulfillment, webhook spikes) queue up here instead of
+ * coming back THROTTLED. Each response's {@code extensions.cost} feeds back in: {@code throttleStatus} corrects the
+ * bucket (maximum, restore rate, and available when it is lower than our own estimate), and
+ * {@code requestedQueryCost} updates the cost estimate for the query type (the {@code context} string).
+ * A THROTTLED response is reported to the caller so it can retry; the retry waits for the bucket to refill.
+ * <p>
+ * Metrics: {@code shopify.graphql.cost.available} / {@code shopify.graphql.cost.maximum} per shop,
+ * {@code shopify.graphql.throttle.delayed / throttled / wait-ms}.
+ */
+@Component
+public class ShopifyGraphQLThrottle {
+
+    private static final Logger log = LoggerFactory.getLogger(ShopifyGraphQLThrottle.class);
+
+    /** Weight of the newest {@code requestedQueryCost} in a query type's cost estimate. */
+    private static final double COST_EWMA_ALPHA = 0.3;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${shopify.throttle.enabled:true}")
+    private boolean enabled;
+
+    /** Bucket size assumed until the shop's first response says otherwise (Shopify standard plan: 1000). */
+    @Value("${shopify.throttle.default-bucket-size:1000}")
+    private double defaultBucketSize;
+
+    /** Restore rate (points per second) assumed until the first response (standard plan: 50). */
+    @Value("${shopify.throttle.default-restore-rate:50}")
+    private double defaultRestoreRate;
+
+    /** Cost assumed for a query type not seen yet. */
+    @Value("${shopify.throttle.default-query-cost:50}")
+    private double defaultQueryCost;
+
+    /** Longest a call waits for its cost; after that it is sent anyway (and may come back THROTTLED). */
+    @Value("${shopify.throttle.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    /** Retries of a THROTTLED response, each after waiting for the bucket. */
+    @Value("${shopify.throttle.max-retries:3}")
+    private int maxRetries;
+
+    /**
+     * Cost reserved for one call. Hand it back through {@link #onResponse} or {@link #release}.
+     */
+    public record Permit(String shop, String queryType, double cost, long waitedMillis) {
+    }
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Double> costEstimates = new ConcurrentHashMap<>();
+
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong waitedMillis = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder("shopify.graphql.throttle.delayed", delayed, AtomicLong::get)
+                .description("GraphQL calls that waited for the shop's cost bucket")
+                .register(meterRegistry);
+        FunctionCounter.builder("shopify.graphql.throttle.throttled", throttled, AtomicLong::get)
+                .description("GraphQL responses with a THROTTLED error")
+                .register(meterRegistry);
+        FunctionCounter.builder("shopify.graphql.throttle.wait-ms", waitedMillis, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserve the estimated cost of a {@code queryType} call against {@code shop}, sleeping until the bucket has
+     * it (at most {@code max-wait-ms}).
+     *
+     * @return the permit, or {@code null} when throttling is disabled
+     */
+    public Permit acquire(String shop, String queryType) {
+        if (!enabled) {
+            return null;
+        }
+        String shopKey = shopKey(shop);
+        double cost = estimateCost(queryType);
+        long waitMs = bucket(shopKey).reserve(cost, System.nanoTime());
+        long waited = 0;
+        if (waitMs > 0) {
+            waited = Math.min(waitMs, Math.max(0, maxWaitMs));
+            delayed.incrementAndGet();
+            waitedMillis.addAndGet(waited);
+            if (waitMs > maxWaitMs) {
+                log.warn("⏳ Shopify {} ({}) needs {} ms for {} cost points, sending after {} ms", shopKey, queryType,
+                        waitMs, Math.round(cost), waited);
+            } else {
+                log.debug("⏳ Shopify {} ({}) waiting {} ms for {} cost points", shopKey, queryType, waited,
+                        Math.round(cost));
+            }
+            try {
+                Thread.sleep(waited);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new Permit(shopKey, queryType, cost, waited);
+    }
+
+    /**
+     * Apply a response's {@code extensions.cost} to the shop's bucket and the query type's estimate.
+     *
+     * @return {@code true} when the response is a THROTTLED error (the query did not run; retry it)
+     */
+    public boolean onResponse(Permit permit, Map<String, Object> body) {
+        if (permit == null) {
+            return false;
+        }
+        boolean wasThrottled = isThrottled(body);
+        Map<?, ?> cost = body != null && body.get("extensions") instanceof Map<?, ?> ext
+                && ext.get("cost") instanceof Map<?, ?> c ? c : null;
+        Double requested = cost != null ? number(cost.get("requestedQueryCost")) : null;
+        Double actual = cost != null ? number(cost.get("actualQueryCost")) : null;
+        Map<?, ?> status = cost != null && cost.get("throttleStatus") instanceof Map<?, ?> s ? s : null;
+
+        if (requested != null && permit.queryType() != null) {
+            costEstimates.merge(permit.queryType(), requested,
+                    (old, latest) -> old + COST_EWMA_ALPHA * (latest - old));
+        }
+        // A throttled query costs nothing; otherwise Shopify refunds requested - actual once it completes
+        double refund = wasThrottled ? permit.cost() : actual != null ? Math.max(0, permit.cost() - actual) : 0;
+        bucket(permit.shop()).complete(permit.cost(), refund,
+                status != null ? number(status.get("maximumAvailable")) : null,
+                status != null ? number(status.get("currentlyAvailable")) : null,
+                status != null ? number(status.get("restoreRate")) : null,
+                wasThrottled, System.nanoTime());
+
+        if (wasThrottled) {
+            throttled.incrementAndGet();
+            log.warn("🚦 Shopify {} ({}) THROTTLED: requested {}, available {}", permit.shop(), permit.queryType(),
+                    requested, status != null ? status.get("currentlyAvailable") : "?");
+        }
+        return wasThrottled;
+    }
+
+    /**
+     * Give back a permit whose call failed without a GraphQL response (transport error, non-2xx). The cost is not
+     * refunded since Shopify may have charged it.
+     */
+    public void release(Permit permit) {
+        if (permit != null) {
+            bucket(permit.shop()).complete(permit.cost(), 0, null, null, null, false, System.nanoTime());
+        }
+    }
+
+    public int getMaxRetries() {
+        return Math.max(0, maxRetries);
+    }
+
+    /** Current estimate of points available for {@code shop} (never below zero), or {@code null} if unseen. */
+    public Double getAvailable(String shop) {
+        Bucket bucket = buckets.get(shopKey(shop));
+        return bucket != null ? Math.max(0, bucket.available(System.nanoTime())) : null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("delayed", delayed.get());
+        stats.put("throttled", throttled.get());
+        stats.put("waitedMillis", waitedMillis.get());
+        Map<String, Object> shops = new LinkedHashMap<>();
+        long now = System.nanoTime();
+        buckets.forEach((shop, bucket) -> shops.put(shop, bucket.snapshot(now)));
+        stats.put("shops", shops);
+        stats.put("costEstimates", new LinkedHashMap<>(costEstimates));
+        return stats;
+    }
+
+    double estimateCost(String queryType) {
+        Double estimate = queryType != null ? costEstimates.get(queryType) : null;
+        return estimate != null ? estimate : defaultQueryCost;
+    }
+
+    /** True when {@code errors} contains an entry whose {@code extensions.code} is THROTTLED. */
+    static boolean isThrottled(Map<String, Object> body) {
+        if (body == null || !(body.get("errors") instanceof List<?> errors)) {
+            return false;
+        }
+        for (Object error : errors) {
+            if (error instanceof Map<?, ?> e && e.get("extensions") instanceof Map<?, ?> ext
+                    && "THROTTLED".equals(ext.get("code"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Bucket bucket(String shopKey) {
+        return buckets.computeIfAbsent(shopKey, key -> {
+            Bucket bucket = new Bucket(defaultBucketSize, defaultRestoreRate, System.nanoTime());
+            if (meterRegistry != null) {
+                Gauge.builder("shopify.graphql.cost.available", bucket,
+                        b -> Math.max(0, b.available(System.nanoTime())))
+                        .description("Estimated GraphQL cost points available")
+                        .tag("shop", key)
+                        .register(meterRegistry);
+                Gauge.builder("shopify.graphql.cost.maximum", bucket, Bucket::maximum)
+                        .tag("shop", key)
+                        .register(meterRegistry);
+            }
+            return bucket;
+        });
+    }
+
+    private static String shopKey(String shop) {
+        if (shop == null || shop.isBlank()) {
+            return "unknown";
+        }
+        return shop.trim().toLowerCase(Locale.ROOT).replace("https://", "").replace(".myshopify.com", "");
+    }
+
+    private static Double number(Object o) {
+        if (o instanceof Number n) {
+            return n.doubleValue();
+        }
+        if (o != null) {
+            try {
+                return Double.parseDouble(o.toString());
+            } catch (NumberFormatException ignored) {
+                // not a number
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One shop's bucket. {@code available} goes negative while calls are queued for it; {@code reserved} is the
+     * cost of calls that have a permit but no response yet. Guarded by {@code this}.
+     */
+    private static final class Bucket {
+
+        private double maximum;
+        private double restoreRate;
+        private double available;
+        private double reserved;
+        private long updatedNanos;
+
+        Bucket(double maximum, double restoreRate, long now) {
+            this.maximum = maximum;
+            this.restoreRate = restoreRate;
+            this.available = maximum;
+            this.updatedNanos = now;
+        }
+
+        /** Take {@code cost} and return how long (ms) the caller must wait before the bucket covers it. */
+        synchronized long reserve(double cost, long now) {
+            refill(now);
+            available -= cost;
+            reserved += cost;
+            if (available >= 0 || restoreRate <= 0) {
+                return 0;
+            }
+            return (long) Math.ceil(-available / restoreRate * 1000.0);
+        }
+
+        /**
+         * Settle a permit. Shopify's {@code currentlyAvailable} only ever lowers our estimate (minus the other
+         * reservations still outstanding): a stale or out-of-order response must not let a burst through.
+         */
+        synchronized void complete(double cost, double refund, Double serverMaximum, Double serverAvailable,
+                Double serverRestoreRate, boolean throttled, long now) {
+            refill(now);
+            reserved = Math.max(0, reserved - cost);
+            if (serverMaximum != null && serverMaximum > 0) {
+                maximum = serverMaximum;
+            }
+            if (serverRestoreRate != null && serverRestoreRate > 0) {
+                restoreRate = serverRestoreRate;
+            }
+            available = Math.min(maximum, available + refund);
+            if (serverAvailable != null) {
+                available = Math.min(available, serverAvailable - reserved);
+            } else if (throttled) {
+                available = Math.min(available, -reserved);
+            }
+        }
+
+        synchronized double available(long now) {
+            refill(now);
+            return available;
+        }
+
+        synchronized double maximum() {
+            return maximum;
+        }
+
+        synchronized Map<String, Object> snapshot(long now) {
+            refill(now);
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("available", Math.round(available));
+            s.put("maximum", Math.round(maximum));
+            s.put("restoreRate", restoreRate);
+            s.put("reserved", Math.round(reserved));
+            return s;
+        }
+
+        private void refill(long now) {
+            if (now > updatedNanos) {
+                available = Math.min(maximum, available + restoreRate * (now - updatedNanos) / 1_000_000_000.0);
+                updatedNanos = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.shipway.ordertracking.dto.ShopifyOrderCreatedWebhook;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Shopify orders/create webhook: single shape, bound directly from the request bytes.
+ */
+@Component
+public class ShopifyOrderCreatedWebhookAdapter implements WebhookSourceAdapter<ShopifyOrderCreatedWebhook> {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ObjectReader reader;
+
+    @PostConstruct
+    void init() {
+        reader = objectMapper.readerFor(ShopifyOrderCreatedWebhook.class);
+    }
+
+    @Override
+    public String source() {
+        return SHOPIFY_ORDER_CREATED;
+    }
+
+    @Override
+    public Class<ShopifyOrderCreatedWebhook> payloadType() {
+        return ShopifyOrderCreatedWebhook.class;
+    }
+
+    @Override
+    public ShopifyOrderCreatedWebhook parse(byte[] body) throws IOException {
+        return reader.readValue(body);
+    }
+}
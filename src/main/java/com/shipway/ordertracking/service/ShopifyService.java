@@ -3,9 +3,11 @@ package com.shipway.ordertracking.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shipway.ordertracking.config.ShopifyProperties;
 import com.shipway.ordertracking.config.ShopifyAccount;
+import com.shipway.ordertracking.dto.ShopifyOrderContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
@@ -13,15 +15,28 @@ import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Service
 public class ShopifyService {
 
     private static final Logger log = LoggerFactory.getLogger(ShopifyService.class);
 
+    /** {@link #getOrderContext}: everything the in-transit / OFD / delivered / fulfillment flows read, in one query. */
+    private static final String ORDER_CONTEXT_QUERY =
+            "query ($q: String!) { orders(first: 1, query: $q) { edges { node { "
+            + "id name displayFulfillmentStatus tags "
+            + "fulfillments { id status trackingInfo { number url company } } "
+            + "fulfillmentOrders(first: 10) { nodes { id status } } "
+            + "lineItems(first: 20) { edges { node { product { id handle featuredImage { url } } } } } "
+            + "} } } }";
+
     @Autowired
+    @Qualifier("shopifyRestTemplate")
     private RestTemplate restTemplate;
 
     @Autowired
@@ -30,6 +45,18 @@ public class ShopifyService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PayloadCaptureService payloadCaptureService;
+
+    @Autowired(required = false)
+    private ShopifyGraphQLThrottle graphQLThrottle;
+
+    @Autowired(required = false)
+    private UpstreamAsyncExecutor upstreamAsyncExecutor;
+
+    @Autowired(required = false)
+    private UpstreamResilience upstreamResilience;
+
     /** Log Shopify API response body as JSON */
     /** Log Shopify API response based on status */
     private void logShopifyResponse(String context, ResponseEntity<?> response) {
@@ -151,11 +178,8 @@ public class ShopifyService {
             HttpHeaders headers = createHeaders(account);
             HttpEntity<String> entity = new HttpEntity<>(headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    apiUrl,
-                    HttpMethod.GET,
-                    entity,
-                    Map.class);
+            ResponseEntity<Map> response = exchange(account, apiUrl, HttpMethod.GET, entity,
+                    UpstreamResilience.CallType.READ);
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -195,11 +219,8 @@ public class ShopifyService {
             HttpHeaders headers = createHeaders(account);
             HttpEntity<String> entity = new HttpEntity<>(headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    apiUrl,
-                    HttpMethod.GET,
-                    entity,
-                    Map.class);
+            ResponseEntity<Map> response = exchange(account, apiUrl, HttpMethod.GET, entity,
+                    UpstreamResilience.CallType.READ);
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -338,6 +359,15 @@ public class ShopifyService {
         return updateFulfillmentTracking(account, orderId, fulfillmentId, trackingNumber, status);
     }
 
+    /**
+     * {@link #updateFulfillmentTracking(String, Long, Long, String, String)} on the {@link UpstreamAsyncExecutor}.
+     */
+    public CompletableFuture<Boolean> updateFulfillmentTrackingAsync(String accountCode, Long orderId,
+            Long fulfillmentId, String trackingNumber, String status) {
+        return UpstreamAsyncExecutor.supplyOn(upstreamAsyncExecutor,
+                () -> updateFulfillmentTracking(accountCode, orderId, fulfillmentId, trackingNumber, status));
+    }
+
     /**
      * Get order details from Shopify using GraphQL API only.
      * Returns the order node (id, name, fulfillments, fulfillmentOrders, etc.) from
@@ -375,7 +405,8 @@ public class ShopifyService {
             String apiUrl = account.getApiUrl() + "/orders/" + orderId + ".json";
             HttpHeaders headers = createHeaders(account);
             HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<Map> response = restTemplate.exchange(apiUrl, HttpMethod.GET, entity, Map.class);
+            ResponseEntity<Map> response = exchange(account, apiUrl, HttpMethod.GET, entity,
+                    UpstreamResilience.CallType.READ);
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
                 return null;
             }
@@ -490,8 +521,8 @@ public class ShopifyService {
         try {
             String apiUrlGet = account.getApiUrl() + "/orders/" + shopifyOrderId + ".json";
             HttpHeaders headers = createHeaders(account);
-            ResponseEntity<Map> getResponse = restTemplate.exchange(apiUrlGet, HttpMethod.GET,
-                    new HttpEntity<>(headers), Map.class);
+            ResponseEntity<Map> getResponse = exchange(account, apiUrlGet, HttpMethod.GET,
+                    new HttpEntity<>(headers), UpstreamResilience.CallType.READ);
             String existingTags = "";
             if (getResponse.getStatusCode().is2xxSuccessful()) {
                 Map<String, Object> body = (Map<String, Object>) getResponse.getBody();
@@ -534,11 +565,8 @@ public class ShopifyService {
             log.info("Updating Shopify order tags for order {} (account: {}): {}",
                     orderNameForLog != null ? orderNameForLog : shopifyOrderId, accountCode, newTags);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    apiUrl,
-                    HttpMethod.PUT,
-                    entity,
-                    Map.class);
+            ResponseEntity<Map> response = exchange(account, apiUrl, HttpMethod.PUT, entity,
+                    UpstreamResilience.CallType.MUTATION);
 
             logShopifyResponse("Update Order Tags - Order: " + shopifyOrderId, response);
 
@@ -708,11 +736,8 @@ public class ShopifyService {
             HttpHeaders headers = createHeaders(account);
             HttpEntity<String> entity = new HttpEntity<>(headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    apiUrl,
-                    HttpMethod.GET,
-                    entity,
-                    Map.class);
+            ResponseEntity<Map> response = exchange(account, apiUrl, HttpMethod.GET, entity,
+                    UpstreamResilience.CallType.READ);
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -749,11 +774,8 @@ public class ShopifyService {
             HttpHeaders headers = createHeaders(account);
             HttpEntity<String> entity = new HttpEntity<>(headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    apiUrl,
-                    HttpMethod.GET,
-                    entity,
-                    Map.class);
+            ResponseEntity<Map> response = exchange(account, apiUrl, HttpMethod.GET, entity,
+                    UpstreamResilience.CallType.READ);
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -790,11 +812,8 @@ public class ShopifyService {
             HttpHeaders headers = createHeaders(account);
             HttpEntity<String> entity = new HttpEntity<>(headers);
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    apiUrl,
-                    HttpMethod.GET,
-                    entity,
-                    Map.class);
+            ResponseEntity<Map> response = exchange(account, apiUrl, HttpMethod.GET, entity,
+                    UpstreamResilience.CallType.READ);
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 Map<String, Object> body = (Map<String, Object>) response.getBody();
@@ -865,67 +884,118 @@ public class ShopifyService {
     }
 
     /**
-     * Call Shopify GraphQL API with context for logging
+     * Call Shopify GraphQL API with context for logging. Calls are paced per shop by {@link ShopifyGraphQLThrottle}
+     * ({@code context} is the query type whose cost it estimates); a THROTTLED response is retried after the
+     * bucket refills, up to {@code shopify.throttle.max-retries} times.
      */
     public Map<String, Object> callGraphQL(ShopifyAccount account, String query,
             Map<String, Object> variables, String context) {
-        try {
-            String graphQLUrl = account.getGraphQLUrl();
+        int attempt = 0;
+        while (true) {
+            ShopifyGraphQLThrottle.Permit permit = graphQLThrottle != null
+                    ? graphQLThrottle.acquire(account.getShop(), context)
+                    : null;
+            try {
+                String graphQLUrl = account.getGraphQLUrl();
 
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("query", query);
-            if (variables != null && !variables.isEmpty()) {
-                requestBody.put("variables", variables);
-            }
+                Map<String, Object> requestBody = new HashMap<>();
+                requestBody.put("query", query);
+                if (variables != null && !variables.isEmpty()) {
+                    requestBody.put("variables", variables);
+                }
 
-            HttpHeaders headers = createHeaders(account);
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+                HttpHeaders headers = createHeaders(account);
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+
+                log.debug("Calling Shopify GraphQL API: {}", graphQLUrl);
+
+                long startedAt = System.currentTimeMillis();
+                ResponseEntity<Map> response = exchange(account, graphQLUrl, HttpMethod.POST, entity,
+                        isGraphQLMutation(query) ? UpstreamResilience.CallType.MUTATION
+                                : UpstreamResilience.CallType.READ);
+                long tookMs = System.currentTimeMillis() - startedAt;
+
+                if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                    Map<String, Object> body = response.getBody();
+                    boolean hasErrors = body.containsKey("errors");
+                    log.info("📥 Shopify GraphQL ({}) shop {}: HTTP {} in {} ms{}", context, account.getShop(),
+                            response.getStatusCode().value(), tookMs, hasErrors ? " (with errors)" : "");
+                    captureGraphQL(context, variables, requestBody, response.getStatusCode().value(), body, null,
+                            hasErrors);
+                    boolean throttled = graphQLThrottle != null && graphQLThrottle.onResponse(permit, body);
+                    if (throttled && attempt < graphQLThrottle.getMaxRetries()) {
+                        attempt++;
+                        log.warn("🔁 Shopify GraphQL ({}) throttled, retry {}/{}", context, attempt,
+                                graphQLThrottle.getMaxRetries());
+                        continue;
+                    }
+                    if (hasErrors) {
+                        log.warn("GraphQL API returned errors (may still have data): {}", body.get("errors"));
+                        // Return body anyway so caller can parse "data" when present (partial success)
+                    }
+                    return body;
+                } else {
+                    log.error("GraphQL API ({}) returned non-2xx status: {}", context, response.getStatusCode());
+                    captureGraphQL(context, variables, requestBody, response.getStatusCode().value(),
+                            response.getBody(), null, true);
+                    releaseThrottlePermit(permit);
+                    return null;
+                }
 
-            // Log JSON request body
-            try {
-                String jsonRequest = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(requestBody);
-                log.info("📤 Shopify GraphQL API Request JSON ({}):\n{}", context, jsonRequest);
             } catch (Exception e) {
-                log.warn("Failed to serialize GraphQL request to JSON: {}", e.getMessage());
+                log.error("Error calling Shopify GraphQL API ({}): {}", context, e.getMessage(), e);
+                captureGraphQL(context, variables, null, null, null, e.getMessage(), true);
+                releaseThrottlePermit(permit);
+                return null;
             }
+        }
+    }
 
-            log.debug("Calling Shopify GraphQL API: {}", graphQLUrl);
-
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    graphQLUrl,
-                    HttpMethod.POST,
-                    entity,
-                    Map.class);
-
-            logShopifyResponse(context, response);
+    /**
+     * {@code restTemplate.exchange} through {@link UpstreamResilience} (retry + the shop's circuit breaker).
+     */
+    private ResponseEntity<Map> exchange(ShopifyAccount account, String url, HttpMethod method, HttpEntity<?> entity,
+            UpstreamResilience.CallType callType) {
+        if (upstreamResilience == null) {
+            return restTemplate.exchange(url, method, entity, Map.class);
+        }
+        return upstreamResilience.call(UpstreamResilience.Upstream.SHOPIFY, account.getShop(), callType,
+                () -> restTemplate.exchange(url, method, entity, Map.class));
+    }
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                try {
-                    String jsonResponse = objectMapper.writerWithDefaultPrettyPrinter()
-                            .writeValueAsString(response.getBody());
-                    log.info("📥 Shopify GraphQL API Response JSON ({}):\n{}", context, jsonResponse);
-                } catch (Exception e) {
-                    log.warn("Failed to serialize GraphQL response to JSON: {}", e.getMessage());
-                }
-            }
+    private static boolean isGraphQLMutation(String query) {
+        return query != null && query.stripLeading().startsWith("mutation");
+    }
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                Map<String, Object> body = response.getBody();
-                if (body.containsKey("errors")) {
-                    log.warn("GraphQL API returned errors (may still have data): {}", body.get("errors"));
-                    // Return body anyway so caller can parse "data" when present (partial success)
-                }
-                return body;
-            } else {
-                log.error("GraphQL API returned non-2xx status: {}", response.getStatusCode());
-                return null;
-            }
+    private void releaseThrottlePermit(ShopifyGraphQLThrottle.Permit permit) {
+        if (graphQLThrottle != null) {
+            graphQLThrottle.release(permit);
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error calling Shopify GraphQL API ({}): {}", context, e.getMessage(), e);
-            return null;
+    /**
+     * GraphQL request/response to the payload capture buffer (sampled; failures always kept).
+     * The order id is taken from a {@code name:} search variable when present; otherwise captures are found by
+     * searching the payload.
+     */
+    private void captureGraphQL(String context, Map<String, Object> variables, Map<String, Object> requestBody,
+            Integer httpStatus, Object response, String error, boolean failed) {
+        if (payloadCaptureService == null
+                || !payloadCaptureService.shouldCapture(PayloadCaptureService.Channel.SHOPIFY, failed)) {
+            return;
         }
+        String orderId = null;
+        Object q = variables != null ? variables.get("q") : null;
+        if (q instanceof String search && search.startsWith("name:")) {
+            orderId = search.substring("name:".length());
+        }
+        Map<String, Object> exchange = new HashMap<>();
+        exchange.put("request", requestBody != null ? requestBody : variables);
+        exchange.put("httpStatus", httpStatus);
+        exchange.put("response", response);
+        exchange.put("error", error);
+        payloadCaptureService.store(PayloadCaptureService.Channel.SHOPIFY, context, orderId, exchange, failed);
     }
 
     /**
@@ -977,6 +1047,51 @@ public class ShopifyService {
         return null;
     }
 
+    /**
+     * One round-trip "order context" for the status flows: display status, tags, fulfillments with tracking,
+     * fulfillment orders (id, status) and line-item products (handle, featured image). Replaces
+     * {@link #getOrderWithDisplayFulfillmentStatus} + {@link #getFulfillmentOrdersForOrder} +
+     * {@link #getOrderProductDetails} for one event.
+     *
+     * @param accountCode Account code
+     * @param orderId     Order name/number (e.g. "254120" or "#254120")
+     * @return typed order context, or null if not found
+     */
+    public ShopifyOrderContext getOrderContext(String accountCode, String orderId) {
+        if (accountCode == null || accountCode.isEmpty() || orderId == null || orderId.isEmpty()) {
+            log.warn("Cannot get order context via GraphQL: account code or order ID is empty");
+            return null;
+        }
+
+        ShopifyAccount account = shopifyProperties.getAccountByCode(accountCode);
+        if (account == null) {
+            log.warn("Shopify account configuration not found for account code: {}", accountCode);
+            return null;
+        }
+
+        String[] queryValues = orderId.startsWith("#")
+                ? new String[] { "name:" + orderId, "name:" + orderId.substring(1) }
+                : new String[] { "name:#" + orderId, "name:" + orderId };
+
+        for (String q : queryValues) {
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("q", q);
+
+            Map<String, Object> response = callGraphQL(account, ORDER_CONTEXT_QUERY, variables, "Get Order Context");
+            if (response == null)
+                continue;
+
+            Map<String, Object> node = parseGraphQLOrderNode(response, orderId, accountCode, q);
+            if (node != null) {
+                log.debug("Order context retrieved for {} (account: {})", orderId, accountCode);
+                return ShopifyOrderContext.fromOrderNode(node);
+            }
+        }
+
+        log.warn("No orders found for order ID: {} (account: {})", orderId, accountCode);
+        return null;
+    }
+
     /**
      * Get fulfillment orders for an order by order GID (for in-transit flow when
      * displayFulfillmentStatus is not FULFILLED).
@@ -1636,6 +1751,13 @@ public class ShopifyService {
         return details;
     }
 
+    /**
+     * {@link #getOrderProductDetails} on the {@link UpstreamAsyncExecutor}.
+     */
+    public CompletableFuture<List<ProductDetails>> getOrderProductDetailsAsync(String accountCode, String orderId) {
+        return UpstreamAsyncExecutor.supplyOn(upstreamAsyncExecutor, () -> getOrderProductDetails(accountCode, orderId));
+    }
+
     /**
      * Paginated {@code orders} search (e.g. {@code fulfillment_status:unfulfilled}), sorted by
      * {@code CREATED_AT} descending. Returns a map from
@@ -1649,15 +1771,28 @@ public class ShopifyService {
     public Map<String, Map<String, Object>> loadOrderNodesBySearchQueryPaged(String accountCode,
             String ordersSearchQuery, int maxTotalOrders) {
         Map<String, Map<String, Object>> byKey = new HashMap<>();
+        forEachOrderNodePage(accountCode, ordersSearchQuery, maxTotalOrders, byKey::putAll);
+        return byKey;
+    }
+
+    /**
+     * Same search as {@link #loadOrderNodesBySearchQueryPaged}, handing each page (up to 250 nodes, keyed the same
+     * way) to {@code pageSink} as soon as it arrives instead of collecting all pages.
+     *
+     * @return nodes loaded across all pages, or {@code -1} when a page request failed (earlier pages were still
+     *         handed to {@code pageSink})
+     */
+    public int forEachOrderNodePage(String accountCode, String ordersSearchQuery, int maxTotalOrders,
+            Consumer<Map<String, Map<String, Object>>> pageSink) {
         if (accountCode == null || accountCode.isBlank() || ordersSearchQuery == null
                 || ordersSearchQuery.isBlank() || maxTotalOrders <= 0) {
-            return byKey;
+            return 0;
         }
 
         ShopifyAccount account = shopifyProperties.getAccountByCode(accountCode);
         if (account == null) {
             log.warn("Shopify account not found for bulk orders query: {}", accountCode);
-            return byKey;
+            return 0;
         }
 
         String graphQLQuery = """
@@ -1681,6 +1816,8 @@ public class ShopifyService {
 
         String cursor = null;
         int loaded = 0;
+        int distinct = 0;
+        boolean failed = false;
         int cap = Math.min(maxTotalOrders, 50_000);
 
         while (loaded < cap) {
@@ -1695,22 +1832,28 @@ public class ShopifyService {
             Map<String, Object> response = callGraphQL(account, graphQLQuery, variables, "Orders bulk by search query");
             if (response == null) {
                 log.warn("Bulk orders GraphQL returned null (account: {})", accountCode);
+                failed = true;
                 break;
             }
 
             List<Map<String, Object>> nodes = parseOrderNodesFromOrdersConnection(response);
+            Map<String, Map<String, Object>> page = new LinkedHashMap<>();
             for (Map<String, Object> node : nodes) {
                 Object nameObj = node.get("name");
                 String name = nameObj != null ? nameObj.toString() : "";
                 String key = normalizeShopifyOrderNameKey(name);
                 if (!key.isEmpty()) {
-                    byKey.put(key, node);
+                    page.put(key, node);
                 }
                 loaded++;
                 if (loaded >= cap) {
                     break;
                 }
             }
+            if (!page.isEmpty()) {
+                distinct += page.size();
+                pageSink.accept(page);
+            }
 
             Map<String, Object> pageInfo = parseOrdersPageInfo(response);
             boolean hasNext = Boolean.TRUE.equals(pageInfo.get("hasNextPage"));
@@ -1724,9 +1867,9 @@ public class ShopifyService {
             }
         }
 
-        log.info("Bulk orders query loaded {} node(s), {} distinct name key(s) for account {}",
-                loaded, byKey.size(), accountCode);
-        return byKey;
+        log.info("Bulk orders query loaded {} node(s), {} name key(s) for account {}", loaded, distinct,
+                accountCode);
+        return failed ? -1 : loaded;
     }
 
     /**
@@ -0,0 +1,234 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Optional coalescing stage for status webhooks ({@code webhook.coalescing.enabled}).
+ * <p>
+ * Events for one order are held for {@code webhook.coalescing.window-ms} after the first one arrives; then only the
+ * furthest actionable event (one that routes to a flow, see {@link WebhookProcessingService#routeFor}) is processed,
+ * by shipment progression Shipped &lt; In Transit &lt; Out for Delivery &lt; Delivered rather than arrival order, so a
+ * late or retried In Transit cannot replace a Delivered. Carrier bursts like Picked Up → In Transit → Out for Delivery
+ * then cost one Shopify update and one Botspace send. Non-actionable events (RTO / unknown) never replace an
+ * actionable one, so a needed flow is not dropped.
+ * <p>
+ * A Shipped / Booked event is never merged into a later status: its flow creates the fulfillment and sends the
+ * shipped message, which the later flows do not repeat. It is dispatched first, then the winner.
+ * Superseded events complete with {@code coalesced=true}; the count is published as {@code webhook.coalescing.merged}.
+ */
+@Component
+public class StatusTransitionCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusTransitionCoalescer.class);
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${webhook.coalescing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${webhook.coalescing.window-ms:2000}")
+    private long windowMs;
+
+    private ScheduledExecutorService scheduler;
+
+    private record Held(StatusUpdateWebhook.OrderStatus order, CompletableFuture<Map<String, Object>> result) {
+    }
+
+    private record Group(List<Held> events, Function<StatusUpdateWebhook.OrderStatus,
+            CompletableFuture<Map<String, Object>>> dispatcher) {
+    }
+
+    /** Order key → events waiting for the window to close. Guarded by {@code this}. */
+    private final Map<String, Group> pending = new HashMap<>();
+
+    private final AtomicLong mergedCount = new AtomicLong();
+    private final AtomicLong dispatchedCount = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "status-coalesce");
+            t.setDaemon(true);
+            return t;
+        });
+        if (meterRegistry != null) {
+            FunctionCounter.builder("webhook.coalescing.merged", mergedCount, AtomicLong::get)
+                    .description("Status events superseded by a later status for the same order")
+                    .register(meterRegistry);
+        }
+        log.info("Status webhook coalescing enabled (window: {} ms)", windowMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hold {@code order} under {@code key}; when the window closes the surviving event is passed to
+     * {@code dispatcher}. The returned future completes with that event's result, or a coalesced marker.
+     */
+    public CompletableFuture<Map<String, Object>> offer(String key, StatusUpdateWebhook.OrderStatus order,
+            Function<StatusUpdateWebhook.OrderStatus, CompletableFuture<Map<String, Object>>> dispatcher) {
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        boolean first;
+        synchronized (this) {
+            Group group = pending.get(key);
+            first = group == null;
+            if (first) {
+                group = new Group(new ArrayList<>(), dispatcher);
+                pending.put(key, group);
+            }
+            group.events().add(new Held(order, result));
+        }
+        if (first) {
+            scheduler.schedule(() -> flush(key), windowMs, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    /**
+     * Close the window for {@code key}: dispatch the furthest actionable event (and the latest Shipped event, if
+     * that is not it) and complete the rest as merged.
+     */
+    void flush(String key) {
+        Group group;
+        synchronized (this) {
+            group = pending.remove(key);
+        }
+        if (group == null || group.events().isEmpty()) {
+            return;
+        }
+        List<Held> events = group.events();
+        Held winner = events.get(events.size() - 1);
+        Held shipped = null;
+        int winnerRank = 0;
+        for (Held held : events) {
+            WebhookProcessingService.StatusRoute route = routeOf(held);
+            int rank = progression(route);
+            // Ties go to the later arrival
+            if (rank > 0 && rank >= winnerRank) {
+                winner = held;
+                winnerRank = rank;
+            }
+            if (route == WebhookProcessingService.StatusRoute.SHOPIFY_FULFILLMENT) {
+                shipped = held;
+            }
+        }
+        if (shipped == winner) {
+            shipped = null;
+        }
+
+        String winnerStatus = winner.order().getCurrentShipmentStatus();
+        for (Held held : events) {
+            if (held == winner || held == shipped) {
+                continue;
+            }
+            mergedCount.incrementAndGet();
+            Map<String, Object> merged = new LinkedHashMap<>();
+            merged.put("success", true);
+            merged.put("message", "Coalesced into later status " + winnerStatus);
+            merged.put("orderId", held.order().getOrderId());
+            merged.put("coalesced", true);
+            held.result().complete(merged);
+        }
+        int merged = events.size() - (shipped != null ? 2 : 1);
+        if (merged > 0) {
+            log.info("🔀 Coalesced {} status event(s) for order {} into {}", merged, winner.order().getOrderId(),
+                    winnerStatus);
+        }
+
+        // The dispatcher queues per order, so the Shipped flow runs before the winner
+        if (shipped != null) {
+            dispatch(group, shipped);
+        }
+        dispatch(group, winner);
+    }
+
+    private void dispatch(Group group, Held survivor) {
+        dispatchedCount.incrementAndGet();
+        try {
+            group.dispatcher().apply(survivor.order()).whenComplete((r, e) -> {
+                if (e != null) {
+                    survivor.result().completeExceptionally(e);
+                } else {
+                    survivor.result().complete(r);
+                }
+            });
+        } catch (Exception e) {
+            survivor.result().completeExceptionally(e);
+        }
+    }
+
+    private static WebhookProcessingService.StatusRoute routeOf(Held held) {
+        return WebhookProcessingService.routeFor(held.order().getCurrentShipmentStatus());
+    }
+
+    /** Position in the shipment lifecycle; {@code 0} for events that run no flow. */
+    private static int progression(WebhookProcessingService.StatusRoute route) {
+        switch (route) {
+            case SHOPIFY_FULFILLMENT:
+                return 1;
+            case IN_TRANSIT:
+                return 2;
+            case OUT_FOR_DELIVERY:
+                return 3;
+            case DELIVERED:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("windowMs", windowMs);
+        stats.put("merged", mergedCount.get());
+        stats.put("dispatched", dispatchedCount.get());
+        synchronized (this) {
+            stats.put("ordersHeld", pending.size());
+        }
+        return stats;
+    }
+
+    /**
+     * Dispatch whatever is still held instead of waiting for the window.
+     */
+    @PreDestroy
+    void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        List<String> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(pending.keySet());
+        }
+        keys.forEach(this::flush);
+    }
+}
@@ -0,0 +1,199 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import com.shipway.ordertracking.util.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Processes the orders of a status webhook batch in parallel (bounded by {@code webhook.fanout.parallelism}) while
+ * keeping events for the same order ({@code orderId} + brand) in arrival order, so e.g. "In Transit" can never
+ * overtake "Out for Delivery" for one order.
+ * <p>
+ * With {@code spring.threads.virtual.enabled=true} on JDK 21+ each order runs on its own virtual thread instead, so
+ * a waiting order costs no platform thread; {@code webhook.fanout.parallelism} still caps how many run (and call
+ * Shopify / Botspace) at once, through a semaphore. Per-order ordering is unchanged.
+ */
+@Service
+public class StatusWebhookFanOutService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusWebhookFanOutService.class);
+
+    @Autowired
+    private WebhookProcessingService webhookProcessingService;
+
+    @Autowired
+    private StatusTransitionCoalescer statusTransitionCoalescer;
+
+    @Value("${webhook.fanout.parallelism:4}")
+    private int parallelism;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+    private KeyedSerialExecutor keyedExecutor;
+
+    /**
+     * Outcome of a batch: orders that completed / threw, how many were merged into a later status by the coalescing
+     * stage, plus the last result (returned as-is for single orders).
+     */
+    public record BatchResult(int successCount, int failCount, int coalescedCount, Map<String, Object> lastResult) {
+    }
+
+    @PostConstruct
+    void init() {
+        if (virtualThreads && VirtualThreads.isSupported()) {
+            executor = VirtualThreads.newThreadPerTaskExecutor("webhook-fanout-v");
+            // Virtual threads park on the semaphore, so a burst cannot put more than parallelism calls upstream
+            Semaphore permits = new Semaphore(Math.max(1, parallelism));
+            keyedExecutor = new KeyedSerialExecutor(task -> executor.execute(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            }));
+            log.info("Status webhook fan-out on virtual threads (at most {} at once)", Math.max(1, parallelism));
+            return;
+        }
+        if (virtualThreads) {
+            log.warn("spring.threads.virtual.enabled=true but JDK {} has no virtual threads; using {} platform threads",
+                    System.getProperty("java.version"), Math.max(1, parallelism));
+        }
+        int poolSize = Math.max(1, parallelism);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "webhook-fanout-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        keyedExecutor = new KeyedSerialExecutor(executor);
+    }
+
+    /**
+     * Queue one order behind any earlier event for the same order (after the coalescing window, when enabled).
+     */
+    public CompletableFuture<Map<String, Object>> submit(StatusUpdateWebhook.OrderStatus order) {
+        String key = orderKey(order);
+        if (statusTransitionCoalescer.isEnabled()) {
+            return statusTransitionCoalescer.offer(key, order, survivor -> dispatch(key, survivor));
+        }
+        return dispatch(key, order);
+    }
+
+    private CompletableFuture<Map<String, Object>> dispatch(String key, StatusUpdateWebhook.OrderStatus order) {
+        return keyedExecutor.submit(key, () -> webhookProcessingService.processStatusUpdate(order));
+    }
+
+    /**
+     * Fan out a batch and wait for every order. Exceptions count as failures, as in the old sequential loop.
+     */
+    public BatchResult processBatch(List<StatusUpdateWebhook.OrderStatus> orders) {
+        Batch batch = newBatch();
+        orders.forEach(batch);
+        return batch.await();
+    }
+
+    /** Empty batch; orders are added one at a time while the webhook body is still being parsed. */
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Orders submitted as they arrive ({@link #accept}); {@link #await} collects the outcome like
+     * {@link #processBatch}. Not thread-safe: one request thread adds orders and then awaits.
+     */
+    public final class Batch implements Consumer<StatusUpdateWebhook.OrderStatus> {
+
+        private final List<StatusUpdateWebhook.OrderStatus> orders = new ArrayList<>();
+        private final List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+
+        private Batch() {
+        }
+
+        @Override
+        public void accept(StatusUpdateWebhook.OrderStatus order) {
+            orders.add(order);
+            futures.add(submit(order));
+        }
+
+        public int size() {
+            return orders.size();
+        }
+
+        /**
+         * Wait for every submitted order. Exceptions count as failures.
+         */
+        public BatchResult await() {
+            int successCount = 0;
+            int failCount = 0;
+            int coalescedCount = 0;
+            Map<String, Object> lastResult = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    lastResult = futures.get(i).get();
+                    successCount++;
+                    if (lastResult != null && Boolean.TRUE.equals(lastResult.get("coalesced"))) {
+                        coalescedCount++;
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.error("Error processing webhook for order {}: {}", orders.get(i).getOrderId(),
+                            cause.getMessage(), cause);
+                    failCount++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Interrupted while waiting for webhook batch ({} of {} done)", i, futures.size());
+                    failCount += futures.size() - i;
+                    break;
+                }
+            }
+            return new BatchResult(successCount, failCount, coalescedCount, lastResult);
+        }
+    }
+
+    /**
+     * Ordering key: order id + resolved brand, case-insensitive.
+     */
+    static String orderKey(StatusUpdateWebhook.OrderStatus order) {
+        String orderId = order.getOrderId() != null ? order.getOrderId().trim() : "";
+        String brand = order.resolveBrandName();
+        return orderId.toLowerCase(Locale.ROOT) + "|" + (brand != null ? brand.toLowerCase(Locale.ROOT) : "");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import com.shipway.ordertracking.util.ShipmentStatusClassifier;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, time-expiring memory of status webhooks that were already processed, so Claimio retries of the exact
+ * same event are answered without routing, {@code customer_message_tracking} lookups or Shopify calls.
+ * <p>
+ * Key: order id + brand + normalized status + AWB + the order's own event timestamp. The batch envelope
+ * {@code timestamp} is not part of it, since Claimio re-stamps it when redelivering a batch. Only successfully
+ * processed events are remembered, so a retry after a failure is processed again. Counters: {@code webhook.idempotency.*} metrics.
+ */
+@Component
+public class StatusWebhookIdempotencyCache {
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${webhook.idempotency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${webhook.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${webhook.idempotency.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    private record Entry(long expiresAtMillis, Map<String, Object> result) {
+    }
+
+    /** Insertion-ordered, so the eldest entry is evicted first when full. Guarded by {@code this}. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder("webhook.idempotency.hits", hits, AtomicLong::get)
+                .description("Status webhooks answered from the idempotency cache").register(meterRegistry);
+        FunctionCounter.builder("webhook.idempotency.misses", misses, AtomicLong::get)
+                .description("Status webhooks not found in the idempotency cache").register(meterRegistry);
+        FunctionCounter.builder("webhook.idempotency.evictions", evictions, AtomicLong::get)
+                .description("Idempotency entries dropped by size limit or TTL").register(meterRegistry);
+        Gauge.builder("webhook.idempotency.size", this, StatusWebhookIdempotencyCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Result of an earlier identical event (a copy flagged {@code duplicate=true}), or {@code null} on a miss.
+     */
+    public Map<String, Object> lookup(StatusUpdateWebhook.OrderStatus order) {
+        if (!enabled || order == null) {
+            return null;
+        }
+        String key = key(order);
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAtMillis() <= now) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        Map<String, Object> result = new HashMap<>(entry.result());
+        result.put("duplicate", true);
+        return result;
+    }
+
+    /**
+     * Remember a successfully processed event.
+     */
+    public void record(StatusUpdateWebhook.OrderStatus order, Map<String, Object> result) {
+        if (!enabled || order == null) {
+            return;
+        }
+        String key = key(order);
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(now + ttlSeconds * 1000L, Map.copyOf(withoutNulls(result)));
+        synchronized (this) {
+            entries.remove(key);
+            entries.put(key, entry);
+            if (entries.size() > Math.max(1, maxEntries)) {
+                purgeExpired(now);
+            }
+            Iterator<String> eldest = entries.keySet().iterator();
+            while (entries.size() > Math.max(1, maxEntries) && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    /**
+     * Idempotency key: order id, brand, normalized status, AWB, per-order event timestamp (if sent).
+     */
+    static String key(StatusUpdateWebhook.OrderStatus order) {
+        String brand = order.resolveBrandName();
+        return trim(order.getOrderId()) + "|"
+                + (brand != null ? brand.toLowerCase(Locale.ROOT) : "") + "|"
+                + ShipmentStatusClassifier.normalize(order.getCurrentShipmentStatus()) + "|"
+                + trim(order.getAwb()) + "|"
+                + trim(order.getTimestamp());
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAtMillis() <= now) {
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static Map<String, Object> withoutNulls(Map<String, Object> result) {
+        Map<String, Object> copy = new HashMap<>();
+        if (result != null) {
+            result.forEach((k, v) -> {
+                if (k != null && v != null) {
+                    copy.put(k, v);
+                }
+            });
+        }
+        return copy;
+    }
+
+    private static String trim(String s) {
+        return s != null ? s.trim() : "";
+    }
+}
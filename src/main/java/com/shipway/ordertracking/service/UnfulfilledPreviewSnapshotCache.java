@@ -0,0 +1,171 @@
+package com.shipway.ordertracking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unfulfilled Shopify order nodes per shop and preview cap, kept between preview loads
+ * ({@code shopify.preview.snapshot.*}) so {@link UnfulfilledShopifyPreviewService} only fetches the orders updated
+ * since the previous load. A snapshot older than {@code max-age-ms} is loaded in full again; orders fulfilled through
+ * {@link OrderTrackingBulkFulfillmentService} are dropped right away ({@link #evictOrder}).
+ */
+@Component
+public class UnfulfilledPreviewSnapshotCache {
+
+    private static final Logger log = LoggerFactory.getLogger(UnfulfilledPreviewSnapshotCache.class);
+
+    @Value("${shopify.preview.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${shopify.preview.snapshot.max-age-ms:1800000}")
+    private long maxAgeMs;
+
+    @Value("${shopify.preview.snapshot.max-entries:32}")
+    private int maxEntries;
+
+    /** Access-ordered, so the least recently used snapshot is dropped first when full. Guarded by {@code this}. */
+    private final LinkedHashMap<String, Snapshot> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Snapshot for {@code shopifyKey} / {@code cap}; empty (needs a full load) on first use. */
+    Snapshot get(String shopifyKey, int cap) {
+        String shop = shopKey(shopifyKey);
+        synchronized (this) {
+            Snapshot snapshot = entries.computeIfAbsent(shop + "|" + cap, k -> new Snapshot(shop, cap));
+            Iterator<Snapshot> eldest = entries.values().iterator();
+            while (entries.size() > Math.max(1, maxEntries) && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+            return snapshot;
+        }
+    }
+
+    /** Never loaded, or loaded in full more than {@code max-age-ms} ago. */
+    boolean needsFullLoad(Snapshot snapshot) {
+        return snapshot.loadedAt() == null
+                || System.currentTimeMillis() - snapshot.loadedAt().toEpochMilli() >= maxAgeMs;
+    }
+
+    /**
+     * Drop a fulfilled order from every snapshot of its shop, so the next preview does not show it even before
+     * Shopify's {@code updated_at} catches up.
+     *
+     * @param shopifyKey {@code shopify.accounts} key the order was fulfilled on
+     */
+    public void evictOrder(String shopifyKey, String orderId) {
+        if (!enabled || shopifyKey == null || shopifyKey.isBlank() || orderId == null) {
+            return;
+        }
+        String shop = shopKey(shopifyKey);
+        String key = ShopifyService.normalizeShopifyOrderNameKey(orderId);
+        List<Snapshot> matching;
+        synchronized (this) {
+            matching = entries.values().stream().filter(s -> s.shop.equals(shop)).toList();
+        }
+        for (Snapshot snapshot : matching) {
+            if (snapshot.remove(key)) {
+                log.debug("Preview snapshot {}|{}: dropped fulfilled order {}", shop, snapshot.cap, key);
+            }
+        }
+    }
+
+    private static String shopKey(String shopifyKey) {
+        return StoreShopifyBrandAccountService.normalizeBrandKey(shopifyKey.trim());
+    }
+
+    /**
+     * Normalized order name key → order node, newest {@code createdAt} first, at most {@code cap} nodes (the same
+     * orders a full paged load would return). {@link #refreshLock} serializes loads of one snapshot.
+     */
+    static final class Snapshot {
+
+        private static final Comparator<Map<String, Object>> NEWEST_FIRST = Comparator.comparing(
+                (Map<String, Object> node) -> node.get("createdAt") != null ? node.get("createdAt").toString() : "")
+                .reversed();
+
+        final String shop;
+        final int cap;
+        final Object refreshLock = new Object();
+        private Map<String, Map<String, Object>> nodes = new LinkedHashMap<>();
+        private Instant loadedAt;
+        private Instant watermark;
+
+        Snapshot(String shop, int cap) {
+            this.shop = shop;
+            this.cap = cap;
+        }
+
+        synchronized Instant loadedAt() {
+            return loadedAt;
+        }
+
+        /** Start of the last successful load; orders updated after it are not reflected yet. */
+        synchronized Instant watermark() {
+            return watermark;
+        }
+
+        synchronized Map<String, Map<String, Object>> nodes() {
+            return new LinkedHashMap<>(nodes);
+        }
+
+        synchronized int size() {
+            return nodes.size();
+        }
+
+        /** Full load started at {@code startedAt}. */
+        synchronized void replace(Map<String, Map<String, Object>> loaded, Instant startedAt) {
+            nodes = sorted(loaded);
+            loadedAt = startedAt;
+            watermark = startedAt;
+        }
+
+        /**
+         * Delta load started at {@code startedAt}: {@code open} are updated orders still matching the preview query,
+         * {@code changed} the keys of every updated order; changed keys not in {@code open} are gone (fulfilled,
+         * cancelled, …).
+         */
+        synchronized void merge(Map<String, Map<String, Object>> open, Set<String> changed, Instant startedAt) {
+            Map<String, Map<String, Object>> merged = new LinkedHashMap<>(nodes);
+            for (String key : changed) {
+                if (!open.containsKey(key)) {
+                    merged.remove(key);
+                }
+            }
+            merged.putAll(open);
+            nodes = sorted(merged);
+            watermark = startedAt;
+        }
+
+        synchronized boolean remove(String key) {
+            return nodes.remove(key) != null;
+        }
+
+        private Map<String, Map<String, Object>> sorted(Map<String, Map<String, Object>> in) {
+            List<Map.Entry<String, Map<String, Object>>> list = new ArrayList<>(in.entrySet());
+            list.sort(Map.Entry.comparingByValue(NEWEST_FIRST));
+            Map<String, Map<String, Object>> out = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, Object>> e : list) {
+                if (out.size() >= cap) {
+                    break;
+                }
+                out.put(e.getKey(), e.getValue());
+            }
+            return out;
+        }
+    }
+}
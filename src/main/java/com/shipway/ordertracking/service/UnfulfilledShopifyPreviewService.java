@@ -7,25 +7,46 @@ import com.shipway.ordertracking.entity.OrderTracking;
 import com.shipway.ordertracking.entity.StoreShopifyConnection;
 import com.shipway.ordertracking.repository.OrderTrackingRepository;
 import com.shipway.ordertracking.repository.StoreShopifyConnectionRepository;
+import com.shipway.ordertracking.util.ShipmentStatusClassifier;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Shopify-first preview: load unfulfilled orders from Shopify, then attach {@code order_tracking}
  * when {@code shipment_status} matches the configured carrier allowlist.
+ * <p>
+ * {@link #buildPreview} keeps each shop's Shopify orders in {@link UnfulfilledPreviewSnapshotCache} and on the next
+ * call only asks Shopify for orders updated since then; {@code order_tracking} is matched fresh every time.
+ * <p>
+ * Shops are previewed on up to {@code shopify.preview.parallel-shops} threads; each Shopify page (or 500-order chunk
+ * of a snapshot) is matched against {@code order_tracking} on the {@code lookup-threads} pool while the next page
+ * loads.
  */
 @Service
 public class UnfulfilledShopifyPreviewService {
@@ -35,78 +56,14 @@ public class UnfulfilledShopifyPreviewService {
     private static final int ORDER_ID_IN_CHUNK = 500;
 
     /**
-     * Normalized ({@code trim}, {@code UPPER}, {@code _} → space, collapse spaces) carrier
-     * {@code shipment_status} values that qualify for the preview API.
+     * Normalized ({@link ShipmentStatusClassifier#normalize}) carrier {@code shipment_status} values that qualify for
+     * the preview API: {@link ShipmentStatusClassifier#KNOWN_CARRIER_STATUSES}.
      */
     private static final Set<String> ALLOWED_SHIPMENT_STATUSES;
 
     static {
-        String[] raw = new String[] {
-                "0",
-                "Address Incorrect",
-                "AWB_ASSIGNED",
-                "Consignee Refused",
-                "Consignee Unavailable",
-                "CROV",
-                "Customer refused - OTP verified",
-                "DEL",
-                "DELAYED",
-                "Delivered",
-                "Delivery Delayed",
-                "Delivery Reattempt",
-                "Future delivery requested",
-                "In Transit",
-                "INT",
-                "LOST",
-                "Manifest Uploaded",
-                "Out For Delivery",
-                "Out for Pickup",
-                "OUT_FOR_PICKUP",
-                "Picked Up",
-                "PICKED_UP",
-                "Pickup Failed",
-                "PICKUP_GENERATED",
-                "Reached At Destination",
-                "REACHED_AT_DESTINATION_HUB",
-                "RTD",
-                "RTO",
-                "RTO Delivered",
-                "RTO In Transit",
-                "RTO Initiated",
-                "RTO Lost",
-                "RTO Undelivered",
-                "RTO_IN_TRANSIT",
-                "RTO_INITIATED",
-                "RTO_NDR",
-                "RTO_OFD",
-                "RTONDR12",
-                "RTONDR5",
-                "RTOUND",
-                "Shipment Booked",
-                "SHIPPED",
-                "SHNDR1",
-                "SHNDR12",
-                "SHNDR13",
-                "SHNDR14",
-                "SHNDR16",
-                "SHNDR18",
-                "SHNDR2",
-                "SHNDR3",
-                "SHNDR4",
-                "SHNDR5",
-                "SHNDR6",
-                "SHNDR8",
-                "SHPFR1",
-                "SHPFR10",
-                "SHPFR11",
-                "SHPFR3",
-                "SHPFR4",
-                "SHPFR6",
-                "SHPFR7",
-                "Undelivered",
-        };
         Set<String> set = new HashSet<>();
-        for (String s : raw) {
+        for (String s : ShipmentStatusClassifier.KNOWN_CARRIER_STATUSES) {
             set.add(normalizeShipmentStatus(s));
         }
         ALLOWED_SHIPMENT_STATUSES = Collections.unmodifiableSet(set);
@@ -124,12 +81,64 @@ public class UnfulfilledShopifyPreviewService {
     @Autowired
     private StoreShopifyConnectionRepository storeShopifyConnectionRepository;
 
+    @Autowired(required = false)
+    private UnfulfilledPreviewSnapshotCache snapshotCache;
+
+    @Autowired(required = false)
+    private ShopifyBulkOrderScanner bulkOrderScanner;
+
     @Value("${shopify.preview.bulk-orders-query}")
     private String bulkOrdersQuery;
 
     @Value("${shopify.preview.bulk-orders-max:5000}")
     private int bulkOrdersMaxDefault;
 
+    /** Delta loads start this far before the snapshot watermark, for Shopify search index lag. */
+    @Value("${shopify.preview.snapshot.delta-overlap-seconds:120}")
+    private long deltaOverlapSeconds;
+
+    @Value("${shopify.preview.parallel-shops:4}")
+    private int parallelShops;
+
+    @Value("${shopify.preview.lookup-threads:4}")
+    private int lookupThreads;
+
+    private ExecutorService shopExecutor;
+    private ExecutorService lookupExecutor;
+
+    @PostConstruct
+    void init() {
+        shopExecutor = daemonPool(parallelShops, "preview-shop-");
+        lookupExecutor = daemonPool(lookupThreads, "preview-lookup-");
+    }
+
+    private static ExecutorService daemonPool(int size, String namePrefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, size), r -> {
+            Thread t = new Thread(r, namePrefix + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (ExecutorService executor : new ExecutorService[] { shopExecutor, lookupExecutor }) {
+            if (executor == null) {
+                continue;
+            }
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * @param filter           optional {@code store_shopify_connections.brand_name} or {@code account_code};
      *                         when the mapping table is empty, treated as legacy {@code shopify.accounts} key
@@ -137,16 +146,8 @@ public class UnfulfilledShopifyPreviewService {
      */
     public UnfulfilledShopifyPreviewResponse buildPreview(String filter, int shopifyBulkCapPerAccount) {
         UnfulfilledShopifyPreviewResponse response = new UnfulfilledShopifyPreviewResponse();
-        Map<String, Integer> counts = new HashMap<>();
-        counts.put("shopifyUnfulfilledInBulk", 0);
-        counts.put("skippedShopifyCloneOrderKey", 0);
-        counts.put("skippedNoOrderTrackingRow", 0);
-        counts.put("skippedTrackingStatusMismatch", 0);
-        counts.put("matchedWithOrderTracking", 0);
-        counts.put("accountsProcessed", 0);
-
-        int cap = Math.min(Math.max(shopifyBulkCapPerAccount, 1), 10_000);
-        int bulkMax = Math.min(cap, Math.max(1, bulkOrdersMaxDefault));
+        Map<String, Integer> counts = newCounts();
+        int bulkMax = bulkMax(shopifyBulkCapPerAccount);
 
         List<ShopifyTrackingPair> pairs = resolveShopifyTrackingPairs(filter);
         if (pairs.isEmpty()) {
@@ -155,109 +156,309 @@ public class UnfulfilledShopifyPreviewService {
             return response;
         }
 
+        List<CompletableFuture<PartialPreview>> shops = new ArrayList<>();
         for (ShopifyTrackingPair pair : pairs) {
             String shopifyKey = pair.shopifyBrandName();
-            String trackingAcct = pair.trackingAccountCode();
             if (shopifyProperties.getAccountByCode(shopifyKey) == null) {
                 log.debug("Skipping unknown Shopify account key (brand_name): {}", shopifyKey);
                 continue;
             }
             increment(counts, "accountsProcessed");
+            shops.add(supplyOn(shopExecutor, () -> previewShop(pair, bulkMax)));
+        }
+        // Joined in pair order, so rows come out in the same order as a sequential run
+        for (CompletableFuture<PartialPreview> shop : shops) {
+            shop.join().addTo(counts, response.getItems());
+        }
 
-            Map<String, Map<String, Object>> shopifyByKey = shopifyService.loadOrderNodesBySearchQueryPaged(shopifyKey,
-                    bulkOrdersQuery, bulkMax);
-            counts.put("shopifyUnfulfilledInBulk",
-                    counts.getOrDefault("shopifyUnfulfilledInBulk", 0) + shopifyByKey.size());
+        List<String> orderIds = new ArrayList<>();
+        for (UnfulfilledShopifyOrderItem item : response.getItems()) {
+            if (item.getOrderId() != null && !item.getOrderId().isBlank()) {
+                orderIds.add(item.getOrderId());
+            }
+        }
+        response.setOrderIds(orderIds);
+        log.info("Unfulfilled + tracking preview: {} matching order id(s): {}", orderIds.size(), orderIds);
 
-            logGraphqlUnfulfilledIds(shopifyKey, shopifyByKey);
+        response.setCounts(counts);
+        return response;
+    }
 
-            List<String> keysForDb = new ArrayList<>();
-            for (String normKey : shopifyByKey.keySet()) {
-                if (normKey.contains("_")) {
-                    increment(counts, "skippedShopifyCloneOrderKey");
-                    continue;
-                }
-                keysForDb.add(normKey);
+    /**
+     * Same rows as {@link #buildPreview}, handed to {@code sink} one Shopify page (≤ 250 orders) at a time as they
+     * are matched; rows come in Shopify page order. Only the order names already passed on are kept across pages
+     * (at most {@code shopifyBulkCapPerAccount} per account), so an order repeated on a later page is not
+     * passed on twice.
+     *
+     * @return the same {@code counts} as {@link UnfulfilledShopifyPreviewResponse#getCounts()}
+     */
+    public Map<String, Integer> streamPreview(String filter, int shopifyBulkCapPerAccount,
+            Consumer<UnfulfilledShopifyOrderItem> sink) {
+        Map<String, Integer> counts = newCounts();
+        int bulkMax = bulkMax(shopifyBulkCapPerAccount);
+
+        List<ShopifyTrackingPair> pairs = resolveShopifyTrackingPairs(filter);
+        if (pairs.isEmpty()) {
+            log.warn("No Shopify / mapping rows to process (filter: {})", filter);
+            return counts;
+        }
+
+        for (ShopifyTrackingPair pair : pairs) {
+            if (shopifyProperties.getAccountByCode(pair.shopifyBrandName()) == null) {
+                log.debug("Skipping unknown Shopify account key (brand_name): {}", pair.shopifyBrandName());
+                continue;
             }
+            increment(counts, "accountsProcessed");
+            Set<String> seen = new HashSet<>();
+            forEachOrderNodePage(pair.shopifyBrandName(), bulkOrdersQuery, bulkMax,
+                    page -> matchOrderNodes(pair, unseen(page, seen), counts, sink));
+        }
+        log.info("Unfulfilled + tracking preview (streamed): {} matching order(s)",
+                counts.get("matchedWithOrderTracking"));
+        return counts;
+    }
 
-            Map<String, OrderTracking> trackingByKey = loadLatestTrackingForKeys(trackingAcct, keysForDb);
+    /** Rows and counts of one shop, or one page of it. */
+    private static final class PartialPreview {
 
-            logOrderTrackingHitsRaw(trackingAcct, trackingByKey);
+        final Map<String, Integer> counts = new HashMap<>();
+        final List<UnfulfilledShopifyOrderItem> items = new ArrayList<>();
 
-            int acctMatched = 0;
-            int acctNoRow = 0;
-            int acctMismatch = 0;
+        void addTo(Map<String, Integer> totalCounts, List<UnfulfilledShopifyOrderItem> allItems) {
+            counts.forEach((k, v) -> totalCounts.merge(k, v, Integer::sum));
+            allItems.addAll(items);
+        }
+    }
 
-            for (Map.Entry<String, Map<String, Object>> e : shopifyByKey.entrySet()) {
-                String orderKey = e.getKey();
-                if (orderKey.contains("_")) {
-                    continue;
-                }
+    /**
+     * One shop: every page of unfulfilled orders goes to the lookup pool as soon as it is loaded, so
+     * {@code order_tracking} queries run while the next Shopify page is fetched.
+     */
+    private PartialPreview previewShop(ShopifyTrackingPair pair, int bulkMax) {
+        List<CompletableFuture<PartialPreview>> pages = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        forEachUnfulfilledOrderPage(pair.shopifyBrandName(), bulkMax, page -> {
+            Map<String, Map<String, Object>> fresh = unseen(page, seen);
+            pages.add(supplyOn(lookupExecutor, () -> {
+                PartialPreview partial = new PartialPreview();
+                matchOrderNodes(pair, fresh, partial.counts, partial.items::add);
+                return partial;
+            }));
+        });
+        PartialPreview shop = new PartialPreview();
+        for (CompletableFuture<PartialPreview> page : pages) {
+            page.join().addTo(shop.counts, shop.items);
+        }
+        return shop;
+    }
 
-                Map<String, Object> orderNode = e.getValue();
-                OrderTracking tr = trackingByKey.get(orderKey);
-                if (tr == null) {
-                    acctNoRow++;
-                    increment(counts, "skippedNoOrderTrackingRow");
-                    continue;
-                }
+    /**
+     * The nodes of {@code page} whose order name is not in {@code seen} yet (and adds them to it): search pages can
+     * repeat an order, e.g. when it is updated while the scan is running.
+     */
+    private static Map<String, Map<String, Object>> unseen(Map<String, Map<String, Object>> page, Set<String> seen) {
+        Map<String, Map<String, Object>> fresh = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> e : page.entrySet()) {
+            if (seen.add(e.getKey())) {
+                fresh.put(e.getKey(), e.getValue());
+            }
+        }
+        return fresh;
+    }
 
-                if (!matchesUserRequestedStatuses(tr.getShipmentStatus())) {
-                    acctMismatch++;
-                    increment(counts, "skippedTrackingStatusMismatch");
-                    continue;
-                }
+    /** {@code task} on {@code executor}, or on the calling thread when there is none (not started, e.g. in tests). */
+    private static <T> CompletableFuture<T> supplyOn(ExecutorService executor, Supplier<T> task) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+        return CompletableFuture.supplyAsync(task, executor);
+    }
 
-                String display = orderNode.get("displayFulfillmentStatus") != null
-                        ? orderNode.get("displayFulfillmentStatus").toString()
-                        : null;
-
-                UnfulfilledShopifyOrderItem item = new UnfulfilledShopifyOrderItem();
-                item.setAccountCode(trackingAcct.toUpperCase());
-                item.setShopifyBrandName(shopifyKey.toUpperCase());
-                item.setOrderId(tr.getOrderId());
-                item.setOrderTrackingStatus(tr.getShipmentStatus());
-                item.setShopifyDisplayFulfillmentStatus(display);
-
-                Object gidObj = orderNode.get("id");
-                if (gidObj != null) {
-                    String gid = gidObj.toString();
-                    item.setShopifyOrderGid(gid);
-                    item.setShopifyOrderNumericId(extractNumericShopifyOrderId(gid));
+    /**
+     * Unfulfilled order nodes of one shop in pages: the cached snapshot brought up to date with a delta load (in
+     * {@value #ORDER_ID_IN_CHUNK}-order chunks), or the pages of a full load when there is no usable snapshot.
+     */
+    private void forEachUnfulfilledOrderPage(String shopifyKey, int bulkMax,
+            Consumer<Map<String, Map<String, Object>>> pageSink) {
+        if (snapshotCache == null || !snapshotCache.isEnabled()) {
+            forEachOrderNodePage(shopifyKey, bulkOrdersQuery, bulkMax, pageSink);
+            return;
+        }
+        UnfulfilledPreviewSnapshotCache.Snapshot snapshot = snapshotCache.get(shopifyKey, bulkMax);
+        synchronized (snapshot.refreshLock) {
+            Instant startedAt = Instant.now();
+            if (!snapshotCache.needsFullLoad(snapshot) && refreshDelta(shopifyKey, bulkMax, snapshot, startedAt)) {
+                Map<String, Map<String, Object>> chunk = new LinkedHashMap<>();
+                for (Map.Entry<String, Map<String, Object>> e : snapshot.nodes().entrySet()) {
+                    chunk.put(e.getKey(), e.getValue());
+                    if (chunk.size() >= ORDER_ID_IN_CHUNK) {
+                        pageSink.accept(chunk);
+                        chunk = new LinkedHashMap<>();
+                    }
                 }
-
-                Object nameObj = orderNode.get("name");
-                if (nameObj != null) {
-                    item.setShopifyOrderName(nameObj.toString());
+                if (!chunk.isEmpty()) {
+                    pageSink.accept(chunk);
                 }
+                return;
+            }
+            Map<String, Map<String, Object>> loaded = new LinkedHashMap<>();
+            int count = forEachOrderNodePage(shopifyKey, bulkOrdersQuery, bulkMax, page -> {
+                loaded.putAll(page);
+                pageSink.accept(page);
+            });
+            if (count < 0) {
+                log.warn("Preview snapshot {}: full load failed part way, not cached", shopifyKey.toUpperCase());
+                return;
+            }
+            snapshot.replace(loaded, startedAt);
+            log.info("Preview snapshot {}: full load, {} unfulfilled order(s)", shopifyKey.toUpperCase(),
+                    snapshot.size());
+        }
+    }
 
-                Object createdAtObj = orderNode.get("createdAt");
-                if (createdAtObj != null) {
-                    item.setShopifyCreatedAt(createdAtObj.toString());
-                }
+    /**
+     * Merge the orders updated since the snapshot watermark: those still matching {@code bulk-orders-query} are
+     * added / replaced, the rest are dropped. Two searches, both limited to the update window.
+     *
+     * @return {@code false} when a search failed or hit {@code bulkMax} (the caller loads in full instead)
+     */
+    private boolean refreshDelta(String shopifyKey, int bulkMax, UnfulfilledPreviewSnapshotCache.Snapshot snapshot,
+            Instant startedAt) {
+        Instant since = snapshot.watermark().minusSeconds(Math.max(0, deltaOverlapSeconds))
+                .truncatedTo(ChronoUnit.SECONDS);
+        String updatedSince = "updated_at:>'" + DateTimeFormatter.ISO_INSTANT.format(since) + "'";
+
+        Map<String, Map<String, Object>> open = new LinkedHashMap<>();
+        int openLoaded = forEachOrderNodePage(shopifyKey,
+                "(" + bulkOrdersQuery.trim() + ") AND " + updatedSince, bulkMax, open::putAll);
+        Set<String> changed = new HashSet<>();
+        int changedLoaded = openLoaded < 0 ? -1
+                : forEachOrderNodePage(shopifyKey, updatedSince, bulkMax,
+                        page -> changed.addAll(page.keySet()));
+        if (openLoaded < 0 || changedLoaded < 0 || openLoaded >= bulkMax || changedLoaded >= bulkMax) {
+            log.info("Preview snapshot {}: delta since {} unusable (failed or over {} orders), reloading",
+                    shopifyKey.toUpperCase(), since, bulkMax);
+            return false;
+        }
+        int before = snapshot.size();
+        snapshot.merge(open, changed, startedAt);
+        log.info("Preview snapshot {}: delta since {} — {} updated, {} still unfulfilled; {} -> {} cached order(s)",
+                shopifyKey.toUpperCase(), since, changed.size(), open.size(), before, snapshot.size());
+        return true;
+    }
 
-                response.getItems().add(item);
-                acctMatched++;
-                increment(counts, "matchedWithOrderTracking");
-            }
+    /** Search pages of one shop: a bulk operation for large scans, else cursor paging. */
+    private int forEachOrderNodePage(String shopifyKey, String ordersSearchQuery, int bulkMax,
+            Consumer<Map<String, Map<String, Object>>> pageSink) {
+        if (bulkOrderScanner != null) {
+            return bulkOrderScanner.forEachOrderNodePage(shopifyKey, ordersSearchQuery, bulkMax, pageSink);
+        }
+        return shopifyService.forEachOrderNodePage(shopifyKey, ordersSearchQuery, bulkMax, pageSink);
+    }
+
+    private static Map<String, Integer> newCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        counts.put("shopifyUnfulfilledInBulk", 0);
+        counts.put("skippedShopifyCloneOrderKey", 0);
+        counts.put("skippedNoOrderTrackingRow", 0);
+        counts.put("skippedTrackingStatusMismatch", 0);
+        counts.put("matchedWithOrderTracking", 0);
+        counts.put("accountsProcessed", 0);
+        return counts;
+    }
+
+    private int bulkMax(int shopifyBulkCapPerAccount) {
+        int cap = Math.min(Math.max(shopifyBulkCapPerAccount, 1), 10_000);
+        return Math.min(cap, Math.max(1, bulkOrdersMaxDefault));
+    }
 
-            log.info(
-                    "Preview shopifyKey={} trackingAccount={}: shipment_status allowlist ({} values) applied — matchedItems={}, skippedNoTrackingRow={}, skippedStatusMismatch={}",
-                    shopifyKey.toUpperCase(), trackingAcct.toUpperCase(), ALLOWED_SHIPMENT_STATUSES.size(), acctMatched,
-                    acctNoRow, acctMismatch);
+    /**
+     * Match unfulfilled Shopify order nodes of one account (all of them, or one page) against their latest
+     * {@code order_tracking} rows and pass each row on the status allowlist to {@code sink}.
+     */
+    private void matchOrderNodes(ShopifyTrackingPair pair, Map<String, Map<String, Object>> shopifyByKey,
+            Map<String, Integer> counts, Consumer<UnfulfilledShopifyOrderItem> sink) {
+        String shopifyKey = pair.shopifyBrandName();
+        String trackingAcct = pair.trackingAccountCode();
+        counts.put("shopifyUnfulfilledInBulk",
+                counts.getOrDefault("shopifyUnfulfilledInBulk", 0) + shopifyByKey.size());
+
+        logGraphqlUnfulfilledIds(shopifyKey, shopifyByKey);
+
+        List<String> keysForDb = new ArrayList<>();
+        for (String normKey : shopifyByKey.keySet()) {
+            if (normKey.contains("_")) {
+                increment(counts, "skippedShopifyCloneOrderKey");
+                continue;
+            }
+            keysForDb.add(normKey);
         }
 
-        List<String> orderIds = new ArrayList<>();
-        for (UnfulfilledShopifyOrderItem item : response.getItems()) {
-            if (item.getOrderId() != null && !item.getOrderId().isBlank()) {
-                orderIds.add(item.getOrderId());
+        Map<String, OrderTracking> trackingByKey = loadLatestTrackingForKeys(trackingAcct, keysForDb);
+
+        logOrderTrackingHitsRaw(trackingAcct, trackingByKey);
+
+        int acctMatched = 0;
+        int acctNoRow = 0;
+        int acctMismatch = 0;
+
+        for (Map.Entry<String, Map<String, Object>> e : shopifyByKey.entrySet()) {
+            String orderKey = e.getKey();
+            if (orderKey.contains("_")) {
+                continue;
+            }
+
+            Map<String, Object> orderNode = e.getValue();
+            OrderTracking tr = trackingByKey.get(orderKey);
+            if (tr == null) {
+                acctNoRow++;
+                increment(counts, "skippedNoOrderTrackingRow");
+                continue;
+            }
+
+            if (!matchesUserRequestedStatuses(tr.getShipmentStatus())) {
+                acctMismatch++;
+                increment(counts, "skippedTrackingStatusMismatch");
+                continue;
+            }
+
+            String display = orderNode.get("displayFulfillmentStatus") != null
+                    ? orderNode.get("displayFulfillmentStatus").toString()
+                    : null;
+
+            UnfulfilledShopifyOrderItem item = new UnfulfilledShopifyOrderItem();
+            item.setAccountCode(trackingAcct.toUpperCase());
+            item.setShopifyBrandName(shopifyKey.toUpperCase());
+            item.setOrderId(tr.getOrderId());
+            item.setOrderTrackingStatus(tr.getShipmentStatus());
+            item.setShopifyDisplayFulfillmentStatus(display);
+
+            Object gidObj = orderNode.get("id");
+            if (gidObj != null) {
+                String gid = gidObj.toString();
+                item.setShopifyOrderGid(gid);
+                item.setShopifyOrderNumericId(extractNumericShopifyOrderId(gid));
+            }
+
+            Object nameObj = orderNode.get("name");
+            if (nameObj != null) {
+                item.setShopifyOrderName(nameObj.toString());
+            }
+
+            Object createdAtObj = orderNode.get("createdAt");
+            if (createdAtObj != null) {
+                item.setShopifyCreatedAt(createdAtObj.toString());
             }
+
+            sink.accept(item);
+            acctMatched++;
+            increment(counts, "matchedWithOrderTracking");
         }
-        response.setOrderIds(orderIds);
-        log.info("Unfulfilled + tracking preview: {} matching order id(s): {}", orderIds.size(), orderIds);
 
-        response.setCounts(counts);
-        return response;
+        log.info(
+                "Preview shopifyKey={} trackingAccount={}: shipment_status allowlist ({} values) applied — matchedItems={}, skippedNoTrackingRow={}, skippedStatusMismatch={}",
+                shopifyKey.toUpperCase(), trackingAcct.toUpperCase(), ALLOWED_SHIPMENT_STATUSES.size(), acctMatched,
+                acctNoRow, acctMismatch);
     }
 
     /** INFO: GraphQL {@code name} and numeric order id from each unfulfilled node. */
@@ -383,11 +584,7 @@ public class UnfulfilledShopifyPreviewService {
     }
 
     static String normalizeShipmentStatus(String status) {
-        if (status == null) {
-            return "";
-        }
-        String n = status.trim().toUpperCase().replace('_', ' ');
-        return n.replaceAll("\\s+", " ").trim();
+        return ShipmentStatusClassifier.normalize(status);
     }
 
     private static String extractNumericShopifyOrderId(String gid) {
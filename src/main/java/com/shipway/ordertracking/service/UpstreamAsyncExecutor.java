@@ -0,0 +1,119 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.util.VirtualThreads;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded executor behind the {@code *Async} variants of {@link ShopifyService} and {@link BotspaceService}
+ * ({@code upstream.async.*}), so a flow can overlap independent Shopify / Botspace / DB steps.
+ * <p>
+ * {@code threads} workers and a queue of {@code queue-capacity}; when both are full the submitting thread runs the
+ * call itself, which slows the caller down instead of failing it. With {@code spring.threads.virtual.enabled=true}
+ * on JDK 21+ every call gets its own virtual thread. Metrics: {@code upstream.async.active},
+ * {@code upstream.async.queued}.
+ */
+@Component
+public class UpstreamAsyncExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamAsyncExecutor.class);
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${upstream.async.threads:16}")
+    private int threads;
+
+    @Value("${upstream.async.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        if (virtualThreads && VirtualThreads.isSupported()) {
+            executor = VirtualThreads.newThreadPerTaskExecutor("upstream-async-v");
+            log.info("Upstream async calls on virtual threads");
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r, "upstream-async-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+        if (meterRegistry != null) {
+            Gauge.builder("upstream.async.active", pool, ThreadPoolExecutor::getActiveCount)
+                    .register(meterRegistry);
+            Gauge.builder("upstream.async.queued", pool, p -> p.getQueue().size())
+                    .register(meterRegistry);
+        }
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+
+    /**
+     * {@code call} on {@code executor}, or on the calling thread when there is none (unit tests with
+     * {@code @InjectMocks}); either way failures end up in the future.
+     */
+    public static <T> CompletableFuture<T> supplyOn(UpstreamAsyncExecutor executor, Supplier<T> call) {
+        if (executor != null && executor.executor != null) {
+            return executor.supply(call);
+        }
+        return CompletableFuture.supplyAsync(call, Runnable::run);
+    }
+
+    /**
+     * Wait for {@code future}; a failure is rethrown as the original exception (as if the steps had run inline).
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.shipway.ordertracking.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import java.net.ConnectException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Retry and circuit breaking around Shopify and Botspace HTTP calls ({@code upstream.*}).
+ * <p>
+ * Retries use exponential backoff with full jitter (a 429's {@code Retry-After} is a lower bound). Reads retry on
+ * I/O errors, 5xx and 429; mutations only where the request cannot have been applied: 429 and connection refused.
+ * <p>
+ * One circuit breaker per shop / Botspace account: {@code failure-threshold} consecutive upstream faults (I/O error
+ * or 5xx; a 4xx means the upstream is up) open it, and calls then fail fast with {@link CircuitOpenException} for
+ * {@code open-ms}. After that one trial call is let through; success closes the breaker, failure re-opens it.
+ * {@link CircuitOpenException} is a {@link RestClientException}, so callers' existing error handling applies.
+ * <p>
+ * State: {@code GET /actuator/upstreams}, metric {@code upstream.circuit.state} (0 closed, 1 open, 2 half-open) per
+ * upstream + key, {@code upstream.retries}, {@code upstream.circuit.rejected}.
+ */
+@Component
+public class UpstreamResilience {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamResilience.class);
+
+    public enum Upstream {
+        SHOPIFY, BOTSPACE;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** What a retry may safely repeat. */
+    public enum CallType {
+        /** Idempotent (GET, GraphQL query). */
+        READ,
+        /** Not idempotent (PUT, GraphQL mutation, sending a message). */
+        MUTATION
+    }
+
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /** Thrown instead of calling an upstream whose breaker is open. No stack trace: it is the expected fast path. */
+    public static class CircuitOpenException extends RestClientException {
+
+        private final long retryAfterMillis;
+
+        public CircuitOpenException(String message, long retryAfterMillis) {
+            super(message);
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${upstream.resilience.enabled:true}")
+    private boolean enabled;
+
+    /** Attempts per call, including the first. */
+    @Value("${upstream.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${upstream.retry.base-delay-ms:200}")
+    private long baseDelayMs;
+
+    @Value("${upstream.retry.max-delay-ms:5000}")
+    private long maxDelayMs;
+
+    @Value("${upstream.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${upstream.circuit.open-ms:30000}")
+    private long openMs;
+
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (meterRegistry == null) {
+            return;
+        }
+        FunctionCounter.builder("upstream.retries", retries, AtomicLong::get)
+                .description("Shopify / Botspace calls retried after a transient failure")
+                .register(meterRegistry);
+        FunctionCounter.builder("upstream.circuit.rejected", rejected, AtomicLong::get)
+                .description("Shopify / Botspace calls failed fast by an open circuit breaker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run {@code call} against {@code upstream} / {@code key} (shop or Botspace account) with retry and the key's
+     * circuit breaker.
+     *
+     * @throws CircuitOpenException when the breaker is open
+     * @throws RuntimeException     the last failure once retries are exhausted or the failure is not retryable
+     */
+    public <T> T call(Upstream upstream, String key, CallType type, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        Breaker breaker = breaker(upstream, key);
+        for (int attempt = 1; ; attempt++) {
+            long now = System.currentTimeMillis();
+            if (!breaker.tryAcquire(now, openMs)) {
+                rejected.incrementAndGet();
+                long retryAfter = breaker.retryAfterMillis(now, openMs);
+                throw new CircuitOpenException(upstream.tag() + " circuit open for " + breaker.key
+                        + " (retry in " + retryAfter + " ms)", retryAfter);
+            }
+            RuntimeException failure;
+            try {
+                T result = call.get();
+                breaker.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            if (isUpstreamFault(failure)) {
+                if (breaker.onFailure(System.currentTimeMillis(), failureThreshold)) {
+                    log.warn("⛔ {} circuit opened for {} after {} consecutive failures: {}", upstream.tag(),
+                            breaker.key, failureThreshold, failure.getMessage());
+                }
+            } else {
+                breaker.onSuccess();
+            }
+            if (attempt >= Math.max(1, maxAttempts) || !isRetryable(failure, type)) {
+                throw failure;
+            }
+            long delay = backoffMillis(attempt, retryAfterMillis(failure));
+            retries.incrementAndGet();
+            log.warn("🔁 {} call for {} failed ({}), retry {}/{} in {} ms", upstream.tag(), breaker.key,
+                    failure.getMessage(), attempt, Math.max(1, maxAttempts) - 1, delay);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw failure;
+            }
+        }
+    }
+
+    public CircuitState getState(Upstream upstream, String key) {
+        Breaker breaker = breakers.get(breakerKey(upstream, normalizeKey(key)));
+        return breaker != null ? breaker.state(System.currentTimeMillis(), openMs) : CircuitState.CLOSED;
+    }
+
+    /** Breaker state per upstream + key, for the actuator endpoint. */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("retries", retries.get());
+        stats.put("rejected", rejected.get());
+        Map<String, Object> circuits = new TreeMap<>();
+        long now = System.currentTimeMillis();
+        breakers.forEach((key, breaker) -> circuits.put(key, breaker.snapshot(now, openMs)));
+        stats.put("circuits", circuits);
+        return stats;
+    }
+
+    /** I/O error or 5xx: counts against the breaker. */
+    static boolean isUpstreamFault(RuntimeException e) {
+        if (e instanceof CircuitOpenException) {
+            return false;
+        }
+        if (e instanceof HttpStatusCodeException http) {
+            return http.getStatusCode().is5xxServerError();
+        }
+        return e instanceof ResourceAccessException;
+    }
+
+    static boolean isRetryable(RuntimeException e, CallType type) {
+        if (e instanceof CircuitOpenException) {
+            return false;
+        }
+        if (e instanceof HttpStatusCodeException http) {
+            if (http.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                return true;
+            }
+            return type == CallType.READ && http.getStatusCode().is5xxServerError();
+        }
+        if (e instanceof ResourceAccessException) {
+            return type == CallType.READ || e.getCause() instanceof ConnectException;
+        }
+        return false;
+    }
+
+    /** Full jitter: uniform in [0, min(max, base * 2^(attempt-1))], but not below {@code floorMillis}. */
+    long backoffMillis(int attempt, long floorMillis) {
+        long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(Math.max(0, cap) + 1);
+        return Math.min(maxDelayMs, Math.max(jittered, floorMillis));
+    }
+
+    /** {@code Retry-After} (seconds, possibly fractional as Shopify sends it) of a 429, else 0. */
+    static long retryAfterMillis(RuntimeException e) {
+        if (e instanceof HttpStatusCodeException http && http.getResponseHeaders() != null) {
+            String value = http.getResponseHeaders().getFirst("Retry-After");
+            if (value != null) {
+                try {
+                    return (long) (Double.parseDouble(value.trim()) * 1000);
+                } catch (NumberFormatException ignored) {
+                    // HTTP-date form; use the computed backoff
+                }
+            }
+        }
+        return 0;
+    }
+
+    private Breaker breaker(Upstream upstream, String key) {
+        String normalized = normalizeKey(key);
+        return breakers.computeIfAbsent(breakerKey(upstream, normalized), k -> {
+            Breaker breaker = new Breaker(normalized);
+            if (meterRegistry != null) {
+                Gauge.builder("upstream.circuit.state", breaker,
+                        b -> b.state(System.currentTimeMillis(), openMs).ordinal())
+                        .description("0 closed, 1 open, 2 half-open")
+                        .tag("upstream", upstream.tag())
+                        .tag("key", normalized)
+                        .register(meterRegistry);
+            }
+            return breaker;
+        });
+    }
+
+    private static String breakerKey(Upstream upstream, String normalizedKey) {
+        return upstream.tag() + ":" + normalizedKey;
+    }
+
+    /** Shop domain or account code, lower-case without spaces or {@code .myshopify.com}. */
+    private static String normalizeKey(String key) {
+        if (key == null || key.isBlank()) {
+            return "default";
+        }
+        return key.trim().toLowerCase(Locale.ROOT).replace(" ", "").replace("https://", "")
+                .replace(".myshopify.com", "");
+    }
+
+    /** Consecutive-failure breaker. Guarded by {@code this}. */
+    private static final class Breaker {
+
+        private final String key;
+        private int consecutiveFailures;
+        private long openedAtMillis;
+        private boolean open;
+        private boolean trialInFlight;
+        private long failures;
+        private long successes;
+
+        Breaker(String key) {
+            this.key = key;
+        }
+
+        synchronized CircuitState state(long now, long openMs) {
+            if (!open) {
+                return CircuitState.CLOSED;
+            }
+            return now - openedAtMillis >= openMs ? CircuitState.HALF_OPEN : CircuitState.OPEN;
+        }
+
+        /** Closed: always. Open: no. Half-open: one trial call at a time. */
+        synchronized boolean tryAcquire(long now, long openMs) {
+            CircuitState state = state(now, openMs);
+            if (state == CircuitState.CLOSED) {
+                return true;
+            }
+            if (state == CircuitState.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void onSuccess() {
+            successes++;
+            consecutiveFailures = 0;
+            open = false;
+            trialInFlight = false;
+        }
+
+        /** @return true when this failure opened the breaker */
+        synchronized boolean onFailure(long now, int threshold) {
+            failures++;
+            consecutiveFailures++;
+            if (trialInFlight || (!open && consecutiveFailures >= Math.max(1, threshold))) {
+                boolean opened = !open;
+                open = true;
+                openedAtMillis = now;
+                trialInFlight = false;
+                return opened;
+            }
+            return false;
+        }
+
+        synchronized long retryAfterMillis(long now, long openMs) {
+            return Math.max(0, openedAtMillis + openMs - now);
+        }
+
+        synchronized Map<String, Object> snapshot(long now, long openMs) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            CircuitState state = state(now, openMs);
+            s.put("state", state.name());
+            s.put("consecutiveFailures", consecutiveFailures);
+            s.put("failures", failures);
+            s.put("successes", successes);
+            if (state != CircuitState.CLOSED) {
+                s.put("retryAfterMillis", retryAfterMillis(now, openMs));
+            }
+            return s;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.shipway.ordertracking.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for the inbound webhooks ({@code webhook.admission.*}), so a burst cannot take every Tomcat
+ * thread and DB connection away from the fulfillment UI.
+ * <p>
+ * Each endpoint has an {@link AdaptiveConcurrencyLimiter}, taken before the body is parsed; each brand has a second
+ * one, taken once the brand is known. When either is full the caller answers 429 with {@code Retry-After}.
+ * Metrics (actuator): {@code webhook.admission.admitted}, {@code webhook.admission.shed},
+ * {@code webhook.admission.limit} and {@code webhook.admission.inflight}, tagged {@code scope} / {@code name}.
+ */
+@Component
+public class WebhookAdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookAdmissionControl.class);
+
+    public static final String STATUS = "claimio_status_hook";
+    public static final String ORDER_CREATED = "shopify_order_created";
+    public static final String CART_ABANDONED = "cart_abandoned";
+
+    /** Brands beyond this many share one limiter, so junk brand values cannot grow the map. */
+    static final int MAX_BRANDS = 64;
+    static final String OTHER_BRAND = "other";
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${webhook.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${webhook.admission.endpoint.initial-limit:20}")
+    private int endpointInitialLimit;
+
+    @Value("${webhook.admission.endpoint.max-limit:100}")
+    private int endpointMaxLimit;
+
+    @Value("${webhook.admission.brand.initial-limit:10}")
+    private int brandInitialLimit;
+
+    @Value("${webhook.admission.brand.max-limit:50}")
+    private int brandMaxLimit;
+
+    @Value("${webhook.admission.min-limit:2}")
+    private int minLimit;
+
+    @Value("${webhook.admission.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${webhook.admission.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    private record Gate(AdaptiveConcurrencyLimiter limiter, AtomicLong admitted, AtomicLong shed) {
+    }
+
+    private final Map<String, Gate> endpointGates = new ConcurrentHashMap<>();
+    private final Map<String, Gate> brandGates = new ConcurrentHashMap<>();
+
+    /**
+     * Held slot; {@link #close()} returns it and reports the request latency. Closing twice is harmless.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long startNanos = System.nanoTime();
+        private boolean closed;
+
+        private Permit(AdaptiveConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (limiter != null) {
+                limiter.release(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    private static final Permit UNLIMITED = new Permit(null);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /** Slot for one request to {@code endpoint}, or {@code null} when the endpoint is saturated. */
+    public Permit tryAcquireEndpoint(String endpoint) {
+        if (!enabled) {
+            return UNLIMITED;
+        }
+        return tryAcquire(endpointGates.computeIfAbsent(endpoint,
+                e -> newGate("endpoint", e, endpointInitialLimit, endpointMaxLimit)), "endpoint", endpoint);
+    }
+
+    /**
+     * Slot for one request for {@code brand} (status webhook: brand name; order-created: shop domain), or
+     * {@code null} when that brand is saturated.
+     */
+    public Permit tryAcquireBrand(String brand) {
+        if (!enabled) {
+            return UNLIMITED;
+        }
+        String key = brand != null && !brand.isBlank() ? brand.trim().toLowerCase(Locale.ROOT) : "unknown";
+        if (!brandGates.containsKey(key) && brandGates.size() >= MAX_BRANDS) {
+            key = OTHER_BRAND;
+        }
+        return tryAcquire(brandGates.computeIfAbsent(key,
+                b -> newGate("brand", b, brandInitialLimit, brandMaxLimit)), "brand", key);
+    }
+
+    private Permit tryAcquire(Gate gate, String scope, String name) {
+        if (gate.limiter().tryAcquire()) {
+            gate.admitted().incrementAndGet();
+            return new Permit(gate.limiter());
+        }
+        long shed = gate.shed().incrementAndGet();
+        if (shed == 1 || shed % 100 == 0) {
+            log.warn("🚦 Shedding webhook load for {} {} (limit: {}, shed so far: {})", scope, name,
+                    gate.limiter().getLimit(), shed);
+        }
+        return null;
+    }
+
+    private Gate newGate(String scope, String name, int initialLimit, int maxLimit) {
+        Gate gate = new Gate(new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyTolerance),
+                new AtomicLong(), new AtomicLong());
+        if (meterRegistry != null) {
+            FunctionCounter.builder("webhook.admission.admitted", gate.admitted(), AtomicLong::get)
+                    .tag("scope", scope).tag("name", name).register(meterRegistry);
+            FunctionCounter.builder("webhook.admission.shed", gate.shed(), AtomicLong::get)
+                    .description("Webhook requests answered 429 by admission control")
+                    .tag("scope", scope).tag("name", name).register(meterRegistry);
+            Gauge.builder("webhook.admission.limit", gate.limiter(), AdaptiveConcurrencyLimiter::getLimit)
+                    .tag("scope", scope).tag("name", name).register(meterRegistry);
+            Gauge.builder("webhook.admission.inflight", gate.limiter(), AdaptiveConcurrencyLimiter::getInFlight)
+                    .tag("scope", scope).tag("name", name).register(meterRegistry);
+        }
+        return gate;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("endpoints", describe(endpointGates));
+        stats.put("brands", describe(brandGates));
+        return stats;
+    }
+
+    private static Map<String, Object> describe(Map<String, Gate> gates) {
+        Map<String, Object> out = new TreeMap<>();
+        gates.forEach((name, gate) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("limit", gate.limiter().getLimit());
+            row.put("inFlight", gate.limiter().getInFlight());
+            row.put("admitted", gate.admitted().get());
+            row.put("shed", gate.shed().get());
+            out.put(name, row);
+        });
+        return out;
+    }
+}
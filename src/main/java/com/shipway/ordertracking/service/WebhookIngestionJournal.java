@@ -0,0 +1,135 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Durable on-disk journal for status webhook orders accepted in async ingestion mode.
+ * <p>
+ * One file per order ({@code <enqueuedMillis>-<seq>.json}, written to a temp file and atomically renamed). A file is
+ * deleted once its order has been processed, so anything still in the directory at startup was accepted (HTTP 202)
+ * but never finished and must be processed again.
+ */
+public class WebhookIngestionJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookIngestionJournal.class);
+
+    private static final String ENTRY_SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String BAD_SUFFIX = ".bad";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** Pending entry id → enqueue time (millis). Ids sort chronologically, so the first key is the oldest entry. */
+    private final ConcurrentSkipListMap<String, Long> pending = new ConcurrentSkipListMap<>();
+
+    public WebhookIngestionJournal(Path directory, ObjectMapper objectMapper) throws IOException {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        Files.createDirectories(directory);
+    }
+
+    /** One journaled order. */
+    public record Entry(String id, long enqueuedAtMillis, StatusUpdateWebhook.OrderStatus order) {
+    }
+
+    /**
+     * Persist one order before it is acknowledged to the caller.
+     */
+    public Entry append(StatusUpdateWebhook.OrderStatus order) throws IOException {
+        long now = System.currentTimeMillis();
+        String id = String.format("%013d-%09d", now, sequence.incrementAndGet());
+        byte[] json = objectMapper.writeValueAsBytes(order);
+
+        Path temp = directory.resolve(id + TEMP_SUFFIX);
+        Files.write(temp, json, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+        Files.move(temp, directory.resolve(id + ENTRY_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+
+        pending.put(id, now);
+        return new Entry(id, now, order);
+    }
+
+    /**
+     * Remove an entry once its order has been processed (successfully or not).
+     */
+    public void ack(String id) {
+        pending.remove(id);
+        try {
+            Files.deleteIfExists(directory.resolve(id + ENTRY_SUFFIX));
+        } catch (IOException e) {
+            log.warn("Failed to delete journal entry {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Load entries left over from a previous run, oldest first. Unreadable entries are renamed to {@code .bad}
+     * so they are not retried forever; stale temp files (crash mid-write, never acknowledged) are removed.
+     */
+    public List<Entry> loadPending() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.sorted().toList();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            if (!name.endsWith(ENTRY_SUFFIX)) {
+                continue;
+            }
+            String id = name.substring(0, name.length() - ENTRY_SUFFIX.length());
+            try {
+                StatusUpdateWebhook.OrderStatus order = objectMapper.readValue(file.toFile(),
+                        StatusUpdateWebhook.OrderStatus.class);
+                long enqueuedAt = parseEnqueuedAt(id, file);
+                pending.put(id, enqueuedAt);
+                entries.add(new Entry(id, enqueuedAt, order));
+            } catch (Exception e) {
+                log.warn("⚠️ Unreadable journal entry {}, moving aside: {}", name, e.getMessage());
+                Files.move(file, directory.resolve(id + BAD_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return entries;
+    }
+
+    /** Number of accepted orders not yet processed. */
+    public int depth() {
+        return pending.size();
+    }
+
+    /** Age of the oldest unprocessed entry in millis (0 when the journal is empty). */
+    public long lagMillis() {
+        Map.Entry<String, Long> oldest = pending.firstEntry();
+        return oldest == null ? 0L : Math.max(0L, System.currentTimeMillis() - oldest.getValue());
+    }
+
+    private static long parseEnqueuedAt(String id, Path file) throws IOException {
+        int dash = id.indexOf('-');
+        try {
+            return Long.parseLong(dash > 0 ? id.substring(0, dash) : id);
+        } catch (NumberFormatException e) {
+            return Files.getLastModifiedTime(file).toMillis();
+        }
+    }
+}
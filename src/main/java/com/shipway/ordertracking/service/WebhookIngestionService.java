@@ -0,0 +1,157 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Async ingestion for POST /webhook (Claimio status hook).
+ * <p>
+ * When {@code webhook.ingestion.async-enabled=true}, each order is appended to a {@link WebhookIngestionJournal}
+ * and the controller replies 202 immediately; the journal is drained through {@link StatusWebhookFanOutService}
+ * (bounded worker pool, per-order arrival order). Entries already on disk at startup are replayed once the app is
+ * ready; orders accepted after startup are never part of that replay.
+ * When disabled (default), nothing is created and the controller keeps processing inline.
+ */
+@Service
+public class WebhookIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookIngestionService.class);
+
+    @Autowired
+    private StatusWebhookFanOutService statusWebhookFanOutService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${webhook.ingestion.async-enabled:false}")
+    private boolean asyncEnabled;
+
+    @Value("${webhook.ingestion.journal-dir:data/webhook-journal}")
+    private String journalDir;
+
+    private WebhookIngestionJournal journal;
+
+    /** Entries left by a previous run, read in {@link #init} before the endpoint accepts requests. */
+    private List<WebhookIngestionJournal.Entry> leftovers = List.of();
+
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!asyncEnabled) {
+            return;
+        }
+        journal = new WebhookIngestionJournal(Paths.get(journalDir), objectMapper);
+        try {
+            leftovers = journal.loadPending();
+        } catch (IOException e) {
+            log.error("❌ Failed to read webhook journal {}: {}", journalDir, e.getMessage(), e);
+        }
+        if (meterRegistry != null) {
+            Gauge.builder("webhook.ingestion.queue.depth", journal, WebhookIngestionJournal::depth)
+                    .description("Accepted status webhook orders not yet processed")
+                    .register(meterRegistry);
+            Gauge.builder("webhook.ingestion.queue.lag", journal, WebhookIngestionJournal::lagMillis)
+                    .description("Age of the oldest unprocessed status webhook order")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+        log.info("📥 Webhook async ingestion enabled (journal: {})", journalDir);
+    }
+
+    /**
+     * Re-submit orders that were accepted by a previous run but never finished. Only the entries found at startup
+     * are replayed: anything journaled since then is already on its way through the live path.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayPending() {
+        if (!asyncEnabled) {
+            return;
+        }
+        List<WebhookIngestionJournal.Entry> replay = leftovers;
+        leftovers = List.of();
+        if (!replay.isEmpty()) {
+            log.info("🔁 Replaying {} journaled webhook order(s) from previous run", replay.size());
+        }
+        replay.forEach(this::submit);
+    }
+
+    public boolean isAsyncEnabled() {
+        return asyncEnabled;
+    }
+
+    /**
+     * Journal and queue one order. Returns once the order is on disk; processing happens on the fan-out pool.
+     *
+     * @throws IOException if the order could not be journaled (it is not accepted)
+     */
+    public void enqueue(StatusUpdateWebhook.OrderStatus order) throws IOException {
+        submit(journal.append(order));
+    }
+
+    /**
+     * Queue depth / lag and worker counters for the stats endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("asyncEnabled", asyncEnabled);
+        stats.put("queueDepth", journal != null ? journal.depth() : 0);
+        stats.put("lagMillis", journal != null ? journal.lagMillis() : 0L);
+        stats.put("processed", processedCount.get());
+        stats.put("failed", failedCount.get());
+        return stats;
+    }
+
+    /**
+     * Hand the entry to the fan-out pool; it is removed from the journal once processing finishes either way.
+     * If the app stops first, or the pool rejects it, the entry stays on disk and is replayed on the next startup.
+     */
+    private void submit(WebhookIngestionJournal.Entry entry) {
+        String orderId = entry.order() != null ? entry.order().getOrderId() : null;
+        CompletableFuture<Map<String, Object>> processing;
+        try {
+            processing = statusWebhookFanOutService.submit(entry.order());
+        } catch (RejectedExecutionException e) {
+            log.warn("Webhook fan-out pool rejected order {}; it stays in journal for replay", orderId);
+            return;
+        }
+        processing.whenComplete((result, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RejectedExecutionException) {
+                log.warn("Webhook fan-out pool is shutting down; order {} stays in journal for replay", orderId);
+                return;
+            }
+            if (e == null) {
+                processedCount.incrementAndGet();
+            } else {
+                failedCount.incrementAndGet();
+                log.error("Error processing journaled webhook for order {}: {}", orderId, e.getMessage(), e);
+            }
+            journal.ack(entry.id());
+        });
+    }
+}
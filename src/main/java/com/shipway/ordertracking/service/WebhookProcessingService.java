@@ -1,6 +1,7 @@
 package com.shipway.ordertracking.service;
 
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import com.shipway.ordertracking.util.ShipmentStatusClassifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +30,9 @@ public class WebhookProcessingService {
     @Autowired
     private DeliveredFlowService deliveredFlowService;
 
+    @Autowired
+    private StatusWebhookIdempotencyCache idempotencyCache;
+
     /**
      * Process status update webhook and route to appropriate flow service
      */
@@ -45,11 +49,22 @@ public class WebhookProcessingService {
             return result;
         }
 
+        // Exact retry of an event already processed: answer from memory (no DB / Shopify / Botspace calls)
+        Map<String, Object> duplicate = idempotencyCache.lookup(order);
+        if (duplicate != null) {
+            log.info("♻️ Duplicate status webhook for order {} ({}), skipping", order.getOrderId(),
+                    order.getCurrentShipmentStatus());
+            return duplicate;
+        }
+
         try {
             boolean processed = routeToFlowService(order);
             result.put("success", processed);
             result.put("message", processed ? "Order processed successfully" : "Order processing skipped or failed");
             result.put("orderId", order.getOrderId());
+            if (processed) {
+                idempotencyCache.record(order, result);
+            }
         } catch (Exception e) {
             log.error("Error processing order {}: {}", order.getOrderId(), e.getMessage(), e);
             result.put("success", false);
@@ -74,32 +89,58 @@ public class WebhookProcessingService {
             return false;
         }
 
-        // Normalize status for comparison (handle both space-separated and underscore
-        // formats)
-        String normalizedStatus = status != null ? status.trim().toUpperCase().replace("_", " ") : "";
-
         // Route based on current_shipment_status
         // Based on sample JSON: "Out for Delivery", "Delivered", "In Transit",
-        // "OUT_FOR_PICKUP", etc.
-        if (normalizedStatus.contains("OUT FOR DELIVERY")) {
-            return outForDeliveryFlowService.processOutForDelivery(order);
-        } else if (normalizedStatus.equals("DELIVERED")) {
-            return deliveredFlowService.processDelivered(order);
-        } else if (normalizedStatus.contains("IN TRANSIT") || normalizedStatus.contains("PICKED UP")) {
-            return inTransitFlowService.processInTransit(order);
-        } else if (normalizedStatus.contains("SHIPMENT BOOKED") || normalizedStatus.contains("OUT FOR PICKUP")
-                || normalizedStatus.contains("SHPFR1") || normalizedStatus.contains("SHIPPED")
-                || normalizedStatus.contains("LABEL GENERATED") || normalizedStatus.contains("PICKUP GENERATED")) {
-            // Shipment booked / shipped / out for pickup / label generated: create or update Shopify fulfillment,
-            // send AWB + URL on fulfillmentCreate, then fulfillment event (GraphQL).
-            return shopifyFulfillmentFlowService.processShopifyFulfillment(order);
-        } else if (normalizedStatus.contains("RTO") || normalizedStatus.contains("RETURN TO ORIGIN")) {
-            // Handle RTO case - you may want to create a separate service for this
-            log.info("RTO status detected for order {}, but no RTO flow service implemented yet", orderId);
-            return false;
-        } else {
-            log.warn("Unknown status '{}' for order {}, skipping", status, orderId);
-            return false;
+        // "OUT_FOR_PICKUP", etc. RTO variants ("RTO In Transit", "RTO_OFD") are RTO.
+        switch (routeFor(status)) {
+            case OUT_FOR_DELIVERY:
+                return outForDeliveryFlowService.processOutForDelivery(order);
+            case DELIVERED:
+                return deliveredFlowService.processDelivered(order);
+            case IN_TRANSIT:
+                return inTransitFlowService.processInTransit(order);
+            case SHOPIFY_FULFILLMENT:
+                // Shipment booked / shipped / out for pickup / label generated: create or update Shopify fulfillment,
+                // send AWB + URL on fulfillmentCreate, then fulfillment event (GraphQL).
+                return shopifyFulfillmentFlowService.processShopifyFulfillment(order);
+            case RTO:
+                // Handle RTO case - you may want to create a separate service for this
+                log.info("RTO status detected for order {}, but no RTO flow service implemented yet", orderId);
+                return false;
+            default:
+                log.warn("Unknown status '{}' for order {}, skipping", status, orderId);
+                return false;
+        }
+    }
+
+    /** Flow a {@code current_shipment_status} is routed to. */
+    public enum StatusRoute {
+        OUT_FOR_DELIVERY, DELIVERED, IN_TRANSIT, SHOPIFY_FULFILLMENT, RTO, UNKNOWN;
+
+        /** True when the status runs a flow (Shopify update and/or customer notification). */
+        public boolean isActionable() {
+            return this != RTO && this != UNKNOWN;
+        }
+    }
+
+    /**
+     * Map a raw status to its flow (see {@link ShipmentStatusClassifier}).
+     */
+    public static StatusRoute routeFor(String status) {
+        switch (ShipmentStatusClassifier.classify(status)) {
+            case OUT_FOR_DELIVERY:
+                return StatusRoute.OUT_FOR_DELIVERY;
+            case DELIVERED:
+                return StatusRoute.DELIVERED;
+            case IN_TRANSIT:
+                return StatusRoute.IN_TRANSIT;
+            case SHIPPED:
+            case BOOKED:
+                return StatusRoute.SHOPIFY_FULFILLMENT;
+            case RTO:
+                return StatusRoute.RTO;
+            default:
+                return StatusRoute.UNKNOWN;
         }
     }
 }
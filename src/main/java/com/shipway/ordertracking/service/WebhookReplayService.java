@@ -0,0 +1,489 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.FasterrAbandonedCartWebhook;
+import com.shipway.ordertracking.dto.ShopifyOrderCreatedWebhook;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import com.shipway.ordertracking.dto.WebhookReplayRequest;
+import com.shipway.ordertracking.dto.WebhookWrapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Re-drives captured webhook payloads from an NDJSON file through the normal pipeline: status orders go through
+ * {@link StatusWebhookFanOutService} (per-order ordering, coalescing and idempotency apply), order-created and
+ * abandoned-cart payloads through their flow services.
+ * <p>
+ * Each line is a raw payload ({@code WebhookWrapper}, a single status order as in the ingestion journal or the
+ * capture buffer, a Shopify order, or a Fasterr cart), or an envelope
+ * {@code {"type":"order-created","shopDomain":"...","payload":{...}}}. Lines that do not parse are counted as
+ * skipped. Events are paced to {@code ratePerSecond}, at most {@code parallelism} in flight, one job at a time;
+ * {@code dryRun} only parses and counts. Progress is logged and served by {@code GET /api/replay/{id}}.
+ */
+@Service
+public class WebhookReplayService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookReplayService.class);
+
+    static final int MAX_FINISHED_JOBS = 20;
+    private static final long PROGRESS_LOG_INTERVAL_MS = 5000;
+    private static final int MAX_LOGGED_PARSE_ERRORS = 10;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WebhookSourceAdapterRegistry webhookSourceAdapterRegistry;
+
+    @Autowired
+    private StatusWebhookFanOutService statusWebhookFanOutService;
+
+    @Autowired
+    private OrderCreatedFlowService orderCreatedFlowService;
+
+    @Autowired
+    private AbandonedCartFlowService abandonedCartFlowService;
+
+    @Value("${webhook.replay.dir:data/replay}")
+    private String replayDir;
+
+    @Value("${webhook.replay.default-parallelism:4}")
+    private int defaultParallelism;
+
+    @Value("${webhook.replay.max-parallelism:32}")
+    private int maxParallelism;
+
+    /** Line payload kinds; {@link #AUTO} detects per line. */
+    public enum PayloadType {
+        AUTO("auto"), STATUS("status"), STATUS_ORDER("status-order"), ORDER_CREATED("order-created"),
+        CART_ABANDONED("cart-abandoned");
+
+        private final String label;
+
+        PayloadType(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public static PayloadType fromLabel(String label) {
+            if (label == null || label.isBlank()) {
+                return AUTO;
+            }
+            String normalized = label.trim().toLowerCase(Locale.ROOT).replace('_', '-');
+            for (PayloadType type : values()) {
+                if (type.label.equals(normalized)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown payload type: " + label
+                    + " (use auto, status, status-order, order-created or cart-abandoned)");
+        }
+    }
+
+    record ReplayEvent(PayloadType type, Object payload, String shopDomain) {
+    }
+
+    enum State {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    /** One replay run; counters are read by the progress endpoint while the job runs. */
+    static final class ReplayJob {
+        final String id;
+        final Path file;
+        final PayloadType type;
+        final double ratePerSecond;
+        final int parallelism;
+        final boolean dryRun;
+        final String shopDomain;
+        final long startedAtMillis = System.currentTimeMillis();
+
+        volatile State state = State.RUNNING;
+        volatile long totalLines = -1;
+        volatile long finishedAtMillis;
+        volatile String error;
+        volatile Thread runner;
+
+        final AtomicLong linesRead = new AtomicLong();
+        final AtomicLong skippedLines = new AtomicLong();
+        final AtomicLong events = new AtomicLong();
+        final AtomicLong succeeded = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final Map<String, AtomicLong> byType = new ConcurrentHashMap<>();
+        final Map<String, AtomicLong> byRoute = new ConcurrentHashMap<>();
+
+        ReplayJob(String id, Path file, PayloadType type, double ratePerSecond, int parallelism, boolean dryRun,
+                String shopDomain) {
+            this.id = id;
+            this.file = file;
+            this.type = type;
+            this.ratePerSecond = ratePerSecond;
+            this.parallelism = parallelism;
+            this.dryRun = dryRun;
+            this.shopDomain = shopDomain;
+        }
+
+        Map<String, Object> snapshot() {
+            long end = finishedAtMillis > 0 ? finishedAtMillis : System.currentTimeMillis();
+            double elapsedSeconds = Math.max(0.001, (end - startedAtMillis) / 1000.0);
+            long completed = succeeded.get() + failed.get();
+            long read = linesRead.get();
+
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", id);
+            m.put("state", state.name());
+            m.put("file", file.getFileName().toString());
+            m.put("type", type.label());
+            m.put("dryRun", dryRun);
+            m.put("ratePerSecond", ratePerSecond);
+            m.put("parallelism", parallelism);
+            m.put("totalLines", totalLines);
+            m.put("linesRead", read);
+            m.put("skippedLines", skippedLines.get());
+            m.put("events", events.get());
+            m.put("succeeded", succeeded.get());
+            m.put("failed", failed.get());
+            m.put("inFlight", Math.max(0, events.get() - completed));
+            m.put("percent", totalLines > 0 ? Math.round(read * 1000.0 / totalLines) / 10.0 : null);
+            m.put("eventsPerSecond", Math.round(completed / elapsedSeconds * 10) / 10.0);
+            if (state == State.RUNNING && totalLines > 0 && read > 0) {
+                m.put("etaSeconds", Math.round((totalLines - read) / (read / elapsedSeconds)));
+            }
+            m.put("byType", toCounts(byType));
+            if (!byRoute.isEmpty()) {
+                m.put("byRoute", toCounts(byRoute));
+            }
+            m.put("startedAt", Instant.ofEpochMilli(startedAtMillis).toString());
+            if (finishedAtMillis > 0) {
+                m.put("finishedAt", Instant.ofEpochMilli(finishedAtMillis).toString());
+            }
+            m.put("elapsedSeconds", Math.round(elapsedSeconds));
+            if (error != null) {
+                m.put("error", error);
+            }
+            return m;
+        }
+
+        private static Map<String, Long> toCounts(Map<String, AtomicLong> counters) {
+            Map<String, Long> out = new TreeMap<>();
+            counters.forEach((k, v) -> out.put(k, v.get()));
+            return out;
+        }
+    }
+
+    /** Job id → job, oldest first. Guarded by {@code this}. */
+    private final LinkedHashMap<String, ReplayJob> jobs = new LinkedHashMap<>();
+    private final AtomicInteger jobSeq = new AtomicInteger();
+
+    /**
+     * Validate the request and start a replay in the background.
+     *
+     * @throws IllegalArgumentException bad file / type, or another replay is still running
+     */
+    public Map<String, Object> start(WebhookReplayRequest request) {
+        if (request == null || request.getFile() == null || request.getFile().isBlank()) {
+            throw new IllegalArgumentException("file is required");
+        }
+        Path file = resolveFile(request.getFile());
+        PayloadType type = PayloadType.fromLabel(request.getType());
+        double rate = request.getRatePerSecond() != null ? Math.max(0, request.getRatePerSecond()) : 0;
+        int parallelism = request.getParallelism() != null ? request.getParallelism() : defaultParallelism;
+        parallelism = Math.min(Math.max(1, parallelism), Math.max(1, maxParallelism));
+
+        ReplayJob job;
+        synchronized (this) {
+            for (ReplayJob existing : jobs.values()) {
+                if (existing.state == State.RUNNING) {
+                    throw new IllegalArgumentException("Replay " + existing.id + " is still running");
+                }
+            }
+            job = new ReplayJob(String.valueOf(jobSeq.incrementAndGet()), file, type, rate, parallelism,
+                    request.isDryRun(), request.getShopDomain());
+            jobs.put(job.id, job);
+            trimFinishedJobs();
+        }
+
+        Thread runner = new Thread(() -> run(job), "webhook-replay-" + job.id);
+        runner.setDaemon(true);
+        job.runner = runner;
+        runner.start();
+        log.info("🔁 Replay {} started: file={}, type={}, rate={}/s, parallelism={}, dryRun={}", job.id,
+                file.getFileName(), type.label(), rate > 0 ? rate : "unlimited", parallelism, job.dryRun);
+        return job.snapshot();
+    }
+
+    public synchronized Map<String, Object> getProgress(String id) {
+        ReplayJob job = jobs.get(id);
+        return job != null ? job.snapshot() : null;
+    }
+
+    public synchronized List<Map<String, Object>> listJobs() {
+        List<Map<String, Object>> out = new ArrayList<>();
+        jobs.values().forEach(job -> out.add(job.snapshot()));
+        return out;
+    }
+
+    /** Stop reading new lines; events already in flight finish. */
+    public boolean cancel(String id) {
+        ReplayJob job;
+        synchronized (this) {
+            job = jobs.get(id);
+        }
+        if (job == null || job.state != State.RUNNING) {
+            return false;
+        }
+        job.state = State.CANCELLED;
+        Thread runner = job.runner;
+        if (runner != null) {
+            runner.interrupt();
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        List<String> running = new ArrayList<>();
+        synchronized (this) {
+            jobs.values().stream().filter(j -> j.state == State.RUNNING).forEach(j -> running.add(j.id));
+        }
+        running.forEach(this::cancel);
+    }
+
+    void run(ReplayJob job) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(job.parallelism, r -> {
+            Thread t = new Thread(r, "webhook-replay-" + job.id + "-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Semaphore inFlight = new Semaphore(job.parallelism);
+        long intervalNanos = job.ratePerSecond > 0 ? (long) (1_000_000_000L / job.ratePerSecond) : 0;
+        long nextSlotNanos = System.nanoTime();
+        long lastProgressLog = System.currentTimeMillis();
+
+        try (Stream<String> lines = Files.lines(job.file, StandardCharsets.UTF_8)) {
+            job.totalLines = lines.count();
+        } catch (Exception e) {
+            log.warn("Replay {}: could not count lines of {}: {}", job.id, job.file.getFileName(), e.getMessage());
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(job.file, StandardCharsets.UTF_8)) {
+            String line;
+            while (job.state == State.RUNNING && (line = reader.readLine()) != null) {
+                long lineNo = job.linesRead.incrementAndGet();
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<ReplayEvent> events;
+                try {
+                    events = parseLine(line.getBytes(StandardCharsets.UTF_8), job.type, job.shopDomain);
+                } catch (Exception e) {
+                    if (job.skippedLines.incrementAndGet() <= MAX_LOGGED_PARSE_ERRORS) {
+                        log.warn("Replay {}: skipping line {}: {}", job.id, lineNo, e.getMessage());
+                    }
+                    continue;
+                }
+
+                for (ReplayEvent event : events) {
+                    job.events.incrementAndGet();
+                    count(job.byType, event.type().label());
+                    if (event.payload() instanceof StatusUpdateWebhook.OrderStatus order) {
+                        count(job.byRoute,
+                                WebhookProcessingService.routeFor(order.getCurrentShipmentStatus()).name());
+                    }
+                    if (job.dryRun) {
+                        job.succeeded.incrementAndGet();
+                        continue;
+                    }
+                    if (intervalNanos > 0) {
+                        long wait = nextSlotNanos - System.nanoTime();
+                        if (wait > 0) {
+                            TimeUnit.NANOSECONDS.sleep(wait);
+                        }
+                        nextSlotNanos = Math.max(nextSlotNanos, System.nanoTime()) + intervalNanos;
+                    }
+                    inFlight.acquire();
+                    dispatch(event, workers).whenComplete((ok, e) -> {
+                        if (e == null && Boolean.TRUE.equals(ok)) {
+                            job.succeeded.incrementAndGet();
+                        } else {
+                            job.failed.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+                }
+
+                if (System.currentTimeMillis() - lastProgressLog >= PROGRESS_LOG_INTERVAL_MS) {
+                    lastProgressLog = System.currentTimeMillis();
+                    logProgress(job);
+                }
+            }
+            inFlight.acquire(job.parallelism);
+            if (job.state == State.RUNNING) {
+                job.state = State.COMPLETED;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (job.state == State.RUNNING) {
+                job.state = State.CANCELLED;
+            }
+        } catch (Exception e) {
+            log.error("❌ Replay {} failed: {}", job.id, e.getMessage(), e);
+            job.error = e.getMessage();
+            job.state = State.FAILED;
+        } finally {
+            workers.shutdown();
+            job.finishedAtMillis = System.currentTimeMillis();
+            logProgress(job);
+        }
+    }
+
+    private void logProgress(ReplayJob job) {
+        Map<String, Object> s = job.snapshot();
+        log.info("🔁 Replay {} {}: lines {}/{}, events {}, ok {}, failed {}, skipped {}, {} events/s", job.id,
+                s.get("state"), s.get("linesRead"), s.get("totalLines"), s.get("events"), s.get("succeeded"),
+                s.get("failed"), s.get("skippedLines"), s.get("eventsPerSecond"));
+    }
+
+    private CompletableFuture<Boolean> dispatch(ReplayEvent event, ExecutorService workers) {
+        try {
+            if (event.payload() instanceof StatusUpdateWebhook.OrderStatus order) {
+                return statusWebhookFanOutService.submit(order)
+                        .thenApply(result -> result != null && Boolean.TRUE.equals(result.get("success")));
+            }
+            if (event.payload() instanceof ShopifyOrderCreatedWebhook webhook) {
+                return CompletableFuture.supplyAsync(
+                        () -> orderCreatedFlowService.processShopifyOrderCreated(webhook, event.shopDomain()), workers);
+            }
+            FasterrAbandonedCartWebhook cart = (FasterrAbandonedCartWebhook) event.payload();
+            return CompletableFuture.supplyAsync(() -> abandonedCartFlowService.processAbandonedCart(cart), workers);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Events on one NDJSON line (a status batch yields one event per order).
+     */
+    List<ReplayEvent> parseLine(byte[] line, PayloadType type, String defaultShopDomain) throws IOException {
+        byte[] body = line;
+        String shopDomain = defaultShopDomain;
+        if (type == PayloadType.AUTO) {
+            JsonNode node = objectMapper.readTree(line);
+            if (node == null || !node.isObject()) {
+                throw new IOException("Line is not a JSON object");
+            }
+            if (node.has("payload") && node.has("type")) {
+                type = PayloadType.fromLabel(node.get("type").asText());
+                shopDomain = node.path("shopDomain").asText(defaultShopDomain);
+                node = node.get("payload");
+                body = objectMapper.writeValueAsBytes(node);
+            }
+            if (type == PayloadType.AUTO) {
+                type = detectType(node);
+            }
+        }
+
+        List<ReplayEvent> events = new ArrayList<>();
+        switch (type) {
+            case STATUS:
+                WebhookWrapper wrapper = webhookSourceAdapterRegistry.parse(WebhookSourceAdapter.CLAIMIO_STATUS,
+                        WebhookWrapper.class, body);
+                if (wrapper != null && wrapper.getOrders() != null) {
+                    for (StatusUpdateWebhook.OrderStatus order : wrapper.getOrders()) {
+                        events.add(new ReplayEvent(PayloadType.STATUS, order, null));
+                    }
+                }
+                break;
+            case STATUS_ORDER:
+                events.add(new ReplayEvent(PayloadType.STATUS_ORDER,
+                        objectMapper.readValue(body, StatusUpdateWebhook.OrderStatus.class), null));
+                break;
+            case ORDER_CREATED:
+                events.add(new ReplayEvent(PayloadType.ORDER_CREATED, webhookSourceAdapterRegistry.parse(
+                        WebhookSourceAdapter.SHOPIFY_ORDER_CREATED, ShopifyOrderCreatedWebhook.class, body),
+                        shopDomain));
+                break;
+            default:
+                events.add(new ReplayEvent(PayloadType.CART_ABANDONED, webhookSourceAdapterRegistry.parse(
+                        WebhookSourceAdapter.FASTERR_CART, FasterrAbandonedCartWebhook.class, body), null));
+                break;
+        }
+        return events;
+    }
+
+    static PayloadType detectType(JsonNode node) throws IOException {
+        if (node.has("orders")) {
+            return PayloadType.STATUS;
+        }
+        if (node.has("current_shipment_status") || node.has("order_id")) {
+            return PayloadType.STATUS_ORDER;
+        }
+        if (node.has("line_items") || node.has("order_number")) {
+            return PayloadType.ORDER_CREATED;
+        }
+        if (node.has("attributes") || node.has("cart_id")) {
+            return PayloadType.CART_ABANDONED;
+        }
+        throw new IOException("Unrecognized payload (no orders / order_id / line_items / attributes / cart_id)");
+    }
+
+    private Path resolveFile(String name) {
+        Path base = Paths.get(replayDir).toAbsolutePath().normalize();
+        Path file = base.resolve(name.trim()).normalize();
+        if (!file.startsWith(base)) {
+            throw new IllegalArgumentException("file must be inside " + base);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("File not found: " + file);
+        }
+        return file;
+    }
+
+    private void trimFinishedJobs() {
+        Iterator<ReplayJob> it = jobs.values().iterator();
+        int finished = (int) jobs.values().stream().filter(j -> j.state != State.RUNNING).count();
+        while (finished > MAX_FINISHED_JOBS && it.hasNext()) {
+            if (it.next().state != State.RUNNING) {
+                it.remove();
+                finished--;
+            }
+        }
+    }
+
+    private static void count(Map<String, AtomicLong> counters, String key) {
+        counters.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+}
@@ -0,0 +1,33 @@
+package com.shipway.ordertracking.service;
+
+import java.io.IOException;
+
+/**
+ * Binds the raw request bytes of one inbound webhook source to its DTO in a single pass (no intermediate
+ * String / JsonNode). Implementations are Spring beans collected by {@link WebhookSourceAdapterRegistry}.
+ *
+ * @param <T> payload DTO handed to the flow service
+ */
+public interface WebhookSourceAdapter<T> {
+
+    /** Fasterr abandoned cart: POST /webhook/cart-abandoned */
+    String FASTERR_CART = "fasterr-cart";
+
+    /** Shopify orders/create: POST /webhook/shopify/order-created */
+    String SHOPIFY_ORDER_CREATED = "shopify-order-created";
+
+    /** Claimio status update batch: POST /webhook */
+    String CLAIMIO_STATUS = "claimio-status";
+
+    /** Registry key for this source. */
+    String source();
+
+    Class<T> payloadType();
+
+    /**
+     * Parse the request body.
+     *
+     * @throws IOException if the body is not valid JSON or does not match any supported shape
+     */
+    T parse(byte[] body) throws IOException;
+}
@@ -0,0 +1,48 @@
+package com.shipway.ordertracking.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up the {@link WebhookSourceAdapter} registered for a webhook source.
+ */
+@Component
+public class WebhookSourceAdapterRegistry {
+
+    @Autowired
+    private List<WebhookSourceAdapter<?>> adapters;
+
+    private final Map<String, WebhookSourceAdapter<?>> bySource = new HashMap<>();
+
+    @PostConstruct
+    void init() {
+        for (WebhookSourceAdapter<?> adapter : adapters) {
+            WebhookSourceAdapter<?> previous = bySource.put(adapter.source(), adapter);
+            if (previous != null) {
+                throw new IllegalStateException("Duplicate webhook source adapter for '" + adapter.source() + "': "
+                        + previous.getClass().getSimpleName() + ", " + adapter.getClass().getSimpleName());
+            }
+        }
+    }
+
+    /**
+     * Parse {@code body} with the adapter registered for {@code source}.
+     */
+    public <T> T parse(String source, Class<T> payloadType, byte[] body) throws IOException {
+        WebhookSourceAdapter<?> adapter = bySource.get(source);
+        if (adapter == null) {
+            throw new IllegalStateException("No webhook source adapter registered for '" + source + "'");
+        }
+        if (!payloadType.equals(adapter.payloadType())) {
+            throw new IllegalStateException("Webhook source '" + source + "' produces "
+                    + adapter.payloadType().getSimpleName() + ", not " + payloadType.getSimpleName());
+        }
+        return payloadType.cast(adapter.parse(body));
+    }
+}
@@ -0,0 +1,226 @@
+package com.shipway.ordertracking.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps a carrier {@code shipment_status} string (webhook {@code current_shipment_status}, {@code order_tracking})
+ * to a {@link ShipmentStatus}. Used by webhook routing, the fulfillment preview allowlist, bulk fulfillment and the
+ * flows' "status unchanged" checks, so all of them read a status the same way.
+ * <p>
+ * Every spelling of {@link #KNOWN_CARRIER_STATUSES} is classified up front; other strings are classified on first
+ * sight and memoized (up to {@value #MAX_MEMO_ENTRIES} entries), so repeated statuses cost one map lookup and no
+ * string allocation.
+ */
+public final class ShipmentStatusClassifier {
+
+    /** Canonical shipment status. RTO wins over the forward-journey statuses ("RTO In Transit" is {@link #RTO}). */
+    public enum ShipmentStatus {
+        /** Shipment booked, label / pickup generated, out for pickup, SHPFR1x. */
+        BOOKED,
+        SHIPPED,
+        /** Carrier code {@code INT}. */
+        INT,
+        /** In transit or picked up. */
+        IN_TRANSIT,
+        OUT_FOR_DELIVERY,
+        DELIVERED,
+        /** Not delivered / undelivered (NDR). */
+        UNDELIVERED,
+        /** Return to origin, any stage. */
+        RTO,
+        UNKNOWN
+    }
+
+    /**
+     * Carrier {@code shipment_status} values seen from Claimio / {@code order_tracking}; also the fulfillment
+     * preview allowlist.
+     */
+    public static final List<String> KNOWN_CARRIER_STATUSES = List.of(
+            "0",
+            "Address Incorrect",
+            "AWB_ASSIGNED",
+            "Consignee Refused",
+            "Consignee Unavailable",
+            "CROV",
+            "Customer refused - OTP verified",
+            "DEL",
+            "DELAYED",
+            "Delivered",
+            "Delivery Delayed",
+            "Delivery Reattempt",
+            "Future delivery requested",
+            "In Transit",
+            "INT",
+            "LOST",
+            "Manifest Uploaded",
+            "Out For Delivery",
+            "Out for Pickup",
+            "OUT_FOR_PICKUP",
+            "Picked Up",
+            "PICKED_UP",
+            "Pickup Failed",
+            "PICKUP_GENERATED",
+            "Reached At Destination",
+            "REACHED_AT_DESTINATION_HUB",
+            "RTD",
+            "RTO",
+            "RTO Delivered",
+            "RTO In Transit",
+            "RTO Initiated",
+            "RTO Lost",
+            "RTO Undelivered",
+            "RTO_IN_TRANSIT",
+            "RTO_INITIATED",
+            "RTO_NDR",
+            "RTO_OFD",
+            "RTONDR12",
+            "RTONDR5",
+            "RTOUND",
+            "Shipment Booked",
+            "SHIPPED",
+            "SHNDR1",
+            "SHNDR12",
+            "SHNDR13",
+            "SHNDR14",
+            "SHNDR16",
+            "SHNDR18",
+            "SHNDR2",
+            "SHNDR3",
+            "SHNDR4",
+            "SHNDR5",
+            "SHNDR6",
+            "SHNDR8",
+            "SHPFR1",
+            "SHPFR10",
+            "SHPFR11",
+            "SHPFR3",
+            "SHPFR4",
+            "SHPFR6",
+            "SHPFR7",
+            "Undelivered");
+
+    static final int MAX_MEMO_ENTRIES = 2048;
+
+    private record Classification(String normalized, ShipmentStatus status) {
+    }
+
+    private static final Classification BLANK = new Classification("", ShipmentStatus.UNKNOWN);
+
+    /** Raw spelling → classification for the known statuses; read-only after class init. */
+    private static final Map<String, Classification> PRECOMPUTED;
+
+    /** Raw spelling → classification for everything else. */
+    private static final Map<String, Classification> MEMO = new ConcurrentHashMap<>();
+
+    static {
+        Map<String, Classification> table = new HashMap<>();
+        for (String raw : KNOWN_CARRIER_STATUSES) {
+            Classification c = compute(raw);
+            table.put(raw, c);
+            table.put(raw.toUpperCase(Locale.ROOT), c);
+            table.put(raw.toLowerCase(Locale.ROOT), c);
+            table.put(c.normalized(), c);
+            table.put(c.normalized().replace(' ', '_'), c);
+            table.put(c.normalized().toLowerCase(Locale.ROOT).replace(' ', '_'), c);
+        }
+        PRECOMPUTED = Collections.unmodifiableMap(table);
+    }
+
+    private ShipmentStatusClassifier() {
+    }
+
+    public static ShipmentStatus classify(String raw) {
+        return lookup(raw).status();
+    }
+
+    /**
+     * Trimmed, upper-case, {@code _} → space, runs of whitespace collapsed ({@code "  in_transit "} →
+     * {@code "IN TRANSIT"}); {@code ""} for null.
+     */
+    public static String normalize(String raw) {
+        return lookup(raw).normalized();
+    }
+
+    /** True when both are present and normalize to the same string. */
+    public static boolean sameStatus(String a, String b) {
+        return a != null && b != null && normalize(a).equals(normalize(b));
+    }
+
+    static int memoSize() {
+        return MEMO.size();
+    }
+
+    private static Classification lookup(String raw) {
+        if (raw == null) {
+            return BLANK;
+        }
+        Classification c = PRECOMPUTED.get(raw);
+        if (c == null) {
+            c = MEMO.get(raw);
+        }
+        if (c == null) {
+            c = compute(raw);
+            if (MEMO.size() < MAX_MEMO_ENTRIES) {
+                MEMO.putIfAbsent(raw, c);
+            }
+        }
+        return c;
+    }
+
+    private static Classification compute(String raw) {
+        String n = normalizeUncached(raw);
+        return n.isEmpty() ? BLANK : new Classification(n, classifyNormalized(n));
+    }
+
+    static ShipmentStatus classifyNormalized(String n) {
+        if (n.contains("RTO") || n.contains("RETURN TO ORIGIN")) {
+            return ShipmentStatus.RTO;
+        }
+        if (n.contains("OUT FOR DELIVERY")) {
+            return ShipmentStatus.OUT_FOR_DELIVERY;
+        }
+        if (n.contains("NOT DELIVERED") || n.contains("UNDELIVERED")) {
+            return ShipmentStatus.UNDELIVERED;
+        }
+        if (n.contains("DELIVERED")) {
+            return ShipmentStatus.DELIVERED;
+        }
+        if (n.contains("IN TRANSIT") || n.contains("PICKED UP")) {
+            return ShipmentStatus.IN_TRANSIT;
+        }
+        if (n.equals("INT")) {
+            return ShipmentStatus.INT;
+        }
+        if (n.contains("SHIPPED")) {
+            return ShipmentStatus.SHIPPED;
+        }
+        if (n.contains("SHIPMENT BOOKED") || n.contains("OUT FOR PICKUP") || n.contains("SHPFR1")
+                || n.contains("LABEL GENERATED") || n.contains("PICKUP GENERATED")) {
+            return ShipmentStatus.BOOKED;
+        }
+        return ShipmentStatus.UNKNOWN;
+    }
+
+    private static String normalizeUncached(String raw) {
+        StringBuilder sb = new StringBuilder(raw.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < raw.length(); i++) {
+            char ch = raw.charAt(i);
+            if (ch == '_' || Character.isWhitespace(ch)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(Character.toUpperCase(ch));
+        }
+        return sb.toString();
+    }
+}
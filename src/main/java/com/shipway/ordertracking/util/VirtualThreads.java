@@ -0,0 +1,54 @@
+package com.shipway.ordertracking.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual-thread executors for the blocking Shopify / Botspace work when the app runs on JDK 21+ with
+ * {@code spring.threads.virtual.enabled=true} (see {@code application-vthreads.properties}).
+ * <p>
+ * The default build targets Java 17, so the JDK 21 API is looked up reflectively; on an older runtime
+ * {@link #isSupported()} is false and callers keep their platform thread pools.
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = lookup(Thread.class, "ofVirtual");
+
+    private VirtualThreads() {
+    }
+
+    /** True when the running JDK has virtual threads. */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * One new virtual thread per task, named {@code namePrefix + n}. Call only when {@link #isSupported()}.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (OF_VIRTUAL == null) {
+            throw new UnsupportedOperationException("Virtual threads need JDK 21+ (running " +
+                    System.getProperty("java.version") + ")");
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual thread executor", e);
+        }
+    }
+
+    private static Method lookup(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.shipway.ordertracking.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.FasterrAbandonedCartWebhook;
+import com.shipway.ordertracking.service.FasterrCartWebhookAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POST /webhook/cart-abandoned parsing for both payload shapes: previous controller logic (body as String,
+ * parse as wrapper, parse again as Attributes when unwrapped) vs {@link FasterrCartWebhookAdapter} on raw bytes.
+ * <p>
+ * Not run by {@code mvn test}; run {@link #main} (GC profiler included for bytes allocated per op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartAbandonedParsingBenchmark {
+
+    private static final String CART = "\"cart_id\":\"9c2f1b\",\"phone_number\":\"919876543210\",\"first_name\":\"Test\","
+            + "\"checkout_url\":\"https://shop.example/checkout/9c2f1b\","
+            + "\"custom_attributes\":{\"landing_page_url\":\"https://shop.example/products/jersey\"},"
+            + "\"shipping_address\":{\"phone\":\"919876543210\"},\"billing_address\":{\"phone\":\"919876543210\"},"
+            + "\"items\":[{\"product_id\":8123456789,\"img_url\":\"https://cdn.example/a.jpg\"},"
+            + "{\"product_id\":8123456790,\"img_url\":\"https://cdn.example/b.jpg\"}]";
+
+    @Param({ "wrapped", "root" })
+    public String shape;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FasterrCartWebhookAdapter adapter;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        String json = "wrapped".equals(shape)
+                ? "{\"message\":\"cart abandoned\",\"severity\":\"info\",\"tags\":[\"fasterr\"],"
+                        + "\"timestamp\":\"2026-01-01T00:00:00Z\",\"attributes\":{" + CART + "}}"
+                : "{" + CART + "}";
+        payload = json.getBytes(StandardCharsets.UTF_8);
+
+        adapter = new FasterrCartWebhookAdapter();
+        ReflectionTestUtils.setField(adapter, "objectMapper", objectMapper);
+        ReflectionTestUtils.invokeMethod(adapter, "init");
+    }
+
+    @Benchmark
+    public FasterrAbandonedCartWebhook stringTwoPass() throws Exception {
+        String rawBody = new String(payload, StandardCharsets.UTF_8);
+        FasterrAbandonedCartWebhook webhook = objectMapper.readValue(rawBody, FasterrAbandonedCartWebhook.class);
+        if (webhook.getAttributes() == null) {
+            FasterrAbandonedCartWebhook.Attributes root = objectMapper.readValue(rawBody,
+                    FasterrAbandonedCartWebhook.Attributes.class);
+            webhook = new FasterrAbandonedCartWebhook();
+            webhook.setAttributes(root);
+        }
+        return webhook;
+    }
+
+    @Benchmark
+    public FasterrAbandonedCartWebhook adapterSinglePass() throws Exception {
+        return adapter.parse(payload);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CartAbandonedParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
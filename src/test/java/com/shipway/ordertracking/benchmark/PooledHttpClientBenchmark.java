@@ -0,0 +1,181 @@
+package com.shipway.ordertracking.benchmark;
+
+import com.shipway.ordertracking.config.HttpClientConfig;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency per Shopify-style GraphQL POST against a local TLS stub (self-signed, generated with {@code keytool}):
+ * the previous {@code SimpleClientHttpRequestFactory} RestTemplate, the pooled client from {@link HttpClientConfig},
+ * and the same client with connection reuse disabled (full TCP + TLS handshake per call).
+ * <p>
+ * Not run by {@code mvn test}; run {@link #main} (GC profiler included for bytes allocated per op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PooledHttpClientBenchmark {
+
+    private static final String PASSWORD = "benchmark";
+    private static final Map<String, Object> REQUEST = Map.of("query",
+            "query ($q: String!) { orders(first: 1, query: $q) { edges { node { id } } } }",
+            "variables", Map.of("q", "name:#254120"));
+    private static final byte[] RESPONSE = ("{\"data\":{\"orders\":{\"edges\":[{\"node\":{\"id\":"
+            + "\"gid://shopify/Order/7001\"}}]}}}").getBytes(StandardCharsets.UTF_8);
+
+    private HttpsServer server;
+    private ExecutorService serverExecutor;
+    private String url;
+
+    private RestTemplate previous;
+    private CloseableHttpClient pooledClient;
+    private RestTemplate pooled;
+    private CloseableHttpClient connectionPerCallClient;
+    private RestTemplate connectionPerCall;
+
+    @Setup
+    @SuppressWarnings("deprecation")
+    public void setUp() throws Exception {
+        SSLContext ssl = selfSignedContext();
+
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+        server.setHttpsConfigurator(new HttpsConfigurator(ssl));
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.createContext("/graphql.json", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(RESPONSE);
+            }
+        });
+        server.start();
+        url = "https://127.0.0.1:" + server.getAddress().getPort() + "/graphql.json";
+
+        SimpleClientHttpRequestFactory simple = new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                if (connection instanceof HttpsURLConnection https) {
+                    https.setSSLSocketFactory(ssl.getSocketFactory());
+                }
+            }
+        };
+        simple.setConnectTimeout(5000);
+        simple.setReadTimeout(10000);
+        previous = new RestTemplate(simple);
+
+        SSLConnectionSocketFactory tls = SSLConnectionSocketFactoryBuilder.create().setSslContext(ssl).build();
+        HttpClientConfig.PoolSettings settings = new HttpClientConfig.PoolSettings(50, 10, 5000, 10000, 300);
+        pooledClient = HttpClientConfig.httpClient(HttpClientConfig.connectionManager(settings, tls), 5000, 30);
+        pooled = new RestTemplate(new HttpComponentsClientHttpRequestFactory(pooledClient));
+
+        connectionPerCallClient = HttpClients.custom()
+                .setConnectionManager(HttpClientConfig.connectionManager(settings, tls))
+                .setConnectionReuseStrategy((request, response, context) -> false)
+                .build();
+        connectionPerCall = new RestTemplate(new HttpComponentsClientHttpRequestFactory(connectionPerCallClient));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pooledClient.close();
+        connectionPerCallClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public String previousUrlConnection() {
+        return previous.postForObject(url, REQUEST, String.class);
+    }
+
+    @Benchmark
+    public String pooledHttpClient() {
+        return pooled.postForObject(url, REQUEST, String.class);
+    }
+
+    @Benchmark
+    public String connectionPerCall() {
+        return connectionPerCall.postForObject(url, REQUEST, String.class);
+    }
+
+    /** Key pair for CN=localhost / IP 127.0.0.1, used as both the stub's key and the clients' trust store. */
+    private static SSLContext selfSignedContext() throws Exception {
+        Path keystore = Files.createTempDirectory("tls-stub").resolve("stub.p12");
+        Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "stub", "-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+                "-dname", "CN=localhost", "-ext", "san=ip:127.0.0.1,dns:localhost", "-storetype", "PKCS12",
+                "-keystore", keystore.toString(), "-storepass", PASSWORD, "-keypass", PASSWORD)
+                .inheritIO()
+                .start();
+        if (keytool.waitFor() != 0) {
+            throw new IllegalStateException("keytool failed with exit code " + keytool.exitValue());
+        }
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystore)) {
+            keyStore.load(in, PASSWORD.toCharArray());
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD.toCharArray());
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+        return context;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(PooledHttpClientBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.shipway.ordertracking.benchmark;
+
+import com.shipway.ordertracking.util.ShipmentStatusClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifying one webhook's status the way routing, the idempotency key and a flow's "unchanged" check each did
+ * (trim / upper-case / replace / regex, then chained {@code contains}) vs {@link ShipmentStatusClassifier}.
+ * Statuses are fresh {@code String} instances, as they are when Jackson reads a webhook.
+ * <p>
+ * Not run by {@code mvn test}; run {@link #main} (GC profiler included for bytes allocated per op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShipmentStatusClassifierBenchmark {
+
+    private static final String[] STATUSES = { "In Transit", "OUT_FOR_DELIVERY", "Delivered", "PICKED_UP",
+            "SHIPPED", "RTO In Transit", "Shipment Booked", "SHNDR4", "Out For Delivery", "IN_TRANSIT" };
+
+    private String[] current;
+    private String[] previous;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        current = new String[STATUSES.length];
+        previous = new String[STATUSES.length];
+        for (int k = 0; k < STATUSES.length; k++) {
+            current[k] = new String(STATUSES[k]);
+            previous[k] = new String(STATUSES[(k + 3) % STATUSES.length]);
+        }
+    }
+
+    @Benchmark
+    public void legacyStringChains(Blackhole bh) {
+        int k = i++ % current.length;
+        String status = current[k];
+        // routing
+        String routed = status.trim().toUpperCase().replace("_", " ");
+        bh.consume(routed.contains("OUT FOR DELIVERY") ? 1 : routed.equals("DELIVERED") ? 2
+                : routed.contains("IN TRANSIT") || routed.contains("PICKED UP") ? 3 : 0);
+        // idempotency key / preview
+        bh.consume(status.trim().toUpperCase().replace('_', ' ').replaceAll("\\s+", " ").trim());
+        // flow "status unchanged"
+        bh.consume(status.trim().toUpperCase().replace("_", " ")
+                .equals(previous[k].trim().toUpperCase().replace("_", " ")));
+    }
+
+    @Benchmark
+    public void classifier(Blackhole bh) {
+        int k = i++ % current.length;
+        String status = current[k];
+        bh.consume(ShipmentStatusClassifier.classify(status));
+        bh.consume(ShipmentStatusClassifier.normalize(status));
+        bh.consume(ShipmentStatusClassifier.sameStatus(status, previous[k]));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ShipmentStatusClassifierBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,91 @@
+package com.shipway.ordertracking.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Status webhook body: tree-then-bind (previous {@code WebhookBodyDeserializer}: readTree + treeToValue per order)
+ * vs the streaming {@link com.shipway.ordertracking.dto.OrderStatusStreamReader} path.
+ * <p>
+ * Not run by {@code mvn test}. Run from the IDE (main) or
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=<this class>};
+ * the GC profiler reports {@code gc.alloc.rate.norm} (bytes allocated per op) next to throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatusWebhookDeserializationBenchmark {
+
+    @Param({ "10", "500", "5000" })
+    public int orders;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("{\"body\":{\"timestamp\":\"2026-01-01T00:00:00Z\",\"event\":\"status\",\"orders\":[");
+        for (int i = 0; i < orders; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"order_id\":\"").append(100000 + i)
+                    .append("\",\"account_code\":\"STRIKER\",\"brand_name\":\"Striker Store\",\"carrier_id\":\"12\"")
+                    .append(",\"awb\":\"AWB").append(i)
+                    .append("\",\"current_shipment_status\":\"IN_TRANSIT\",\"previous_status\":\"PICKED_UP\"")
+                    .append(",\"shipping_phone\":\"98765").append(String.format("%05d", i))
+                    .append("\",\"shipping_firstname\":\"Test\",\"shipping_lastname\":\"User\"")
+                    .append(",\"number_of_product\":2,\"number_of_quantity\":\"3\",\"latest_message_status\":\"x\"}");
+        }
+        sb.append("]}}");
+        payload = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<StatusUpdateWebhook.OrderStatus> treeThenBind() throws Exception {
+        JsonNode root = objectMapper.readTree(payload);
+        JsonNode body = root.get("body");
+        List<StatusUpdateWebhook.OrderStatus> result = new ArrayList<>();
+        for (JsonNode orderNode : body.get("orders")) {
+            result.add(objectMapper.treeToValue(orderNode, StatusUpdateWebhook.OrderStatus.class));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<StatusUpdateWebhook.OrderStatus> streaming() throws Exception {
+        return objectMapper.readValue(payload, StatusUpdateWebhook.class).getBody().getOrders();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(StatusWebhookDeserializationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -3,7 +3,11 @@ package com.shipway.ordertracking.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shipway.ordertracking.dto.BulkFulfillFromTrackingRequest;
 import com.shipway.ordertracking.dto.BulkFulfillFromTrackingResponse;
+import com.shipway.ordertracking.dto.BulkFulfillmentJobStatus;
+import com.shipway.ordertracking.dto.FulfillAttemptResult;
+import com.shipway.ordertracking.dto.UnfulfilledShopifyOrderItem;
 import com.shipway.ordertracking.dto.UnfulfilledShopifyPreviewResponse;
+import com.shipway.ordertracking.service.BulkFulfillmentJobService;
 import com.shipway.ordertracking.service.OrderTrackingBulkFulfillmentService;
 import com.shipway.ordertracking.service.UnfulfilledShopifyPreviewService;
 import com.shipway.ordertracking.util.BrandAccountKey;
@@ -13,14 +17,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(OrderFulfillmentPreviewController.class)
@@ -38,6 +54,9 @@ class OrderFulfillmentPreviewControllerTest {
     @MockBean
     private OrderTrackingBulkFulfillmentService orderTrackingBulkFulfillmentService;
 
+    @MockBean
+    private BulkFulfillmentJobService bulkFulfillmentJobService;
+
     @Test
     void listUnfulfilled_defaultLimit_delegatesToService() throws Exception {
         UnfulfilledShopifyPreviewResponse body = new UnfulfilledShopifyPreviewResponse();
@@ -91,4 +110,107 @@ class OrderFulfillmentPreviewControllerTest {
 
         verify(orderTrackingBulkFulfillmentService).execute(any(BulkFulfillFromTrackingRequest.class));
     }
+
+    @Test
+    void submitFulfillFromTrackingJob_returnsAcceptedWithJobId() throws Exception {
+        BulkFulfillmentJobStatus job = new BulkFulfillmentJobStatus();
+        job.setJobId("job-1");
+        job.setStatus("queued");
+        when(bulkFulfillmentJobService.submit(any(BulkFulfillFromTrackingRequest.class))).thenReturn(job);
+
+        mockMvc.perform(post("/api/orders/fulfill-from-tracking/jobs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"limit\": 2000}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value("job-1"))
+                .andExpect(jsonPath("$.status").value("queued"));
+    }
+
+    @Test
+    void getFulfillFromTrackingJob_unknownJob_returnsNotFound() throws Exception {
+        when(bulkFulfillmentJobService.getStatus("missing", false)).thenReturn(null);
+
+        mockMvc.perform(get("/api/orders/fulfill-from-tracking/jobs/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void cancelFulfillFromTrackingJob_delegates() throws Exception {
+        BulkFulfillmentJobStatus job = new BulkFulfillmentJobStatus();
+        job.setJobId("job-1");
+        job.setStatus("running");
+        job.setCancelRequested(true);
+        when(bulkFulfillmentJobService.cancel("job-1")).thenReturn(job);
+
+        mockMvc.perform(post("/api/orders/fulfill-from-tracking/jobs/job-1/cancel"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cancelRequested").value(true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamUnfulfilled_writesOneNdjsonLinePerItemThenSummary() throws Exception {
+        doAnswer(inv -> {
+            Consumer<UnfulfilledShopifyOrderItem> sink = inv.getArgument(2);
+            UnfulfilledShopifyOrderItem item = new UnfulfilledShopifyOrderItem();
+            item.setOrderId("1001");
+            sink.accept(item);
+            return Map.of("matchedWithOrderTracking", 1);
+        }).when(unfulfilledShopifyPreviewService).streamPreview(isNull(), eq(200), any(Consumer.class));
+
+        MvcResult started = mockMvc.perform(get("/api/orders/unfulfilled-with-tracking-status/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", containsString("application/x-ndjson")))
+                .andExpect(content().string(containsString("{\"type\":\"item\",\"data\":{")))
+                .andExpect(content().string(containsString("\"orderId\":\"1001\"")))
+                .andExpect(content().string(containsString(
+                        "{\"type\":\"summary\",\"data\":{\"counts\":{\"matchedWithOrderTracking\":1}}}\n")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamFulfillFromTracking_sse_writesResultEventsThenSummary() throws Exception {
+        doAnswer(inv -> {
+            Consumer<FulfillAttemptResult> sink = inv.getArgument(1);
+            FulfillAttemptResult r = new FulfillAttemptResult();
+            r.setOrderId("1001");
+            r.setSuccess(true);
+            sink.accept(r);
+            return Map.of("succeeded", 1);
+        }).when(orderTrackingBulkFulfillmentService).executeStreaming(any(BulkFulfillFromTrackingRequest.class),
+                any(Consumer.class));
+
+        MvcResult started = mockMvc.perform(post("/api/orders/fulfill-from-tracking/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "event: result\ndata: {\"orderId\":\"1001\",\"success\":true}\n\n")))
+                .andExpect(content().string(containsString(
+                        "event: summary\ndata: {\"dryRun\":false,\"summary\":{\"succeeded\":1}}\n\n")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamUnfulfilled_failureMidStream_endsWithErrorRecord() throws Exception {
+        when(unfulfilledShopifyPreviewService.streamPreview(isNull(), anyInt(), any(Consumer.class)))
+                .thenThrow(new IllegalStateException("Shopify down"));
+
+        MvcResult started = mockMvc.perform(get("/api/orders/unfulfilled-with-tracking-status/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(content().string(containsString("\"type\":\"error\"")))
+                .andExpect(content().string(containsString("Shopify down")));
+    }
 }
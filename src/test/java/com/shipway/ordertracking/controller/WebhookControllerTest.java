@@ -4,28 +4,45 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
 import com.shipway.ordertracking.dto.WebhookWrapper;
 import com.shipway.ordertracking.service.AbandonedCartFlowService;
+import com.shipway.ordertracking.service.ClaimioStatusWebhookAdapter;
+import com.shipway.ordertracking.service.FasterrCartWebhookAdapter;
+import com.shipway.ordertracking.service.ShopifyOrderCreatedWebhookAdapter;
+import com.shipway.ordertracking.service.WebhookSourceAdapterRegistry;
 import com.shipway.ordertracking.service.OrderCreatedFlowService;
+import com.shipway.ordertracking.service.PayloadCaptureService;
+import com.shipway.ordertracking.service.StatusTransitionCoalescer;
+import com.shipway.ordertracking.service.StatusWebhookFanOutService;
+import com.shipway.ordertracking.service.WebhookAdmissionControl;
+import com.shipway.ordertracking.service.WebhookIngestionService;
 import com.shipway.ordertracking.service.WebhookProcessingService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(WebhookController.class)
+@Import({ StatusWebhookFanOutService.class, StatusTransitionCoalescer.class, WebhookSourceAdapterRegistry.class, ClaimioStatusWebhookAdapter.class,
+        ShopifyOrderCreatedWebhookAdapter.class, FasterrCartWebhookAdapter.class, WebhookAdmissionControl.class })
 class WebhookControllerTest {
 
     @Autowired
@@ -34,6 +51,9 @@ class WebhookControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private WebhookAdmissionControl webhookAdmissionControl;
+
     @MockBean
     private WebhookProcessingService webhookProcessingService;
 
@@ -43,6 +63,12 @@ class WebhookControllerTest {
     @MockBean
     private AbandonedCartFlowService abandonedCartFlowService;
 
+    @MockBean
+    private WebhookIngestionService webhookIngestionService;
+
+    @MockBean
+    private PayloadCaptureService payloadCaptureService;
+
     @Test
     void health_returnsOk() throws Exception {
         mockMvc.perform(get("/webhook/health"))
@@ -83,6 +109,66 @@ class WebhookControllerTest {
         verify(webhookProcessingService).processStatusUpdate(any());
     }
 
+    @Test
+    void statusUpdate_asyncIngestion_returnsAcceptedWithoutProcessingInline() throws Exception {
+        when(webhookIngestionService.isAsyncEnabled()).thenReturn(true);
+        when(webhookIngestionService.getStats()).thenReturn(Map.of("queueDepth", 2));
+
+        StatusUpdateWebhook.OrderStatus a = new StatusUpdateWebhook.OrderStatus();
+        a.setOrderId("ORD-1");
+        StatusUpdateWebhook.OrderStatus b = new StatusUpdateWebhook.OrderStatus();
+        b.setOrderId("ORD-2");
+        WebhookWrapper wrapper = new WebhookWrapper();
+        wrapper.setOrders(List.of(a, b));
+
+        mockMvc.perform(post("/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(wrapper)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.queueDepth").value(2));
+
+        verify(webhookIngestionService, times(2)).enqueue(any());
+        verify(webhookProcessingService, never()).processStatusUpdate(any());
+    }
+
+    @Test
+    void statusUpdate_ordersHandedOnWhileParsing_beforeMalformedTail() throws Exception {
+        when(webhookProcessingService.processStatusUpdate(any())).thenReturn(Map.of("success", true));
+
+        mockMvc.perform(post("/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"orders\":[{\"order_id\":\"ORD-1\",\"current_shipment_status\":\"DELIVERED\"},{\"order_id\":"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.skipped").value(0))
+                .andExpect(jsonPath("$.successCount").value(1));
+
+        verify(webhookProcessingService).processStatusUpdate(argThat(o -> "ORD-1".equals(o.getOrderId())));
+    }
+
+    @Test
+    void statusUpdate_malformedBeforeAnyOrder_isBadRequest() throws Exception {
+        mockMvc.perform(post("/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"orders\":[{\"order_id\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+
+        verify(webhookProcessingService, never()).processStatusUpdate(any());
+    }
+
+    @Test
+    void ingestionStats_returnsServiceStats() throws Exception {
+        when(webhookIngestionService.getStats()).thenReturn(Map.of("asyncEnabled", false, "queueDepth", 0));
+
+        mockMvc.perform(get("/webhook/ingestion/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.asyncEnabled").value(false))
+                .andExpect(jsonPath("$.queueDepth").value(0));
+    }
+
     @Test
     void shopifyOrderCreated_success() throws Exception {
         when(orderCreatedFlowService.processShopifyOrderCreated(any(), anyString())).thenReturn(true);
@@ -95,6 +181,26 @@ class WebhookControllerTest {
                 .andExpect(jsonPath("$.success").value(true));
     }
 
+    @Test
+    void cartAbandoned_wrappedAndRootShapes_bindAttributes() throws Exception {
+        when(abandonedCartFlowService.processAbandonedCart(any())).thenReturn(true);
+
+        mockMvc.perform(post("/webhook/cart-abandoned")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\":\"m\",\"attributes\":{\"cart_id\":\"c1\",\"phone_number\":\"9000000001\"}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+        mockMvc.perform(post("/webhook/cart-abandoned")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"cart_id\":\"c2\",\"phone_number\":\"9000000002\",\"items\":[]}"))
+                .andExpect(status().isOk());
+
+        verify(abandonedCartFlowService).processAbandonedCart(argThat(w -> w.getAttributes() != null
+                && "c1".equals(w.getAttributes().getCartId())));
+        verify(abandonedCartFlowService).processAbandonedCart(argThat(w -> w.getAttributes() != null
+                && "9000000002".equals(w.getAttributes().getPhoneNumber())));
+    }
+
     @Test
     void cartAbandoned_invalidJson_returnsBadRequest() throws Exception {
         mockMvc.perform(post("/webhook/cart-abandoned")
@@ -111,4 +217,50 @@ class WebhookControllerTest {
                 .content("   "))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void statusUpdate_endpointSaturated_returns429WithRetryAfter() throws Exception {
+        List<WebhookAdmissionControl.Permit> held = new ArrayList<>();
+        try {
+            WebhookAdmissionControl.Permit p;
+            while ((p = webhookAdmissionControl.tryAcquireEndpoint(WebhookAdmissionControl.STATUS)) != null) {
+                held.add(p);
+            }
+
+            mockMvc.perform(post("/webhook")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"orders\":[{\"order_id\":\"ORD-1\"}]}"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "2"))
+                    .andExpect(jsonPath("$.success").value(false));
+        } finally {
+            held.forEach(WebhookAdmissionControl.Permit::close);
+        }
+        verify(webhookProcessingService, never()).processStatusUpdate(any());
+    }
+
+    @Test
+    void statusUpdate_brandSaturated_returns429AndOtherBrandsStillAdmitted() throws Exception {
+        when(webhookProcessingService.processStatusUpdate(any())).thenReturn(Map.of("success", true));
+        List<WebhookAdmissionControl.Permit> held = new ArrayList<>();
+        try {
+            WebhookAdmissionControl.Permit p;
+            while ((p = webhookAdmissionControl.tryAcquireBrand("strikerstore")) != null) {
+                held.add(p);
+            }
+
+            mockMvc.perform(post("/webhook")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"orders\":[{\"order_id\":\"ORD-1\",\"brand_name\":\"strikerstore\"}]}"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists("Retry-After"));
+            mockMvc.perform(post("/webhook")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"orders\":[{\"order_id\":\"ORD-2\",\"brand_name\":\"dribblestore\"}]}"))
+                    .andExpect(status().isOk());
+        } finally {
+            held.forEach(WebhookAdmissionControl.Permit::close);
+        }
+        verify(webhookProcessingService).processStatusUpdate(argThat(o -> "ORD-2".equals(o.getOrderId())));
+    }
 }
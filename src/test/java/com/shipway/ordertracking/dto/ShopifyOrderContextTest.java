@@ -0,0 +1,84 @@
+package com.shipway.ordertracking.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link ShopifyOrderContext#fromOrderNode} (GraphQL order-context node → typed context).
+ */
+class ShopifyOrderContextTest {
+
+    private static Map<String, Object> fullNode() {
+        Map<String, Object> node = new HashMap<>();
+        node.put("id", "gid://shopify/Order/254120");
+        node.put("name", "#254120");
+        node.put("displayFulfillmentStatus", "FULFILLED");
+        node.put("tags", List.of("AAA_INTRANIST", "vip"));
+        node.put("fulfillments", List.of(
+                Map.of("id", "gid://shopify/Fulfillment/555", "status", "SUCCESS",
+                        "trackingInfo", List.of(Map.of("number", "AWB1", "url", "https://t/AWB1"))),
+                Map.of("id", "gid://shopify/Fulfillment/556", "status", "SUCCESS", "trackingInfo", List.of())));
+        node.put("fulfillmentOrders", Map.of("nodes", List.of(
+                Map.of("id", "gid://shopify/FulfillmentOrder/1", "status", "CLOSED"),
+                Map.of("id", "gid://shopify/FulfillmentOrder/2", "status", "OPEN"),
+                Map.of("id", "gid://shopify/FulfillmentOrder/3", "status", "OPEN"))));
+        Map<String, Object> product = new HashMap<>();
+        product.put("handle", "jersey-home");
+        product.put("featuredImage", Map.of("url", "https://cdn/img.png"));
+        Map<String, Object> noHandle = new HashMap<>();
+        noHandle.put("handle", null);
+        node.put("lineItems", Map.of("edges", List.of(
+                Map.of("node", Map.of("product", product)),
+                Map.of("node", Map.of("product", noHandle)))));
+        return node;
+    }
+
+    @Test
+    void fromOrderNode_mapsEverySection() {
+        ShopifyOrderContext ctx = ShopifyOrderContext.fromOrderNode(fullNode());
+
+        assertEquals("gid://shopify/Order/254120", ctx.getOrderGid());
+        assertEquals(254120L, ctx.getNumericOrderId());
+        assertTrue(ctx.isFulfilled());
+        assertEquals(List.of("AAA_INTRANIST", "vip"), ctx.getTags());
+        assertEquals(555L, ctx.getFirstFulfillmentId());
+        assertEquals("AWB1", ctx.getTrackingNumber(555L));
+        assertNull(ctx.getTrackingNumber(556L));
+        assertEquals("gid://shopify/FulfillmentOrder/3", ctx.getOpenFulfillmentOrderId());
+        assertEquals(2, ctx.getProducts().size());
+        assertEquals("https://cdn/img.png", ctx.getProducts().get(0).imageUrl());
+        assertEquals(List.of("jersey-home"), ctx.getProductHandles());
+    }
+
+    @Test
+    void fromOrderNode_fulfillmentOrdersAsEdges_alsoRead() {
+        Map<String, Object> node = new HashMap<>();
+        node.put("id", "gid://shopify/Order/1");
+        node.put("fulfillmentOrders", Map.of("edges", List.of(
+                Map.of("node", Map.of("id", "gid://shopify/FulfillmentOrder/9", "status", "OPEN")))));
+
+        assertEquals("gid://shopify/FulfillmentOrder/9",
+                ShopifyOrderContext.fromOrderNode(node).getOpenFulfillmentOrderId());
+    }
+
+    @Test
+    void fromOrderNode_missingSections_emptyAndUnfulfilled() {
+        ShopifyOrderContext ctx = ShopifyOrderContext.fromOrderNode(Map.of("id", "gid://shopify/Order/1",
+                "displayFulfillmentStatus", "UNFULFILLED"));
+
+        assertFalse(ctx.isFulfilled());
+        assertNull(ctx.getFirstFulfillmentId());
+        assertNull(ctx.getOpenFulfillmentOrderId());
+        assertTrue(ctx.getProducts().isEmpty());
+        assertTrue(ctx.getTags().isEmpty());
+        assertNull(ShopifyOrderContext.fromOrderNode(null));
+    }
+}
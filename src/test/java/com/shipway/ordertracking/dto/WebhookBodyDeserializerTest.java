@@ -0,0 +1,82 @@
+package com.shipway.ordertracking.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookBodyDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void statusUpdateWebhook_skipsBadEntriesAndKeepsOrder() throws Exception {
+        String json = """
+                {"headers":{"host":"x"},"body":{"timestamp":"2026-01-01T00:00:00Z","event":"status_update",
+                  "orders":[
+                    {"order_id":"1001","current_shipment_status":"IN_TRANSIT","extra":{"nested":[1,2]}},
+                    {"order_id":"1002","number_of_product":{"bad":true},"awb":"X"},
+                    "not-an-order",
+                    null,
+                    {"order_id":"1003","number_of_product":2}
+                  ]},"webhookUrl":"u"}
+                """;
+
+        StatusUpdateWebhook webhook = objectMapper.readValue(json, StatusUpdateWebhook.class);
+
+        StatusUpdateWebhook.WebhookBody body = webhook.getBody();
+        assertEquals("2026-01-01T00:00:00Z", body.getTimestamp());
+        assertEquals("status_update", body.getEvent());
+        assertEquals(2, body.getOrders().size());
+        assertEquals("1001", body.getOrders().get(0).getOrderId());
+        assertEquals("1003", body.getOrders().get(1).getOrderId());
+        assertEquals(2, body.getOrders().get(1).getNumberOfProduct());
+        assertEquals("u", webhook.getWebhookUrl());
+    }
+
+    @Test
+    void statusUpdateWebhook_stringBody_givesEmptyBody() throws Exception {
+        StatusUpdateWebhook webhook = objectMapper.readValue("{\"body\":\"oops\",\"webhookUrl\":\"u\"}",
+                StatusUpdateWebhook.class);
+
+        assertNull(webhook.getBody().getOrders());
+        assertEquals("u", webhook.getWebhookUrl());
+    }
+
+    @Test
+    void webhookWrapper_skipsBadEntries() throws Exception {
+        String json = "{\"event\":\"e\",\"orders\":[{\"order_id\":\"1\",\"number_of_product\":\"abc\"},"
+                + "{\"order_id\":\"2\"}],\"unknown\":[{}]}";
+
+        WebhookWrapper wrapper = objectMapper.readValue(json, WebhookWrapper.class);
+
+        assertEquals("e", wrapper.getEvent());
+        assertEquals(1, wrapper.getOrders().size());
+        assertEquals("2", wrapper.getOrders().get(0).getOrderId());
+    }
+
+    @Test
+    void webhookWrapper_withoutOrders_leavesOrdersNull() throws Exception {
+        WebhookWrapper wrapper = objectMapper.readValue("{\"timestamp\":123}", WebhookWrapper.class);
+
+        assertEquals("123", wrapper.getTimestamp());
+        assertNull(wrapper.getOrders());
+    }
+
+    @Test
+    void streamReader_handsOrdersToSinkAsParsed() throws Exception {
+        List<String> seen = new ArrayList<>();
+        try (JsonParser p = objectMapper.createParser("{\"orders\":[{\"order_id\":\"A\"},{\"order_id\":\"B\"}]}")) {
+            OrderStatusStreamReader.Header header = OrderStatusStreamReader.read(p, null,
+                    order -> seen.add(order.getOrderId()));
+            assertTrue(header.ordersPresent());
+        }
+        assertEquals(List.of("A", "B"), seen);
+    }
+}
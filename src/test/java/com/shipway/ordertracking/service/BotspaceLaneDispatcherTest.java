@@ -0,0 +1,99 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.config.BotspaceAccount;
+import com.shipway.ordertracking.config.BotspaceProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BotspaceLaneDispatcherTest {
+
+    private BotspaceLaneDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        BotspaceAccount account = new BotspaceAccount();
+        account.setMessagesPerSecond(10.0);
+        account.setBurst(1);
+        BotspaceProperties properties = new BotspaceProperties();
+        properties.getAccounts().put("strikerstore", account);
+
+        dispatcher = new BotspaceLaneDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "botspaceProperties", properties);
+        ReflectionTestUtils.setField(dispatcher, "enabled", true);
+        ReflectionTestUtils.setField(dispatcher, "defaultPerSecond", 5.0);
+        ReflectionTestUtils.setField(dispatcher, "defaultBurst", 5);
+        ReflectionTestUtils.setField(dispatcher, "sendThreads", 1);
+        dispatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    private CompletableFuture<Boolean> submit(BotspaceLaneDispatcher.Lane lane, String label, List<String> sent) {
+        return dispatcher.submit("STRIKER STORE", lane, () -> {
+            sent.add(label);
+            return true;
+        });
+    }
+
+    @Test
+    void transactionalMessage_overtakesQueuedFollowUps() {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        futures.add(submit(BotspaceLaneDispatcher.Lane.FOLLOW_UP, "followup-1", sent));
+        futures.add(submit(BotspaceLaneDispatcher.Lane.FOLLOW_UP, "followup-2", sent));
+        futures.add(submit(BotspaceLaneDispatcher.Lane.FOLLOW_UP, "followup-3", sent));
+        futures.add(submit(BotspaceLaneDispatcher.Lane.MARKETING, "cart", sent));
+        futures.add(submit(BotspaceLaneDispatcher.Lane.TRANSACTIONAL, "out-for-delivery", sent));
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        // followup-1 may have taken the burst token before the others arrived; after that, lane order
+        List<String> rest = new ArrayList<>(sent);
+        rest.remove("followup-1");
+        assertEquals(List.of("out-for-delivery", "cart", "followup-2", "followup-3"), rest);
+    }
+
+    @Test
+    void tokenBucket_pacesSendsPerAccount() {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        long started = System.nanoTime();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(submit(BotspaceLaneDispatcher.Lane.TRANSACTIONAL, "m" + i, sent));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        assertEquals(5, sent.size());
+        // burst 1 at 10/s: four refills of ~100 ms
+        assertTrue(elapsedMs >= 350, "elapsed " + elapsedMs + " ms");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stats_reportWaitPerLane() {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture.allOf(submit(BotspaceLaneDispatcher.Lane.TRANSACTIONAL, "a", sent),
+                submit(BotspaceLaneDispatcher.Lane.FOLLOW_UP, "b", sent)).join();
+
+        Map<String, Object> account = (Map<String, Object>) ((Map<String, Object>) dispatcher.getStats()
+                .get("accounts")).get("strikerstore");
+        Map<String, Object> lanes = (Map<String, Object>) account.get("lanes");
+        assertEquals(1L, ((Map<String, Object>) lanes.get("transactional")).get("dispatched"));
+        assertEquals(1L, ((Map<String, Object>) lanes.get("follow_up")).get("dispatched"));
+    }
+}
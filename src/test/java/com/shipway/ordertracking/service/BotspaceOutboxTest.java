@@ -0,0 +1,201 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.BotspaceMessageRequest;
+import com.shipway.ordertracking.entity.BotspaceOutboxMessage;
+import com.shipway.ordertracking.repository.BotspaceOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BotspaceOutboxTest {
+
+    private static final String BRAND = "STRIKER STORE";
+
+    @Mock
+    private BotspaceOutboxRepository repository;
+
+    @Mock
+    private CustomerMessageTrackingService customerMessageTrackingService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private BotspaceOutbox outbox;
+
+    private BotspaceService botspaceService;
+    private BotspaceOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(outbox, "enabled", true);
+        ReflectionTestUtils.setField(outbox, "leaseMs", 120_000L);
+
+        botspaceService = mock(BotspaceService.class);
+        dispatcher = new BotspaceOutboxDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "botspaceOutbox", outbox);
+        ReflectionTestUtils.setField(dispatcher, "botspaceService", botspaceService);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "concurrency", 2);
+        dispatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    private static BotspaceMessageRequest request() {
+        return new BotspaceMessageRequest("919999999999", "tpl_in", List.of("Asha", "254120"));
+    }
+
+    private static BotspaceOutboxMessage claimed(long id, String orderId) throws Exception {
+        BotspaceOutboxMessage m = new BotspaceOutboxMessage();
+        m.setId(id);
+        m.setAccountCode(BRAND);
+        m.setOrderId(orderId);
+        m.setBrandKey(BRAND);
+        m.setTrackingAccountCode("PLX_STRIKER");
+        m.setTrackingBrandName(BRAND);
+        m.setSuccessStatus("sent_inTransit");
+        m.setFailureStatus("failed_inTransit");
+        m.setPayload(new ObjectMapper().writeValueAsString(request()));
+        m.setStatus(BotspaceOutboxMessage.SENDING);
+        m.setClaimToken("token-" + id);
+        m.setClaimedAt(Instant.now());
+        return m;
+    }
+
+    @Test
+    void enqueue_storesRequestOnce_repeatIsDuplicate() {
+        when(repository.insertIfAbsent(eq(BRAND), eq("254120"), eq(BRAND), eq("PLX_STRIKER"), eq(" STRIKER STORE "),
+                eq("sent_inTransit"), eq("failed_inTransit"), anyString())).thenReturn(1, 0);
+
+        assertEquals(BotspaceOutbox.EnqueueResult.QUEUED, outbox.enqueue(BRAND, request(), "254120",
+                "sent_inTransit", "failed_inTransit", "PLX_STRIKER", " STRIKER STORE "));
+        assertEquals(BotspaceOutbox.EnqueueResult.DUPLICATE, outbox.enqueue(BRAND, request(), "254120",
+                "sent_inTransit", "failed_inTransit", "PLX_STRIKER", " STRIKER STORE "));
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(repository, times(2)).insertIfAbsent(anyString(), anyString(), anyString(),
+                anyString(), anyString(), anyString(), anyString(), payload.capture());
+        assertTrue(payload.getValue().contains("\"templateId\":\"tpl_in\""));
+        assertEquals(1L, outbox.getStats().get("queued"));
+        assertEquals(1L, outbox.getStats().get("duplicates"));
+    }
+
+    @Test
+    void enqueue_failedRow_isQueuedAgain() {
+        when(repository.requeueFailed(eq(BRAND), eq("254120"), eq(BRAND), eq("PLX_STRIKER"), eq(BRAND),
+                eq("sent_inTransit"), eq("failed_inTransit"), anyString())).thenReturn(1);
+
+        assertEquals(BotspaceOutbox.EnqueueResult.QUEUED, outbox.enqueue(BRAND, request(), "254120",
+                "sent_inTransit", "failed_inTransit", "PLX_STRIKER", BRAND));
+
+        verify(repository, never()).insertIfAbsent(anyString(), anyString(), anyString(), any(), any(), anyString(),
+                anyString(), anyString());
+        assertEquals(1L, outbox.getStats().get("queued"));
+        assertEquals(0L, outbox.getStats().get("duplicates"));
+    }
+
+    @Test
+    void enqueue_databaseError_reportsFailed() {
+        when(repository.insertIfAbsent(anyString(), anyString(), anyString(), any(), any(), anyString(), anyString(),
+                anyString())).thenThrow(new IllegalStateException("connection reset"));
+
+        assertEquals(BotspaceOutbox.EnqueueResult.FAILED, outbox.enqueue(BRAND, request(), "254120",
+                "sent_inTransit", "failed_inTransit", null, null));
+    }
+
+    @Test
+    void enqueue_requeueAndInsertShareOneTransaction_rolledBackOnError() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        TransactionStatus tx = mock(TransactionStatus.class);
+        when(transactionManager.getTransaction(any())).thenReturn(tx);
+        ReflectionTestUtils.setField(outbox, "transactionManager", transactionManager);
+        when(repository.insertIfAbsent(anyString(), anyString(), anyString(), any(), any(), anyString(), anyString(),
+                anyString())).thenThrow(new IllegalStateException("lock wait timeout"));
+
+        assertEquals(BotspaceOutbox.EnqueueResult.FAILED, outbox.enqueue(BRAND, request(), "254120",
+                "sent_inTransit", "failed_inTransit", null, null));
+
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager).rollback(tx);
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void dispatchBatch_sendsClaimedRowsAndRecordsEachOutcome() throws Exception {
+        BotspaceOutboxMessage accepted = claimed(1, "254120");
+        BotspaceOutboxMessage rejected = claimed(2, "254121");
+        when(repository.claim(anyString(), eq(120_000L), eq(50))).thenReturn(2);
+        when(repository.findByClaimTokenOrderByIdAsc(anyString())).thenReturn(List.of(accepted, rejected));
+        when(botspaceService.deliver(eq(BRAND), any(BotspaceMessageRequest.class), eq("254120"))).thenReturn(true);
+        when(botspaceService.deliver(eq(BRAND), any(BotspaceMessageRequest.class), eq("254121"))).thenReturn(false);
+        when(repository.complete(eq(1L), eq("token-1"), eq(BotspaceOutboxMessage.SENT), isNull())).thenReturn(1);
+        when(repository.complete(eq(2L), eq("token-2"), eq(BotspaceOutboxMessage.FAILED), anyString()))
+                .thenReturn(1);
+
+        assertEquals(2, dispatcher.dispatchBatch());
+
+        verify(customerMessageTrackingService).addMessageStatus("254120", BRAND, "sent_inTransit", "PLX_STRIKER",
+                BRAND);
+        verify(customerMessageTrackingService).addMessageStatus("254121", BRAND, "failed_inTransit", "PLX_STRIKER",
+                BRAND);
+        assertEquals(1L, outbox.getStats().get("sent"));
+        assertEquals(1L, outbox.getStats().get("failed"));
+    }
+
+    @Test
+    void complete_claimTakenOver_writesNoTrackingRow() throws Exception {
+        BotspaceOutboxMessage message = claimed(1, "254120");
+        when(repository.complete(1L, "token-1", BotspaceOutboxMessage.SENT, null)).thenReturn(0);
+
+        outbox.complete(message, true, null);
+
+        verify(customerMessageTrackingService, never()).addMessageStatus(anyString(), anyString(), anyString(),
+                any(), any());
+    }
+
+    @Test
+    void submitTemplateMessage_outboxEnabled_queuesWithoutCallingBotspace() {
+        BotspaceOutbox mockOutbox = mock(BotspaceOutbox.class);
+        when(mockOutbox.isEnabled()).thenReturn(true);
+        when(mockOutbox.enqueue(eq(BRAND), any(BotspaceMessageRequest.class), eq("254120"), eq("sent_inTransit"),
+                eq("failed_inTransit"), eq("PLX_STRIKER"), eq(BRAND))).thenReturn(BotspaceOutbox.EnqueueResult.QUEUED);
+        BotspaceService service = new BotspaceService();
+        ReflectionTestUtils.setField(service, "botspaceOutbox", mockOutbox);
+        ReflectionTestUtils.setField(service, "customerMessageTrackingService", customerMessageTrackingService);
+
+        assertTrue(service.submitTemplateMessage(BRAND, request(), "254120", "sent_inTransit", "failed_inTransit",
+                "PLX_STRIKER", BRAND).join());
+        verify(customerMessageTrackingService, never()).addMessageStatus(anyString(), anyString(), anyString(),
+                any(), any());
+    }
+}
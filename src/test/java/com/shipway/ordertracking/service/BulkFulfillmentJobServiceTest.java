@@ -0,0 +1,213 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.BulkFulfillFromTrackingResponse;
+import com.shipway.ordertracking.dto.FulfillAttemptResult;
+import com.shipway.ordertracking.dto.UnfulfilledShopifyOrderItem;
+import com.shipway.ordertracking.dto.UnfulfilledShopifyPreviewResponse;
+import com.shipway.ordertracking.entity.BulkFulfillmentJob;
+import com.shipway.ordertracking.entity.BulkFulfillmentJobItem;
+import com.shipway.ordertracking.repository.BulkFulfillmentJobItemRepository;
+import com.shipway.ordertracking.repository.BulkFulfillmentJobRepository;
+import com.shipway.ordertracking.util.BrandAccountKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkFulfillmentJobServiceTest {
+
+    private static final String JOB_ID = "0b6b3c1e-4a55-4d0c-9a51-0d8f7a1e2c11";
+
+    @Mock
+    private BulkFulfillmentJobStore jobStore;
+
+    @Mock
+    private BulkFulfillmentJobRepository jobRepository;
+
+    @Mock
+    private BulkFulfillmentJobItemRepository itemRepository;
+
+    @Mock
+    private UnfulfilledShopifyPreviewService unfulfilledShopifyPreviewService;
+
+    @Mock
+    private OrderTrackingBulkFulfillmentService orderTrackingBulkFulfillmentService;
+
+    @InjectMocks
+    private BulkFulfillmentJobService service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "leaseMs", 300_000L);
+    }
+
+    private static BulkFulfillmentJob job(Integer total) {
+        BulkFulfillmentJob job = new BulkFulfillmentJob();
+        job.setId(JOB_ID);
+        job.setSource(BulkFulfillmentJob.SOURCE_API);
+        job.setAccountCode(BrandAccountKey.STRIKER_STORE);
+        job.setRowLimit(500);
+        job.setStatus(BulkFulfillmentJob.RUNNING);
+        job.setTotal(total);
+        job.setCreatedAt(Instant.now());
+        job.setUpdatedAt(Instant.now());
+        return job;
+    }
+
+    private static BulkFulfillmentJobItem row(int seq, String orderId) {
+        BulkFulfillmentJobItem row = new BulkFulfillmentJobItem();
+        row.setJobId(JOB_ID);
+        row.setSeq(seq);
+        row.setAccountCode(BrandAccountKey.STRIKER_STORE);
+        row.setOrderId(orderId);
+        row.setOrderTrackingStatus("Delivered");
+        return row;
+    }
+
+    private static FulfillAttemptResult result(String orderId, boolean success) {
+        FulfillAttemptResult r = new FulfillAttemptResult();
+        r.setOrderId(orderId);
+        r.setShopifyShipmentStatus("delivered");
+        r.setSuccess(success);
+        r.setMessage(success ? "OK" : "Shopify fulfillment failed — see application logs");
+        return r;
+    }
+
+    @Test
+    void run_newApiJob_storesPreviewThenCheckpointsEachChunk() {
+        when(jobRepository.claim(eq(JOB_ID), anyString(), anyLong())).thenReturn(1);
+        when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(job(null)), Optional.of(job(3)),
+                Optional.of(job(3)), Optional.of(job(3)));
+        UnfulfilledShopifyOrderItem item = new UnfulfilledShopifyOrderItem();
+        item.setOrderId("#1001");
+        UnfulfilledShopifyPreviewResponse preview = new UnfulfilledShopifyPreviewResponse();
+        preview.setItems(List.of(item, item, item));
+        when(unfulfilledShopifyPreviewService.buildPreview(BrandAccountKey.STRIKER_STORE, 500)).thenReturn(preview);
+        when(jobStore.storeItems(eq(JOB_ID), anyString(), eq(preview.getItems()))).thenReturn(true);
+
+        List<BulkFulfillmentJobItem> first = List.of(row(0, "#1001"), row(1, "#1002"));
+        List<BulkFulfillmentJobItem> second = List.of(row(2, "#1003"));
+        when(itemRepository.findByJobIdAndDoneFalseOrderBySeqAsc(eq(JOB_ID), any(Pageable.class)))
+                .thenReturn(first, second, List.of());
+        BulkFulfillFromTrackingResponse out1 = new BulkFulfillFromTrackingResponse();
+        out1.setResults(List.of(result("#1001", true), result("#1002", false)));
+        BulkFulfillFromTrackingResponse out2 = new BulkFulfillFromTrackingResponse();
+        out2.setResults(List.of(result("#1003", true)));
+        when(orderTrackingBulkFulfillmentService.fulfillPreviewItems(anyList(), eq(false))).thenReturn(out1, out2);
+        when(jobStore.checkpoint(eq(JOB_ID), anyString(), anyList(), anyList())).thenReturn(true);
+
+        service.run(JOB_ID);
+
+        verify(jobStore).checkpoint(eq(JOB_ID), anyString(), eq(first), eq(out1.getResults()));
+        verify(jobStore).checkpoint(eq(JOB_ID), anyString(), eq(second), eq(out2.getResults()));
+        verify(jobRepository).finish(eq(JOB_ID), anyString(), eq(BulkFulfillmentJob.COMPLETED), isNull());
+    }
+
+    @Test
+    void run_resumedJob_continuesWithoutRebuildingPreview() {
+        when(jobRepository.claim(eq(JOB_ID), anyString(), anyLong())).thenReturn(1);
+        BulkFulfillmentJob resumed = job(3);
+        resumed.setProcessed(2);
+        when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(resumed));
+        List<BulkFulfillmentJobItem> remaining = List.of(row(2, "#1003"));
+        when(itemRepository.findByJobIdAndDoneFalseOrderBySeqAsc(eq(JOB_ID), any(Pageable.class)))
+                .thenReturn(remaining, List.of());
+        BulkFulfillFromTrackingResponse out = new BulkFulfillFromTrackingResponse();
+        out.setResults(List.of(result("#1003", true)));
+        when(orderTrackingBulkFulfillmentService.fulfillPreviewItems(anyList(), eq(false))).thenReturn(out);
+        when(jobStore.checkpoint(eq(JOB_ID), anyString(), eq(remaining), anyList())).thenReturn(true);
+
+        service.run(JOB_ID);
+
+        verifyNoInteractions(unfulfilledShopifyPreviewService);
+        verify(jobRepository).finish(eq(JOB_ID), anyString(), eq(BulkFulfillmentJob.COMPLETED), isNull());
+    }
+
+    @Test
+    void run_cancelRequested_stopsBeforeNextChunk() {
+        when(jobRepository.claim(eq(JOB_ID), anyString(), anyLong())).thenReturn(1);
+        BulkFulfillmentJob cancelled = job(3);
+        cancelled.setCancelRequested(true);
+        when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(cancelled));
+
+        service.run(JOB_ID);
+
+        verify(jobRepository).finish(eq(JOB_ID), anyString(), eq(BulkFulfillmentJob.CANCELLED), isNull());
+        verify(orderTrackingBulkFulfillmentService, never()).fulfillPreviewItems(anyList(), anyBoolean());
+    }
+
+    @Test
+    void run_claimedElsewhere_doesNothing() {
+        when(jobRepository.claim(eq(JOB_ID), anyString(), anyLong())).thenReturn(0);
+
+        service.run(JOB_ID);
+
+        verify(jobRepository, never()).findById(anyString());
+        verifyNoInteractions(orderTrackingBulkFulfillmentService);
+    }
+
+    @Test
+    void run_checkpointLost_stopsWithoutFinishing() {
+        when(jobRepository.claim(eq(JOB_ID), anyString(), anyLong())).thenReturn(1);
+        when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(job(1)));
+        when(itemRepository.findByJobIdAndDoneFalseOrderBySeqAsc(eq(JOB_ID), any(Pageable.class)))
+                .thenReturn(List.of(row(0, "#1001")));
+        BulkFulfillFromTrackingResponse out = new BulkFulfillFromTrackingResponse();
+        out.setResults(List.of(result("#1001", true)));
+        when(orderTrackingBulkFulfillmentService.fulfillPreviewItems(anyList(), eq(false))).thenReturn(out);
+        when(jobStore.checkpoint(eq(JOB_ID), anyString(), anyList(), anyList())).thenReturn(false);
+
+        service.run(JOB_ID);
+
+        verify(jobRepository, never()).finish(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    void getStatus_withResults_returnsDoneRowsInOrder() {
+        BulkFulfillmentJob job = job(2);
+        job.setProcessed(1);
+        job.setAttempted(1);
+        job.setSucceeded(1);
+        when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(job));
+        BulkFulfillmentJobItem done = row(0, "#1001");
+        done.setDone(true);
+        done.setSuccess(true);
+        done.setShopifyShipmentStatus("delivered");
+        done.setMessage("OK");
+        when(itemRepository.findByJobIdOrderBySeqAsc(JOB_ID)).thenReturn(List.of(done, row(1, "#1002")));
+
+        var status = service.getStatus(JOB_ID, true);
+
+        assertEquals(BulkFulfillmentJob.RUNNING, status.getStatus());
+        assertEquals(2, status.getSummary().get("previewItemsTotal"));
+        assertEquals(1, status.getSummary().get("succeeded"));
+        assertEquals(1, status.getResults().size());
+        assertTrue(status.getResults().get(0).isSuccess());
+        assertFalse(status.isCancelRequested());
+    }
+}
@@ -4,6 +4,7 @@ import com.shipway.ordertracking.config.BotspaceAccount;
 import com.shipway.ordertracking.config.BotspaceProperties;
 import com.shipway.ordertracking.config.ShopifyAccount;
 import com.shipway.ordertracking.config.ShopifyProperties;
+import com.shipway.ordertracking.dto.ShopifyOrderContext;
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
 import com.shipway.ordertracking.util.BrandAccountKey;
 import org.junit.jupiter.api.Test;
@@ -17,13 +18,18 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,6 +50,9 @@ class DeliveredFlowServiceTest {
     @Mock
     private CustomerMessageTrackingService customerMessageTrackingService;
 
+    @Mock
+    private OrderAppliedStateStore orderAppliedStateStore;
+
     @InjectMocks
     private DeliveredFlowService service;
 
@@ -100,9 +109,9 @@ class DeliveredFlowServiceTest {
         sa.setProductUrl("https://www.example.com/products/");
         when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(sa);
 
-        when(shopifyService.getOrderProductDetails(eq(BrandAccountKey.STRIKER_STORE), eq("254120_CLONE"))).thenReturn(Collections.emptyList());
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120_CLONE"), eq("sent_delivered"),
-                eq("failed_delivered"), any(), any())).thenReturn(true);
+        when(shopifyService.getOrderProductDetailsAsync(eq(BrandAccountKey.STRIKER_STORE), eq("254120_CLONE"))).thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120_CLONE"), eq("sent_delivered"),
+                eq("failed_delivered"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
         assertTrue(service.processDelivered(o));
     }
@@ -110,7 +119,7 @@ class DeliveredFlowServiceTest {
     @Test
     void processDelivered_orderNotFound_returnsFalse() {
         when(customerMessageTrackingService.hasAnyStatus(anyString(), anyString(), anyList())).thenReturn(false);
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(anyString(), anyString())).thenReturn(null);
+        when(shopifyService.getOrderContext(anyString(), anyString())).thenReturn(null);
         assertFalse(service.processDelivered(baseOrder()));
     }
 
@@ -125,9 +134,9 @@ class DeliveredFlowServiceTest {
         fl.add(Map.of("id", "gid://shopify/Fulfillment/555"));
         orderNode.put("fulfillments", fl);
 
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
-        when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(555L), any(), eq("delivered")))
-                .thenReturn(true);
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
+        when(shopifyService.updateFulfillmentTrackingAsync(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(555L), any(), eq("delivered")))
+                .thenReturn(CompletableFuture.completedFuture(true));
 
         BotspaceAccount ba = new BotspaceAccount();
         ba.setDeliveredTemplateId("tpl_del");
@@ -137,9 +146,8 @@ class DeliveredFlowServiceTest {
         sa.setProductUrl("https://example.com/products/");
         when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(sa);
 
-        when(shopifyService.getOrderProductDetails(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(Collections.emptyList());
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_delivered"),
-                eq("failed_delivered"), any(), any())).thenReturn(true);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_delivered"),
+                eq("failed_delivered"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
         assertTrue(service.processDelivered(baseOrder()));
     }
@@ -151,15 +159,13 @@ class DeliveredFlowServiceTest {
         Map<String, Object> orderNode = new HashMap<>();
         orderNode.put("id", "gid://shopify/Order/254120");
         orderNode.put("displayFulfillmentStatus", "UNFULFILLED");
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
+        orderNode.put("fulfillmentOrders", Map.of("nodes", List.of(Map.of("id", "gid://shopify/FulfillmentOrder/9", "status", "OPEN"))));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
 
-        Map<String, Object> foData = Map.of();
-        when(shopifyService.getFulfillmentOrdersForOrder(BrandAccountKey.STRIKER_STORE, "gid://shopify/Order/254120")).thenReturn(foData);
-        when(shopifyService.getOpenFulfillmentOrderIdFromEdges(foData)).thenReturn("gid://shopify/FulfillmentOrder/9");
         when(shopifyService.createFulfillment(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq("gid://shopify/FulfillmentOrder/9"), any(),
                 any())).thenReturn(42L);
-        when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(42L), any(), eq("delivered")))
-                .thenReturn(true);
+        when(shopifyService.updateFulfillmentTrackingAsync(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(42L), any(), eq("delivered")))
+                .thenReturn(CompletableFuture.completedFuture(true));
 
         BotspaceAccount ba = new BotspaceAccount();
         ba.setDeliveredTemplateId("tpl_del");
@@ -168,12 +174,86 @@ class DeliveredFlowServiceTest {
         sa.setProductUrl("https://example.com/products/");
         when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(sa);
 
-        when(shopifyService.getOrderProductDetails(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(Collections.emptyList());
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_delivered"),
-                eq("failed_delivered"), any(), any())).thenReturn(true);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_delivered"),
+                eq("failed_delivered"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
+
+        StatusUpdateWebhook.OrderStatus o = baseOrder();
+        o.setAwb("AWB1");
+        assertTrue(service.processDelivered(o));
+    }
+
+    @Test
+    void processDelivered_fulfilled_usesProductsFromOrderContext() {
+        when(customerMessageTrackingService.hasAnyStatus(anyString(), anyString(), anyList())).thenReturn(false);
+
+        Map<String, Object> orderNode = new HashMap<>();
+        orderNode.put("id", "gid://shopify/Order/254120");
+        orderNode.put("displayFulfillmentStatus", "FULFILLED");
+        orderNode.put("fulfillments", List.of(Map.of("id", "gid://shopify/Fulfillment/555")));
+        orderNode.put("lineItems", Map.of("edges", List.of(Map.of("node", Map.of("product", Map.of("handle", "jersey-home"))))));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
+        when(shopifyService.updateFulfillmentTrackingAsync(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(555L), any(), eq("delivered")))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        BotspaceAccount ba = new BotspaceAccount();
+        ba.setDeliveredTemplateId("tpl_del");
+        when(botspaceProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(ba);
+        ShopifyAccount sa = new ShopifyAccount();
+        sa.setProductUrl("https://example.com/products/");
+        when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(sa);
+
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE),
+                argThat(r -> r.getVariables().contains("https://example.com/products/jersey-home#judgeme")),
+                eq("254120"), eq("sent_delivered"), eq("failed_delivered"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
+
+        assertTrue(service.processDelivered(baseOrder()));
+        verify(shopifyService, never()).getOrderProductDetailsAsync(anyString(), anyString());
+    }
+
+    @Test
+    void processDelivered_storedStateForOtherAwb_noProductsReadBeforeOrderContext() {
+        when(customerMessageTrackingService.hasAnyStatus(anyString(), anyString(), anyList())).thenReturn(false);
+        when(orderAppliedStateStore.get(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(
+                new OrderAppliedStateStore.AppliedState("gid://shopify/Order/254120", 555L, "OLD_AWB", "in_transit"));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(null);
+
+        StatusUpdateWebhook.OrderStatus o = baseOrder();
+        o.setAwb("NEW_AWB");
+        assertFalse(service.processDelivered(o));
+        verify(orderAppliedStateStore, never()).pushStatusFromAppliedState(anyString(), anyString(), any(), anyString());
+        verify(shopifyService, never()).getOrderProductDetailsAsync(anyString(), anyString());
+    }
+
+    @Test
+    void processDelivered_storedStatePushFails_prefetchedProductsUsedByFullPath() {
+        when(customerMessageTrackingService.hasAnyStatus(anyString(), anyString(), anyList())).thenReturn(false);
+        when(orderAppliedStateStore.get(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(
+                new OrderAppliedStateStore.AppliedState("gid://shopify/Order/254120", 555L, "AWB1", "in_transit"));
+        when(orderAppliedStateStore.pushStatusFromAppliedState(BrandAccountKey.STRIKER_STORE, "254120", "AWB1",
+                "delivered")).thenReturn(false);
+        when(shopifyService.getOrderProductDetailsAsync(BrandAccountKey.STRIKER_STORE, "254120"))
+                .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+
+        Map<String, Object> orderNode = new HashMap<>();
+        orderNode.put("id", "gid://shopify/Order/254120");
+        orderNode.put("displayFulfillmentStatus", "FULFILLED");
+        orderNode.put("fulfillments", List.of(Map.of("id", "gid://shopify/Fulfillment/555")));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
+        when(shopifyService.updateFulfillmentTrackingAsync(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(555L), any(), eq("delivered")))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        BotspaceAccount ba = new BotspaceAccount();
+        ba.setDeliveredTemplateId("tpl_del");
+        when(botspaceProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(ba);
+        ShopifyAccount sa = new ShopifyAccount();
+        sa.setProductUrl("https://example.com/products/");
+        when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(sa);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_delivered"),
+                eq("failed_delivered"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
         StatusUpdateWebhook.OrderStatus o = baseOrder();
         o.setAwb("AWB1");
         assertTrue(service.processDelivered(o));
+        verify(shopifyService, times(1)).getOrderProductDetailsAsync(BrandAccountKey.STRIKER_STORE, "254120");
     }
 }
@@ -0,0 +1,73 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.FasterrAbandonedCartWebhook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FasterrCartWebhookAdapterTest {
+
+    private FasterrCartWebhookAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        adapter = new FasterrCartWebhookAdapter();
+        ReflectionTestUtils.setField(adapter, "objectMapper", new ObjectMapper());
+        adapter.init();
+    }
+
+    private FasterrAbandonedCartWebhook parse(String json) throws IOException {
+        return adapter.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void parse_attributesWrapper() throws Exception {
+        FasterrAbandonedCartWebhook w = parse("{\"message\":\"cart\",\"severity\":\"info\",\"tags\":[\"a\"],"
+                + "\"attributes\":{\"cart_id\":\"c1\",\"phone_number\":\"9000000001\",\"items\":[{\"product_id\":5}]}}");
+
+        assertEquals("c1", w.getAttributes().getCartId());
+        assertEquals(5L, w.getAttributes().getItems().get(0).getProductId());
+    }
+
+    @Test
+    void parse_bodyWrapper() throws Exception {
+        FasterrAbandonedCartWebhook w = parse("{\"body\":{\"cart_id\":\"c2\",\"first_name\":\"A\"}}");
+
+        assertNull(w.getAttributes().getPhoneNumber());
+        assertEquals("c2", w.getAttributes().getCartId());
+        assertEquals("A", w.getAttributes().getFirstName());
+    }
+
+    @Test
+    void parse_cartAtRoot() throws Exception {
+        FasterrAbandonedCartWebhook w = parse("{\"cart_id\":\"c3\",\"phone_number\":\"9000000003\","
+                + "\"custom_attributes\":{\"landing_page_url\":\"https://x\"},\"unknown\":{\"a\":[1]}}");
+
+        assertEquals("c3", w.getAttributes().getCartId());
+        assertEquals("9000000003", w.getAttributes().getPhoneNumber());
+        assertEquals("https://x", w.getAttributes().getCustomAttributes().getLandingPageUrl());
+    }
+
+    @Test
+    void parse_emptyObject_givesEmptyAttributes() throws Exception {
+        FasterrAbandonedCartWebhook w = parse("{}");
+
+        assertNotNull(w.getAttributes());
+        assertNull(w.getAttributes().getCartId());
+    }
+
+    @Test
+    void parse_invalidJsonOrArray_throws() {
+        assertThrows(IOException.class, () -> parse("not-json"));
+        assertThrows(IOException.class, () -> parse("[1,2]"));
+    }
+}
@@ -4,6 +4,7 @@ import com.shipway.ordertracking.config.BotspaceAccount;
 import com.shipway.ordertracking.config.BotspaceProperties;
 import com.shipway.ordertracking.config.ShopifyAccount;
 import com.shipway.ordertracking.config.ShopifyProperties;
+import com.shipway.ordertracking.dto.ShopifyOrderContext;
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
 import com.shipway.ordertracking.util.BrandAccountKey;
 import org.junit.jupiter.api.Test;
@@ -16,6 +17,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -23,6 +25,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +47,9 @@ class InTransitFlowServiceTest {
     @Mock
     private CustomerMessageTrackingService customerMessageTrackingService;
 
+    @Mock
+    private OrderAppliedStateStore orderAppliedStateStore;
+
     @InjectMocks
     private InTransitFlowService service;
 
@@ -100,16 +107,36 @@ class InTransitFlowServiceTest {
         when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(sa);
         o.setAwb("AWB1");
 
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120_CLONE"), eq("sent_inTransit"),
-                eq("failed_inTransit"), any(), any())).thenReturn(true);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120_CLONE"), eq("sent_inTransit"),
+                eq("failed_inTransit"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
+
+        assertTrue(service.processInTransit(o));
+    }
+
+    @Test
+    void processInTransit_earlierFailedNotification_doesNotBlockResend() {
+        StatusUpdateWebhook.OrderStatus o = baseOrder();
+        o.setOrderId("254120_CLONE");
+
+        // Only a failed_inTransit row exists (e.g. Botspace was down); a replay must send again
+        when(customerMessageTrackingService.hasAnyStatus(anyString(), anyString(), anyList()))
+                .thenAnswer(inv -> ((List<?>) inv.getArgument(2)).contains("failed_inTransit"));
+
+        BotspaceAccount ba = new BotspaceAccount();
+        ba.setInTransitTemplateId("tpl_in");
+        when(botspaceProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(ba);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120_CLONE"), eq("sent_inTransit"),
+                eq("failed_inTransit"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
         assertTrue(service.processInTransit(o));
+        verify(botspaceService).submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120_CLONE"),
+                eq("sent_inTransit"), eq("failed_inTransit"), any(), any());
     }
 
     @Test
     void processInTransit_orderNotFound_returnsFalse() {
         when(customerMessageTrackingService.hasAnyStatus(anyString(), anyString(), anyList())).thenReturn(false);
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(anyString(), anyString())).thenReturn(null);
+        when(shopifyService.getOrderContext(anyString(), anyString())).thenReturn(null);
         assertFalse(service.processInTransit(baseOrder()));
     }
 
@@ -124,9 +151,9 @@ class InTransitFlowServiceTest {
         fl.add(Map.of("id", "gid://shopify/Fulfillment/555"));
         orderNode.put("fulfillments", fl);
 
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
-        when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(555L), any(), eq("in_transit")))
-                .thenReturn(true);
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
+        when(shopifyService.updateFulfillmentTrackingAsync(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(555L), any(), eq("in_transit")))
+                .thenReturn(CompletableFuture.completedFuture(true));
 
         BotspaceAccount ba = new BotspaceAccount();
         ba.setInTransitTemplateId("tpl_in");
@@ -138,8 +165,8 @@ class InTransitFlowServiceTest {
 
         StatusUpdateWebhook.OrderStatus o = baseOrder();
         o.setAwb("AWB1");
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_inTransit"),
-                eq("failed_inTransit"), any(), any())).thenReturn(true);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_inTransit"),
+                eq("failed_inTransit"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
         assertTrue(service.processInTransit(o));
     }
@@ -151,15 +178,63 @@ class InTransitFlowServiceTest {
         Map<String, Object> orderNode = new HashMap<>();
         orderNode.put("id", "gid://shopify/Order/254120");
         orderNode.put("displayFulfillmentStatus", "UNFULFILLED");
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
+        orderNode.put("fulfillmentOrders", Map.of("nodes", List.of(Map.of("id", "gid://shopify/FulfillmentOrder/9", "status", "OPEN"))));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
+
+        when(shopifyService.createFulfillment(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq("gid://shopify/FulfillmentOrder/9"), any(),
+                any())).thenReturn(42L);
+        when(shopifyService.updateFulfillmentTrackingAsync(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(42L), any(), eq("in_transit")))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        BotspaceAccount ba = new BotspaceAccount();
+        ba.setInTransitTemplateId("tpl_in");
+        when(botspaceProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(ba);
+        ShopifyAccount sa = new ShopifyAccount();
+        sa.setTrackingUrlTemplate("https://t/{awb}");
+        when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(sa);
 
-        Map<String, Object> foData = Map.of();
-        when(shopifyService.getFulfillmentOrdersForOrder(BrandAccountKey.STRIKER_STORE, "gid://shopify/Order/254120")).thenReturn(foData);
-        when(shopifyService.getOpenFulfillmentOrderIdFromEdges(foData)).thenReturn("gid://shopify/FulfillmentOrder/9");
+        StatusUpdateWebhook.OrderStatus o = baseOrder();
+        o.setAwb("AWB1");
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_inTransit"),
+                eq("failed_inTransit"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
+
+        assertTrue(service.processInTransit(o));
+        verify(orderAppliedStateStore).recordApplied(BrandAccountKey.STRIKER_STORE, "254120",
+                "gid://shopify/Order/254120", 42L, "AWB1", "in_transit");
+    }
+
+    @Test
+    void processInTransit_trackingUpdateFails_noMessageAndNoAppliedState() {
+        when(customerMessageTrackingService.hasAnyStatus(anyString(), anyString(), anyList())).thenReturn(false);
+
+        Map<String, Object> orderNode = new HashMap<>();
+        orderNode.put("id", "gid://shopify/Order/254120");
+        orderNode.put("displayFulfillmentStatus", "UNFULFILLED");
+        orderNode.put("fulfillmentOrders", Map.of("nodes", List.of(Map.of("id", "gid://shopify/FulfillmentOrder/9", "status", "OPEN"))));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
         when(shopifyService.createFulfillment(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq("gid://shopify/FulfillmentOrder/9"), any(),
                 any())).thenReturn(42L);
-        when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(42L), any(), eq("in_transit")))
-                .thenReturn(true);
+        when(shopifyService.updateFulfillmentTrackingAsync(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(42L), any(), eq("in_transit")))
+                .thenReturn(CompletableFuture.completedFuture(false));
+        ShopifyAccount sa = new ShopifyAccount();
+        sa.setTrackingUrlTemplate("https://t/{awb}");
+        when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(sa);
+
+        StatusUpdateWebhook.OrderStatus o = baseOrder();
+        o.setAwb("AWB1");
+
+        assertFalse(service.processInTransit(o));
+        verify(botspaceService, never()).submitTemplateMessage(anyString(), any(), anyString(), anyString(),
+                anyString(), any(), any());
+        verify(orderAppliedStateStore, never()).recordApplied(anyString(), anyString(), anyString(), any(), any(),
+                anyString());
+    }
+
+    @Test
+    void processInTransit_appliedState_skipsOrderReadAndSendsBotspace() {
+        when(customerMessageTrackingService.hasAnyStatus(anyString(), anyString(), anyList())).thenReturn(false);
+        when(orderAppliedStateStore.pushStatusFromAppliedState(BrandAccountKey.STRIKER_STORE, "254120", "AWB1",
+                "in_transit")).thenReturn(true);
 
         BotspaceAccount ba = new BotspaceAccount();
         ba.setInTransitTemplateId("tpl_in");
@@ -170,9 +245,10 @@ class InTransitFlowServiceTest {
 
         StatusUpdateWebhook.OrderStatus o = baseOrder();
         o.setAwb("AWB1");
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_inTransit"),
-                eq("failed_inTransit"), any(), any())).thenReturn(true);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_inTransit"),
+                eq("failed_inTransit"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
         assertTrue(service.processInTransit(o));
+        verify(shopifyService, never()).getOrderContext(anyString(), anyString());
     }
 }
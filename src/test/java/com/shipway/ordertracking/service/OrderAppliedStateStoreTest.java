@@ -0,0 +1,140 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.entity.OrderAppliedState;
+import com.shipway.ordertracking.repository.OrderAppliedStateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderAppliedStateStoreTest {
+
+    private static final String BRAND = "STRIKER STORE";
+    private static final String ORDER_GID = "gid://shopify/Order/7001";
+
+    @Mock
+    private OrderAppliedStateRepository repository;
+
+    @Mock
+    private ShopifyService shopifyService;
+
+    @InjectMocks
+    private OrderAppliedStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+        ReflectionTestUtils.setField(store, "ttlSeconds", 3600L);
+    }
+
+    @Test
+    void recordApplied_writesThroughAndServesFromMemory() {
+        store.recordApplied(BRAND, "254120", ORDER_GID, 55L, " AWB1 ", "in_transit");
+
+        OrderAppliedStateStore.AppliedState state = store.get("Striker Store", "254120");
+
+        assertNotNull(state);
+        assertEquals(55L, state.fulfillmentId());
+        assertEquals(7001L, state.numericOrderId());
+        assertEquals("AWB1", state.awb());
+        verify(repository).upsert("striker store", "254120", ORDER_GID, 55L, "AWB1", "in_transit");
+        verify(repository, never()).findByBrandKeyAndOrderId(anyString(), anyString());
+    }
+
+    @Test
+    void get_cacheMiss_loadsRowOnce() {
+        OrderAppliedState row = new OrderAppliedState();
+        row.setShopifyOrderGid(ORDER_GID);
+        row.setFulfillmentId(55L);
+        row.setAwb("AWB1");
+        row.setLastShipmentStatus("in_transit");
+        when(repository.findByBrandKeyAndOrderId("striker store", "254120")).thenReturn(Optional.of(row));
+
+        assertNotNull(store.get(BRAND, "254120"));
+        assertNotNull(store.get(BRAND, "254120"));
+
+        verify(repository, times(1)).findByBrandKeyAndOrderId("striker store", "254120");
+    }
+
+    @Test
+    void push_sameStatusAlreadyApplied_skipsShopify() {
+        store.recordApplied(BRAND, "254120", ORDER_GID, 55L, "AWB1", "in_transit");
+
+        assertTrue(store.pushStatusFromAppliedState(BRAND, "254120", "AWB1", "IN_TRANSIT"));
+
+        verify(shopifyService, never()).updateFulfillmentTracking(anyString(), anyLong(), anyLong(), any(), any());
+        assertEquals(1L, store.getStats().get("shopifySkipped"));
+    }
+
+    @Test
+    void push_newStatus_mutatesStoredFulfillmentAndRecords() {
+        store.recordApplied(BRAND, "254120", ORDER_GID, 55L, "AWB1", "in_transit");
+        when(shopifyService.updateFulfillmentTracking(BRAND, 7001L, 55L, "AWB1", "out_for_delivery"))
+                .thenReturn(true);
+
+        assertTrue(store.pushStatusFromAppliedState(BRAND, "254120", "AWB1", "out_for_delivery"));
+
+        assertTrue(store.get(BRAND, "254120").hasPushed("out_for_delivery"));
+        verify(repository).upsert("striker store", "254120", ORDER_GID, 55L, "AWB1", "out_for_delivery");
+    }
+
+    @Test
+    void push_mutationFails_invalidatesForFallback() {
+        store.recordApplied(BRAND, "254120", ORDER_GID, 55L, "AWB1", "in_transit");
+        when(shopifyService.updateFulfillmentTracking(BRAND, 7001L, 55L, "AWB1", "delivered")).thenReturn(false);
+
+        assertFalse(store.pushStatusFromAppliedState(BRAND, "254120", "AWB1", "delivered"));
+
+        verify(repository).deleteByBrandKeyAndOrderId("striker store", "254120");
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void push_awbChanged_invalidatesWithoutShopifyCall() {
+        store.recordApplied(BRAND, "254120", ORDER_GID, 55L, "AWB1", "in_transit");
+
+        assertFalse(store.pushStatusFromAppliedState(BRAND, "254120", "AWB2", "out_for_delivery"));
+
+        verify(repository).deleteByBrandKeyAndOrderId("striker store", "254120");
+        verify(shopifyService, never()).updateFulfillmentTracking(anyString(), anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    void invalidate_dropsMemoryAndRow() {
+        store.recordApplied(BRAND, "254120", ORDER_GID, 55L, "AWB1", "in_transit");
+        when(repository.findByBrandKeyAndOrderId("striker store", "254120")).thenReturn(Optional.empty());
+
+        store.invalidate("striker store", "254120");
+
+        assertNull(store.get(BRAND, "254120"));
+        verify(repository).deleteByBrandKeyAndOrderId("striker store", "254120");
+    }
+
+    @Test
+    void repositoryFailure_isTreatedAsMiss() {
+        when(repository.findByBrandKeyAndOrderId("striker store", "254120"))
+                .thenThrow(new RuntimeException("db down"));
+
+        assertFalse(store.pushStatusFromAppliedState(BRAND, "254120", "AWB1", "in_transit"));
+    }
+}
@@ -18,6 +18,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -95,9 +96,9 @@ class OrderCreatedFlowServiceTest {
         when(storeShopifyBrandAccountService.findTrackingAccountCode(BrandAccountKey.STRIKER_STORE))
                 .thenReturn(Optional.of("PLX_STRIKER"));
 
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(BotspaceMessageRequest.class), eq("#1001"),
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(BotspaceMessageRequest.class), eq("#1001"),
                 eq("sent_orderCreated"), eq("failed_orderCreated"), eq("PLX_STRIKER"), eq(BrandAccountKey.STRIKER_STORE)))
-                .thenReturn(true);
+                .thenReturn(CompletableFuture.completedFuture(true));
 
         ShopifyOrderCreatedWebhook w = new ShopifyOrderCreatedWebhook();
         w.setName("#1001");
@@ -106,7 +107,7 @@ class OrderCreatedFlowServiceTest {
         assertTrue(service.processShopifyOrderCreated(w, "seq5t1-mz.myshopify.com"));
 
         ArgumentCaptor<BotspaceMessageRequest> cap = ArgumentCaptor.forClass(BotspaceMessageRequest.class);
-        verify(botspaceService).sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), cap.capture(), eq("#1001"), eq("sent_orderCreated"),
+        verify(botspaceService).submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), cap.capture(), eq("#1001"), eq("sent_orderCreated"),
                 eq("failed_orderCreated"), eq("PLX_STRIKER"), eq(BrandAccountKey.STRIKER_STORE));
         assertEquals("tpl_order_created", cap.getValue().getTemplateId());
     }
@@ -13,12 +13,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -27,7 +29,9 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -150,6 +154,97 @@ class OrderTrackingBulkFulfillmentServiceTest {
         assertFalse(out.getResults().get(0).isSuccess());
     }
 
+    private static UnfulfilledShopifyOrderItem previewItem(String orderId, String status) {
+        UnfulfilledShopifyOrderItem item = new UnfulfilledShopifyOrderItem();
+        item.setAccountCode(BrandAccountKey.STRIKER_STORE);
+        item.setOrderId(orderId);
+        item.setOrderTrackingStatus(status);
+        return item;
+    }
+
+    private static Map<String, Object> fulfilledOrderNode(long orderId, long fulfillmentId) {
+        Map<String, Object> orderNode = new HashMap<>();
+        orderNode.put("id", "gid://shopify/Order/" + orderId);
+        orderNode.put("displayFulfillmentStatus", "FULFILLED");
+        orderNode.put("fulfillments", List.of(Map.of("id", "gid://shopify/Fulfillment/" + fulfillmentId)));
+        return orderNode;
+    }
+
+    @Test
+    void fulfillPreviewItems_prefetchesAwbsOncePerAccount_keepsInputOrder() {
+        ReflectionTestUtils.setField(service, "threads", 4);
+        ReflectionTestUtils.setField(service, "shopConcurrency", 2);
+        service.init();
+        try {
+            ShopifyAccount acc = new ShopifyAccount();
+            acc.setShop("seq5t1-mz.myshopify.com");
+            when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(acc);
+            when(labelAwbRepository.findLatestAwbsForAccountAndNormalizedOrderIds(BrandAccountKey.STRIKER_STORE,
+                    List.of("1001", "1002", "1003"))).thenReturn(Map.of("1001", "AWB1", "1002", "AWB2"));
+            when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "#1001"))
+                    .thenReturn(fulfilledOrderNode(771, 551));
+            when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "#1002"))
+                    .thenReturn(fulfilledOrderNode(772, 552));
+            when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "#1003"))
+                    .thenReturn(null);
+            when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), anyLong(), anyLong(),
+                    anyString(), eq("delivered"))).thenReturn(true);
+
+            BulkFulfillFromTrackingResponse out = service.fulfillPreviewItems(List.of(
+                    previewItem("#1001", "Delivered"),
+                    previewItem("#9", "MYSTERY_STATUS"),
+                    previewItem("#1002", "Delivered"),
+                    previewItem("#1003", "In Transit")));
+
+            assertEquals(List.of("#1001", "#9", "#1002", "#1003"),
+                    out.getResults().stream().map(FulfillAttemptResult::getOrderId).toList());
+            assertTrue(out.getResults().get(0).isSuccess());
+            assertFalse(out.getResults().get(1).isSuccess());
+            assertTrue(out.getResults().get(2).isSuccess());
+            assertFalse(out.getResults().get(3).isSuccess());
+            assertEquals(3, out.getSummary().get("attempted"));
+            assertEquals(2, out.getSummary().get("succeeded"));
+            assertEquals(1, out.getSummary().get("failed"));
+            assertEquals(1, out.getSummary().get("skippedNotDeliveredInTransitOrOfd"));
+            verify(shopifyService).updateFulfillmentTracking(BrandAccountKey.STRIKER_STORE, 771L, 551L, "AWB1",
+                    "delivered");
+            verify(shopifyService).updateFulfillmentTracking(BrandAccountKey.STRIKER_STORE, 772L, 552L, "AWB2",
+                    "delivered");
+            verify(labelAwbRepository, never()).findLatestAwb(anyString(), anyString());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void executeStreaming_dryRun_emitsEachResultAndSummary() {
+        ReflectionTestUtils.setField(service, "streamChunk", 2);
+        doAnswer(inv -> {
+            Consumer<UnfulfilledShopifyOrderItem> sink = inv.getArgument(2);
+            sink.accept(previewItem("#1001", "Delivered"));
+            sink.accept(previewItem("#1002", "MYSTERY_STATUS"));
+            sink.accept(previewItem("#1003", "In Transit"));
+            return Map.of();
+        }).when(unfulfilledShopifyPreviewService).streamPreview(eq(BrandAccountKey.STRIKER_STORE), eq(500),
+                any(Consumer.class));
+        BulkFulfillFromTrackingRequest req = new BulkFulfillFromTrackingRequest();
+        req.setAccountCode(BrandAccountKey.STRIKER_STORE);
+        req.setDryRun(true);
+
+        List<FulfillAttemptResult> results = new ArrayList<>();
+        Map<String, Integer> summary = service.executeStreaming(req, results::add);
+
+        assertEquals(List.of("#1001", "#1002", "#1003"),
+                results.stream().map(FulfillAttemptResult::getOrderId).toList());
+        assertEquals(3, summary.get("previewItemsTotal"));
+        assertEquals(2, summary.get("attempted"));
+        assertEquals(2, summary.get("succeeded"));
+        assertEquals(0, summary.get("failed"));
+        assertEquals(1, summary.get("skippedNotDeliveredInTransitOrOfd"));
+        verify(shopifyService, never()).getOrderWithDisplayFulfillmentStatus(anyString(), anyString());
+    }
+
     @Test
     void fulfillSingleOrder_fulfilledPath_updatesTracking() {
         ShopifyAccount acc = new ShopifyAccount();
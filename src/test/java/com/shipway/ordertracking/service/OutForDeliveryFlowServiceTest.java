@@ -4,6 +4,7 @@ import com.shipway.ordertracking.config.BotspaceAccount;
 import com.shipway.ordertracking.config.BotspaceProperties;
 import com.shipway.ordertracking.config.ShopifyAccount;
 import com.shipway.ordertracking.config.ShopifyProperties;
+import com.shipway.ordertracking.dto.ShopifyOrderContext;
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
 import com.shipway.ordertracking.util.BrandAccountKey;
 import org.junit.jupiter.api.Test;
@@ -16,6 +17,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -43,6 +45,9 @@ class OutForDeliveryFlowServiceTest {
     @Mock
     private CustomerMessageTrackingService customerMessageTrackingService;
 
+    @Mock
+    private OrderAppliedStateStore orderAppliedStateStore;
+
     @InjectMocks
     private OutForDeliveryFlowService service;
 
@@ -99,8 +104,8 @@ class OutForDeliveryFlowServiceTest {
         when(shopifyProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(sa);
         o.setAwb("AWB1");
 
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120_CLONE"), eq("sent_outForDelivery"),
-                eq("failed_outForDelivery"), any(), any())).thenReturn(true);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120_CLONE"), eq("sent_outForDelivery"),
+                eq("failed_outForDelivery"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
         assertTrue(service.processOutForDelivery(o));
     }
@@ -108,7 +113,7 @@ class OutForDeliveryFlowServiceTest {
     @Test
     void processOutForDelivery_orderNotFound_returnsFalse() {
         when(customerMessageTrackingService.hasAnyStatus(anyString(), anyString(), anyList())).thenReturn(false);
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(anyString(), anyString())).thenReturn(null);
+        when(shopifyService.getOrderContext(anyString(), anyString())).thenReturn(null);
         assertFalse(service.processOutForDelivery(baseOrder()));
     }
 
@@ -123,9 +128,9 @@ class OutForDeliveryFlowServiceTest {
         fl.add(Map.of("id", "gid://shopify/Fulfillment/555"));
         orderNode.put("fulfillments", fl);
 
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
-        when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(555L), any(), eq("out_for_delivery")))
-                .thenReturn(true);
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
+        when(shopifyService.updateFulfillmentTrackingAsync(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(555L), any(), eq("out_for_delivery")))
+                .thenReturn(CompletableFuture.completedFuture(true));
 
         BotspaceAccount ba = new BotspaceAccount();
         ba.setOutForDeliveryTemplateId("tpl_ofd");
@@ -137,8 +142,8 @@ class OutForDeliveryFlowServiceTest {
 
         StatusUpdateWebhook.OrderStatus o = baseOrder();
         o.setAwb("AWB1");
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_outForDelivery"),
-                eq("failed_outForDelivery"), any(), any())).thenReturn(true);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_outForDelivery"),
+                eq("failed_outForDelivery"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
         assertTrue(service.processOutForDelivery(o));
     }
@@ -150,15 +155,13 @@ class OutForDeliveryFlowServiceTest {
         Map<String, Object> orderNode = new HashMap<>();
         orderNode.put("id", "gid://shopify/Order/254120");
         orderNode.put("displayFulfillmentStatus", "UNFULFILLED");
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
+        orderNode.put("fulfillmentOrders", Map.of("nodes", List.of(Map.of("id", "gid://shopify/FulfillmentOrder/9", "status", "OPEN"))));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
 
-        Map<String, Object> foData = Map.of();
-        when(shopifyService.getFulfillmentOrdersForOrder(BrandAccountKey.STRIKER_STORE, "gid://shopify/Order/254120")).thenReturn(foData);
-        when(shopifyService.getOpenFulfillmentOrderIdFromEdges(foData)).thenReturn("gid://shopify/FulfillmentOrder/9");
         when(shopifyService.createFulfillment(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq("gid://shopify/FulfillmentOrder/9"), any(),
                 any())).thenReturn(42L);
-        when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(42L), any(), eq("out_for_delivery")))
-                .thenReturn(true);
+        when(shopifyService.updateFulfillmentTrackingAsync(eq(BrandAccountKey.STRIKER_STORE), eq(254120L), eq(42L), any(), eq("out_for_delivery")))
+                .thenReturn(CompletableFuture.completedFuture(true));
 
         BotspaceAccount ba = new BotspaceAccount();
         ba.setOutForDeliveryTemplateId("tpl_ofd");
@@ -169,8 +172,8 @@ class OutForDeliveryFlowServiceTest {
 
         StatusUpdateWebhook.OrderStatus o = baseOrder();
         o.setAwb("AWB1");
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_outForDelivery"),
-                eq("failed_outForDelivery"), any(), any())).thenReturn(true);
+        when(botspaceService.submitTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(), eq("254120"), eq("sent_outForDelivery"),
+                eq("failed_outForDelivery"), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
 
         assertTrue(service.processOutForDelivery(o));
     }
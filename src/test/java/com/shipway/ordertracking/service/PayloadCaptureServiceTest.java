@@ -0,0 +1,75 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadCaptureServiceTest {
+
+    private PayloadCaptureService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PayloadCaptureService();
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "bufferSize", 3);
+        ReflectionTestUtils.setField(service, "webhookSampleRate", 1.0);
+        ReflectionTestUtils.setField(service, "shopifySampleRate", 0.0);
+        ReflectionTestUtils.setField(service, "botspaceSampleRate", 0.0);
+        service.init();
+    }
+
+    @Test
+    void capture_zeroSampleRate_keepsOnlyErrors() {
+        service.capture(PayloadCaptureService.Channel.BOTSPACE, "send-message", "1001", Map.of("ok", true), false);
+        service.capture(PayloadCaptureService.Channel.BOTSPACE, "send-message", "1001", Map.of("ok", false), true);
+
+        List<PayloadCaptureService.Capture> found = service.findByOrderId("1001", null, 10);
+
+        assertEquals(1, found.size());
+        assertTrue(found.get(0).error());
+        assertEquals("{\"ok\":false}", new String(found.get(0).payload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ring_keepsLastNPerChannel_newestFirst() {
+        for (int i = 1; i <= 5; i++) {
+            service.capture(PayloadCaptureService.Channel.WEBHOOK, "status-update", "#1001", Map.of("n", i), false);
+        }
+
+        List<PayloadCaptureService.Capture> found = service.findByOrderId("1001",
+                PayloadCaptureService.Channel.WEBHOOK, 10);
+
+        assertEquals(3, found.size());
+        assertEquals("{\"n\":5}", new String(found.get(0).payload(), StandardCharsets.UTF_8));
+        assertEquals("{\"n\":3}", new String(found.get(2).payload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void findByOrderId_matchesPayloadWhenOrderIdNotRecorded() {
+        service.store(PayloadCaptureService.Channel.SHOPIFY, "Create Fulfillment", null,
+                Map.of("variables", Map.of("orderId", "gid://shopify/Order/77")), true);
+        service.store(PayloadCaptureService.Channel.SHOPIFY, "Get Order", "2002", Map.of("x", 1), false);
+
+        assertEquals(1, service.findByOrderId("gid://shopify/Order/77", null, 10).size());
+        assertEquals(1, service.findByOrderId("2002", PayloadCaptureService.Channel.SHOPIFY, 10).size());
+        assertTrue(service.findByOrderId("2002", PayloadCaptureService.Channel.BOTSPACE, 10).isEmpty());
+        assertTrue(service.findByOrderId("  ", null, 10).isEmpty());
+    }
+
+    @Test
+    void shouldCapture_respectsRates() {
+        assertTrue(service.shouldCapture(PayloadCaptureService.Channel.WEBHOOK, false));
+        assertFalse(service.shouldCapture(PayloadCaptureService.Channel.SHOPIFY, false));
+        assertTrue(service.shouldCapture(PayloadCaptureService.Channel.SHOPIFY, true));
+    }
+}
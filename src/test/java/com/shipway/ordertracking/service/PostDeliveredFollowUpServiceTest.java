@@ -15,6 +15,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
@@ -53,8 +54,8 @@ class PostDeliveredFollowUpServiceTest {
 
         service.sendFollowUpToYesterdayDelivered();
 
-        verify(botspaceService, never()).sendTemplateMessage(anyString(), any(BotspaceMessageRequest.class), anyString(),
-                anyString(), anyString(), any(), any());
+        verify(botspaceService, never()).sendTemplateMessageAsync(anyString(), any(BotspaceMessageRequest.class), anyString(),
+                anyString(), anyString(), any(), any(), any());
     }
 
     @Test
@@ -73,14 +74,15 @@ class PostDeliveredFollowUpServiceTest {
         ba.setPostDeliveredFollowUpTemplateId("tpl_followup");
         when(botspaceProperties.getAccountByCode(BrandAccountKey.STRIKER_STORE)).thenReturn(ba);
 
-        when(botspaceService.sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(BotspaceMessageRequest.class), eq("#1001"),
+        when(botspaceService.sendTemplateMessageAsync(eq(BrandAccountKey.STRIKER_STORE), any(BotspaceMessageRequest.class), eq("#1001"),
                 eq("sent_postDeliveredFollowUp"), eq("failed_postDeliveredFollowUp"), eq(BrandAccountKey.STRIKER_STORE),
-                isNull())).thenReturn(true);
+                isNull(), eq(BotspaceLaneDispatcher.Lane.FOLLOW_UP))).thenReturn(CompletableFuture.completedFuture(true));
 
         service.sendFollowUpToYesterdayDelivered();
 
-        verify(botspaceService).sendTemplateMessage(eq(BrandAccountKey.STRIKER_STORE), any(BotspaceMessageRequest.class), eq("#1001"),
-                eq("sent_postDeliveredFollowUp"), eq("failed_postDeliveredFollowUp"), eq(BrandAccountKey.STRIKER_STORE), isNull());
+        verify(botspaceService).sendTemplateMessageAsync(eq(BrandAccountKey.STRIKER_STORE), any(BotspaceMessageRequest.class), eq("#1001"),
+                eq("sent_postDeliveredFollowUp"), eq("failed_postDeliveredFollowUp"), eq(BrandAccountKey.STRIKER_STORE), isNull(),
+                eq(BotspaceLaneDispatcher.Lane.FOLLOW_UP));
     }
 
     @Test
@@ -96,7 +98,7 @@ class PostDeliveredFollowUpServiceTest {
 
         service.sendFollowUpToYesterdayDelivered();
 
-        verify(botspaceService, never()).sendTemplateMessage(anyString(), any(BotspaceMessageRequest.class), anyString(),
-                anyString(), anyString(), any(), any());
+        verify(botspaceService, never()).sendTemplateMessageAsync(anyString(), any(BotspaceMessageRequest.class), anyString(),
+                anyString(), anyString(), any(), any(), any());
     }
 }
@@ -0,0 +1,196 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.config.ShopifyAccount;
+import com.shipway.ordertracking.config.ShopifyProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ShopifyBulkOrderScanner} against a local stub serving the Admin GraphQL calls ({@code ordersCount},
+ * {@code bulkOperationRunQuery}, the status poll, the cursor search) and the JSONL result file.
+ */
+class ShopifyBulkOrderScannerTest {
+
+    private static final String RESULTS = String.join("\n",
+            "{\"id\":\"gid://shopify/Order/3\",\"name\":\"#1003\",\"createdAt\":\"2026-10-03T10:00:00Z\","
+                    + "\"displayFulfillmentStatus\":\"UNFULFILLED\",\"customer\":{\"id\":\"gid://shopify/Customer/9\"}}",
+            "{\"id\":\"gid://shopify/LineItem/31\",\"__parentId\":\"gid://shopify/Order/3\"}",
+            "",
+            "{\"id\":\"gid://shopify/Order/2\",\"name\":\"#1002\",\"createdAt\":\"2026-10-02T10:00:00Z\","
+                    + "\"displayFulfillmentStatus\":\"UNFULFILLED\"}",
+            "{\"id\":\"gid://shopify/Order/1\",\"name\":\"#1001\",\"createdAt\":\"2026-10-01T10:00:00Z\","
+                    + "\"displayFulfillmentStatus\":\"PARTIALLY_FULFILLED\"}") + "\n";
+
+    private HttpServer upstream;
+    private String baseUrl;
+    private ShopifyBulkOrderScanner scanner;
+
+    private volatile int ordersCount = 3;
+    private volatile boolean rejectRun;
+    private volatile String runRequest;
+    private final AtomicInteger runs = new AtomicInteger();
+    private final AtomicInteger polls = new AtomicInteger();
+    private final AtomicInteger cursorCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 10);
+        baseUrl = "http://127.0.0.1:" + upstream.getAddress().getPort();
+        upstream.createContext("/graphql", exchange -> {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            respond(exchange, "application/json", graphQLResponse(request));
+        });
+        upstream.createContext("/results.jsonl", exchange -> respond(exchange, "application/jsonl", RESULTS));
+        upstream.start();
+
+        ShopifyAccount account = new ShopifyAccount() {
+            @Override
+            public String getGraphQLUrl() {
+                return baseUrl + "/graphql";
+            }
+        };
+        account.setShop("test-shop.myshopify.com");
+        account.setAccessToken("token");
+        ShopifyProperties properties = new ShopifyProperties();
+        properties.getAccounts().put("STRIKER STORE", account);
+
+        ShopifyService shopifyService = new ShopifyService();
+        ReflectionTestUtils.setField(shopifyService, "restTemplate", new RestTemplate());
+        ReflectionTestUtils.setField(shopifyService, "shopifyProperties", properties);
+
+        scanner = new ShopifyBulkOrderScanner();
+        ReflectionTestUtils.setField(scanner, "shopifyService", shopifyService);
+        ReflectionTestUtils.setField(scanner, "shopifyProperties", properties);
+        ReflectionTestUtils.setField(scanner, "restTemplate", new RestTemplate());
+        ReflectionTestUtils.setField(scanner, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(scanner, "enabled", true);
+        ReflectionTestUtils.setField(scanner, "minOrders", 2);
+        ReflectionTestUtils.setField(scanner, "pollMs", 10L);
+        ReflectionTestUtils.setField(scanner, "timeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.stop(0);
+    }
+
+    private String graphQLResponse(String request) {
+        if (request.contains("ordersCount")) {
+            return "{\"data\":{\"ordersCount\":{\"count\":" + ordersCount + "}}}";
+        }
+        if (request.contains("bulkOperationRunQuery")) {
+            runs.incrementAndGet();
+            runRequest = request;
+            if (rejectRun) {
+                return "{\"data\":{\"bulkOperationRunQuery\":{\"bulkOperation\":null,\"userErrors\":[{\"field\":null,"
+                        + "\"message\":\"A bulk query operation for this app and shop is already in progress\"}]}}}";
+            }
+            return "{\"data\":{\"bulkOperationRunQuery\":{\"bulkOperation\":{\"id\":\"gid://shopify/BulkOperation/7\","
+                    + "\"status\":\"CREATED\"},\"userErrors\":[]}}}";
+        }
+        if (request.contains("BulkOperationStatus")) {
+            if (polls.incrementAndGet() < 3) {
+                return "{\"data\":{\"node\":{\"id\":\"gid://shopify/BulkOperation/7\",\"status\":\"RUNNING\"}}}";
+            }
+            return "{\"data\":{\"node\":{\"id\":\"gid://shopify/BulkOperation/7\",\"status\":\"COMPLETED\","
+                    + "\"objectCount\":\"4\",\"url\":\"" + baseUrl + "/results.jsonl\"}}}";
+        }
+        cursorCalls.incrementAndGet();
+        return "{\"data\":{\"orders\":{\"pageInfo\":{\"hasNextPage\":false,\"endCursor\":null},\"edges\":["
+                + "{\"node\":{\"id\":\"gid://shopify/Order/2\",\"name\":\"#1002\",\"createdAt\":\"2026-10-02T10:00:00Z\","
+                + "\"displayFulfillmentStatus\":\"UNFULFILLED\"}}]}}}";
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private List<Map<String, Map<String, Object>>> scan(int maxTotalOrders, int[] loaded) {
+        List<Map<String, Map<String, Object>>> pages = new ArrayList<>();
+        loaded[0] = scanner.forEachOrderNodePage("STRIKER STORE", "fulfillment_status:unfulfilled", maxTotalOrders,
+                pages::add);
+        return pages;
+    }
+
+    @Test
+    void largeScan_runsBulkOperation_pollsUntilCompleted_readsJsonlIntoCompactNodes() {
+        int[] loaded = new int[1];
+        List<Map<String, Map<String, Object>>> pages = scan(5000, loaded);
+
+        assertEquals(3, loaded[0]);
+        assertEquals(1, pages.size());
+        assertEquals(List.of("1003", "1002", "1001"), List.copyOf(pages.get(0).keySet()));
+        assertEquals(Set.of("id", "name", "createdAt", "displayFulfillmentStatus"), pages.get(0).get("1003").keySet());
+        assertEquals("PARTIALLY_FULFILLED", pages.get(0).get("1001").get("displayFulfillmentStatus"));
+        assertEquals(3, polls.get());
+        assertEquals(0, cursorCalls.get());
+        assertTrue(runRequest.contains("orders(query: \\\"fulfillment_status:unfulfilled\\\""), runRequest);
+    }
+
+    @Test
+    void bulkResults_stopAtMaxTotalOrders() {
+        int[] loaded = new int[1];
+        List<Map<String, Map<String, Object>>> pages = scan(2, loaded);
+
+        assertEquals(2, loaded[0]);
+        assertEquals(List.of("1003", "1002"), List.copyOf(pages.get(0).keySet()));
+    }
+
+    @Test
+    void smallScan_usesCursorPaging() {
+        ordersCount = 1;
+        int[] loaded = new int[1];
+        List<Map<String, Map<String, Object>>> pages = scan(5000, loaded);
+
+        assertEquals(1, loaded[0]);
+        assertEquals(Set.of("1002"), pages.get(0).keySet());
+        assertEquals(0, runs.get());
+        assertEquals(1, cursorCalls.get());
+    }
+
+    @Test
+    void bulkOperationRejected_fallsBackToCursorPaging() {
+        rejectRun = true;
+        int[] loaded = new int[1];
+        List<Map<String, Map<String, Object>>> pages = scan(5000, loaded);
+
+        assertEquals(1, loaded[0]);
+        assertEquals(Set.of("1002"), pages.get(0).keySet());
+        assertEquals(1, runs.get());
+        assertEquals(0, polls.get());
+        assertEquals(1, cursorCalls.get());
+    }
+
+    @Test
+    void ordersBulkQuery_escapesSearchString() {
+        assertEquals("{ orders(query: \"tag:\\\"vip\\\"\", sortKey: CREATED_AT, reverse: true) "
+                        + "{ edges { node { id name createdAt displayFulfillmentStatus } } } }",
+                ShopifyBulkOrderScanner.ordersBulkQuery(" tag:\"vip\" "));
+    }
+}
@@ -2,6 +2,7 @@ package com.shipway.ordertracking.service;
 
 import com.shipway.ordertracking.config.ShopifyAccount;
 import com.shipway.ordertracking.config.ShopifyProperties;
+import com.shipway.ordertracking.dto.ShopifyOrderContext;
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
 import com.shipway.ordertracking.util.BrandAccountKey;
 import org.junit.jupiter.api.Test;
@@ -32,6 +33,9 @@ class ShopifyFulfillmentFlowServiceTest {
     @Mock
     private ShopifyProperties shopifyProperties;
 
+    @Mock
+    private OrderAppliedStateStore orderAppliedStateStore;
+
     @InjectMocks
     private ShopifyFulfillmentFlowService service;
 
@@ -66,7 +70,7 @@ class ShopifyFulfillmentFlowServiceTest {
 
     @Test
     void processShopifyFulfillment_orderNotFound_returnsFalse() {
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(anyString(), anyString())).thenReturn(null);
+        when(shopifyService.getOrderContext(anyString(), anyString())).thenReturn(null);
         assertFalse(service.processShopifyFulfillment(baseOrder()));
     }
 
@@ -78,10 +82,8 @@ class ShopifyFulfillmentFlowServiceTest {
         orderNode.put("id", "gid://shopify/Order/777");
         orderNode.put("displayFulfillmentStatus", "UNFULFILLED");
 
-        Map<String, Object> foData = Map.of();
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
-        when(shopifyService.getFulfillmentOrdersForOrder(BrandAccountKey.STRIKER_STORE, "gid://shopify/Order/777")).thenReturn(foData);
-        when(shopifyService.getOpenFulfillmentOrderIdFromEdges(foData)).thenReturn("gid://shopify/FulfillmentOrder/9");
+        orderNode.put("fulfillmentOrders", Map.of("nodes", List.of(Map.of("id", "gid://shopify/FulfillmentOrder/9", "status", "OPEN"))));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
         when(shopifyService.createFulfillment(eq(BrandAccountKey.STRIKER_STORE), eq(777L), eq("gid://shopify/FulfillmentOrder/9"), eq("AWB123"),
                 anyString())).thenReturn(42L);
         when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), eq(777L), eq(42L), eq("AWB123"), eq("LABEL PRINTED")))
@@ -98,10 +100,8 @@ class ShopifyFulfillmentFlowServiceTest {
         orderNode.put("id", "gid://shopify/Order/777");
         orderNode.put("displayFulfillmentStatus", "PARTIAL");
 
-        Map<String, Object> foData = Map.of();
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
-        when(shopifyService.getFulfillmentOrdersForOrder(BrandAccountKey.STRIKER_STORE, "gid://shopify/Order/777")).thenReturn(foData);
-        when(shopifyService.getOpenFulfillmentOrderIdFromEdges(foData)).thenReturn("gid://shopify/FulfillmentOrder/9");
+        orderNode.put("fulfillmentOrders", Map.of("nodes", List.of(Map.of("id", "gid://shopify/FulfillmentOrder/9", "status", "OPEN"))));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
         when(shopifyService.createFulfillment(anyString(), anyLong(), anyString(), any(), any())).thenReturn(null);
         when(shopifyService.getFulfillmentId(BrandAccountKey.STRIKER_STORE, 777L)).thenReturn(99L);
         when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), eq(777L), eq(99L), eq("AWB123"), eq("LABEL PRINTED")))
@@ -123,7 +123,7 @@ class ShopifyFulfillmentFlowServiceTest {
         orderNode.put("displayFulfillmentStatus", "FULFILLED");
         orderNode.put("fulfillments", fulfillments);
 
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
         when(shopifyService.updateFulfillmentTracking(eq(BrandAccountKey.STRIKER_STORE), eq(777L), eq(555L), eq("AWB123"), eq("LABEL PRINTED")))
                 .thenReturn(true);
 
@@ -137,10 +137,8 @@ class ShopifyFulfillmentFlowServiceTest {
         orderNode.put("id", "gid://shopify/Order/777");
         orderNode.put("displayFulfillmentStatus", "UNFULFILLED");
 
-        Map<String, Object> foData = Map.of();
-        when(shopifyService.getOrderWithDisplayFulfillmentStatus(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(orderNode);
-        when(shopifyService.getFulfillmentOrdersForOrder(BrandAccountKey.STRIKER_STORE, "gid://shopify/Order/777")).thenReturn(foData);
-        when(shopifyService.getOpenFulfillmentOrderIdFromEdges(foData)).thenReturn(null);
+        orderNode.put("fulfillmentOrders", Map.of("nodes", List.of(Map.of("id", "gid://shopify/FulfillmentOrder/9", "status", "CLOSED"))));
+        when(shopifyService.getOrderContext(BrandAccountKey.STRIKER_STORE, "254120")).thenReturn(ShopifyOrderContext.fromOrderNode(orderNode));
 
         assertFalse(service.processShopifyFulfillment(o));
     }
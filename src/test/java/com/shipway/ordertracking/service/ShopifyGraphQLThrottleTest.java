@@ -0,0 +1,195 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.config.ShopifyAccount;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ShopifyService#callGraphQL} through {@link ShopifyGraphQLThrottle} against a local stub that behaves like
+ * Shopify's leaky bucket: each query needs {@value #REQUESTED_COST} points (refunded down to {@value #ACTUAL_COST}),
+ * the bucket holds {@value #BUCKET_SIZE} and refills at {@value #RESTORE_RATE}/s, and an over-budget query gets a
+ * THROTTLED error. Every response carries {@code extensions.cost.throttleStatus}.
+ */
+class ShopifyGraphQLThrottleTest {
+
+    private static final double BUCKET_SIZE = 100;
+    private static final double RESTORE_RATE = 200;
+    private static final double REQUESTED_COST = 40;
+    private static final double ACTUAL_COST = 30;
+
+    private HttpServer upstream;
+    private ExecutorService upstreamExecutor;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger throttledResponses = new AtomicInteger();
+
+    /** Stub bucket; guarded by {@code this}. */
+    private double serverAvailable = BUCKET_SIZE;
+    private long serverUpdatedNanos = System.nanoTime();
+
+    private ShopifyGraphQLThrottle throttle;
+    private ShopifyService shopifyService;
+    private ShopifyAccount account;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 50);
+        upstreamExecutor = Executors.newCachedThreadPool();
+        upstream.setExecutor(upstreamExecutor);
+        upstream.createContext("/graphql", exchange -> {
+            calls.incrementAndGet();
+            byte[] body = stubResponse().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } finally {
+                exchange.close();
+            }
+        });
+        upstream.start();
+
+        throttle = new ShopifyGraphQLThrottle();
+        ReflectionTestUtils.setField(throttle, "enabled", true);
+        ReflectionTestUtils.setField(throttle, "defaultBucketSize", 1000.0);
+        ReflectionTestUtils.setField(throttle, "defaultRestoreRate", 50.0);
+        ReflectionTestUtils.setField(throttle, "defaultQueryCost", 50.0);
+        ReflectionTestUtils.setField(throttle, "maxWaitMs", 5000L);
+        ReflectionTestUtils.setField(throttle, "maxRetries", 3);
+
+        shopifyService = new ShopifyService();
+        ReflectionTestUtils.setField(shopifyService, "restTemplate", new RestTemplate());
+        ReflectionTestUtils.setField(shopifyService, "graphQLThrottle", throttle);
+
+        String url = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/graphql";
+        account = new ShopifyAccount() {
+            @Override
+            public String getGraphQLUrl() {
+                return url;
+            }
+        };
+        account.setShop("test-shop.myshopify.com");
+        account.setAccessToken("token");
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.stop(0);
+        upstreamExecutor.shutdownNow();
+    }
+
+    /** Leaky bucket as Shopify runs it: charge the requested cost up front, refund to the actual cost. */
+    private synchronized String stubResponse() {
+        long now = System.nanoTime();
+        serverAvailable = Math.min(BUCKET_SIZE,
+                serverAvailable + RESTORE_RATE * (now - serverUpdatedNanos) / 1_000_000_000.0);
+        serverUpdatedNanos = now;
+        if (serverAvailable + 1e-6 < REQUESTED_COST) {
+            throttledResponses.incrementAndGet();
+            return "{\"errors\":[{\"message\":\"Throttled\",\"extensions\":{\"code\":\"THROTTLED\"}}],"
+                    + costExtensions(null);
+        }
+        serverAvailable -= ACTUAL_COST;
+        return "{\"data\":{\"shop\":{\"name\":\"Test\"}}," + costExtensions(ACTUAL_COST);
+    }
+
+    private String costExtensions(Double actualCost) {
+        return "\"extensions\":{\"cost\":{\"requestedQueryCost\":" + REQUESTED_COST
+                + ",\"actualQueryCost\":" + actualCost
+                + ",\"throttleStatus\":{\"maximumAvailable\":" + BUCKET_SIZE
+                + ",\"currentlyAvailable\":" + serverAvailable
+                + ",\"restoreRate\":" + RESTORE_RATE + "}}}}";
+    }
+
+    private synchronized void setServerAvailable(double available) {
+        serverAvailable = available;
+        serverUpdatedNanos = System.nanoTime();
+    }
+
+    @Test
+    void burstAfterFirstResponse_waitsForBucketInsteadOfBeingThrottled() throws Exception {
+        assertNotNull(shopifyService.callGraphQL(account, "{ shop { name } }", null, "Shop Name"));
+        assertEquals(REQUESTED_COST, throttle.estimateCost("Shop Name"), 0.001);
+
+        int burst = 12;
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        long started = System.nanoTime();
+        List<Future<Map<String, Object>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < burst; i++) {
+                results.add(callers.submit(() -> shopifyService.callGraphQL(account, "{ shop { name } }", null,
+                        "Shop Name")));
+            }
+            for (Future<Map<String, Object>> result : results) {
+                Map<String, Object> body = result.get();
+                assertNotNull(body);
+                assertFalse(body.containsKey("errors"));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(0, throttledResponses.get());
+        assertEquals(burst + 1, calls.get());
+        assertTrue((Long) throttle.getStats().get("delayed") > 0);
+        // 12 x 30 points against ~70 left, refilling at 200/s
+        assertTrue(elapsedMs >= 1000, "elapsed ms: " + elapsedMs);
+    }
+
+    @Test
+    void throttledResponse_isRetriedOnceBucketRefills() {
+        setServerAvailable(0);
+
+        Map<String, Object> body = shopifyService.callGraphQL(account, "{ shop { name } }", null, "Shop Name");
+
+        assertNotNull(body);
+        assertFalse(body.containsKey("errors"));
+        assertEquals(1, throttledResponses.get());
+        assertEquals(2, calls.get());
+        assertEquals(1L, throttle.getStats().get("throttled"));
+    }
+
+    @Test
+    void gauges_reportAvailableAndMaximumPerShop() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(throttle, "meterRegistry", registry);
+        throttle.init();
+
+        shopifyService.callGraphQL(account, "{ shop { name } }", null, "Shop Name");
+
+        double available = registry.get("shopify.graphql.cost.available").tag("shop", "test-shop").gauge().value();
+        assertTrue(available > 0 && available <= BUCKET_SIZE, "available: " + available);
+        assertEquals(BUCKET_SIZE,
+                registry.get("shopify.graphql.cost.maximum").tag("shop", "test-shop").gauge().value(), 0.001);
+    }
+
+    @Test
+    void isThrottled_onlyForThrottledErrorCode() {
+        assertTrue(ShopifyGraphQLThrottle.isThrottled(Map.of("errors",
+                List.of(Map.of("message", "Throttled", "extensions", Map.of("code", "THROTTLED"))))));
+        assertFalse(ShopifyGraphQLThrottle.isThrottled(Map.of("errors",
+                List.of(Map.of("message", "Field 'x' doesn't exist")))));
+        assertFalse(ShopifyGraphQLThrottle.isThrottled(Map.of("data", Map.of())));
+    }
+}
@@ -0,0 +1,105 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StatusTransitionCoalescerTest {
+
+    private StatusTransitionCoalescer coalescer;
+    private final List<String> dispatched = new CopyOnWriteArrayList<>();
+    private final Function<StatusUpdateWebhook.OrderStatus, CompletableFuture<Map<String, Object>>> dispatcher = o -> {
+        dispatched.add(o.getOrderId() + ":" + o.getCurrentShipmentStatus());
+        return CompletableFuture.completedFuture(Map.of("success", true, "orderId", o.getOrderId()));
+    };
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new StatusTransitionCoalescer();
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "windowMs", 50L);
+        coalescer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.shutdown();
+    }
+
+    private static StatusUpdateWebhook.OrderStatus event(String orderId, String status) {
+        StatusUpdateWebhook.OrderStatus o = new StatusUpdateWebhook.OrderStatus();
+        o.setOrderId(orderId);
+        o.setCurrentShipmentStatus(status);
+        return o;
+    }
+
+    @Test
+    void burst_collapsesToLatestActionableStatus() throws Exception {
+        CompletableFuture<Map<String, Object>> pickedUp = coalescer.offer("1001", event("1001", "PICKED_UP"), dispatcher);
+        CompletableFuture<Map<String, Object>> inTransit = coalescer.offer("1001", event("1001", "IN_TRANSIT"), dispatcher);
+        CompletableFuture<Map<String, Object>> ofd = coalescer.offer("1001", event("1001", "OUT_FOR_DELIVERY"), dispatcher);
+        CompletableFuture<Map<String, Object>> unknown = coalescer.offer("1001", event("1001", "DELAYED"), dispatcher);
+        CompletableFuture<Map<String, Object>> other = coalescer.offer("2002", event("2002", "DELIVERED"), dispatcher);
+
+        assertNull(ofd.get(2, TimeUnit.SECONDS).get("coalesced"));
+        assertEquals(true, pickedUp.get(2, TimeUnit.SECONDS).get("coalesced"));
+        assertEquals(true, inTransit.get(2, TimeUnit.SECONDS).get("coalesced"));
+        assertEquals(true, unknown.get(2, TimeUnit.SECONDS).get("coalesced"));
+        other.get(2, TimeUnit.SECONDS);
+
+        assertEquals(2, dispatched.size());
+        assertEquals(true, dispatched.contains("1001:OUT_FOR_DELIVERY"));
+        assertEquals(true, dispatched.contains("2002:DELIVERED"));
+        assertEquals(3L, coalescer.getStats().get("merged"));
+    }
+
+    @Test
+    void lateInTransitAfterDelivered_deliveredWins() throws Exception {
+        CompletableFuture<Map<String, Object>> delivered = coalescer.offer("1001", event("1001", "DELIVERED"), dispatcher);
+        CompletableFuture<Map<String, Object>> inTransit = coalescer.offer("1001", event("1001", "IN_TRANSIT"), dispatcher);
+
+        assertNull(delivered.get(2, TimeUnit.SECONDS).get("coalesced"));
+        assertEquals(true, inTransit.get(2, TimeUnit.SECONDS).get("coalesced"));
+        assertEquals(List.of("1001:DELIVERED"), dispatched);
+    }
+
+    @Test
+    void shippedThenInTransit_shippedIsNotMergedAway() throws Exception {
+        CompletableFuture<Map<String, Object>> shipped = coalescer.offer("1001", event("1001", "SHIPPED"), dispatcher);
+        CompletableFuture<Map<String, Object>> inTransit = coalescer.offer("1001", event("1001", "IN_TRANSIT"), dispatcher);
+
+        assertNull(shipped.get(2, TimeUnit.SECONDS).get("coalesced"));
+        assertNull(inTransit.get(2, TimeUnit.SECONDS).get("coalesced"));
+        assertEquals(List.of("1001:SHIPPED", "1001:IN_TRANSIT"), dispatched);
+        assertEquals(0L, coalescer.getStats().get("merged"));
+    }
+
+    @Test
+    void onlyNonActionableEvents_dispatchesLatest() throws Exception {
+        coalescer.offer("1001", event("1001", "RTO"), dispatcher);
+        coalescer.offer("1001", event("1001", "SOMETHING_ELSE"), dispatcher).get(2, TimeUnit.SECONDS);
+
+        assertEquals(List.of("1001:SOMETHING_ELSE"), dispatched);
+    }
+
+    @Test
+    void eventAfterWindow_startsNewGroup() throws Exception {
+        coalescer.offer("1001", event("1001", "IN_TRANSIT"), dispatcher).get(2, TimeUnit.SECONDS);
+        coalescer.offer("1001", event("1001", "DELIVERED"), dispatcher).get(2, TimeUnit.SECONDS);
+
+        assertEquals(List.of("1001:IN_TRANSIT", "1001:DELIVERED"), dispatched);
+        assertEquals(0L, coalescer.getStats().get("merged"));
+    }
+}
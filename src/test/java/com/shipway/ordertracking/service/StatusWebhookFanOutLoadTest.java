@@ -0,0 +1,137 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load test for the status webhook fan-out against a slow local upstream (stands in for Shopify / Botspace).
+ * In-flight upstream calls stay capped at {@code webhook.fanout.parallelism} on platform threads and on virtual
+ * threads (JDK 21+), where the cap can be set higher because waiting orders hold no platform thread.
+ */
+@ExtendWith(MockitoExtension.class)
+class StatusWebhookFanOutLoadTest {
+
+    private static final int ORDERS = 200;
+    private static final int PLATFORM_THREADS = 4;
+    private static final int VIRTUAL_PARALLELISM = 40;
+    private static final long UPSTREAM_LATENCY_MS = 100;
+
+    @Mock
+    private WebhookProcessingService webhookProcessingService;
+
+    @Mock
+    private StatusTransitionCoalescer statusTransitionCoalescer;
+
+    @InjectMocks
+    private StatusWebhookFanOutService service;
+
+    private HttpServer upstream;
+    private ExecutorService upstreamExecutor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void startUpstream() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), ORDERS);
+        upstreamExecutor = Executors.newCachedThreadPool();
+        upstream.setExecutor(upstreamExecutor);
+        upstream.createContext("/graphql", exchange -> {
+            int now = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(UPSTREAM_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // Leave the in-flight count before answering, or the caller's next request can be counted first
+                inFlight.decrementAndGet();
+            }
+            try {
+                byte[] body = "{\"data\":{}}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        upstream.start();
+
+        RestTemplate restTemplate = new RestTemplate();
+        String url = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/graphql";
+        when(webhookProcessingService.processStatusUpdate(any())).thenAnswer(inv -> {
+            StatusUpdateWebhook.OrderStatus o = inv.getArgument(0);
+            restTemplate.getForObject(url, String.class);
+            return Map.of("success", true, "orderId", o.getOrderId());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        upstream.stop(0);
+        upstreamExecutor.shutdownNow();
+    }
+
+    private StatusWebhookFanOutService.BatchResult runBatch(boolean virtualThreads, int parallelism) {
+        ReflectionTestUtils.setField(service, "parallelism", parallelism);
+        ReflectionTestUtils.setField(service, "virtualThreads", virtualThreads);
+        service.init();
+        List<StatusUpdateWebhook.OrderStatus> batch = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            StatusUpdateWebhook.OrderStatus o = new StatusUpdateWebhook.OrderStatus();
+            o.setOrderId(String.valueOf(100000 + i));
+            o.setCurrentShipmentStatus("In Transit");
+            batch.add(o);
+        }
+        return service.processBatch(batch);
+    }
+
+    @Test
+    void platformThreads_inFlightCappedByPool() {
+        StatusWebhookFanOutService.BatchResult result = runBatch(false, PLATFORM_THREADS);
+
+        assertEquals(ORDERS, result.successCount());
+        assertTrue(peakInFlight.get() <= PLATFORM_THREADS, "peak in-flight: " + peakInFlight.get());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreads_inFlightCappedByParallelism() {
+        long started = System.nanoTime();
+        StatusWebhookFanOutService.BatchResult result = runBatch(true, VIRTUAL_PARALLELISM);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(ORDERS, result.successCount());
+        assertTrue(peakInFlight.get() <= VIRTUAL_PARALLELISM, "peak in-flight: " + peakInFlight.get());
+        // The pool would need ORDERS / PLATFORM_THREADS * latency = 5s
+        assertTrue(elapsedMs < ORDERS / PLATFORM_THREADS * UPSTREAM_LATENCY_MS / 2, "elapsed ms: " + elapsedMs);
+    }
+}
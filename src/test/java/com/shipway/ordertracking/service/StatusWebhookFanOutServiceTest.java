@@ -0,0 +1,161 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.dto.BotspaceMessageRequest;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import com.shipway.ordertracking.util.BrandAccountKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StatusWebhookFanOutServiceTest {
+
+    @Mock
+    private WebhookProcessingService webhookProcessingService;
+
+    @Mock
+    private ShopifyService shopifyService;
+
+    @Mock
+    private BotspaceService botspaceService;
+
+    @Mock
+    private StatusTransitionCoalescer statusTransitionCoalescer;
+
+    @InjectMocks
+    private StatusWebhookFanOutService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private void start(int parallelism) {
+        ReflectionTestUtils.setField(service, "parallelism", parallelism);
+        service.init();
+    }
+
+    private static StatusUpdateWebhook.OrderStatus order(String orderId, String brand, String status) {
+        StatusUpdateWebhook.OrderStatus o = new StatusUpdateWebhook.OrderStatus();
+        o.setOrderId(orderId);
+        o.setBrandName(brand);
+        o.setCurrentShipmentStatus(status);
+        return o;
+    }
+
+    /** Simulates a flow: Shopify lookup, then Botspace send. */
+    private void stubFlowThroughShopifyAndBotspace(Map<String, List<String>> seenByOrder) {
+        when(webhookProcessingService.processStatusUpdate(any())).thenAnswer(inv -> {
+            StatusUpdateWebhook.OrderStatus o = inv.getArgument(0);
+            shopifyService.getOrderWithDisplayFulfillmentStatus(o.resolveBrandName(), o.getOrderId());
+            BotspaceMessageRequest request = new BotspaceMessageRequest();
+            request.setPhone("+919876543210");
+            botspaceService.sendTemplateMessage(o.resolveBrandName(), request);
+            seenByOrder.computeIfAbsent(o.getOrderId() + "|" + o.resolveBrandName(),
+                    k -> Collections.synchronizedList(new ArrayList<>())).add(o.getCurrentShipmentStatus());
+            return Map.of("success", true, "orderId", o.getOrderId());
+        });
+        when(botspaceService.sendTemplateMessage(anyString(), any(BotspaceMessageRequest.class))).thenReturn(true);
+    }
+
+    @Test
+    void processBatch_sameOrderKeepsArrivalOrder() {
+        start(4);
+        Map<String, List<String>> seen = new ConcurrentHashMap<>();
+        stubFlowThroughShopifyAndBotspace(seen);
+        // Earlier events are slower, so they would be overtaken without per-order ordering
+        when(shopifyService.getOrderWithDisplayFulfillmentStatus(anyString(), anyString())).thenAnswer(inv -> {
+            Thread.sleep("1001".equals(inv.getArgument(1)) ? 60 : 5);
+            return Map.of();
+        });
+
+        List<StatusUpdateWebhook.OrderStatus> batch = List.of(
+                order("1001", BrandAccountKey.STRIKER_STORE, "IN_TRANSIT"),
+                order("2002", BrandAccountKey.STRIKER_STORE, "IN_TRANSIT"),
+                order("1001", BrandAccountKey.STRIKER_STORE, "OUT_FOR_DELIVERY"),
+                order("1001", BrandAccountKey.DRIBBLE_STORE, "DELIVERED"),
+                order("2002", BrandAccountKey.STRIKER_STORE, "DELIVERED"),
+                order("1001", BrandAccountKey.STRIKER_STORE, "DELIVERED"));
+
+        StatusWebhookFanOutService.BatchResult result = service.processBatch(batch);
+
+        assertEquals(6, result.successCount());
+        assertEquals(0, result.failCount());
+        assertEquals(List.of("IN_TRANSIT", "OUT_FOR_DELIVERY", "DELIVERED"),
+                seen.get("1001|" + BrandAccountKey.STRIKER_STORE));
+        assertEquals(List.of("IN_TRANSIT", "DELIVERED"), seen.get("2002|" + BrandAccountKey.STRIKER_STORE));
+        assertEquals(List.of("DELIVERED"), seen.get("1001|" + BrandAccountKey.DRIBBLE_STORE));
+    }
+
+    @Test
+    void processBatch_concurrencyIsBoundedByParallelism() {
+        start(3);
+        stubFlowThroughShopifyAndBotspace(new ConcurrentHashMap<>());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(shopifyService.getOrderWithDisplayFulfillmentStatus(anyString(), anyString())).thenAnswer(inv -> {
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            Thread.sleep(40);
+            inFlight.decrementAndGet();
+            return Map.of();
+        });
+
+        List<StatusUpdateWebhook.OrderStatus> batch = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            batch.add(order("30" + i, BrandAccountKey.STRIKER_STORE, "IN_TRANSIT"));
+        }
+
+        StatusWebhookFanOutService.BatchResult result = service.processBatch(batch);
+
+        assertEquals(12, result.successCount());
+        assertTrue(maxInFlight.get() <= 3, "max in flight was " + maxInFlight.get());
+        assertTrue(maxInFlight.get() > 1, "orders did not run in parallel");
+    }
+
+    @Test
+    void processBatch_exceptionCountsAsFailureAndDoesNotBlockSameOrder() {
+        start(2);
+        when(webhookProcessingService.processStatusUpdate(any())).thenAnswer(inv -> {
+            StatusUpdateWebhook.OrderStatus o = inv.getArgument(0);
+            if ("IN_TRANSIT".equals(o.getCurrentShipmentStatus())) {
+                throw new IllegalStateException("boom");
+            }
+            return Map.of("success", true, "orderId", o.getOrderId());
+        });
+
+        StatusWebhookFanOutService.BatchResult result = service.processBatch(List.of(
+                order("1001", BrandAccountKey.STRIKER_STORE, "IN_TRANSIT"),
+                order("1001", BrandAccountKey.STRIKER_STORE, "DELIVERED")));
+
+        assertEquals(1, result.successCount());
+        assertEquals(1, result.failCount());
+        assertEquals("1001", result.lastResult().get("orderId"));
+    }
+
+    @Test
+    void orderKey_isCaseInsensitiveAndBrandScoped() {
+        assertEquals(StatusWebhookFanOutService.orderKey(order(" 1001 ", "Striker Store", "X")),
+                StatusWebhookFanOutService.orderKey(order("1001", BrandAccountKey.STRIKER_STORE, "Y")));
+        assertNotEquals(StatusWebhookFanOutService.orderKey(order("1001", BrandAccountKey.STRIKER_STORE, "X")),
+                StatusWebhookFanOutService.orderKey(order("1001", BrandAccountKey.DRIBBLE_STORE, "X")));
+    }
+}
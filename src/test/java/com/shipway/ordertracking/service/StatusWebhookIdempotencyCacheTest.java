@@ -0,0 +1,107 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import com.shipway.ordertracking.util.BrandAccountKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StatusWebhookIdempotencyCacheTest {
+
+    private StatusWebhookIdempotencyCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new StatusWebhookIdempotencyCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 3600L);
+    }
+
+    private static StatusUpdateWebhook.OrderStatus event(String orderId, String status, String awb, String ts) {
+        StatusUpdateWebhook.OrderStatus o = new StatusUpdateWebhook.OrderStatus();
+        o.setOrderId(orderId);
+        o.setBrandName("Striker Store");
+        o.setCurrentShipmentStatus(status);
+        o.setAwb(awb);
+        o.setTimestamp(ts);
+        return o;
+    }
+
+    @Test
+    void exactDuplicate_hitsWithCopiedResult() {
+        cache.record(event("1001", "IN_TRANSIT", "AWB1", "t1"), Map.of("success", true, "orderId", "1001"));
+
+        Map<String, Object> hit = cache.lookup(event("1001", "in transit", " AWB1 ", "t1"));
+
+        assertNotNull(hit);
+        assertEquals(true, hit.get("duplicate"));
+        assertEquals("1001", hit.get("orderId"));
+        assertEquals(1L, cache.getStats().get("hits"));
+    }
+
+    @Test
+    void differentStatusAwbOrTimestamp_misses() {
+        cache.record(event("1001", "IN_TRANSIT", "AWB1", "t1"), Map.of("success", true));
+
+        assertNull(cache.lookup(event("1001", "OUT_FOR_DELIVERY", "AWB1", "t1")));
+        assertNull(cache.lookup(event("1001", "IN_TRANSIT", "AWB2", "t1")));
+        assertNull(cache.lookup(event("1001", "IN_TRANSIT", "AWB1", "t2")));
+        assertEquals(3L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void sizeBound_evictsEldest() {
+        cache.record(event("1", "DELIVERED", "A", "t"), Map.of("success", true));
+        cache.record(event("2", "DELIVERED", "A", "t"), Map.of("success", true));
+        cache.record(event("3", "DELIVERED", "A", "t"), Map.of("success", true));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.lookup(event("1", "DELIVERED", "A", "t")));
+        assertNotNull(cache.lookup(event("3", "DELIVERED", "A", "t")));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void expiredEntry_missesAndCountsEviction() {
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        cache.record(event("1", "DELIVERED", "A", "t"), Map.of("success", true));
+
+        assertNull(cache.lookup(event("1", "DELIVERED", "A", "t")));
+        assertEquals(1L, cache.getStats().get("evictions"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void key_usesResolvedBrand() {
+        StatusUpdateWebhook.OrderStatus display = event("1", "DELIVERED", "A", "t");
+        StatusUpdateWebhook.OrderStatus keyed = event("1", "DELIVERED", "A", "t");
+        keyed.setBrandName(BrandAccountKey.STRIKER_STORE);
+
+        assertEquals(StatusWebhookIdempotencyCache.key(display), StatusWebhookIdempotencyCache.key(keyed));
+    }
+
+    @Test
+    void redeliveredBatchWithNewEnvelopeTimestamp_hits() throws Exception {
+        ClaimioStatusWebhookAdapter adapter = new ClaimioStatusWebhookAdapter();
+        ReflectionTestUtils.setField(adapter, "objectMapper", new ObjectMapper());
+        adapter.init();
+        String batch = "{\"timestamp\":\"%s\",\"event\":\"status_update\",\"orders\":[{\"order_id\":\"1001\","
+                + "\"current_shipment_status\":\"IN_TRANSIT\",\"awb\":\"AWB1\"}]}";
+
+        cache.record(adapter.parse(String.format(batch, "2026-10-16 10:00:00").getBytes(StandardCharsets.UTF_8))
+                .getOrders().get(0), Map.of("success", true));
+        StatusUpdateWebhook.OrderStatus redelivered = adapter.parse(
+                String.format(batch, "2026-10-16 10:05:00").getBytes(StandardCharsets.UTF_8)).getOrders().get(0);
+
+        assertNotNull(cache.lookup(redelivered));
+    }
+}
@@ -2,7 +2,9 @@ package com.shipway.ordertracking.service;
 
 import com.shipway.ordertracking.config.ShopifyAccount;
 import com.shipway.ordertracking.config.ShopifyProperties;
+import com.shipway.ordertracking.dto.UnfulfilledShopifyOrderItem;
 import com.shipway.ordertracking.dto.UnfulfilledShopifyPreviewResponse;
+import com.shipway.ordertracking.entity.OrderTracking;
 import com.shipway.ordertracking.entity.StoreShopifyConnection;
 import com.shipway.ordertracking.repository.OrderTrackingRepository;
 import com.shipway.ordertracking.repository.StoreShopifyConnectionRepository;
@@ -14,15 +16,25 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -55,6 +67,7 @@ class UnfulfilledShopifyPreviewServiceFilterTest {
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     void buildPreview_filterStrikerstore_resolvesRowWithStrikerStoreSpacedBrand() {
         StoreShopifyConnection c = new StoreShopifyConnection();
         c.setBrandName("STRIKER STORE");
@@ -63,16 +76,18 @@ class UnfulfilledShopifyPreviewServiceFilterTest {
         when(storeShopifyConnectionRepository.count()).thenReturn(1L);
         when(storeShopifyConnectionRepository.findAllByOrderByBrandNameAsc()).thenReturn(List.of(c));
         when(shopifyProperties.getAccountByCode("STRIKER STORE")).thenReturn(new ShopifyAccount());
-        when(shopifyService.loadOrderNodesBySearchQueryPaged(anyString(), anyString(), anyInt())).thenReturn(Collections.emptyMap());
+        when(shopifyService.forEachOrderNodePage(anyString(), anyString(), anyInt(), any(Consumer.class))).thenReturn(0);
 
         UnfulfilledShopifyPreviewResponse r = service.buildPreview("strikerstore", 200);
 
-        verify(shopifyService).loadOrderNodesBySearchQueryPaged(eq("STRIKER STORE"), eq("fulfillment_status:unfulfilled"), eq(200));
+        verify(shopifyService).forEachOrderNodePage(eq("STRIKER STORE"), eq("fulfillment_status:unfulfilled"), eq(200),
+                any(Consumer.class));
         assertNotNull(r.getCounts().get("accountsProcessed"), "accountsProcessed should be set");
         assertEquals(1, r.getCounts().get("accountsProcessed").intValue());
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     void buildPreview_filterMatchesByTrackingAccountCodeNormalized() {
         StoreShopifyConnection c = new StoreShopifyConnection();
         c.setBrandName("STRIKER STORE");
@@ -81,12 +96,223 @@ class UnfulfilledShopifyPreviewServiceFilterTest {
         when(storeShopifyConnectionRepository.count()).thenReturn(1L);
         when(storeShopifyConnectionRepository.findAllByOrderByBrandNameAsc()).thenReturn(List.of(c));
         when(shopifyProperties.getAccountByCode("STRIKER STORE")).thenReturn(new ShopifyAccount());
-        when(shopifyService.loadOrderNodesBySearchQueryPaged(anyString(), anyString(), anyInt())).thenReturn(Map.of());
+        when(shopifyService.forEachOrderNodePage(anyString(), anyString(), anyInt(), any(Consumer.class))).thenReturn(0);
 
         UnfulfilledShopifyPreviewResponse r = service.buildPreview("plx001", 200);
 
-        verify(shopifyService).loadOrderNodesBySearchQueryPaged(eq("STRIKER STORE"), anyString(), anyInt());
+        verify(shopifyService).forEachOrderNodePage(eq("STRIKER STORE"), anyString(), anyInt(), any(Consumer.class));
         assertNotNull(r.getCounts().get("accountsProcessed"), "accountsProcessed should be set");
         assertEquals(1, r.getCounts().get("accountsProcessed").intValue());
     }
+
+    private static OrderTracking tracking(String orderId, String status) {
+        OrderTracking t = new OrderTracking();
+        t.setOrderId(orderId);
+        t.setShipmentStatus(status);
+        return t;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamPreview_matchesEachPageAsItArrives() {
+        StoreShopifyConnection c = new StoreShopifyConnection();
+        c.setBrandName("STRIKER STORE");
+        c.setAccountCode("PLX001");
+        when(storeShopifyConnectionRepository.count()).thenReturn(1L);
+        when(storeShopifyConnectionRepository.findAllByOrderByBrandNameAsc()).thenReturn(List.of(c));
+        when(shopifyProperties.getAccountByCode("STRIKER STORE")).thenReturn(new ShopifyAccount());
+        doAnswer(inv -> {
+            Consumer<Map<String, Map<String, Object>>> pageSink = inv.getArgument(3);
+            pageSink.accept(Map.of("1001", Map.of("id", "gid://shopify/Order/71", "name", "#1001")));
+            Map<String, Map<String, Object>> second = new LinkedHashMap<>();
+            second.put("1002", Map.of("id", "gid://shopify/Order/72", "name", "#1002"));
+            second.put("1003_1", Map.of("id", "gid://shopify/Order/73", "name", "#1003_1"));
+            pageSink.accept(second);
+            return 3;
+        }).when(shopifyService).forEachOrderNodePage(eq("STRIKER STORE"), eq("fulfillment_status:unfulfilled"),
+                eq(200), any(Consumer.class));
+        when(orderTrackingRepository.findLatestByAccountAndNormalizedOrderIds("PLX001", List.of("1001")))
+                .thenReturn(List.of(tracking("1001", "In Transit")));
+        when(orderTrackingRepository.findLatestByAccountAndNormalizedOrderIds("PLX001", List.of("1002")))
+                .thenReturn(List.of(tracking("1002", "Delivered")));
+
+        List<UnfulfilledShopifyOrderItem> items = new ArrayList<>();
+        Map<String, Integer> counts = service.streamPreview("strikerstore", 200, items::add);
+
+        assertEquals(List.of("1001", "1002"), items.stream().map(UnfulfilledShopifyOrderItem::getOrderId).toList());
+        assertEquals("72", items.get(1).getShopifyOrderNumericId());
+        assertEquals(3, counts.get("shopifyUnfulfilledInBulk"));
+        assertEquals(1, counts.get("skippedShopifyCloneOrderKey"));
+        assertEquals(2, counts.get("matchedWithOrderTracking"));
+        verify(shopifyService, never()).loadOrderNodesBySearchQueryPaged(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamPreview_orderRepeatedOnLaterPage_passedOnOnce() {
+        StoreShopifyConnection c = new StoreShopifyConnection();
+        c.setBrandName("STRIKER STORE");
+        c.setAccountCode("PLX001");
+        when(storeShopifyConnectionRepository.count()).thenReturn(1L);
+        when(storeShopifyConnectionRepository.findAllByOrderByBrandNameAsc()).thenReturn(List.of(c));
+        when(shopifyProperties.getAccountByCode("STRIKER STORE")).thenReturn(new ShopifyAccount());
+        when(orderTrackingRepository.findLatestByAccountAndNormalizedOrderIds(eq("PLX001"), anyList()))
+                .thenAnswer(inv -> inv.<List<String>>getArgument(1).stream()
+                        .map(k -> tracking(k, "In Transit")).toList());
+        // 1001 was updated during the scan and shows up again on the second page
+        doAnswer(inv -> {
+            Consumer<Map<String, Map<String, Object>>> pageSink = inv.getArgument(3);
+            pageSink.accept(Map.of("1001", node("1001", "2026-10-02T10:00:00Z")));
+            pageSink.accept(Map.of("1001", node("1001", "2026-10-02T10:00:00Z")));
+            pageSink.accept(Map.of("1002", node("1002", "2026-10-01T10:00:00Z")));
+            return 3;
+        }).when(shopifyService).forEachOrderNodePage(eq("STRIKER STORE"), anyString(), eq(200), any(Consumer.class));
+
+        List<UnfulfilledShopifyOrderItem> items = new ArrayList<>();
+        Map<String, Integer> counts = service.streamPreview("strikerstore", 200, items::add);
+        UnfulfilledShopifyPreviewResponse preview = service.buildPreview("strikerstore", 200);
+
+        assertEquals(List.of("1001", "1002"), items.stream().map(UnfulfilledShopifyOrderItem::getOrderId).toList());
+        assertEquals(2, counts.get("matchedWithOrderTracking"));
+        assertEquals(preview.getOrderIds(), items.stream().map(UnfulfilledShopifyOrderItem::getOrderId).toList());
+        assertEquals(preview.getCounts(), counts);
+    }
+
+    private static Map<String, Object> node(String name, String createdAt) {
+        return Map.of("id", "gid://shopify/Order/" + name, "name", "#" + name, "createdAt", createdAt);
+    }
+
+    /** One search page keyed like Shopify's, in the given order ({@code Map.of} iteration order is unspecified). */
+    @SafeVarargs
+    private static Map<String, Map<String, Object>> page(Map<String, Object>... nodes) {
+        Map<String, Map<String, Object>> page = new LinkedHashMap<>();
+        for (Map<String, Object> n : nodes) {
+            page.put(n.get("name").toString().substring(1), n);
+        }
+        return page;
+    }
+
+    /**
+     * Real snapshot cache, one mapped shop, every requested order in transit. The full search returns 1001 and 1002;
+     * delta searches ({@code updated_at:>…}) get {@code delta}.
+     */
+    @SuppressWarnings("unchecked")
+    private UnfulfilledPreviewSnapshotCache withSnapshotCache(Function<String, Object> delta) {
+        UnfulfilledPreviewSnapshotCache cache = new UnfulfilledPreviewSnapshotCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxAgeMs", 3_600_000L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 32);
+        ReflectionTestUtils.setField(service, "snapshotCache", cache);
+        ReflectionTestUtils.setField(service, "deltaOverlapSeconds", 120L);
+
+        StoreShopifyConnection c = new StoreShopifyConnection();
+        c.setBrandName("STRIKER STORE");
+        c.setAccountCode("PLX001");
+        when(storeShopifyConnectionRepository.count()).thenReturn(1L);
+        when(storeShopifyConnectionRepository.findAllByOrderByBrandNameAsc()).thenReturn(List.of(c));
+        when(shopifyProperties.getAccountByCode("STRIKER STORE")).thenReturn(new ShopifyAccount());
+        when(orderTrackingRepository.findLatestByAccountAndNormalizedOrderIds(eq("PLX001"), anyList()))
+                .thenAnswer(inv -> inv.<List<String>>getArgument(1).stream()
+                        .map(k -> tracking(k, "In Transit")).toList());
+        doAnswer(inv -> {
+            String query = inv.getArgument(1);
+            Consumer<Map<String, Map<String, Object>>> pageSink = inv.getArgument(3);
+            if (query.equals("fulfillment_status:unfulfilled")) {
+                pageSink.accept(page(node("1001", "2026-10-02T10:00:00Z"), node("1002", "2026-10-01T10:00:00Z")));
+                return 2;
+            }
+            Object result = delta.apply(query);
+            if (result instanceof Map<?, ?> page) {
+                pageSink.accept((Map<String, Map<String, Object>>) page);
+                return page.size();
+            }
+            return result;
+        }).when(shopifyService).forEachOrderNodePage(eq("STRIKER STORE"), anyString(), eq(200), any(Consumer.class));
+        return cache;
+    }
+
+    @Test
+    void buildPreview_secondLoad_mergesUpdatedSinceDeltaIntoSnapshot() {
+        withSnapshotCache(query -> query.startsWith("(fulfillment_status:unfulfilled) AND updated_at:>'")
+                ? page(node("1003", "2026-10-03T10:00:00Z"))
+                : page(node("1003", "2026-10-03T10:00:00Z"), node("1002", "2026-10-01T10:00:00Z")));
+
+        UnfulfilledShopifyPreviewResponse first = service.buildPreview("strikerstore", 200);
+        UnfulfilledShopifyPreviewResponse second = service.buildPreview("strikerstore", 200);
+
+        assertEquals(List.of("1001", "1002"), first.getOrderIds());
+        // 1002 was updated and no longer matches the unfulfilled query; 1003 is new
+        assertEquals(List.of("1003", "1001"), second.getOrderIds());
+        verify(shopifyService, times(1)).forEachOrderNodePage(anyString(), eq("fulfillment_status:unfulfilled"),
+                anyInt(), any());
+    }
+
+    @Test
+    void buildPreview_afterEvictOrder_dropsFulfilledOrderWithoutFullReload() {
+        UnfulfilledPreviewSnapshotCache cache = withSnapshotCache(query -> 0);
+
+        service.buildPreview("strikerstore", 200);
+        cache.evictOrder("STRIKER STORE", "#1001");
+        UnfulfilledShopifyPreviewResponse second = service.buildPreview("strikerstore", 200);
+
+        assertEquals(List.of("1002"), second.getOrderIds());
+        verify(shopifyService, times(1)).forEachOrderNodePage(anyString(), eq("fulfillment_status:unfulfilled"),
+                anyInt(), any());
+    }
+
+    @Test
+    void buildPreview_deltaSearchFails_reloadsInFull() {
+        withSnapshotCache(query -> -1);
+
+        service.buildPreview("strikerstore", 200);
+        UnfulfilledShopifyPreviewResponse second = service.buildPreview("strikerstore", 200);
+
+        assertEquals(List.of("1001", "1002"), second.getOrderIds());
+        verify(shopifyService, times(2)).forEachOrderNodePage(anyString(), eq("fulfillment_status:unfulfilled"),
+                anyInt(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void buildPreview_shopsRunConcurrently_rowsKeepShopOrder() throws Exception {
+        StoreShopifyConnection a = new StoreShopifyConnection();
+        a.setBrandName("ALPHA");
+        a.setAccountCode("PLX_A");
+        StoreShopifyConnection b = new StoreShopifyConnection();
+        b.setBrandName("BETA");
+        b.setAccountCode("PLX_B");
+        when(storeShopifyConnectionRepository.count()).thenReturn(1L);
+        when(storeShopifyConnectionRepository.findAllByOrderByBrandNameAsc()).thenReturn(List.of(a, b));
+        when(shopifyProperties.getAccountByCode(anyString())).thenReturn(new ShopifyAccount());
+        when(orderTrackingRepository.findLatestByAccountAndNormalizedOrderIds(anyString(), anyList()))
+                .thenAnswer(inv -> inv.<List<String>>getArgument(1).stream()
+                        .map(k -> tracking(k, "Delivered")).toList());
+        // Each shop's search blocks until both shops are searching: only passes when they run at the same time
+        CountDownLatch bothSearching = new CountDownLatch(2);
+        doAnswer(inv -> {
+            bothSearching.countDown();
+            if (!bothSearching.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("shops were searched one after another");
+            }
+            Consumer<Map<String, Map<String, Object>>> pageSink = inv.getArgument(3);
+            String prefix = "ALPHA".equals(inv.getArgument(0)) ? "1" : "2";
+            pageSink.accept(Map.of(prefix + "001", node(prefix + "001", "2026-10-02T10:00:00Z")));
+            pageSink.accept(Map.of(prefix + "002", node(prefix + "002", "2026-10-01T10:00:00Z")));
+            return 2;
+        }).when(shopifyService).forEachOrderNodePage(anyString(), anyString(), eq(200), any(Consumer.class));
+
+        ReflectionTestUtils.setField(service, "parallelShops", 2);
+        ReflectionTestUtils.setField(service, "lookupThreads", 2);
+        service.init();
+        try {
+            UnfulfilledShopifyPreviewResponse r = service.buildPreview(null, 200);
+
+            assertEquals(List.of("1001", "1002", "2001", "2002"), r.getOrderIds());
+            assertEquals(4, r.getCounts().get("matchedWithOrderTracking"));
+            assertEquals(2, r.getCounts().get("accountsProcessed"));
+            verify(orderTrackingRepository, times(4)).findLatestByAccountAndNormalizedOrderIds(anyString(), anyList());
+        } finally {
+            service.shutdown();
+        }
+    }
 }
@@ -0,0 +1,246 @@
+package com.shipway.ordertracking.service;
+
+import com.shipway.ordertracking.config.BotspaceAccount;
+import com.shipway.ordertracking.config.BotspaceProperties;
+import com.shipway.ordertracking.dto.BotspaceMessageRequest;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * {@link UpstreamResilience} against a fault-injecting local stub: each request takes the next scripted status
+ * (503, 429 with {@code Retry-After}, ...) and answers {@link #healthyStatus} once the script is used up.
+ */
+class UpstreamResilienceTest {
+
+    private static final String ACCEPTED = "{\"data\":{\"id\":\"msg-1\",\"status\":\"accepted\"}}";
+
+    private HttpServer upstream;
+    private String url;
+    private final Deque<Integer> script = new ArrayDeque<>();
+    private volatile int healthyStatus = 200;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private UpstreamResilience resilience;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 10);
+        upstream.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            Integer scripted;
+            synchronized (script) {
+                scripted = script.poll();
+            }
+            int status = scripted != null ? scripted : healthyStatus;
+            byte[] body = (status == 200 ? ACCEPTED : "{\"errors\":\"injected\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (status == 429) {
+                exchange.getResponseHeaders().add("Retry-After", "0.05");
+            }
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } finally {
+                exchange.close();
+            }
+        });
+        upstream.start();
+        url = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/api";
+
+        resilience = new UpstreamResilience();
+        ReflectionTestUtils.setField(resilience, "enabled", true);
+        ReflectionTestUtils.setField(resilience, "maxAttempts", 3);
+        ReflectionTestUtils.setField(resilience, "baseDelayMs", 10L);
+        ReflectionTestUtils.setField(resilience, "maxDelayMs", 100L);
+        ReflectionTestUtils.setField(resilience, "failureThreshold", 3);
+        ReflectionTestUtils.setField(resilience, "openMs", 30_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.stop(0);
+    }
+
+    private void script(Integer... statuses) {
+        synchronized (script) {
+            script.addAll(List.of(statuses));
+        }
+    }
+
+    private String read(String shop) {
+        return resilience.call(UpstreamResilience.Upstream.SHOPIFY, shop, UpstreamResilience.CallType.READ,
+                () -> restTemplate.getForObject(url, String.class));
+    }
+
+    private String mutate(String shop) {
+        return resilience.call(UpstreamResilience.Upstream.SHOPIFY, shop, UpstreamResilience.CallType.MUTATION,
+                () -> restTemplate.postForObject(url, Map.of(), String.class));
+    }
+
+    @Test
+    void read_retriesTransient5xxUntilSuccess() {
+        script(503, 502);
+
+        assertEquals(ACCEPTED, read("seq5t1-mz.myshopify.com"));
+        assertEquals(3, requests.get());
+        assertEquals(2L, resilience.getStats().get("retries"));
+    }
+
+    @Test
+    void mutation_notRetriedOn5xx() {
+        script(503);
+
+        assertThrows(HttpServerErrorException.class, () -> mutate("seq5t1-mz.myshopify.com"));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void mutation_retriedOn429AfterRetryAfter() {
+        script(429);
+        long started = System.nanoTime();
+
+        assertEquals(ACCEPTED, mutate("seq5t1-mz.myshopify.com"));
+
+        assertEquals(2, requests.get());
+        assertTrue((System.nanoTime() - started) / 1_000_000 >= 50);
+    }
+
+    @Test
+    void circuit_opensAfterConsecutiveFailures_andFailsFastPerShop() {
+        ReflectionTestUtils.setField(resilience, "maxAttempts", 1);
+        healthyStatus = 503;
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(HttpServerErrorException.class, () -> read("seq5t1-mz.myshopify.com"));
+        }
+        UpstreamResilience.CircuitOpenException open = assertThrows(UpstreamResilience.CircuitOpenException.class,
+                () -> read("seq5t1-mz.myshopify.com"));
+
+        assertEquals(3, requests.get());
+        assertTrue(open.getRetryAfterMillis() > 0);
+        assertEquals(UpstreamResilience.CircuitState.OPEN,
+                resilience.getState(UpstreamResilience.Upstream.SHOPIFY, "seq5t1-mz"));
+        assertEquals(UpstreamResilience.CircuitState.CLOSED,
+                resilience.getState(UpstreamResilience.Upstream.SHOPIFY, "rx0hfn-pc.myshopify.com"));
+        assertEquals(1L, resilience.getStats().get("rejected"));
+    }
+
+    @Test
+    void circuit_halfOpenTrialClosesOnceUpstreamRecovers() throws Exception {
+        ReflectionTestUtils.setField(resilience, "maxAttempts", 1);
+        ReflectionTestUtils.setField(resilience, "openMs", 100L);
+        healthyStatus = 503;
+        for (int i = 0; i < 3; i++) {
+            assertThrows(HttpServerErrorException.class, () -> read("seq5t1-mz"));
+        }
+
+        healthyStatus = 200;
+        Thread.sleep(150);
+        assertEquals(UpstreamResilience.CircuitState.HALF_OPEN,
+                resilience.getState(UpstreamResilience.Upstream.SHOPIFY, "seq5t1-mz"));
+
+        assertEquals(ACCEPTED, read("seq5t1-mz"));
+        assertEquals(UpstreamResilience.CircuitState.CLOSED,
+                resilience.getState(UpstreamResilience.Upstream.SHOPIFY, "seq5t1-mz"));
+    }
+
+    @Test
+    void circuit_4xxDoesNotCountAsUpstreamFailure() {
+        ReflectionTestUtils.setField(resilience, "maxAttempts", 1);
+        healthyStatus = 404;
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(RuntimeException.class, () -> read("seq5t1-mz"));
+        }
+
+        assertEquals(5, requests.get());
+        assertEquals(UpstreamResilience.CircuitState.CLOSED,
+                resilience.getState(UpstreamResilience.Upstream.SHOPIFY, "seq5t1-mz"));
+    }
+
+    @Test
+    void botspaceSend_retriedOnlyWhenMessageCannotHaveBeenTaken() {
+        BotspaceAccount account = new BotspaceAccount();
+        account.setUrl(url);
+        account.setEndpoint("/message");
+        account.setKey("key");
+        BotspaceProperties properties = new BotspaceProperties();
+        properties.getAccounts().put("strikerstore", account);
+        BotspaceService botspaceService = new BotspaceService();
+        ReflectionTestUtils.setField(botspaceService, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(botspaceService, "botspaceProperties", properties);
+        ReflectionTestUtils.setField(botspaceService, "upstreamResilience", resilience);
+
+        script(429);
+        assertTrue(botspaceService.sendTemplateMessage("STRIKER STORE",
+                new BotspaceMessageRequest("919999999999", "tpl", List.of("a"))));
+        assertEquals(2, requests.get());
+
+        script(500);
+        assertFalse(botspaceService.sendTemplateMessage("STRIKER STORE",
+                new BotspaceMessageRequest("919999999999", "tpl", List.of("a"))));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void botspaceSend_circuitOpen_leavesNoFailedTrackingRow() {
+        ReflectionTestUtils.setField(resilience, "maxAttempts", 1);
+        BotspaceAccount account = new BotspaceAccount();
+        account.setUrl(url);
+        account.setEndpoint("/message");
+        account.setKey("key");
+        BotspaceProperties properties = new BotspaceProperties();
+        properties.getAccounts().put("strikerstore", account);
+        CustomerMessageTrackingService tracking = mock(CustomerMessageTrackingService.class);
+        BotspaceService botspaceService = new BotspaceService();
+        ReflectionTestUtils.setField(botspaceService, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(botspaceService, "botspaceProperties", properties);
+        ReflectionTestUtils.setField(botspaceService, "upstreamResilience", resilience);
+        ReflectionTestUtils.setField(botspaceService, "customerMessageTrackingService", tracking);
+
+        healthyStatus = 503;
+        for (int i = 0; i < 3; i++) {
+            assertFalse(botspaceService.sendTemplateMessage("STRIKER STORE",
+                    new BotspaceMessageRequest("919999999999", "tpl", List.of("a")), "1001", "sent_inTransit",
+                    "failed_inTransit"));
+        }
+        verify(tracking, times(3)).addMessageStatus("1001", "STRIKER STORE", "failed_inTransit", null, null);
+
+        // Breaker open: nothing reaches Botspace, so nothing is recorded as failed
+        assertFalse(botspaceService.sendTemplateMessage("STRIKER STORE",
+                new BotspaceMessageRequest("919999999999", "tpl", List.of("a")), "1002", "sent_inTransit",
+                "failed_inTransit"));
+        assertFalse(botspaceService.sendTemplateMessageAsync("STRIKER STORE",
+                new BotspaceMessageRequest("919999999999", "tpl", List.of("a")), "1003", "sent_inTransit",
+                "failed_inTransit", null, null).join());
+        assertEquals(3, requests.get());
+        verify(tracking, never()).addMessageStatus(eq("1002"), any(), any(), any(), any());
+        verify(tracking, never()).addMessageStatus(eq("1003"), any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,77 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookIngestionJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private static StatusUpdateWebhook.OrderStatus order(String orderId, String status) {
+        StatusUpdateWebhook.OrderStatus o = new StatusUpdateWebhook.OrderStatus();
+        o.setOrderId(orderId);
+        o.setCurrentShipmentStatus(status);
+        return o;
+    }
+
+    @Test
+    void append_tracksDepthAndAckRemovesEntry() throws Exception {
+        WebhookIngestionJournal journal = new WebhookIngestionJournal(dir, objectMapper);
+
+        WebhookIngestionJournal.Entry first = journal.append(order("1001", "IN_TRANSIT"));
+        journal.append(order("1002", "DELIVERED"));
+
+        assertEquals(2, journal.depth());
+        assertTrue(journal.lagMillis() >= 0);
+
+        journal.ack(first.id());
+
+        assertEquals(1, journal.depth());
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void loadPending_replaysUnackedEntriesOldestFirst() throws Exception {
+        WebhookIngestionJournal previousRun = new WebhookIngestionJournal(dir, objectMapper);
+        previousRun.append(order("1001", "IN_TRANSIT"));
+        WebhookIngestionJournal.Entry done = previousRun.append(order("1002", "DELIVERED"));
+        previousRun.append(order("1003", "OUT_FOR_DELIVERY"));
+        previousRun.ack(done.id());
+
+        WebhookIngestionJournal restarted = new WebhookIngestionJournal(dir, objectMapper);
+        List<WebhookIngestionJournal.Entry> pending = restarted.loadPending();
+
+        assertEquals(2, pending.size());
+        assertEquals("1001", pending.get(0).order().getOrderId());
+        assertEquals("IN_TRANSIT", pending.get(0).order().getCurrentShipmentStatus());
+        assertEquals("1003", pending.get(1).order().getOrderId());
+        assertEquals(2, restarted.depth());
+    }
+
+    @Test
+    void loadPending_movesUnreadableEntryAside() throws Exception {
+        Files.writeString(dir.resolve("0000000000001-000000001.json"), "not-json");
+        Files.writeString(dir.resolve("0000000000002-000000002.tmp"), "{}");
+
+        WebhookIngestionJournal journal = new WebhookIngestionJournal(dir, objectMapper);
+
+        assertTrue(journal.loadPending().isEmpty());
+        assertEquals(0, journal.depth());
+        assertTrue(Files.exists(dir.resolve("0000000000001-000000001.bad")));
+        assertTrue(Files.notExists(dir.resolve("0000000000002-000000002.tmp")));
+    }
+}
@@ -0,0 +1,87 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookIngestionServiceTest {
+
+    @Mock
+    private StatusWebhookFanOutService statusWebhookFanOutService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private WebhookIngestionService service;
+
+    @TempDir
+    Path dir;
+
+    private static StatusUpdateWebhook.OrderStatus order(String orderId, String status) {
+        StatusUpdateWebhook.OrderStatus o = new StatusUpdateWebhook.OrderStatus();
+        o.setOrderId(orderId);
+        o.setCurrentShipmentStatus(status);
+        return o;
+    }
+
+    @Test
+    void replayPending_resubmitsOnlyEntriesFoundAtStartup() throws Exception {
+        new WebhookIngestionJournal(dir, objectMapper).append(order("1001", "IN_TRANSIT"));
+        // Never completes, so entries stay journaled like in-flight orders
+        when(statusWebhookFanOutService.submit(any())).thenReturn(new CompletableFuture<Map<String, Object>>());
+        ReflectionTestUtils.setField(service, "asyncEnabled", true);
+        ReflectionTestUtils.setField(service, "journalDir", dir.toString());
+        service.init();
+
+        // Accepted between startup and ApplicationReadyEvent: processed by the live path only
+        service.enqueue(order("1002", "DELIVERED"));
+        service.replayPending();
+
+        ArgumentCaptor<StatusUpdateWebhook.OrderStatus> submitted =
+                ArgumentCaptor.forClass(StatusUpdateWebhook.OrderStatus.class);
+        verify(statusWebhookFanOutService, times(2)).submit(submitted.capture());
+        assertEquals(List.of("1002", "1001"),
+                submitted.getAllValues().stream().map(StatusUpdateWebhook.OrderStatus::getOrderId).toList());
+    }
+
+    @Test
+    void replayPending_rejectedEntryStaysJournaled_restStillReplayed() throws Exception {
+        WebhookIngestionJournal previousRun = new WebhookIngestionJournal(dir, objectMapper);
+        previousRun.append(order("1001", "IN_TRANSIT"));
+        previousRun.append(order("1002", "DELIVERED"));
+        when(statusWebhookFanOutService.submit(any()))
+                .thenThrow(new RejectedExecutionException("saturated"))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("success", true)));
+        ReflectionTestUtils.setField(service, "asyncEnabled", true);
+        ReflectionTestUtils.setField(service, "journalDir", dir.toString());
+        service.init();
+
+        service.replayPending();
+
+        verify(statusWebhookFanOutService, times(2)).submit(any());
+        assertEquals(1, service.getStats().get("queueDepth"));
+        assertEquals(1L, service.getStats().get("processed"));
+    }
+}
@@ -2,6 +2,7 @@ package com.shipway.ordertracking.service;
 
 import com.shipway.ordertracking.dto.StatusUpdateWebhook;
 import com.shipway.ordertracking.util.BrandAccountKey;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -14,6 +15,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,9 +39,18 @@ class WebhookProcessingServiceTest {
     @Mock
     private DeliveredFlowService deliveredFlowService;
 
+    @Mock
+    private StatusWebhookIdempotencyCache idempotencyCache;
+
     @InjectMocks
     private WebhookProcessingService service;
 
+    @BeforeEach
+    void setUp() {
+        // An unstubbed Map-returning mock answers an empty map, which would read as a cache hit
+        lenient().when(idempotencyCache.lookup(any())).thenReturn(null);
+    }
+
     private static StatusUpdateWebhook.OrderStatus order(String orderId, String phone, String status) {
         StatusUpdateWebhook.OrderStatus o = new StatusUpdateWebhook.OrderStatus();
         o.setOrderId(orderId);
@@ -151,4 +163,29 @@ class WebhookProcessingServiceTest {
         assertFalse((Boolean) r.get("success"));
         assertEquals("Error processing order: boom", r.get("message"));
     }
+
+    @Test
+    void processStatusUpdate_duplicateFromIdempotencyCache_skipsRouting() {
+        StatusUpdateWebhook.OrderStatus o = order("1001", "+15550001", "IN_TRANSIT");
+        when(idempotencyCache.lookup(o)).thenReturn(Map.of("success", true, "orderId", "1001", "duplicate", true));
+
+        Map<String, Object> r = service.processStatusUpdate(o);
+
+        assertEquals(true, r.get("duplicate"));
+        verify(inTransitFlowService, never()).processInTransit(any());
+    }
+
+    @Test
+    void processStatusUpdate_recordsOnlyProcessedEvents() {
+        StatusUpdateWebhook.OrderStatus ok = order("1001", "+15550001", "IN_TRANSIT");
+        StatusUpdateWebhook.OrderStatus skipped = order("1002", "+15550001", "DELIVERED");
+        when(inTransitFlowService.processInTransit(ok)).thenReturn(true);
+        when(deliveredFlowService.processDelivered(skipped)).thenReturn(false);
+
+        service.processStatusUpdate(ok);
+        service.processStatusUpdate(skipped);
+
+        verify(idempotencyCache).record(any(), any());
+        verify(idempotencyCache, never()).record(eq(skipped), any());
+    }
 }
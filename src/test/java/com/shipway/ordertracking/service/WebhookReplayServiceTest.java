@@ -0,0 +1,178 @@
+package com.shipway.ordertracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shipway.ordertracking.dto.ShopifyOrderCreatedWebhook;
+import com.shipway.ordertracking.dto.StatusUpdateWebhook;
+import com.shipway.ordertracking.dto.WebhookReplayRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookReplayServiceTest {
+
+    private static final String STATUS_BATCH = "{\"event\":\"status\",\"orders\":["
+            + "{\"order_id\":\"1001\",\"current_shipment_status\":\"In Transit\"},"
+            + "{\"order_id\":\"1002\",\"current_shipment_status\":\"Delivered\"}]}";
+    private static final String CART = "{\"attributes\":{\"cart_id\":\"c1\",\"phone_number\":\"9000000001\"}}";
+
+    @TempDir
+    Path dir;
+
+    @Mock
+    private StatusWebhookFanOutService statusWebhookFanOutService;
+
+    @Mock
+    private OrderCreatedFlowService orderCreatedFlowService;
+
+    @Mock
+    private AbandonedCartFlowService abandonedCartFlowService;
+
+    @InjectMocks
+    private WebhookReplayService service;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ClaimioStatusWebhookAdapter claimio = new ClaimioStatusWebhookAdapter();
+        ShopifyOrderCreatedWebhookAdapter shopify = new ShopifyOrderCreatedWebhookAdapter();
+        FasterrCartWebhookAdapter fasterr = new FasterrCartWebhookAdapter();
+        for (Object adapter : List.of(claimio, shopify, fasterr)) {
+            ReflectionTestUtils.setField(adapter, "objectMapper", objectMapper);
+        }
+        claimio.init();
+        shopify.init();
+        fasterr.init();
+        WebhookSourceAdapterRegistry registry = new WebhookSourceAdapterRegistry();
+        ReflectionTestUtils.setField(registry, "adapters", List.of(claimio, shopify, fasterr));
+        registry.init();
+
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(service, "webhookSourceAdapterRegistry", registry);
+        ReflectionTestUtils.setField(service, "replayDir", dir.toString());
+        ReflectionTestUtils.setField(service, "defaultParallelism", 2);
+        ReflectionTestUtils.setField(service, "maxParallelism", 8);
+    }
+
+    private WebhookReplayRequest request(String file, boolean dryRun) {
+        WebhookReplayRequest request = new WebhookReplayRequest();
+        request.setFile(file);
+        request.setDryRun(dryRun);
+        return request;
+    }
+
+    private Map<String, Object> awaitFinished(String id) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            Map<String, Object> progress = service.getProgress(id);
+            if (!"RUNNING".equals(progress.get("state"))) {
+                return progress;
+            }
+            Thread.sleep(20);
+        }
+        fail("Replay " + id + " did not finish");
+        return null;
+    }
+
+    @Test
+    void parseLine_detectsEachPayloadShape() throws Exception {
+        WebhookReplayService.PayloadType auto = WebhookReplayService.PayloadType.AUTO;
+
+        List<WebhookReplayService.ReplayEvent> batch = service.parseLine(bytes(STATUS_BATCH), auto, null);
+        assertEquals(2, batch.size());
+        assertEquals(WebhookReplayService.PayloadType.STATUS, batch.get(0).type());
+
+        List<WebhookReplayService.ReplayEvent> single = service.parseLine(
+                bytes("{\"order_id\":\"1003\",\"current_shipment_status\":\"Out for Delivery\"}"), auto, null);
+        assertEquals("1003", ((StatusUpdateWebhook.OrderStatus) single.get(0).payload()).getOrderId());
+
+        List<WebhookReplayService.ReplayEvent> created = service.parseLine(bytes("{\"type\":\"order-created\","
+                + "\"shopDomain\":\"shop.myshopify.com\",\"payload\":{\"id\":1,\"name\":\"#1001\"}}"), auto, null);
+        assertEquals("#1001", ((ShopifyOrderCreatedWebhook) created.get(0).payload()).getName());
+        assertEquals("shop.myshopify.com", created.get(0).shopDomain());
+
+        assertEquals(WebhookReplayService.PayloadType.CART_ABANDONED,
+                service.parseLine(bytes(CART), auto, null).get(0).type());
+    }
+
+    @Test
+    void start_replaysThroughPipelineAndSkipsBadLines() throws Exception {
+        when(statusWebhookFanOutService.submit(any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("success", true)));
+        when(abandonedCartFlowService.processAbandonedCart(any())).thenReturn(false);
+        Files.writeString(dir.resolve("backlog.ndjson"), STATUS_BATCH + "\nnot-json\n\n" + CART + "\n");
+
+        Map<String, Object> done = awaitFinished((String) service.start(request("backlog.ndjson", false)).get("id"));
+
+        assertEquals("COMPLETED", done.get("state"));
+        assertEquals(4L, done.get("totalLines"));
+        assertEquals(1L, done.get("skippedLines"));
+        assertEquals(3L, done.get("events"));
+        assertEquals(2L, done.get("succeeded"));
+        assertEquals(1L, done.get("failed"));
+        verify(statusWebhookFanOutService, times(2)).submit(any());
+        verify(statusWebhookFanOutService).submit(argThat(o -> "1002".equals(o.getOrderId())));
+        verify(abandonedCartFlowService).processAbandonedCart(any());
+    }
+
+    @Test
+    void start_dryRunCountsWithoutDispatching() throws Exception {
+        Files.writeString(dir.resolve("backlog.ndjson"), STATUS_BATCH + "\n" + CART + "\n");
+
+        Map<String, Object> done = awaitFinished((String) service.start(request("backlog.ndjson", true)).get("id"));
+
+        assertEquals("COMPLETED", done.get("state"));
+        assertEquals(3L, done.get("succeeded"));
+        assertEquals(Map.of("IN_TRANSIT", 1L, "DELIVERED", 1L), done.get("byRoute"));
+        verifyNoInteractions(statusWebhookFanOutService, abandonedCartFlowService, orderCreatedFlowService);
+    }
+
+    @Test
+    void start_orderCreatedUsesRequestShopDomain() throws Exception {
+        when(orderCreatedFlowService.processShopifyOrderCreated(any(), eq("shop.myshopify.com"))).thenReturn(true);
+        Files.writeString(dir.resolve("orders.ndjson"), "{\"id\":1,\"name\":\"#1001\",\"line_items\":[]}\n");
+        WebhookReplayRequest request = request("orders.ndjson", false);
+        request.setType("order-created");
+        request.setShopDomain("shop.myshopify.com");
+        request.setRatePerSecond(50.0);
+
+        Map<String, Object> done = awaitFinished((String) service.start(request).get("id"));
+
+        assertEquals(1L, done.get("succeeded"));
+    }
+
+    @Test
+    void start_rejectsFilesOutsideReplayDir() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.start(request("../etc/passwd", true)));
+        assertTrue(e.getMessage().startsWith("file must be inside"));
+        assertThrows(IllegalArgumentException.class, () -> service.start(request("missing.ndjson", true)));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
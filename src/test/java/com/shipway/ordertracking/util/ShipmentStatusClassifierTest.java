@@ -0,0 +1,102 @@
+package com.shipway.ordertracking.util;
+
+import com.shipway.ordertracking.util.ShipmentStatusClassifier.ShipmentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShipmentStatusClassifierTest {
+
+    /** Expected class for every entry of {@link ShipmentStatusClassifier#KNOWN_CARRIER_STATUSES}. */
+    private static final Map<String, ShipmentStatus> EXPECTED = new LinkedHashMap<>();
+
+    static {
+        ShipmentStatus u = ShipmentStatus.UNKNOWN;
+        put(u, "0", "Address Incorrect", "AWB_ASSIGNED", "Consignee Refused", "Consignee Unavailable", "CROV",
+                "Customer refused - OTP verified", "DEL", "DELAYED", "Delivery Delayed", "Delivery Reattempt",
+                "Future delivery requested", "LOST", "Manifest Uploaded", "Pickup Failed", "Reached At Destination",
+                "REACHED_AT_DESTINATION_HUB", "RTD", "SHNDR1", "SHNDR12", "SHNDR13", "SHNDR14", "SHNDR16", "SHNDR18",
+                "SHNDR2", "SHNDR3", "SHNDR4", "SHNDR5", "SHNDR6", "SHNDR8", "SHPFR3", "SHPFR4", "SHPFR6", "SHPFR7");
+        put(ShipmentStatus.DELIVERED, "Delivered");
+        put(ShipmentStatus.UNDELIVERED, "Undelivered");
+        put(ShipmentStatus.IN_TRANSIT, "In Transit", "Picked Up", "PICKED_UP");
+        put(ShipmentStatus.INT, "INT");
+        put(ShipmentStatus.OUT_FOR_DELIVERY, "Out For Delivery");
+        put(ShipmentStatus.SHIPPED, "SHIPPED");
+        put(ShipmentStatus.BOOKED, "Out for Pickup", "OUT_FOR_PICKUP", "PICKUP_GENERATED", "Shipment Booked",
+                "SHPFR1", "SHPFR10", "SHPFR11");
+        put(ShipmentStatus.RTO, "RTO", "RTO Delivered", "RTO In Transit", "RTO Initiated", "RTO Lost",
+                "RTO Undelivered", "RTO_IN_TRANSIT", "RTO_INITIATED", "RTO_NDR", "RTO_OFD", "RTONDR12", "RTONDR5",
+                "RTOUND");
+    }
+
+    private static void put(ShipmentStatus status, String... raws) {
+        for (String raw : raws) {
+            EXPECTED.put(raw, status);
+        }
+    }
+
+    @Test
+    void classify_everyPreviewAllowlistStatus() {
+        assertEquals(new HashSet<>(ShipmentStatusClassifier.KNOWN_CARRIER_STATUSES), EXPECTED.keySet());
+        for (Map.Entry<String, ShipmentStatus> e : EXPECTED.entrySet()) {
+            String raw = e.getKey();
+            assertEquals(e.getValue(), ShipmentStatusClassifier.classify(raw), raw);
+            assertEquals(e.getValue(), ShipmentStatusClassifier.classify(raw.toLowerCase(Locale.ROOT)), raw);
+            assertEquals(e.getValue(), ShipmentStatusClassifier.classify("  " + raw.replace(' ', '_') + " "), raw);
+        }
+    }
+
+    @Test
+    void classify_unlistedSpellingsUseSameRules() {
+        assertEquals(ShipmentStatus.OUT_FOR_DELIVERY, ShipmentStatusClassifier.classify("out  for   delivery"));
+        assertEquals(ShipmentStatus.UNDELIVERED, ShipmentStatusClassifier.classify("Not Delivered"));
+        assertEquals(ShipmentStatus.BOOKED, ShipmentStatusClassifier.classify("LABEL_GENERATED"));
+        assertEquals(ShipmentStatus.RTO, ShipmentStatusClassifier.classify("Return To Origin"));
+        assertEquals(ShipmentStatus.UNKNOWN, ShipmentStatusClassifier.classify("MYSTERY_STATUS"));
+        assertEquals(ShipmentStatus.UNKNOWN, ShipmentStatusClassifier.classify(null));
+        assertEquals(ShipmentStatus.UNKNOWN, ShipmentStatusClassifier.classify("   "));
+    }
+
+    @Test
+    void normalize_trimsUppercasesAndCollapsesSeparators() {
+        assertEquals("IN TRANSIT", ShipmentStatusClassifier.normalize("  in_transit  "));
+        assertEquals("OUT FOR DELIVERY", ShipmentStatusClassifier.normalize("Out__for \t delivery"));
+        assertEquals("", ShipmentStatusClassifier.normalize(null));
+        assertEquals("", ShipmentStatusClassifier.normalize(" _ "));
+    }
+
+    @Test
+    void normalize_knownSpellingsShareOnePrecomputedString() {
+        assertSame(ShipmentStatusClassifier.normalize("out_for_delivery"),
+                ShipmentStatusClassifier.normalize(new String("OUT FOR DELIVERY")));
+        assertSame(ShipmentStatusClassifier.normalize("IN_TRANSIT"), ShipmentStatusClassifier.normalize("In Transit"));
+    }
+
+    @Test
+    void sameStatus_comparesNormalizedForms() {
+        assertTrue(ShipmentStatusClassifier.sameStatus("IN_TRANSIT", "in transit"));
+        assertFalse(ShipmentStatusClassifier.sameStatus("Picked Up", "In Transit"));
+        assertFalse(ShipmentStatusClassifier.sameStatus("Delivered", null));
+    }
+
+    @Test
+    void memo_staysBounded() {
+        Set<String> raws = new HashSet<>();
+        for (int i = 0; i < ShipmentStatusClassifier.MAX_MEMO_ENTRIES + 100; i++) {
+            raws.add("CARRIER_CODE_" + i);
+        }
+        raws.forEach(ShipmentStatusClassifier::classify);
+        assertTrue(ShipmentStatusClassifier.memoSize() <= ShipmentStatusClassifier.MAX_MEMO_ENTRIES);
+        assertEquals(ShipmentStatus.UNKNOWN, ShipmentStatusClassifier.classify("CARRIER_CODE_1"));
+    }
+}